@@ -0,0 +1,62 @@
+package com.mlvisio.controllers;
+
+import com.mlvisio.storage.Document;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The in-memory part of GET /api/attendance/report: the date-range filter and
+ * the descending sort over every mark, as run after {@code findAll()}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AttendanceReportBenchmark {
+
+    @Param({"1000000"})
+    public int records;
+
+    @Param({"100000"})
+    public int students;
+
+    /** Days covered by the requested range, ending on the last generated day. */
+    @Param({"30", "365"})
+    public int rangeDays;
+
+    private List<Document> all;
+    private String startDate;
+    private String endDate;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        all = SyntheticData.attendance(records, students, 42);
+        endDate = SyntheticData.date(SyntheticData.DAYS - 1);
+        startDate = SyntheticData.date(SyntheticData.DAYS - rangeDays);
+    }
+
+    @Benchmark
+    public List<Document> filter() {
+        return AttendanceController.filterByDateRange(all, startDate, endDate);
+    }
+
+    @Benchmark
+    public List<Document> filterAndSort() {
+        List<Document> filtered = AttendanceController.filterByDateRange(all, startDate, endDate);
+        AttendanceController.sortByDateDescending(filtered);
+        return filtered;
+    }
+
+    /** The sort alone, on a fresh copy of the unfiltered marks. */
+    @Benchmark
+    public List<Document> sortAll() {
+        List<Document> copy = new ArrayList<>(all);
+        AttendanceController.sortByDateDescending(copy);
+        return copy;
+    }
+}
@@ -0,0 +1,49 @@
+package com.mlvisio.controllers;
+
+import com.mlvisio.storage.Document;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GET /api/stats/dashboard: the counting loops over the active students and
+ * the day's marks. The per-mark student lookup is served from a map, so this
+ * measures the aggregation itself rather than the data source round trips.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DashboardBenchmark {
+
+    @Param({"100000"})
+    public int students;
+
+    /** Marks recorded on the day; several per student across subjects. */
+    @Param({"250000"})
+    public int marksToday;
+
+    private List<Document> users;
+    private List<Document> attendanceToday;
+    private Map<String, Document> byRegistrationNumber;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        users = SyntheticData.students(students);
+        attendanceToday = SyntheticData.attendanceOn(SyntheticData.DAYS - 1, marksToday, students, 42);
+        byRegistrationNumber = new HashMap<>();
+        for (Document user : users) {
+            byRegistrationNumber.put(user.getString("registrationNumber"), user);
+        }
+    }
+
+    @Benchmark
+    public Map<String, Object> summarise() {
+        return DashboardStatsController.summarise(users, attendanceToday, byRegistrationNumber::get);
+    }
+}
@@ -0,0 +1,28 @@
+package com.mlvisio.controllers;
+
+import com.google.cloud.Timestamp;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/** The arrival time column, formatted once per row of every report. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FormatTimeBenchmark {
+
+    private Timestamp timestamp;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        timestamp = SyntheticData.timestamp(1_717_230_600L);
+    }
+
+    @Benchmark
+    public String formatTime() {
+        return AttendanceController.formatTime(timestamp);
+    }
+}
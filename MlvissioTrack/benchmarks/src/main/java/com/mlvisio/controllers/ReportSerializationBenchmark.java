@@ -0,0 +1,90 @@
+package com.mlvisio.controllers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.google.cloud.Timestamp;
+import com.mlvisio.json.ApiResponse;
+import com.mlvisio.json.AttendanceRecord;
+import com.mlvisio.json.Json;
+import com.mlvisio.json.StudentInfo;
+import com.mlvisio.storage.Document;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writing an attendance report response: the typed rows
+ * {@code handleAttendanceReport} builds, through the shared response writer,
+ * against the same rows as per-request maps through a fresh ObjectMapper as
+ * the handlers wrote them before.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReportSerializationBenchmark {
+
+    @Param({"1000", "50000"})
+    public int rows;
+
+    private ObjectMapper objectMapper;
+    private Map<String, Object> responseData;
+    private ObjectWriter responseWriter;
+    private ApiResponse response;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        objectMapper = new ObjectMapper();
+        responseWriter = Json.MAPPER.writerFor(ApiResponse.class);
+        List<Map<String, Object>> attendanceRecords = new ArrayList<>(rows);
+        List<AttendanceRecord> typedRecords = new ArrayList<>(rows);
+        for (Document doc : SyntheticData.attendance(rows, Math.max(1, rows / 10), 42)) {
+            String registrationNumber = doc.getString("registrationNumber");
+            typedRecords.add(AttendanceRecord.report(doc, new StudentInfo("Student " + registrationNumber,
+                    registrationNumber.replace('/', '.') + "@mlvisio.lk", registrationNumber,
+                    registrationNumber.substring(0, registrationNumber.indexOf('/')))));
+            Map<String, Object> studentInfo = new HashMap<>();
+            studentInfo.put("name", "Student " + registrationNumber);
+            studentInfo.put("email", registrationNumber.replace('/', '.') + "@mlvisio.lk");
+            studentInfo.put("registrationNumber", registrationNumber);
+            studentInfo.put("department", registrationNumber.substring(0, registrationNumber.indexOf('/')));
+
+            Map<String, Object> record = new HashMap<>();
+            record.put("id", doc.getId());
+            record.put("registrationNumber", registrationNumber);
+            record.put("studentInfo", studentInfo);
+            record.put("date", doc.getString("date"));
+            record.put("status", doc.getString("status"));
+            record.put("subjectCode", doc.getString("subjectCode"));
+            Timestamp timestamp = doc.getTimestamp("timestamp");
+            record.put("arrivalTime", AttendanceController.formatTime(timestamp));
+            record.put("timestamp", timestamp);
+            record.put("location", doc.getString("location"));
+            record.put("confidence", doc.getDouble("confidence"));
+            attendanceRecords.add(record);
+        }
+        responseData = new HashMap<>();
+        responseData.put("success", true);
+        responseData.put("data", attendanceRecords);
+        response = ApiResponse.ok(typedRecords);
+    }
+
+    @Benchmark
+    public void writeReport() throws IOException {
+        // writeValue closes its target, as it closes the response stream
+        responseWriter.writeValue(OutputStream.nullOutputStream(), response);
+    }
+
+    @Benchmark
+    public void writeReportMaps() throws IOException {
+        objectMapper.writeValue(OutputStream.nullOutputStream(), responseData);
+    }
+}
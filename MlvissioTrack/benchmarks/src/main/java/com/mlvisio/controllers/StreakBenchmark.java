@@ -0,0 +1,40 @@
+package com.mlvisio.controllers;
+
+import com.mlvisio.storage.Document;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GET /api/attendance/streak: the newest-first scan, which parses two dates
+ * per present mark in {@code isConsecutiveDay}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StreakBenchmark {
+
+    @Param({"10", "300"})
+    public int streak;
+
+    private List<Document> history;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        history = SyntheticData.history(streak, SyntheticData.DAYS);
+    }
+
+    @Benchmark
+    public int presentStreak() {
+        return AttendanceController.presentStreak(history);
+    }
+
+    @Benchmark
+    public boolean isConsecutiveDay() {
+        return AttendanceController.isConsecutiveDay("2024-06-01", "2024-06-02");
+    }
+}
@@ -0,0 +1,112 @@
+package com.mlvisio.controllers;
+
+import com.google.cloud.Timestamp;
+import com.mlvisio.storage.Document;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic users and attendance marks shaped like the ones the seeders
+ * and the devices write, used in place of the data source by the benchmarks.
+ */
+final class SyntheticData {
+
+    static final String[] DEPARTMENTS = {"HNDIT", "HNDA", "HNDM", "HNDE"};
+    static final String[] SUBJECTS = {"IT1101", "IT1102", "IT2101", "A1101", "M1101", "E1101"};
+    static final LocalDate FIRST_DAY = LocalDate.of(2024, 1, 1);
+    static final int DAYS = 365;
+
+    private SyntheticData() {}
+
+    static String registrationNumber(int i) {
+        return DEPARTMENTS[i % DEPARTMENTS.length] + "/2024/" + String.format("%05d", i);
+    }
+
+    /** Active students; one in five is part time and every 50th has no type set. */
+    static List<Document> students(int count) {
+        List<Document> users = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Map<String, Object> data = new HashMap<>();
+            data.put("name", "Student " + i);
+            data.put("email", "student" + i + "@mlvisio.lk");
+            data.put("registrationNumber", registrationNumber(i));
+            data.put("department", DEPARTMENTS[i % DEPARTMENTS.length]);
+            data.put("role", "student");
+            data.put("isActive", true);
+            data.put("year", String.valueOf(1 + i % 2));
+            if (i % 50 != 0) {
+                data.put("type", i % 5 == 0 ? "Part Time" : "Full Time");
+            }
+            users.add(new Document("u" + i, data));
+        }
+        return users;
+    }
+
+    /** Marks spread uniformly over {@link #DAYS} days, about 85% present. */
+    static List<Document> attendance(int count, int students, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        List<Document> marks = new ArrayList<>(count);
+        long firstSecond = FIRST_DAY.toEpochDay() * 86_400L;
+        for (int i = 0; i < count; i++) {
+            int day = random.nextInt(DAYS);
+            marks.add(mark("a" + i, registrationNumber(random.nextInt(students)), day,
+                    random.nextInt(100) < 85, firstSecond + day * 86_400L + 28_800 + random.nextInt(36_000),
+                    random));
+        }
+        return marks;
+    }
+
+    /** Marks for the single day {@code day} days after {@link #FIRST_DAY}, as the dashboard reads them. */
+    static List<Document> attendanceOn(int day, int count, int students, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        List<Document> marks = new ArrayList<>(count);
+        long daySecond = (FIRST_DAY.toEpochDay() + day) * 86_400L;
+        for (int i = 0; i < count; i++) {
+            marks.add(mark("d" + i, registrationNumber(random.nextInt(students)), day,
+                    random.nextInt(100) < 85, daySecond + 28_800 + random.nextInt(36_000), random));
+        }
+        return marks;
+    }
+
+    /**
+     * One student's history, newest first: present every day for
+     * {@code streak} days, then an absence, then older marks.
+     */
+    static List<Document> history(int streak, int total) {
+        List<Document> marks = new ArrayList<>(total);
+        SplittableRandom random = new SplittableRandom(7);
+        for (int i = 0; i < total; i++) {
+            int day = DAYS - 1 - i;
+            boolean present = i != streak;
+            marks.add(mark("h" + i, registrationNumber(0), day, present,
+                    (FIRST_DAY.toEpochDay() + day) * 86_400L + 30_000, random));
+        }
+        return marks;
+    }
+
+    static Timestamp timestamp(long epochSecond) {
+        return Timestamp.ofTimeSecondsAndNanos(epochSecond, 0);
+    }
+
+    static String date(int day) {
+        return FIRST_DAY.plusDays(day).toString();
+    }
+
+    private static Document mark(String id, String registrationNumber, int day, boolean present,
+                                 long epochSecond, SplittableRandom random) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("registrationNumber", registrationNumber);
+        data.put("date", date(day));
+        data.put("status", present ? "Present" : "Absent");
+        data.put("subjectCode", SUBJECTS[random.nextInt(SUBJECTS.length)]);
+        data.put("location", "Lab " + (1 + random.nextInt(6)));
+        data.put("confidence", 0.80 + random.nextDouble() * 0.2);
+        data.put("timestamp", timestamp(epochSecond));
+        return new Document(id, data);
+    }
+}
@@ -0,0 +1,68 @@
+package com.mlvisio.loadtest;
+
+import org.apache.catalina.Context;
+import org.apache.catalina.LifecycleException;
+import org.apache.catalina.startup.Tomcat;
+import org.apache.tomcat.util.scan.StandardJarScanFilter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * The packaged WAR on an embedded Tomcat, backed by the local store in a
+ * scratch directory so runs need neither Firestore nor credentials.
+ */
+final class EmbeddedBackend implements AutoCloseable {
+
+    private final Path workDir;
+    private final Tomcat tomcat;
+    final Fixture fixture;
+
+    private EmbeddedBackend(Path workDir, Tomcat tomcat, Fixture fixture) {
+        this.workDir = workDir;
+        this.tomcat = tomcat;
+        this.fixture = fixture;
+    }
+
+    static EmbeddedBackend start(Path war, int students, int devices) throws IOException, LifecycleException {
+        if (!Files.isRegularFile(war)) {
+            throw new IOException("WAR not found: " + war.toAbsolutePath() + " (run mvn package in MlvissioTrack)");
+        }
+        Path workDir = Files.createTempDirectory("mlvisio-loadtest");
+        Path dataDir = workDir.resolve("data");
+        Fixture fixture = Fixture.seed(dataDir, students, devices);
+
+        // Read by the backend's Storage when the webapp first touches it
+        System.setProperty("mlvisio.storage", "local");
+        System.setProperty("mlvisio.dataDir", dataDir.toString());
+
+        Tomcat tomcat = new Tomcat();
+        tomcat.setBaseDir(workDir.resolve("tomcat").toString());
+        tomcat.setPort(0);
+        tomcat.getConnector();
+        Context context = tomcat.addWebapp("", war.toAbsolutePath().toString());
+        // The servlets are annotated classes in WEB-INF/classes; skip scanning the library jars
+        StandardJarScanFilter filter = new StandardJarScanFilter();
+        filter.setTldSkip("*");
+        filter.setPluggabilitySkip("*");
+        context.getJarScanner().setJarScanFilter(filter);
+        tomcat.start();
+        return new EmbeddedBackend(workDir, tomcat, fixture);
+    }
+
+    String baseUrl() {
+        return "http://localhost:" + tomcat.getConnector().getLocalPort();
+    }
+
+    @Override
+    public void close() throws Exception {
+        tomcat.stop();
+        tomcat.destroy();
+        try (Stream<Path> paths = Files.walk(workDir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.mlvisio.loadtest;
+
+import com.mlvisio.services.LatencyHistogram;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/** Latencies and failures for one endpoint over a run. */
+final class EndpointStats {
+
+    final String name;
+    final LatencyHistogram latency = new LatencyHistogram();
+    final LongAdder errors = new LongAdder();
+
+    EndpointStats(String name) {
+        this.name = name;
+    }
+
+    void record(long micros, boolean ok) {
+        latency.recordMicros(micros);
+        if (!ok) errors.increment();
+    }
+
+    String row(double seconds) {
+        long count = latency.getCount();
+        long[] q = latency.quantiles(0.5, 0.9, 0.99, 0.999, 1.0);
+        return String.format("%-22s %9d %7d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f",
+                name, count, errors.sum(), count / seconds,
+                q[0] / 1000.0, q[1] / 1000.0, q[2] / 1000.0, q[3] / 1000.0, q[4] / 1000.0);
+    }
+
+    static String header() {
+        return String.format("%-22s %9s %7s %9s %9s %9s %9s %9s %9s",
+                "endpoint", "requests", "errors", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+    }
+}
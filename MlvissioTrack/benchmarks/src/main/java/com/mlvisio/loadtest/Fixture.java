@@ -0,0 +1,86 @@
+package com.mlvisio.loadtest;
+
+import com.google.cloud.Timestamp;
+import com.mlvisio.services.EmailIndex;
+import com.mlvisio.storage.DocumentStore;
+import com.mlvisio.storage.LogStructuredStore;
+import org.mindrot.jbcrypt.BCrypt;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Students and devices in the shapes {@code util.SeedUsers} writes, stored
+ * straight into a local store directory before the backend opens it.
+ */
+final class Fixture {
+
+    private static final String[] DEPARTMENTS = {"HNDIT", "HNDA", "HNDM", "HNDE"};
+    private static final int BATCH_SIZE = 500;
+
+    final List<String> registrationNumbers;
+    final List<String> deviceIds;
+
+    private Fixture(List<String> registrationNumbers, List<String> deviceIds) {
+        this.registrationNumbers = registrationNumbers;
+        this.deviceIds = deviceIds;
+    }
+
+    static String registrationNumber(int i) {
+        return DEPARTMENTS[i % DEPARTMENTS.length] + "/PT/2024/" + String.format("%05d", i + 1);
+    }
+
+    static Fixture seed(Path dataDir, int students, int devices) {
+        List<String> registrationNumbers = new ArrayList<>(students);
+        List<String> deviceIds = new ArrayList<>(devices);
+        // One hash for everyone; the load test never logs in and bcrypt at cost 12 would dominate seeding
+        String password = BCrypt.hashpw("loadtest", BCrypt.gensalt(4));
+
+        LogStructuredStore store = LogStructuredStore.open(dataDir);
+        try {
+            DocumentStore.Batch batch = store.batch();
+            for (int i = 0; i < students; i++) {
+                String registrationNumber = registrationNumber(i);
+                String email = "student" + (i + 1) + "@loadtest.mlvisio.com";
+                Map<String, Object> doc = new HashMap<>();
+                doc.put("name", "Student " + (i + 1));
+                doc.put("registrationNumber", registrationNumber);
+                doc.put("email", email);
+                doc.put("birthDate", "2002-01-01");
+                doc.put("year", i % 2 == 0 ? "1st Year" : "2nd Year");
+                doc.put("type", i % 5 == 0 ? "Part Time" : "Full Time");
+                doc.put("department", DEPARTMENTS[i % DEPARTMENTS.length]);
+                doc.put("role", "student");
+                doc.put("vertexLabel", registrationNumber);
+                doc.put("password", password);
+                doc.put("isActive", true);
+                doc.put("createdAt", Timestamp.now());
+                batch.set("users", email, doc);
+                batch.set(EmailIndex.COLLECTION, EmailIndex.key(email), EmailIndex.reservation(email, email));
+                registrationNumbers.add(registrationNumber);
+                if ((i + 1) % BATCH_SIZE == 0) {
+                    batch.commit().join();
+                    batch = store.batch();
+                }
+            }
+            for (int i = 0; i < devices; i++) {
+                String deviceId = String.format("ESP32_%03d", i + 1);
+                Map<String, Object> doc = new HashMap<>();
+                doc.put("deviceId", deviceId);
+                doc.put("location", "Entrance " + (i + 1));
+                doc.put("room", String.format("Lab %02d", i + 1));
+                doc.put("isActive", true);
+                doc.put("lastSeen", Timestamp.now());
+                batch.set("devices", deviceId, doc);
+                deviceIds.add(deviceId);
+            }
+            batch.commit().join();
+        } finally {
+            store.close();
+        }
+        return new Fixture(registrationNumbers, deviceIds);
+    }
+}
@@ -0,0 +1,242 @@
+package com.mlvisio.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Simulates entrance cameras marking attendance while admins watch the
+ * dashboard, and reports throughput and latency percentiles per endpoint.
+ *
+ * Each device owns a slice of the students. Every {@code classPeriod} a class
+ * starts on all devices at once and most of each roster arrives within the
+ * first {@code burstWindow}, so marks come in bursts rather than at a steady
+ * rate. A device sends its marks one at a time, as the ESP32 firmware does;
+ * mark latency is measured from the moment the student arrived, so a device
+ * that falls behind shows up in the percentiles instead of slowing the load.
+ *
+ * Without {@code --target} the packaged WAR is started on an embedded Tomcat
+ * over a freshly seeded local store.
+ *
+ * Usage: LoadTest [--target=http://host:8080/MlvissioTrack] [--war=../target/MlvissioTrack-1.0-SNAPSHOT.war]
+ *                 [--devices=20] [--admins=4] [--students=2000] [--duration=60] [--warmup=10]
+ *                 [--classPeriod=20] [--burstWindow=5] [--pollInterval=2]
+ */
+public class LoadTest {
+
+    private static final DateTimeFormatter HH_MM = DateTimeFormatter.ofPattern("HH:mm");
+    private static final double ATTENDANCE_RATE = 0.9;
+    private static final double ON_TIME = 0.85;
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final EndpointStats mark = new EndpointStats("POST attendance/mark");
+    private final EndpointStats dashboard = new EndpointStats("GET stats/dashboard");
+    private final EndpointStats report = new EndpointStats("GET attendance/report");
+
+    private final String baseUrl;
+    private final int devices;
+    private final int admins;
+    private final int students;
+    private final long classPeriodNanos;
+    private final long burstWindowNanos;
+    private final long pollIntervalNanos;
+    private long startNanos;
+    private long recordFromNanos;
+    private long endNanos;
+
+    private LoadTest(String baseUrl, Map<String, String> options) {
+        this.baseUrl = baseUrl;
+        this.devices = intOption(options, "devices", 20);
+        this.admins = intOption(options, "admins", 4);
+        this.students = intOption(options, "students", 2000);
+        this.classPeriodNanos = TimeUnit.SECONDS.toNanos(intOption(options, "classPeriod", 20));
+        this.burstWindowNanos = TimeUnit.SECONDS.toNanos(intOption(options, "burstWindow", 5));
+        this.pollIntervalNanos = TimeUnit.SECONDS.toNanos(intOption(options, "pollInterval", 2));
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                System.err.println("❌ Unrecognised argument: " + arg);
+                return;
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        int duration = intOption(options, "duration", 60);
+        int warmup = intOption(options, "warmup", 10);
+
+        String target = options.get("target");
+        if (target != null) {
+            new LoadTest(target.replaceAll("/+$", ""), options).run(warmup, duration);
+            return;
+        }
+        Path war = Paths.get(options.getOrDefault("war", "../target/MlvissioTrack-1.0-SNAPSHOT.war"));
+        int students = intOption(options, "students", 2000);
+        int devices = intOption(options, "devices", 20);
+        try (EmbeddedBackend backend = EmbeddedBackend.start(war, students, devices)) {
+            System.out.println("✅ Backend on " + backend.baseUrl() + " with " + students + " students, "
+                    + devices + " devices");
+            new LoadTest(backend.baseUrl(), options).run(warmup, duration);
+        }
+    }
+
+    private void run(int warmupSeconds, int durationSeconds) throws InterruptedException {
+        startNanos = System.nanoTime();
+        recordFromNanos = startNanos + TimeUnit.SECONDS.toNanos(warmupSeconds);
+        endNanos = recordFromNanos + TimeUnit.SECONDS.toNanos(durationSeconds);
+
+        List<Thread> threads = new ArrayList<>();
+        for (int d = 0; d < devices; d++) {
+            int device = d;
+            threads.add(new Thread(() -> runDevice(device), String.format("ESP32_%03d", d + 1)));
+        }
+        for (int a = 0; a < admins; a++) {
+            int admin = a;
+            threads.add(new Thread(() -> runAdmin(admin), "admin-" + (a + 1)));
+        }
+        threads.forEach(Thread::start);
+
+        while (System.nanoTime() < endNanos) {
+            TimeUnit.SECONDS.sleep(10);
+            long elapsed = TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - startNanos);
+            System.out.println("⏱️ " + elapsed + "s: " + mark.latency.getCount() + " marks, "
+                    + (dashboard.latency.getCount() + report.latency.getCount()) + " admin requests recorded");
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        double seconds = TimeUnit.NANOSECONDS.toMillis(endNanos - recordFromNanos) / 1000.0;
+        System.out.println();
+        System.out.println(devices + " devices, " + admins + " admins, " + students + " students, "
+                + String.format("%.0f", seconds) + "s measured after " + warmupSeconds + "s warm-up");
+        System.out.println(EndpointStats.header());
+        for (EndpointStats stats : Arrays.asList(mark, dashboard, report)) {
+            System.out.println(stats.row(seconds));
+        }
+    }
+
+    /** One camera: a class every period, its roster arriving in a burst at the start. */
+    private void runDevice(int device) {
+        SplittableRandom random = new SplittableRandom(device);
+        List<String> roster = new ArrayList<>();
+        for (int i = device; i < students; i += devices) {
+            roster.add(Fixture.registrationNumber(i));
+        }
+        String location = String.format("Entrance %d", device + 1);
+
+        for (int slot = 0; ; slot++) {
+            long classStart = startNanos + slot * classPeriodNanos;
+            if (classStart >= endNanos) return;
+            String subjectCode = "LT" + (1001 + slot);
+
+            List<long[]> arrivals = new ArrayList<>();
+            for (int i = 0; i < roster.size(); i++) {
+                if (random.nextDouble() >= ATTENDANCE_RATE) continue;
+                arrivals.add(new long[]{classStart + arrivalOffset(random), i});
+            }
+            arrivals.sort((a, b) -> Long.compare(a[0], b[0]));
+
+            for (long[] arrival : arrivals) {
+                long due = arrival[0];
+                if (due >= endNanos) return;
+                sleepUntil(due);
+                Map<String, Object> body = new HashMap<>();
+                body.put("registrationNumber", roster.get((int) arrival[1]));
+                body.put("subjectCode", subjectCode);
+                body.put("status", "Present");
+                body.put("location", location);
+                body.put("arrivalTime", LocalTime.now().format(HH_MM));
+                try {
+                    HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/attendance/mark"))
+                            .timeout(Duration.ofSeconds(30))
+                            .header("Content-Type", "application/json")
+                            .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(body)))
+                            .build();
+                    send(mark, request, due);
+                } catch (Exception e) {
+                    System.err.println("❌ " + Thread.currentThread().getName() + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /** Mostly within the burst window, skewed towards the bell; the rest trickle in late. */
+    private long arrivalOffset(SplittableRandom random) {
+        if (random.nextDouble() < ON_TIME) {
+            double exponential = -Math.log(1 - random.nextDouble()) * burstWindowNanos / 3;
+            return (long) Math.min(exponential, burstWindowNanos);
+        }
+        long lateSpan = Math.max(1, (long) (classPeriodNanos * 0.8) - burstWindowNanos);
+        return burstWindowNanos + random.nextLong(lateSpan);
+    }
+
+    /** One admin: the dashboard and today's report, then a pause. */
+    private void runAdmin(int admin) {
+        SplittableRandom random = new SplittableRandom(1000 + admin);
+        String today = LocalDate.now().toString();
+        URI dashboardUri = URI.create(baseUrl + "/api/stats/dashboard");
+        URI reportUri = URI.create(baseUrl + "/api/attendance/report?startDate=" + today + "&endDate=" + today);
+
+        while (System.nanoTime() < endNanos) {
+            send(dashboard, HttpRequest.newBuilder(dashboardUri).timeout(Duration.ofSeconds(30)).GET().build(),
+                    System.nanoTime());
+            send(report, HttpRequest.newBuilder(reportUri).timeout(Duration.ofSeconds(30)).GET().build(),
+                    System.nanoTime());
+            sleepUntil(System.nanoTime() + (long) (pollIntervalNanos * (0.5 + random.nextDouble())));
+        }
+    }
+
+    private void send(EndpointStats stats, HttpRequest request, long intendedNanos) {
+        boolean ok;
+        try {
+            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+            ok = response.statusCode() / 100 == 2;
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) Thread.currentThread().interrupt();
+            ok = false;
+        }
+        if (intendedNanos >= recordFromNanos && intendedNanos < endNanos) {
+            stats.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - intendedNanos), ok);
+        }
+    }
+
+    private static void sleepUntil(long nanos) {
+        long remaining;
+        while ((remaining = nanos - System.nanoTime()) > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(remaining);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private static int intOption(Map<String, String> options, String name, int defaultValue) {
+        String value = options.get(name);
+        return value != null ? Integer.parseInt(value) : defaultValue;
+    }
+}
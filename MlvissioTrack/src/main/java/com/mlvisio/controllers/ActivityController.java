@@ -0,0 +1,38 @@
+package com.mlvisio.controllers;
+
+import com.mlvisio.json.ActivityItem;
+import com.mlvisio.json.ApiResponse;
+import com.mlvisio.json.Json;
+import com.mlvisio.storage.Document;
+import com.mlvisio.storage.Storage;
+import com.mlvisio.util.Log;
+import com.mlvisio.web.Controller;
+import com.mlvisio.web.RouteTable;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.util.*;
+
+public class ActivityController implements Controller {
+
+    private static final Log log = Log.get(ActivityController.class);
+
+    @Override
+    public void register(RouteTable.Builder routes) {
+        routes.get("/activity/recent", exchange -> handleRecentActivity(exchange.getResponse(), Storage.getInstance()));
+    }
+
+    private void handleRecentActivity(HttpServletResponse response, Storage storage)
+            throws IOException {
+        
+        // Get recent attendance records to generate activity feed
+        List<Document> documents = storage.attendance().findRecent(10);
+        List<ActivityItem> activities = new ArrayList<>(documents.size());
+        for (Document doc : documents) {
+            activities.add(ActivityItem.of(doc));
+        }
+        
+        log.debug("Found {} recent activities", activities.size());
+        Json.write(response, ApiResponse.ok(activities));
+    }
+}
\ No newline at end of file
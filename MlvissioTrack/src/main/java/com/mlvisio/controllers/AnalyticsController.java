@@ -0,0 +1,105 @@
+package com.mlvisio.controllers;
+
+import com.mlvisio.json.ApiResponse;
+import com.mlvisio.services.AttendanceColumns;
+import com.mlvisio.web.ApiException;
+import com.mlvisio.web.Controller;
+import com.mlvisio.web.Exchange;
+import com.mlvisio.web.RouteTable;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Group-by aggregation over every attendance mark, answered from the
+ * in-memory {@link AttendanceColumns} instead of reading marks per request.
+ *
+ * GET /api/analytics/aggregate?groupBy=department,subject,week&metric=rate
+ * with optional startDate, endDate, department, subjectCode,
+ * registrationNumber and status filters.
+ */
+public class AnalyticsController implements Controller {
+
+    @Override
+    public void register(RouteTable.Builder routes) {
+        routes.get("/analytics/aggregate", this::handleAggregate);
+    }
+
+    private void handleAggregate(Exchange exchange) throws IOException {
+        List<AttendanceColumns.Dimension> groupBy = new ArrayList<>();
+        for (String name : list(exchange.getQuery("groupBy"))) {
+            AttendanceColumns.Dimension dimension = parse(AttendanceColumns.Dimension.class, name, "groupBy");
+            if (groupBy.contains(dimension)) {
+                throw new ApiException(HttpServletResponse.SC_BAD_REQUEST, "groupBy lists " + name + " twice");
+            }
+            groupBy.add(dimension);
+        }
+        List<AttendanceColumns.Metric> metrics = new ArrayList<>();
+        for (String name : list(exchange.getQuery("metric"))) {
+            metrics.add(parse(AttendanceColumns.Metric.class, name, "metric"));
+        }
+        if (metrics.isEmpty()) metrics.add(AttendanceColumns.Metric.COUNT);
+
+        AttendanceColumns.Filter filter = new AttendanceColumns.Filter()
+                .startDate(date(exchange.getQuery("startDate"), "startDate"))
+                .endDate(date(exchange.getQuery("endDate"), "endDate"))
+                .department(blankToNull(exchange.getQuery("department")))
+                .subject(blankToNull(exchange.getQuery("subjectCode")))
+                .student(blankToNull(exchange.getQuery("registrationNumber")))
+                .status(blankToNull(exchange.getQuery("status")));
+
+        long started = System.nanoTime();
+        AttendanceColumns columns = AttendanceColumns.getInstance();
+        List<Map<String, Object>> groups;
+        try {
+            groups = columns.aggregate(groupBy, metrics, filter);
+        } catch (IllegalArgumentException e) {
+            throw new ApiException(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+        }
+        exchange.send(ApiResponse.ok(groups)
+                .with("count", groups.size())
+                .with("rowsScanned", columns.size())
+                .with("tookMs", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started)));
+    }
+
+    private static List<String> list(String value) {
+        List<String> names = new ArrayList<>();
+        if (value == null) return names;
+        for (String name : value.split(",")) {
+            if (!name.trim().isEmpty()) names.add(name.trim());
+        }
+        return names;
+    }
+
+    private static <E extends Enum<E>> E parse(Class<E> type, String name, String parameter) {
+        try {
+            return Enum.valueOf(type, name.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            List<String> allowed = new ArrayList<>();
+            for (E value : type.getEnumConstants()) allowed.add(value.name().toLowerCase(Locale.ROOT));
+            throw new ApiException(HttpServletResponse.SC_BAD_REQUEST,
+                    "Unknown " + parameter + " '" + name + "'; expected one of " + String.join(", ", allowed));
+        }
+    }
+
+    private static String date(String value, String parameter) {
+        value = blankToNull(value);
+        if (value == null) return null;
+        try {
+            return LocalDate.parse(value).toString();
+        } catch (DateTimeParseException e) {
+            throw new ApiException(HttpServletResponse.SC_BAD_REQUEST, parameter + " must be an ISO date (YYYY-MM-DD)");
+        }
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.trim().isEmpty() ? null : value.trim();
+    }
+}
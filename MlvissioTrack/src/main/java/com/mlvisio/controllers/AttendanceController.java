@@ -0,0 +1,456 @@
+package com.mlvisio.controllers;
+
+import com.google.cloud.Timestamp;
+import com.mlvisio.json.ApiResponse;
+import com.mlvisio.json.AttendanceRecord;
+import com.mlvisio.json.Formats;
+import com.mlvisio.json.Json;
+import com.mlvisio.json.StudentInfo;
+import com.mlvisio.services.AttendanceArchive;
+import com.mlvisio.services.AttendanceColumns;
+import com.mlvisio.services.AuthTokens;
+import com.mlvisio.services.SessionAttendanceService;
+import com.mlvisio.storage.Document;
+import com.mlvisio.storage.Storage;
+import com.mlvisio.util.Log;
+import com.mlvisio.web.ApiException;
+import com.mlvisio.web.Controller;
+import com.mlvisio.web.Exchange;
+import com.mlvisio.web.RouteTable;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+
+public class AttendanceController implements Controller {
+
+    private static final Log log = Log.get(AttendanceController.class);
+
+    public AttendanceController() {
+        AttendanceArchive.getInstance().start(Storage.getInstance().attendance());
+    }
+
+    @Override
+    public void register(RouteTable.Builder routes) {
+        routes.get("/attendance", exchange ->
+                handleAllAttendance(exchange.getRequest(), exchange.getResponse(), Storage.getInstance()));
+        routes.get("/attendance/report", exchange ->
+                handleAttendanceReport(exchange.getRequest(), exchange.getResponse(), Storage.getInstance()));
+        routes.get("/attendance/student", exchange ->
+                handleStudentAttendance(exchange.getRequest(), exchange.getResponse(), Storage.getInstance()));
+        routes.get("/attendance/streak", exchange ->
+                handleAttendanceStreak(exchange.getRequest(), exchange.getResponse(), Storage.getInstance()));
+        routes.post("/attendance/mark", exchange -> handleMarkAttendance(exchange, exchange.getResponse()));
+        routes.get("/attendance/absentees", this::handleAbsentees);
+        routes.get("/attendance/eligibility", this::handleEligibility);
+        routes.get("/attendance/archive", exchange -> Json.write(exchange.getResponse(),
+                ApiResponse.ok(AttendanceArchive.getInstance().describe())));
+        routes.post("/attendance/archive", this::handleArchive);
+    }
+
+    @Override
+    public void destroy() {
+        SessionAttendanceService.getInstance().shutdown();
+        AttendanceArchive.getInstance().shutdown();
+    }
+
+    // Answered from the session and roster bitmaps; the dates default to the current week
+    private void handleAbsentees(Exchange exchange) throws IOException {
+        List<String> subjectCodes = new ArrayList<>();
+        String subjects = exchange.getQuery("subjectCode");
+        if (subjects != null) {
+            for (String code : subjects.split(",")) {
+                if (!code.trim().isEmpty()) subjectCodes.add(code.trim());
+            }
+        }
+        if (subjectCodes.isEmpty()) {
+            throw new ApiException(HttpServletResponse.SC_BAD_REQUEST, "Subject code is required");
+        }
+        String mode = exchange.getQuery("mode") != null ? exchange.getQuery("mode") : "all";
+        if (!mode.equals("all") && !mode.equals("any")) {
+            throw new ApiException(HttpServletResponse.SC_BAD_REQUEST, "mode must be 'all' or 'any'");
+        }
+
+        LocalDate weekStart = LocalDate.now().with(DayOfWeek.MONDAY);
+        String date = exchange.getQuery("date");
+        String startDate = isoDate(date != null ? date : exchange.getQuery("startDate"), weekStart);
+        String endDate = isoDate(date != null ? date : exchange.getQuery("endDate"), weekStart.plusDays(6));
+        String department = exchange.getQuery("department");
+        String year = exchange.getQuery("year");
+
+        AttendanceColumns.Absentees absentees = AttendanceColumns.getInstance().absentees(subjectCodes,
+                startDate, endDate, emptyToNull(department), emptyToNull(year), mode.equals("all"));
+        exchange.send(ApiResponse.ok(absentees.getRegistrationNumbers())
+                .with("count", absentees.getRegistrationNumbers().size())
+                .with("rosterSize", absentees.getRosterSize())
+                .with("sessions", absentees.getSessions())
+                .with("mode", mode)
+                .with("startDate", startDate)
+                .with("endDate", endDate));
+    }
+
+    // Per-student, per-subject percentages against the attendance goal; the dates default to every session
+    private void handleEligibility(Exchange exchange) throws IOException {
+        long requiredPercentage = SettingsController.requiredPercentage(Storage.getInstance());
+        String eligibleOnly = exchange.getQuery("eligible");
+        String startDate = emptyToNull(exchange.getQuery("startDate"));
+        String endDate = emptyToNull(exchange.getQuery("endDate"));
+        if (startDate != null) startDate = isoDate(startDate, null);
+        if (endDate != null) endDate = isoDate(endDate, null);
+        List<Map<String, Object>> rows = AttendanceColumns.getInstance().eligibility(
+                emptyToNull(exchange.getQuery("department")), emptyToNull(exchange.getQuery("year")),
+                emptyToNull(exchange.getQuery("subject")), startDate, endDate, requiredPercentage);
+
+        int eligible = 0;
+        for (Map<String, Object> row : rows) {
+            if (Boolean.TRUE.equals(row.get("eligible"))) eligible++;
+        }
+        int ineligible = rows.size() - eligible;
+        if (eligibleOnly != null && !eligibleOnly.isEmpty()) {
+            boolean wanted = Boolean.parseBoolean(eligibleOnly);
+            rows.removeIf(row -> !Boolean.valueOf(wanted).equals(row.get("eligible")));
+        }
+        exchange.send(ApiResponse.ok(rows)
+                .with("requiredPercentage", requiredPercentage)
+                .with("startDate", startDate)
+                .with("endDate", endDate)
+                .with("eligibleCount", eligible)
+                .with("ineligibleCount", ineligible));
+    }
+
+    private static String isoDate(String value, LocalDate defaultValue) {
+        if (value == null || value.isEmpty()) return defaultValue.toString();
+        try {
+            return LocalDate.parse(value).toString();
+        } catch (DateTimeParseException e) {
+            throw new ApiException(HttpServletResponse.SC_BAD_REQUEST, "Dates must be ISO dates (YYYY-MM-DD)");
+        }
+    }
+
+    private static String emptyToNull(String value) {
+        return value == null || value.isEmpty() ? null : value;
+    }
+
+    // Deletes live marks, so unlike the read routes it needs an admin token even when auth is optional
+    private void handleArchive(Exchange exchange) throws IOException {
+        AuthTokens.Claims user = exchange.getUser();
+        if (user == null || !"admin".equals(user.getRole())) {
+            throw new ApiException(HttpServletResponse.SC_FORBIDDEN, "Admin sign-in required");
+        }
+        if (!AttendanceArchive.getInstance().isConfigured()) {
+            throw new ApiException(HttpServletResponse.SC_CONFLICT,
+                    "Archiving is disabled: set mlvisio.archiveDir to a directory every node shares");
+        }
+        List<Map<String, Object>> archived = AttendanceArchive.getInstance()
+                .archiveClosedSemesters(Storage.getInstance().attendance(), LocalDate.now());
+        Json.write(exchange.getResponse(), ApiResponse.ok(archived)
+                .message(archived.isEmpty() ? "Nothing to archive" : "Archived " + archived.size() + " semesters"));
+    }
+
+    private void handleStudentAttendance(HttpServletRequest request, HttpServletResponse response, Storage storage)
+            throws IOException {
+        
+        String studentEmail = request.getParameter("email");
+        String startDate = request.getParameter("startDate");
+        String endDate = request.getParameter("endDate");
+        log.debug("handleStudentAttendance - Email: {}", studentEmail);
+        
+        if (studentEmail == null) {
+            throw new ApiException(HttpServletResponse.SC_BAD_REQUEST, "Student email is required");
+        }
+
+        // Step 1: Get student info first to get registration number
+        Document student = storage.users().findByEmail(studentEmail);
+        
+        if (student == null) {
+            log.warn("Student not found: {}", studentEmail);
+            throw new ApiException(HttpServletResponse.SC_NOT_FOUND, "Student not found");
+        }
+
+        String registrationNumber = student.getString("registrationNumber");
+        String vertexLabel = student.getString("vertexLabel");
+        log.debug("Found student with registration number: {}", registrationNumber);
+        
+        // Step 2: Get attendance records - REMOVE ORDERING TO AVOID INDEX REQUIREMENT
+        List<Document> attendanceDocs = storage.attendance().findByRegistrationNumber(registrationNumber);
+        // Archived semesters join in only when the range reaches back into them
+        attendanceDocs = AttendanceArchive.getInstance().merge(attendanceDocs, registrationNumber, startDate, endDate);
+        log.debug("Found {} attendance records", attendanceDocs.size());
+        
+        // Step 3: Apply date filters if provided and records exist
+        List<Document> filteredDocs = filterByDateRange(attendanceDocs, startDate, endDate);
+
+        // Sort by date descending (in memory, not in query)
+        sortByDateDescending(filteredDocs);
+        
+        log.debug("After filtering: {} records", filteredDocs.size());
+        
+        // Step 4: Format the response data
+        List<AttendanceRecord> attendanceRecords = new ArrayList<>(filteredDocs.size());
+        for (Document doc : filteredDocs) {
+            attendanceRecords.add(AttendanceRecord.history(doc));
+        }
+
+        log.debug("Returning {} attendance records", attendanceRecords.size());
+        Json.write(response, ApiResponse.ok(attendanceRecords)
+                .message("Found " + attendanceRecords.size() + " attendance records for " + studentEmail));
+    }
+
+    private void handleAttendanceStreak(HttpServletRequest request, HttpServletResponse response, Storage storage)
+            throws IOException {
+        
+        String studentEmail = request.getParameter("email");
+        log.debug("Calculating attendance streak for: {}", studentEmail);
+        
+        if (studentEmail == null) {
+            throw new ApiException(HttpServletResponse.SC_BAD_REQUEST, "Student email is required");
+        }
+
+        // Get student info first to get registration number
+        Document student = storage.users().findByEmail(studentEmail);
+        if (student == null) {
+            throw new ApiException(HttpServletResponse.SC_NOT_FOUND, "Student not found");
+        }
+
+        String registrationNumber = student.getString("registrationNumber");
+        
+        // Get attendance records for this student (no ordering to avoid index requirement)
+        List<Document> attendanceDocs = storage.attendance().findByRegistrationNumber(registrationNumber);
+        
+        // Sort by date descending (in memory)
+        sortByDateDescending(attendanceDocs);
+        int streak = presentStreak(attendanceDocs);
+        
+        log.debug("Calculated streak: {} days", streak);
+        Json.write(response, ApiResponse.ok(Map.of("streak", streak)));
+    }
+    
+    // Records with a date between startDate and endDate (inclusive, ISO strings); either bound may be empty
+    static List<Document> filterByDateRange(List<Document> documents, String startDate, String endDate) {
+        List<Document> filteredDocs = new ArrayList<>();
+        for (Document doc : documents) {
+            String recordDate = doc.getString("date");
+            boolean includeRecord = true;
+            
+            if (startDate != null && !startDate.isEmpty() && recordDate != null) {
+                if (recordDate.compareTo(startDate) < 0) {
+                    includeRecord = false;
+                }
+            }
+            
+            if (endDate != null && !endDate.isEmpty() && recordDate != null) {
+                if (recordDate.compareTo(endDate) > 0) {
+                    includeRecord = false;
+                }
+            }
+            
+            if (includeRecord) {
+                filteredDocs.add(doc);
+            }
+        }
+        return filteredDocs;
+    }
+
+    static void sortByDateDescending(List<Document> documents) {
+        documents.sort((a, b) -> {
+            String dateA = a.getString("date");
+            String dateB = b.getString("date");
+            if (dateA == null) dateA = "";
+            if (dateB == null) dateB = "";
+            return dateB.compareTo(dateA); // Descending order
+        });
+    }
+
+    // Consecutive "Present" days counted back from the newest record; expects newest first
+    static int presentStreak(List<Document> newestFirst) {
+        int streak = 0;
+        String previousDate = null;
+        
+        for (Document doc : newestFirst) {
+            String date = doc.getString("date");
+            String status = doc.getString("status");
+            
+            if ("Present".equals(status)) {
+                if (previousDate == null || isConsecutiveDay(date, previousDate)) {
+                    streak++;
+                    previousDate = date;
+                } else {
+                    break; // Streak broken
+                }
+            } else {
+                break; // Streak broken by absence
+            }
+        }
+        return streak;
+    }
+
+    static boolean isConsecutiveDay(String currentDate, String previousDate) {
+        try {
+            LocalDate current = LocalDate.parse(currentDate);
+            LocalDate previous = LocalDate.parse(previousDate);
+            return current.plusDays(1).equals(previous);
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private void handleAttendanceReport(HttpServletRequest request, HttpServletResponse response, Storage storage)
+            throws IOException {
+        
+        String studentEmail = request.getParameter("email");
+        String startDate = request.getParameter("startDate");
+        String endDate = request.getParameter("endDate");
+        String department = request.getParameter("department");
+        
+        log.debug("Generating attendance report - Email: {}, Department: {}", studentEmail, department);
+        
+        // Remove complex queries that require indexes
+        List<Document> documents;
+        
+        // If specific student email is provided, filter by registration number
+        if (studentEmail != null && !studentEmail.isEmpty()) {
+            // Get student registration number from email
+            Document student = storage.users().findByEmail(studentEmail);
+            if (student != null) {
+                String registrationNumber = student.getString("registrationNumber");
+                documents = AttendanceArchive.getInstance().merge(
+                        storage.attendance().findByRegistrationNumber(registrationNumber),
+                        registrationNumber, startDate, endDate);
+                log.debug("Filtering by registration number: {}", registrationNumber);
+            } else {
+                log.warn("Student not found: {}", studentEmail);
+                throw new ApiException(HttpServletResponse.SC_NOT_FOUND, "Student not found");
+            }
+        } else {
+            // Get all attendance records
+            documents = AttendanceArchive.getInstance().merge(storage.attendance().findAll(), null, startDate, endDate);
+        }
+
+        log.debug("Found {} total attendance records", documents.size());
+        
+        // Apply date filters manually (in memory)
+        List<Document> filteredDocs = filterByDateRange(documents, startDate, endDate);
+
+        // Sort by date descending (in memory)
+        sortByDateDescending(filteredDocs);
+        
+        List<AttendanceRecord> attendanceRecords = new ArrayList<>(filteredDocs.size());
+        
+        log.debug("Processing {} filtered attendance records", filteredDocs.size());
+        
+        for (Document doc : filteredDocs) {
+            String registrationNumber = doc.getString("registrationNumber");
+            
+            // Get student details using registration number
+            StudentInfo studentInfo;
+            try {
+                Document student = storage.users().findByRegistrationNumber(registrationNumber);
+
+                if (student != null) {
+                    // Filter by department if specified
+                    if (department != null && !department.isEmpty()) {
+                        String studentDept = student.getString("department");
+                        if (!department.equals(studentDept)) {
+                            continue; // Skip this record
+                        }
+                    }
+                    studentInfo = StudentInfo.of(student);
+                } else {
+                    studentInfo = StudentInfo.unknown(registrationNumber);
+                }
+            } catch (Exception e) {
+                log.warn("Error fetching student info for {}: {}", registrationNumber, e.getMessage());
+                studentInfo = StudentInfo.unknown(registrationNumber);
+            }
+            
+            attendanceRecords.add(AttendanceRecord.report(doc, studentInfo));
+        }
+        
+        log.debug("Returning {} attendance records", attendanceRecords.size());
+        Json.write(response, ApiResponse.ok(attendanceRecords));
+    }
+
+    private void handleAllAttendance(HttpServletRequest request, HttpServletResponse response, Storage storage)
+            throws IOException {
+        
+        String date = request.getParameter("date");
+        if (date == null) {
+            date = LocalDate.now().toString();
+        }
+        
+        List<Document> documents = storage.attendance().findByDate(date);
+        List<AttendanceRecord> attendanceRecords = new ArrayList<>(documents.size());
+        for (Document doc : documents) {
+            attendanceRecords.add(AttendanceRecord.today(doc));
+        }
+        
+        Json.write(response, ApiResponse.ok(attendanceRecords).with("date", date));
+    }
+
+    private void handleMarkAttendance(Exchange exchange, HttpServletResponse response)
+            throws IOException {
+        
+        Map<String, Object> jsonRequest = exchange.readJson();
+        String registrationNumber = (String) jsonRequest.get("registrationNumber");
+        String subjectCode = (String) jsonRequest.get("subjectCode");
+        String status = jsonRequest.get("status") != null ? (String) jsonRequest.get("status") : "Present";
+        String location = jsonRequest.get("location") != null ? (String) jsonRequest.get("location") : "Unknown";
+        String date = jsonRequest.get("date") != null ? (String) jsonRequest.get("date") : LocalDate.now().toString();
+        String arrivalTime = (String) jsonRequest.get("arrivalTime");
+        String remarks = (String) jsonRequest.get("remarks");
+
+        if (registrationNumber == null || registrationNumber.isEmpty() || subjectCode == null || subjectCode.isEmpty()) {
+            throw new ApiException(HttpServletResponse.SC_BAD_REQUEST, "Registration number and subject code are required");
+        }
+
+        String docId = registrationNumber.replaceAll("[^a-zA-Z0-9_\\-]", "_") + "_" + date + "_" + subjectCode;
+
+        Map<String, Object> attendanceData = new HashMap<>();
+        attendanceData.put("registrationNumber", registrationNumber);
+        attendanceData.put("vertexLabel", registrationNumber);
+        attendanceData.put("subjectCode", subjectCode);
+        attendanceData.put("status", status);
+        attendanceData.put("location", location);
+        attendanceData.put("date", date);
+        attendanceData.put("timestamp", Timestamp.now());
+        attendanceData.put("confidence", 0.95);
+        attendanceData.put("studentReview", "confirmed");
+        attendanceData.put("createdAt", Timestamp.now());
+        
+        // Add optional fields if provided
+        if (arrivalTime != null && !arrivalTime.isEmpty()) {
+            attendanceData.put("arrivalTime", arrivalTime);
+        }
+        if (remarks != null && !remarks.isEmpty()) {
+            attendanceData.put("remarks", remarks);
+        }
+
+        Storage.getInstance().attendance().save(docId, attendanceData);
+        AttendanceColumns.getInstance().record(docId, attendanceData);
+
+        // Fold the mark into the per-session roll-up; a failure here must not fail the mark
+        String sessionId = null;
+        try {
+            sessionId = SessionAttendanceService.getInstance()
+                    .record(subjectCode, date, arrivalTime, registrationNumber, status);
+        } catch (Exception e) {
+            log.warn("Session roll-up skipped: {}", e.getMessage());
+        }
+
+        ApiResponse body = ApiResponse.ok(attendanceData).message("Attendance marked successfully");
+        if (sessionId != null) {
+            body.with("sessionId", sessionId);
+        }
+
+        log.info("Attendance marked for student: {}", registrationNumber);
+        Json.write(response, body);
+    }
+
+    static String formatTime(Timestamp timestamp) {
+        return Formats.time(timestamp);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,164 @@
+package com.mlvisio.controllers;
+
+import com.mlvisio.json.ApiResponse;
+import com.mlvisio.json.Json;
+import com.mlvisio.storage.Document;
+import com.mlvisio.storage.Storage;
+import com.mlvisio.util.Log;
+import com.mlvisio.web.Controller;
+import com.mlvisio.web.RouteTable;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.Function;
+
+public class DashboardStatsController implements Controller {
+
+    private static final Log log = Log.get(DashboardStatsController.class);
+
+    @Override
+    public void register(RouteTable.Builder routes) {
+        routes.get("/stats/dashboard", exchange -> handleDashboardStats(exchange.getResponse(), Storage.getInstance()));
+    }
+
+    private void handleDashboardStats(HttpServletResponse resp, Storage storage) throws IOException {
+        log.debug("Processing dashboard stats request...");
+
+        // Get total students
+        List<Document> users = storage.users().findActiveStudents();
+        log.debug("Total active students: {}", users.size());
+
+        // Get today's attendance
+        String today = LocalDate.now().toString();
+        log.debug("Checking attendance for date: {}", today);
+        List<Document> attendanceToday = storage.attendance().findByDate(today);
+
+        Map<String, Object> data = summarise(users, attendanceToday, storage.users()::findByRegistrationNumber);
+
+        // Get total courses/subjects
+        // Count subjects from hierarchical structure
+        int totalCourses = 0;
+        String[] departments = {"HNDIT", "HNDA", "HNDM", "HNDE"};
+        
+        for (String dept : departments) {
+            try {
+                for (String semesterName : storage.subjects().findSemesterIds(dept)) {
+                    totalCourses += storage.subjects().findInSemester(dept, semesterName).size();
+                }
+            } catch (Exception e) {
+                log.warn("Error counting subjects for department {}: {}", dept, e.getMessage());
+            }
+        }
+        
+        data.put("totalCourses", totalCourses);
+        log.debug("Total courses: {}", totalCourses);
+
+        log.debug("Stats generated successfully");
+        Json.write(resp, ApiResponse.ok(data));
+    }
+
+    /**
+     * The dashboard figures computed from the active students and today's
+     * marks; {@code findStudent} resolves a registration number to its user.
+     */
+    static Map<String, Object> summarise(List<Document> users, List<Document> attendanceToday,
+                                         Function<String, Document> findStudent) {
+        Map<String, Object> data = new HashMap<>();
+        int totalStudents = users.size();
+        data.put("totalStudents", totalStudents);
+
+        // Count unique present students (avoid duplicates from multiple subjects)
+        Set<String> uniquePresentStudents = new HashSet<>();
+        Set<String> uniqueAbsentStudents = new HashSet<>();
+        int presentToday = 0;
+        int absentToday = 0;
+        
+        for (Document doc : attendanceToday) {
+            String status = doc.getString("status");
+            String registrationNumber = doc.getString("registrationNumber");
+            if ("Present".equals(status) && registrationNumber != null && !uniquePresentStudents.contains(registrationNumber)) {
+                uniquePresentStudents.add(registrationNumber);
+                presentToday++;
+            } else if ("Absent".equals(status) && registrationNumber != null && !uniqueAbsentStudents.contains(registrationNumber)) {
+                uniqueAbsentStudents.add(registrationNumber);
+                absentToday++;
+            }
+        }
+        
+        data.put("presentToday", presentToday);
+        data.put("absentToday", absentToday);
+        log.debug("Present today: {}", presentToday);
+        log.debug("Absent today: {}", absentToday);
+
+        // Calculate attendance rate
+        double rate = totalStudents > 0 ? ((double) presentToday / totalStudents) * 100 : 0;
+        data.put("attendanceRate", (int) Math.round(rate));
+        log.debug("Attendance rate: {}%", (int) Math.round(rate));
+
+        // Department-wise attendance
+        Map<String, Integer> deptTotals = new HashMap<>();
+        Map<String, Integer> deptPresent = new HashMap<>();
+        
+        for (Document user : users) {
+            String dept = user.getString("department");
+            if (dept != null) {
+                deptTotals.put(dept, deptTotals.getOrDefault(dept, 0) + 1);
+            }
+        }
+
+        // Get department-wise present count
+        for (Document att : attendanceToday) {
+            String registrationNumber = att.getString("registrationNumber");
+            String status = att.getString("status");
+            if (registrationNumber != null && "Present".equals(status)) {
+                // Find student's department
+                try {
+                    Document student = findStudent.apply(registrationNumber);
+                    if (student != null) {
+                        String dept = student.getString("department");
+                        if (dept != null) {
+                            deptPresent.put(dept, deptPresent.getOrDefault(dept, 0) + 1);
+                        }
+                    }
+                } catch (Exception e) {
+                    log.warn("Error fetching student department: {}", e.getMessage());
+                }
+            }
+        }
+
+        List<Map<String, Object>> departmentAttendance = new ArrayList<>();
+        for (String dept : deptTotals.keySet()) {
+            int present = deptPresent.getOrDefault(dept, 0);
+            int total = deptTotals.get(dept);
+            int deptRate = total == 0 ? 0 : (int) Math.round(((double) present / total) * 100);
+            
+            Map<String, Object> deptData = new HashMap<>();
+            deptData.put("department", dept);
+            deptData.put("rate", deptRate);
+            departmentAttendance.add(deptData);
+        }
+        data.put("departmentAttendance", departmentAttendance);
+
+        // Study mode counts
+        int fullTime = 0, partTime = 0;
+        for (Document user : users) {
+            String type = user.getString("type");
+            if ("Full Time".equalsIgnoreCase(type)) {
+                fullTime++;
+            } else if ("Part Time".equalsIgnoreCase(type)) {
+                partTime++;
+            } else {
+                // Default to full time if not specified
+                fullTime++;
+            }
+        }
+        
+        Map<String, Integer> studyModeCounts = new HashMap<>();
+        studyModeCounts.put("fullTime", fullTime);
+        studyModeCounts.put("partTime", partTime);
+        data.put("studyModeCounts", studyModeCounts);
+        return data;
+    }
+}
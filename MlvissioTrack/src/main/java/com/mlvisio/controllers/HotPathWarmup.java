@@ -0,0 +1,92 @@
+package com.mlvisio.controllers;
+
+import com.mlvisio.json.ActivityItem;
+import com.mlvisio.json.ApiResponse;
+import com.mlvisio.json.AttendanceRecord;
+import com.mlvisio.json.Json;
+import com.mlvisio.json.StudentInfo;
+import com.mlvisio.json.UserSummary;
+import com.mlvisio.storage.Document;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs the busiest handlers' code paths (report filtering and sorting,
+ * streaks, dashboard figures, row mapping and JSON writing) over data read
+ * once at startup, so the JIT has compiled them before real traffic
+ * arrives. Nothing is read from or written to storage here.
+ */
+public final class HotPathWarmup {
+
+    private HotPathWarmup() {
+    }
+
+    /**
+     * Repeats the hot paths over {@code students} and {@code marks} until
+     * {@code iterations} passes are done or {@code deadlineNanos} (a
+     * {@link System#nanoTime()} value) passes; returns the passes run.
+     */
+    public static int run(List<Document> students, List<Document> marks, int iterations, long deadlineNanos)
+            throws IOException {
+        Map<String, Document> byRegistration = new HashMap<>();
+        for (Document student : students) {
+            String registrationNumber = student.getString("registrationNumber");
+            if (registrationNumber != null) byRegistration.put(registrationNumber, student);
+        }
+        String newest = null;
+        String oldest = null;
+        for (Document mark : marks) {
+            String date = mark.getString("date");
+            if (date == null) continue;
+            if (newest == null || date.compareTo(newest) > 0) newest = date;
+            if (oldest == null || date.compareTo(oldest) < 0) oldest = date;
+        }
+
+        // Jackson closes the stream after each value; OutputStream.nullOutputStream() would then refuse writes
+        OutputStream sink = new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        };
+        int pass = 0;
+        while (pass < iterations && System.nanoTime() < deadlineNanos) {
+            List<Document> filtered = AttendanceController.filterByDateRange(marks, oldest, newest);
+            AttendanceController.sortByDateDescending(filtered);
+            AttendanceController.presentStreak(filtered);
+
+            List<AttendanceRecord> report = new ArrayList<>(filtered.size());
+            List<AttendanceRecord> history = new ArrayList<>(filtered.size());
+            List<ActivityItem> activity = new ArrayList<>(filtered.size());
+            for (Document mark : filtered) {
+                String registrationNumber = mark.getString("registrationNumber");
+                Document student = byRegistration.get(registrationNumber);
+                report.add(AttendanceRecord.report(mark,
+                        student != null ? StudentInfo.of(student) : StudentInfo.unknown(registrationNumber)));
+                history.add(AttendanceRecord.history(mark));
+                activity.add(ActivityItem.of(mark));
+            }
+            Json.write(sink, ApiResponse.ok(report));
+            Json.write(sink, ApiResponse.ok(history));
+            Json.write(sink, ApiResponse.ok(activity));
+
+            Json.write(sink, ApiResponse.ok(DashboardStatsController.summarise(students, marks, byRegistration::get)));
+
+            List<UserSummary> users = new ArrayList<>(students.size());
+            for (Document student : students) {
+                users.add(new UserSummary(student, null));
+            }
+            Json.write(sink, ApiResponse.ok(users));
+            pass++;
+        }
+        return pass;
+    }
+}
@@ -0,0 +1,42 @@
+package com.mlvisio.controllers;
+
+import com.mlvisio.json.ApiResponse;
+import com.mlvisio.json.Json;
+import com.mlvisio.storage.Document;
+import com.mlvisio.storage.Storage;
+import com.mlvisio.util.Log;
+import com.mlvisio.web.Controller;
+import com.mlvisio.web.RouteTable;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.util.*;
+
+public class LecturerController implements Controller {
+
+    private static final Log log = Log.get(LecturerController.class);
+
+    @Override
+    public void register(RouteTable.Builder routes) {
+        routes.get("/lecturers", exchange -> handleAllLecturers(exchange.getResponse(), Storage.getInstance()));
+    }
+
+    private void handleAllLecturers(HttpServletResponse response, Storage storage) throws IOException {
+        List<Document> documents = storage.lecturers().findAll();
+        
+        List<Map<String, Object>> lecturers = new ArrayList<>();
+        
+        for (Document doc : documents) {
+            Map<String, Object> lecturer = new HashMap<>();
+            lecturer.put("id", doc.getId());
+            lecturer.put("lecturerId", doc.getString("lecturerId"));
+            lecturer.put("name", doc.getString("name"));
+            lecturer.put("email", doc.getString("email"));
+            lecturer.put("department", doc.getString("department"));
+            lecturers.add(lecturer);
+        }
+        
+        log.debug("Found {} lecturers", lecturers.size());
+        Json.write(response, ApiResponse.ok(lecturers));
+    }
+}
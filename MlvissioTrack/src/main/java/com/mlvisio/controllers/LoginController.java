@@ -0,0 +1,70 @@
+package com.mlvisio.controllers;
+
+import com.mlvisio.json.ApiResponse;
+import com.mlvisio.json.Json;
+import com.mlvisio.services.AuthTokens;
+import com.mlvisio.storage.Document;
+import com.mlvisio.storage.Storage;
+import com.mlvisio.util.Log;
+import com.mlvisio.web.ApiException;
+import com.mlvisio.web.Controller;
+import com.mlvisio.web.Exchange;
+import com.mlvisio.web.RouteTable;
+import org.mindrot.jbcrypt.BCrypt;
+
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+public class LoginController implements Controller {
+
+    private static final Log log = Log.get(LoginController.class);
+
+    @Override
+    public void register(RouteTable.Builder routes) {
+        routes.post("/login", this::handleLogin).publicAccess();
+    }
+
+    private void handleLogin(Exchange exchange) throws IOException {
+        Map<String, Object> jsonRequest = exchange.readJson();
+        String email = (String) jsonRequest.get("email");
+        String password = (String) jsonRequest.get("password");
+
+        // Validate input
+        if (email == null || email.isEmpty() || password == null || password.isEmpty()) {
+            throw new ApiException(HttpServletResponse.SC_BAD_REQUEST, "Email and password are required.");
+        }
+
+        Document userDoc = Storage.getInstance().users().findByEmail(email);
+        String storedHash = userDoc == null ? null : userDoc.getString("password");
+
+        if (storedHash == null || !BCrypt.checkpw(password, storedHash)) {
+            // The submitted email stays out of the log; it may belong to someone else
+            log.info("Failed login: {}", userDoc == null ? "unknown account" : "wrong password");
+            throw new ApiException(HttpServletResponse.SC_UNAUTHORIZED, "Invalid email or password.");
+        }
+
+        String role = userDoc.contains("role") ? userDoc.getString("role") : "student";
+
+        Map<String, Object> userData = new HashMap<>();
+        userData.put("id", userDoc.getId());
+        userData.put("email", userDoc.getString("email"));
+        userData.put("name", userDoc.getString("name"));
+        userData.put("registrationNumber", userDoc.getString("registrationNumber"));
+        userData.put("department", userDoc.getString("department"));
+        userData.put("birthDate", userDoc.getString("birthDate"));
+        userData.put("year", userDoc.getString("year"));
+        userData.put("type", userDoc.getString("type"));
+        userData.put("role", role);
+        userData.put("joinDate", userDoc.getTimestamp("createdAt"));
+
+        Map<String, Object> responseData = new HashMap<>();
+        responseData.put("user", userData);
+        responseData.put("token", AuthTokens.getInstance().issue(userDoc.getId(), role));
+
+        log.info("Login successful for user {}", userDoc.getId());
+        Json.write(exchange.getResponse(), ApiResponse.ok(responseData).message("Login successful."));
+    }
+}
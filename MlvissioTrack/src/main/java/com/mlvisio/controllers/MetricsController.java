@@ -0,0 +1,45 @@
+package com.mlvisio.controllers;
+
+import com.mlvisio.json.ApiResponse;
+import com.mlvisio.json.Json;
+import com.mlvisio.services.Bulkheads;
+import com.mlvisio.services.FirestoreCostLedger;
+import com.mlvisio.services.RouteMetrics;
+import com.mlvisio.web.Controller;
+import com.mlvisio.web.RouteTable;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+
+/**
+ * Prometheus scrape endpoint for the per-route metrics recorded by
+ * MetricsMiddleware, the bulkhead gauges and the Firestore counters from
+ * FirestoreMeter, plus the daily Firestore cost report as JSON at
+ * /api/metrics/firestore. Neither route is metered itself.
+ */
+public class MetricsController implements Controller {
+
+    @Override
+    public void register(RouteTable.Builder routes) {
+        routes.get("/metrics", exchange -> handlePrometheus(exchange.getResponse())).publicAccess().unmetered();
+        routes.get("/metrics/firestore", exchange -> handleFirestoreReport(exchange.getResponse()))
+                .publicAccess().unmetered();
+    }
+
+    private void handleFirestoreReport(HttpServletResponse response) throws IOException {
+        response.setHeader("Cache-Control", "no-store");
+        Json.write(response, ApiResponse.ok(FirestoreCostLedger.getInstance().dailyReport()));
+    }
+
+    private void handlePrometheus(HttpServletResponse response) throws IOException {
+        StringBuilder body = new StringBuilder(8192);
+        RouteMetrics.getInstance().writePrometheus(body);
+        Bulkheads.getInstance().writePrometheus(body);
+        FirestoreCostLedger.getInstance().writePrometheus(body);
+
+        response.setHeader("Cache-Control", "no-store");
+        response.setContentType("text/plain; version=0.0.4");
+        response.setCharacterEncoding("UTF-8");
+        response.getWriter().write(body.toString());
+    }
+}
@@ -0,0 +1,34 @@
+package com.mlvisio.controllers;
+
+import com.mlvisio.json.ApiResponse;
+import com.mlvisio.json.Json;
+import com.mlvisio.services.Readiness;
+import com.mlvisio.web.Controller;
+import com.mlvisio.web.RouteTable;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+
+/**
+ * Load balancer readiness probe: 200 once the startup warm-up has finished,
+ * 503 while it runs or after it failed.
+ */
+public class ReadinessController implements Controller {
+
+    @Override
+    public void register(RouteTable.Builder routes) {
+        routes.get("/ready", exchange -> handleReady(exchange.getResponse())).publicAccess().unmetered();
+    }
+
+    private void handleReady(HttpServletResponse response) throws IOException {
+        Readiness readiness = Readiness.getInstance();
+        response.setHeader("Cache-Control", "no-store");
+        if (readiness.isReady()) {
+            Json.write(response, ApiResponse.ok(readiness.snapshot()));
+            return;
+        }
+        response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        if (readiness.getState() != Readiness.State.FAILED) response.setHeader("Retry-After", "5");
+        Json.write(response, ApiResponse.error("Not ready").data(readiness.snapshot()));
+    }
+}
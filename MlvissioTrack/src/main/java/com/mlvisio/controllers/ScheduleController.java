@@ -0,0 +1,343 @@
+package com.mlvisio.controllers;
+
+import com.google.cloud.Timestamp;
+import com.mlvisio.json.ApiResponse;
+import com.mlvisio.json.Json;
+import com.mlvisio.json.ScheduleEntry;
+import com.mlvisio.services.RecurrenceRule;
+import com.mlvisio.services.ScheduleIndex;
+import com.mlvisio.services.SessionAttendanceService;
+import com.mlvisio.services.TimetableViewService;
+import com.mlvisio.storage.Document;
+import com.mlvisio.storage.Storage;
+import com.mlvisio.util.Log;
+import com.mlvisio.web.ApiException;
+import com.mlvisio.web.Controller;
+import com.mlvisio.web.Exchange;
+import com.mlvisio.web.RouteTable;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+
+public class ScheduleController implements Controller {
+
+    private static final Log log = Log.get(ScheduleController.class);
+
+    @Override
+    public void register(RouteTable.Builder routes) {
+        routes.get("/schedule", exchange ->
+                handleAllSchedules(exchange.getRequest(), exchange.getResponse(), Storage.getInstance()));
+        routes.get("/schedule/today", exchange -> handleTodaySchedule(exchange.getRequest(), exchange.getResponse()));
+        routes.get("/schedule/week", exchange -> handleWeeklySchedule(exchange.getRequest(), exchange.getResponse()));
+        routes.get("/schedule/conflicts", exchange ->
+                handleListConflicts(exchange.getRequest(), exchange.getResponse(), Storage.getInstance()));
+        routes.get("/schedule/{id}/attendance", exchange -> handleSessionAttendance(exchange.getRequest(),
+                exchange.getResponse(), Storage.getInstance(), exchange.getParam("id")));
+        routes.post("/schedule/create", exchange -> handleCreateSchedule(exchange, exchange.getResponse()));
+        routes.put("/schedule/update/{id}", exchange ->
+                handleUpdateSchedule(exchange, exchange.getResponse(), exchange.getParam("id")));
+        routes.delete("/schedule/delete/{id}", exchange ->
+                handleDeleteSchedule(exchange.getRequest(), exchange.getResponse(), exchange.getParam("id")));
+    }
+
+    @Override
+    public void destroy() {
+        TimetableViewService.getInstance().shutdown();
+    }
+
+    private void handleTodaySchedule(HttpServletRequest request, HttpServletResponse response)
+            throws IOException, ExecutionException, InterruptedException {
+
+        TimetableViewService.TimetableView view = TimetableViewService.getInstance().getView();
+        String currentDay = TimetableViewService.dayName(view.getToday());
+
+        List<ScheduleEntry> schedules = view.today(
+                request.getParameter("department"), request.getParameter("year"));
+
+        Json.write(response, ApiResponse.ok(schedules).with("day", currentDay));
+    }
+
+    private void handleWeeklySchedule(HttpServletRequest request, HttpServletResponse response)
+            throws IOException, ExecutionException, InterruptedException {
+        
+        String department = request.getParameter("department");
+        String year = request.getParameter("year");
+        String scheduleDate = request.getParameter("date");
+        String scope = request.getParameter("scope");
+
+        TimetableViewService.TimetableView view = TimetableViewService.getInstance().getView();
+        Map<String, List<ScheduleEntry>> weeklySchedule;
+        if (scheduleDate != null && !scheduleDate.isEmpty()) {
+            weeklySchedule = view.forDate(department, year, scheduleDate);
+        } else if ("current".equals(scope)) {
+            weeklySchedule = view.week(department, year);
+        } else {
+            weeklySchedule = view.all(department, year);
+        }
+
+        Json.write(response, ApiResponse.ok(weeklySchedule));
+    }
+
+    private void handleAllSchedules(HttpServletRequest request, HttpServletResponse response, Storage storage)
+            throws IOException {
+        
+        List<Document> documents = storage.schedules().findActive();
+        List<ScheduleEntry> schedules = new ArrayList<>(documents.size());
+        for (Document doc : documents) {
+            Object recurrence = doc.get("recurrence");
+            @SuppressWarnings("unchecked")
+            Map<String, Object> rule = recurrence instanceof Map ? (Map<String, Object>) recurrence : null;
+            schedules.add(ScheduleEntry.of(doc, null, rule, null));
+        }
+
+        Json.write(response, ApiResponse.ok(schedules));
+    }
+
+    private void handleCreateSchedule(Exchange exchange, HttpServletResponse response)
+            throws IOException {
+        
+        Map<String, Object> jsonRequest = exchange.readJson();
+        
+        String subjectCode = (String) jsonRequest.get("subject");
+        String department = (String) jsonRequest.get("department");
+        String dayOfWeek = (String) jsonRequest.get("day");
+        String startTime = (String) jsonRequest.get("startTime");
+        String endTime = (String) jsonRequest.get("endTime");
+        String room = (String) jsonRequest.get("room");
+        String lecturer = (String) jsonRequest.get("lecturer");
+        String scheduleDate = (String) jsonRequest.get("scheduleDate");
+
+        if (subjectCode == null || department == null || dayOfWeek == null || startTime == null || endTime == null || room == null || scheduleDate == null) {
+            throw new ApiException(HttpServletResponse.SC_BAD_REQUEST, "Missing required fields: subject, department, day, startTime, endTime, room, scheduleDate");
+        }
+
+        // Optional weekly recurrence: one document describes the whole series
+        RecurrenceRule recurrence = null;
+        if (jsonRequest.get("recurrence") instanceof Map) {
+            try {
+                @SuppressWarnings("unchecked")
+                Map<String, Object> rawRule = (Map<String, Object>) jsonRequest.get("recurrence");
+                recurrence = RecurrenceRule.fromMap(rawRule, scheduleDate);
+            } catch (Exception e) {
+                throw new ApiException(HttpServletResponse.SC_BAD_REQUEST, "Invalid recurrence: " + e.getMessage());
+            }
+        }
+
+        Storage storage = Storage.getInstance();
+        
+        // Find lecturer ID by name
+        String lecturerId = null;
+        if (lecturer != null) {
+            Document lecturerDoc = storage.lecturers().findByName(lecturer);
+            if (lecturerDoc != null) {
+                lecturerId = lecturerDoc.getString("lecturerId");
+            }
+        }
+
+        String docId = subjectCode + "_" + (recurrence != null ? "weekly_" : "") + scheduleDate + "_" + startTime.replace(":", "");
+        
+        Map<String, Object> scheduleData = new HashMap<>();
+        scheduleData.put("subjectCode", subjectCode);
+        if (recurrence != null) {
+            scheduleData.put("dayOfWeek", TimetableViewService.dayName(recurrence.getStartDate()));
+            scheduleData.put("recurrence", recurrence.toMap());
+        } else {
+            scheduleData.put("dayOfWeek", dayOfWeek);
+            scheduleData.put("scheduleDate", scheduleDate);
+        }
+        scheduleData.put("startTime", startTime);
+        scheduleData.put("endTime", endTime);
+        scheduleData.put("room", room);
+        scheduleData.put("year", "2nd Year"); // Default for now
+        scheduleData.put("lecturerId", lecturerId);
+        scheduleData.put("department", department);
+        scheduleData.put("isActive", true);
+        scheduleData.put("createdAt", Timestamp.now());
+
+        // Reject double bookings unless the caller explicitly accepts them; the slots are held before the write
+        ScheduleIndex index = ScheduleIndex.getInstance();
+        index.ensureLoaded(storage.schedules());
+        ScheduleIndex.Reservation reservation = index.tryReserve(docId, ScheduleIndex.toSlots(docId, scheduleData),
+                Boolean.TRUE.equals(jsonRequest.get("allowConflict")));
+        List<Map<String, Object>> conflicts = toConflictList(reservation.getConflicts());
+        if (!reservation.isReserved()) {
+            writeConflictResponse(response, conflicts);
+            return;
+        }
+
+        try {
+            storage.schedules().save(docId, scheduleData);
+        } catch (RuntimeException e) {
+            index.release(reservation);
+            throw e;
+        }
+        TimetableViewService.getInstance().refresh();
+
+        ApiResponse body = ApiResponse.ok(scheduleData).message("Schedule created successfully");
+        if (!conflicts.isEmpty()) {
+            body.with("conflicts", conflicts);
+        }
+
+        log.info("Schedule created: {}", docId);
+        Json.write(response, body);
+    }
+
+    private void handleUpdateSchedule(Exchange exchange, HttpServletResponse response, String scheduleId)
+            throws IOException {
+        
+        Map<String, Object> jsonRequest = exchange.readJson();
+        
+        Storage storage = Storage.getInstance();
+        boolean allowConflict = Boolean.TRUE.equals(jsonRequest.remove("allowConflict"));
+
+        // Check the merged result against the index before writing
+        ScheduleIndex index = ScheduleIndex.getInstance();
+        index.ensureLoaded(storage.schedules());
+        Document existing = storage.schedules().findById(scheduleId);
+        Map<String, Object> merged = new HashMap<>();
+        if (existing != null) {
+            merged.putAll(existing.getData());
+        }
+        if (jsonRequest.get("recurrence") instanceof Map) {
+            try {
+                // A request may change only some fields of a series' rule, so layer them over the stored one
+                @SuppressWarnings("unchecked")
+                Map<String, Object> stored = merged.get("recurrence") instanceof Map
+                        ? (Map<String, Object>) merged.get("recurrence") : Collections.emptyMap();
+                @SuppressWarnings("unchecked")
+                Map<String, Object> requested = (Map<String, Object>) jsonRequest.get("recurrence");
+                Map<String, Object> rawRule = new HashMap<>(stored);
+                rawRule.putAll(requested);
+                RecurrenceRule recurrence = RecurrenceRule.fromMap(rawRule, (String) merged.get("scheduleDate"));
+                jsonRequest.put("recurrence", recurrence.toMap());
+                jsonRequest.put("dayOfWeek", TimetableViewService.dayName(recurrence.getStartDate()));
+            } catch (Exception e) {
+                throw new ApiException(HttpServletResponse.SC_BAD_REQUEST, "Invalid recurrence: " + e.getMessage());
+            }
+        }
+        merged.putAll(jsonRequest);
+        boolean active = !Boolean.FALSE.equals(merged.get("isActive"));
+        ScheduleIndex.Reservation reservation = null;
+        List<Map<String, Object>> conflicts = new ArrayList<>();
+        if (active) {
+            reservation = index.tryReserve(scheduleId, ScheduleIndex.toSlots(scheduleId, merged), allowConflict);
+            conflicts = toConflictList(reservation.getConflicts());
+            if (!reservation.isReserved()) {
+                writeConflictResponse(response, conflicts);
+                return;
+            }
+        }
+        
+        // Update the schedule
+        jsonRequest.put("updatedAt", Timestamp.now());
+        try {
+            storage.schedules().update(scheduleId, jsonRequest);
+        } catch (RuntimeException e) {
+            if (reservation != null) index.release(reservation);
+            throw e;
+        }
+        if (!active) {
+            index.remove(scheduleId);
+        }
+        TimetableViewService.getInstance().refresh();
+
+        ApiResponse body = ApiResponse.ok().message("Schedule updated successfully");
+        if (!conflicts.isEmpty()) {
+            body.with("conflicts", conflicts);
+        }
+
+        log.info("Schedule updated: {}", scheduleId);
+        Json.write(response, body);
+    }
+
+    private void handleDeleteSchedule(HttpServletRequest request, HttpServletResponse response, String scheduleId)
+            throws IOException {
+        
+        // Soft delete by setting isActive to false
+        Map<String, Object> updates = new HashMap<>();
+        updates.put("isActive", false);
+        updates.put("updatedAt", Timestamp.now());
+        
+        Storage.getInstance().schedules().update(scheduleId, updates);
+        ScheduleIndex.getInstance().remove(scheduleId);
+        TimetableViewService.getInstance().refresh();
+
+        log.info("Schedule deleted: {}", scheduleId);
+        Json.write(response, ApiResponse.ok().message("Schedule deleted successfully"));
+    }
+
+    private void handleListConflicts(HttpServletRequest request, HttpServletResponse response, Storage storage)
+            throws IOException {
+
+        String date = request.getParameter("date");
+        if (date != null && date.isEmpty()) {
+            date = null;
+        }
+
+        ScheduleIndex index = ScheduleIndex.getInstance();
+        index.ensureLoaded(storage.schedules());
+        List<Map<String, Object>> conflicts = index.listConflicts(date);
+
+        Json.write(response, ApiResponse.ok(conflicts).with("count", conflicts.size()));
+    }
+
+    private void handleSessionAttendance(HttpServletRequest request, HttpServletResponse response, Storage storage,
+                                         String scheduleId)
+            throws IOException, ExecutionException, InterruptedException {
+
+        String date = request.getParameter("date");
+        if (date != null && !date.isEmpty()) {
+            try {
+                date = LocalDate.parse(date).toString();
+            } catch (DateTimeParseException e) {
+                throw new ApiException(HttpServletResponse.SC_BAD_REQUEST, "Invalid date");
+            }
+        }
+
+        // Recurring series need ?date= to pick the occurrence; one-off ids are session ids already
+        String sessionId = SessionAttendanceService.getInstance().resolveSessionId(scheduleId, date);
+        Document document = storage.attendance().findSession(sessionId);
+        if (document == null && storage.schedules().findById(scheduleId) == null) {
+            throw new ApiException(HttpServletResponse.SC_NOT_FOUND, "Session or schedule not found");
+        }
+
+        Map<String, Object> data = new HashMap<>();
+        if (document != null) {
+            data.putAll(document.getData());
+        } else {
+            Map<String, Object> counts = new HashMap<>();
+            for (String status : SessionAttendanceService.STATUSES) {
+                counts.put(status, 0);
+                data.put(status, new ArrayList<>());
+            }
+            data.put("counts", counts);
+        }
+        data.put("sessionId", sessionId);
+        Object updatedAt = data.get("updatedAt");
+        if (updatedAt instanceof Timestamp) {
+            data.put("updatedAt", ((Timestamp) updatedAt).toDate().toInstant().toString());
+        }
+
+        Json.write(response, ApiResponse.ok(data));
+    }
+
+    private List<Map<String, Object>> toConflictList(List<ScheduleIndex.Slot> slots) {
+        List<Map<String, Object>> conflicts = new ArrayList<>();
+        for (ScheduleIndex.Slot slot : slots) {
+            conflicts.add(slot.toMap());
+        }
+        return conflicts;
+    }
+
+    private void writeConflictResponse(HttpServletResponse response, List<Map<String, Object>> conflicts)
+            throws IOException {
+        response.setStatus(HttpServletResponse.SC_CONFLICT);
+        Json.write(response, ApiResponse.error("Schedule conflicts with an existing booking for the same room or lecturer")
+                .with("conflicts", conflicts));
+    }
+}
\ No newline at end of file
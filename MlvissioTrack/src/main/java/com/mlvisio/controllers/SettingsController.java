@@ -0,0 +1,55 @@
+package com.mlvisio.controllers;
+
+import com.mlvisio.json.ApiResponse;
+import com.mlvisio.json.Json;
+import com.mlvisio.storage.Document;
+import com.mlvisio.storage.Storage;
+import com.mlvisio.util.Log;
+import com.mlvisio.web.Controller;
+import com.mlvisio.web.RouteTable;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.util.*;
+
+public class SettingsController implements Controller {
+
+    private static final Log log = Log.get(SettingsController.class);
+
+    private static final long DEFAULT_REQUIRED_PERCENTAGE = 80;
+
+    @Override
+    public void register(RouteTable.Builder routes) {
+        routes.get("/settings/attendanceGoal", exchange ->
+                handleGetAttendanceGoal(exchange.getResponse(), Storage.getInstance()));
+    }
+
+    private void handleGetAttendanceGoal(HttpServletResponse response, Storage storage)
+            throws IOException {
+        
+        Document document = storage.settings().get("attendanceGoal");
+        
+        Map<String, Object> goalData = new HashMap<>();
+        if (document != null) {
+            goalData.put("requiredPercentage", requiredPercentage(document));
+            goalData.put("description", document.getString("description"));
+        } else {
+            // Default values if not found
+            goalData.put("requiredPercentage", DEFAULT_REQUIRED_PERCENTAGE);
+            goalData.put("description", "Minimum attendance required for exam eligibility");
+        }
+        
+        log.debug("Attendance goal retrieved: {}%", goalData.get("requiredPercentage"));
+        Json.write(response, ApiResponse.ok(goalData));
+    }
+
+    /** The attendance goal's required percentage; 80 until one is saved. */
+    static long requiredPercentage(Storage storage) {
+        return requiredPercentage(storage.settings().get("attendanceGoal"));
+    }
+
+    private static long requiredPercentage(Document goal) {
+        Long required = goal != null ? goal.getLong("requiredPercentage") : null;
+        return required != null ? required : DEFAULT_REQUIRED_PERCENTAGE;
+    }
+}
@@ -0,0 +1,152 @@
+package com.mlvisio.controllers;
+
+import com.mlvisio.json.ApiResponse;
+import com.mlvisio.json.Json;
+import com.mlvisio.json.SubjectItem;
+import com.mlvisio.storage.Document;
+import com.mlvisio.storage.Storage;
+import com.mlvisio.util.Log;
+import com.mlvisio.web.Controller;
+import com.mlvisio.web.RouteTable;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.util.*;
+
+public class SubjectController implements Controller {
+
+    private static final Log log = Log.get(SubjectController.class);
+
+    @Override
+    public void register(RouteTable.Builder routes) {
+        routes.get("/subjects", exchange ->
+                handleAllSubjects(exchange.getRequest(), exchange.getResponse(), Storage.getInstance()));
+    }
+
+    private void handleAllSubjects(HttpServletRequest request, HttpServletResponse response, Storage storage)
+            throws IOException {
+
+        String department = request.getParameter("department");
+        log.debug("GET request for subjects, department: {}", department);
+        log.debug("GET {} query={}", request.getRequestURI(), request.getQueryString());
+        
+        // Get subjects from hierarchical structure
+        List<SubjectItem> subjects = new ArrayList<>();
+        
+        if (department != null && !department.isEmpty()) {
+            // Get subjects for specific department
+            log.debug("Fetching subjects for department: {}", department);
+            subjects.addAll(getSubjectsForDepartment(storage, department));
+        } else {
+            // Get subjects for all departments
+            log.debug("Fetching subjects for all departments");
+            String[] departments = {"HNDIT", "HNDA", "HNDM", "HNDE"};
+            for (String dept : departments) {
+                subjects.addAll(getSubjectsForDepartment(storage, dept));
+            }
+        }
+        
+        log.debug("Total subjects found: {}", subjects.size());
+        
+        // If no subjects found in hierarchical structure, try flat structure as fallback
+        if (subjects.isEmpty()) {
+            log.warn("No subjects found in hierarchical structure, trying flat structure...");
+            subjects.addAll(getSubjectsFromFlatStructure(storage, department));
+        }
+        
+        log.debug("Returning {} subjects", subjects.size());
+        Json.write(response, ApiResponse.ok(subjects)
+                .with("count", subjects.size())
+                .with("department", department));
+    }
+
+    private List<SubjectItem> getSubjectsForDepartment(Storage storage, String department) {
+        List<SubjectItem> subjects = new ArrayList<>();
+        
+        try {
+            log.debug("Starting hierarchical fetch for department: {}", department);
+            
+            // Navigate through the hierarchical structure: courses/{department}/semesters/{semester}/subjects
+            List<String> semesters = storage.subjects().findSemesterIds(department);
+            log.debug("Found {} semesters for department: {}", semesters.size(), department);
+            
+            if (semesters.isEmpty()) {
+                log.warn("No semesters found for department: {}", department);
+                return subjects;
+            }
+            
+            for (String semesterName : semesters) {
+                log.debug("Processing semester: {}", semesterName);
+                
+                try {
+                    List<Document> subjectDocs = storage.subjects().findInSemester(department, semesterName);
+                    log.debug("Found {} subjects in semester: {}", subjectDocs.size(), semesterName);
+                    
+                    for (Document subjectDoc : subjectDocs) {
+                        try {
+                            Document lecturerDoc = findLecturer(storage, subjectDoc.getString("lecturerId"));
+                            SubjectItem subject = SubjectItem.of(subjectDoc, semesterName, department, lecturerDoc);
+                            subjects.add(subject);
+                            log.debug("Added subject: {} - Lecturer: {}", subject.getCourseCode(), subject.getLecturerName());
+                            
+                        } catch (Exception subjectError) {
+                            log.error("Error processing subject {}: {}", subjectDoc.getId(), subjectError.getMessage());
+                        }
+                    }
+                } catch (Exception semesterError) {
+                    log.error("Error fetching subjects for semester {}: {}", semesterName, semesterError.getMessage());
+                }
+            }
+        } catch (Exception e) {
+            log.error("Error fetching subjects for department {}: {}", department, e.getMessage(), e);
+        }
+        
+        log.debug("Total subjects found for {}: {}", department, subjects.size());
+        return subjects;
+    }
+
+    private List<SubjectItem> getSubjectsFromFlatStructure(Storage storage, String department) {
+        List<SubjectItem> subjects = new ArrayList<>();
+        
+        try {
+            log.debug("Trying flat structure for department: {}", department);
+            
+            List<Document> documents = storage.subjects().findFlat(department);
+            
+            log.debug("Found {} subjects in flat structure", documents.size());
+            
+            for (Document doc : documents) {
+                try {
+                    Document lecturerDoc = findLecturer(storage, doc.getString("lecturerId"));
+                    subjects.add(SubjectItem.of(doc, doc.getString("semester"), doc.getString("department"), lecturerDoc));
+                    
+                } catch (Exception subjectError) {
+                    log.error("Error processing flat subject {}: {}", doc.getId(), subjectError.getMessage());
+                }
+            }
+            
+        } catch (Exception e) {
+            log.error("Error fetching subjects from flat structure: {}", e.getMessage(), e);
+        }
+        
+        return subjects;
+    }
+
+    // The lecturer document, or null when none is assigned or it cannot be read
+    private Document findLecturer(Storage storage, String lecturerId) {
+        if (lecturerId == null || lecturerId.isEmpty()) {
+            return null;
+        }
+        try {
+            Document lecturerDoc = storage.lecturers().findById(lecturerId);
+            if (lecturerDoc == null) {
+                log.warn("Lecturer not found for ID: {}", lecturerId);
+            }
+            return lecturerDoc;
+        } catch (Exception lecturerError) {
+            log.error("Error fetching lecturer info for {}: {}", lecturerId, lecturerError.getMessage());
+            return null;
+        }
+    }
+}
\ No newline at end of file
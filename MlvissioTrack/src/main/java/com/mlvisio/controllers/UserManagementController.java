@@ -0,0 +1,259 @@
+package com.mlvisio.controllers;
+
+import com.google.cloud.Timestamp;
+import com.mlvisio.json.ApiResponse;
+import com.mlvisio.json.Json;
+import com.mlvisio.json.UserSummary;
+import com.mlvisio.services.EmailIndex;
+import com.mlvisio.services.ThumbnailService;
+import com.mlvisio.services.UserImportService;
+import com.mlvisio.storage.Document;
+import com.mlvisio.storage.Storage;
+import com.mlvisio.storage.UserRepository;
+import com.mlvisio.util.Log;
+import com.mlvisio.web.ApiException;
+import com.mlvisio.web.Controller;
+import com.mlvisio.web.Exchange;
+import com.mlvisio.web.RouteTable;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.Part;
+import org.mindrot.jbcrypt.BCrypt;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+
+public class UserManagementController implements Controller {
+
+    private static final Log log = Log.get(UserManagementController.class);
+
+    private static final int MAX_PAGE_SIZE = 500;
+    private static final String[] LIST_FIELDS = {
+            "name", "email", "registrationNumber", "department", "birthDate", "year",
+            "type", "adminLevel", "profilePicture", "role", "isActive", "createdAt"
+    };
+
+    @Override
+    public void register(RouteTable.Builder routes) {
+        routes.get("/users", exchange ->
+                handleListUsers(exchange.getRequest(), exchange.getResponse(), Storage.getInstance().users()));
+        routes.get("/users/list", exchange ->
+                handleListUsers(exchange.getRequest(), exchange.getResponse(), Storage.getInstance().users()));
+        routes.get("/users/profile/{id}", exchange -> handleGetUserProfile(exchange.getRequest(),
+                exchange.getResponse(), Storage.getInstance().users(), exchange.getParam("id")));
+        routes.post("/users/create", exchange -> handleCreateUser(exchange, exchange.getResponse()));
+        routes.post("/users/import", exchange -> handleImportUsers(exchange.getRequest(), exchange.getResponse()));
+        routes.put("/users/update/{id}", exchange ->
+                handleUpdateUser(exchange, exchange.getResponse(), exchange.getParam("id")));
+        routes.delete("/users/delete/{id}", exchange ->
+                handleDeleteUser(exchange.getRequest(), exchange.getResponse(), exchange.getParam("id")));
+    }
+
+    // ======================== Handler Methods ===========================
+
+    private void handleListUsers(HttpServletRequest request, HttpServletResponse response, UserRepository userRepository)
+            throws IOException {
+        String department = request.getParameter("department");
+        String role = request.getParameter("role");
+        String pageSizeParam = request.getParameter("pageSize");
+        String pageToken = request.getParameter("pageToken");
+
+        // Only the listed fields are read from storage; the password hash never leaves the server
+        String[] fields = resolveListFields(request.getParameter("fields"));
+
+        int pageSize = 0;
+        String lastId = null;
+        if (pageSizeParam != null && !pageSizeParam.isEmpty()) {
+            try {
+                pageSize = Math.min(Math.max(Integer.parseInt(pageSizeParam), 1), MAX_PAGE_SIZE);
+            } catch (NumberFormatException e) {
+                throw new ApiException(HttpServletResponse.SC_BAD_REQUEST, "pageSize must be a number");
+            }
+            if (pageToken != null && !pageToken.isEmpty()) {
+                try {
+                    lastId = new String(Base64.getUrlDecoder().decode(pageToken), StandardCharsets.UTF_8);
+                } catch (IllegalArgumentException e) {
+                    throw new ApiException(HttpServletResponse.SC_BAD_REQUEST, "Invalid pageToken");
+                }
+            }
+        }
+
+        List<Document> documents = userRepository.list(department, role, fields, pageSize, lastId);
+        List<UserSummary> users = new ArrayList<>(documents.size());
+        // Rows only use thumbnails already known to exist; checking and queueing is left to the profile read
+        ThumbnailService thumbnails = ThumbnailService.getInstance();
+        for (Document doc : documents) {
+            users.add(new UserSummary(doc, thumbnails.cachedThumbnailsFor(doc.get("profilePicture"))));
+        }
+
+        ApiResponse body = ApiResponse.ok(users);
+        if (pageSize > 0) {
+            String nextPageToken = null;
+            if (documents.size() == pageSize) {
+                String lastOnPage = documents.get(documents.size() - 1).getId();
+                nextPageToken = Base64.getUrlEncoder().withoutPadding().encodeToString(lastOnPage.getBytes(StandardCharsets.UTF_8));
+            }
+            body.with("nextPageToken", nextPageToken).with("pageSize", pageSize);
+        }
+        Json.writeUsers(response, body, fields);
+    }
+
+    // Size-specific URLs (48/128/512) so list rows and headers need not load the full picture
+    private void putThumbnails(Map<String, Object> user) {
+        Map<String, String> thumbnails = ThumbnailService.getInstance().thumbnailsFor(user.get("profilePicture"));
+        if (thumbnails != null) user.put("profilePictureThumbnails", thumbnails);
+    }
+
+    private String[] resolveListFields(String requested) {
+        if (requested == null || requested.isEmpty()) return LIST_FIELDS;
+        Set<String> wanted = new HashSet<>(Arrays.asList(requested.split(",")));
+        List<String> fields = new ArrayList<>();
+        for (String field : LIST_FIELDS) {
+            if (wanted.contains(field)) fields.add(field);
+        }
+        return fields.isEmpty() ? LIST_FIELDS : fields.toArray(new String[0]);
+    }
+
+    private void handleGetUserProfile(HttpServletRequest request, HttpServletResponse response, UserRepository users, String userId)
+            throws IOException {
+        
+        // Try to get user by document ID first
+        Document document = users.findById(userId);
+        
+        // If not found by document ID, try to find by email (userId might be email)
+        if (document == null) {
+            document = users.findByEmail(userId);
+        }
+        
+        if (document == null) {
+            throw new ApiException(HttpServletResponse.SC_NOT_FOUND, "User not found");
+        }
+
+        Map<String, Object> user = document.getData();
+        user.put("id", document.getId());
+        
+        // Ensure all profile fields are included
+        if (!user.containsKey("birthDate")) user.put("birthDate", null);
+        if (!user.containsKey("profilePicture")) user.put("profilePicture", null);
+        if (!user.containsKey("year")) user.put("year", null);
+        if (!user.containsKey("type")) user.put("type", null);
+        if (!user.containsKey("adminLevel")) user.put("adminLevel", null);
+        putThumbnails(user);
+        
+        Json.write(response, ApiResponse.ok(user));
+    }
+
+    private void handleCreateUser(Exchange exchange, HttpServletResponse response)
+            throws IOException {
+
+        Map<String, Object> requestBody = exchange.readJson();
+        String email = (String) requestBody.get("email");
+
+        if (email == null || email.trim().isEmpty()) {
+            throw new ApiException(HttpServletResponse.SC_BAD_REQUEST, "Email is required");
+        }
+
+        UserRepository users = Storage.getInstance().users();
+
+        // Cheap pre-check so a duplicate does not pay for a password hash; the transaction below is authoritative
+        if (users.findByEmail(email) != null) {
+            throw duplicateEmail();
+        }
+
+        requestBody.put("password", BCrypt.hashpw((String) requestBody.get("password"), BCrypt.gensalt(12)));
+        requestBody.put("department", requestBody.getOrDefault("department", "HNDIT"));
+        requestBody.put("role", requestBody.getOrDefault("role", "student"));
+        requestBody.put("isActive", requestBody.getOrDefault("isActive", true));
+        requestBody.put("createdAt", Timestamp.now());
+
+        try {
+            requestBody.put("id", users.create(email, requestBody));
+        } catch (EmailIndex.DuplicateEmailException e) {
+            throw duplicateEmail();
+        }
+        Json.write(response, ApiResponse.ok(requestBody).message("User created successfully"));
+    }
+
+    private static ApiException duplicateEmail() {
+        return new ApiException(HttpServletResponse.SC_CONFLICT, "User with this email already exists");
+    }
+
+    private void handleImportUsers(HttpServletRequest request, HttpServletResponse response)
+            throws IOException, ServletException, ExecutionException, InterruptedException {
+
+        // Accept either a multipart upload with a "file" part or a raw text/csv body
+        BufferedReader reader;
+        String contentType = request.getContentType();
+        if (contentType != null && contentType.toLowerCase().startsWith("multipart/")) {
+            Part filePart = request.getPart("file");
+            if (filePart == null) {
+                throw new ApiException(HttpServletResponse.SC_BAD_REQUEST, "No CSV file uploaded");
+            }
+            reader = new BufferedReader(new InputStreamReader(filePart.getInputStream(), StandardCharsets.UTF_8));
+        } else {
+            reader = request.getReader();
+        }
+
+        List<Map<String, Object>> results;
+        try {
+            results = new UserImportService(Storage.getInstance().users()).importCsv(reader);
+        } catch (IllegalArgumentException e) {
+            throw new ApiException(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+        } finally {
+            reader.close();
+        }
+
+        Map<String, Integer> summary = new HashMap<>();
+        summary.put("total", results.size());
+        summary.put("created", 0);
+        summary.put("skipped", 0);
+        summary.put("failed", 0);
+        for (Map<String, Object> result : results) {
+            summary.merge((String) result.get("status"), 1, Integer::sum);
+        }
+
+        log.info("User import finished: {}", summary);
+        Json.write(response, ApiResponse.ok(results)
+                .message("Imported " + summary.get("created") + " of " + results.size() + " rows")
+                .with("summary", summary));
+    }
+
+    private void handleUpdateUser(Exchange exchange, HttpServletResponse response, String userId)
+            throws IOException {
+
+        Map<String, Object> requestBody = exchange.readJson();
+        if (requestBody.containsKey("password")) {
+            requestBody.put("password", BCrypt.hashpw((String) requestBody.get("password"), BCrypt.gensalt(12)));
+        }
+        requestBody.put("updatedAt", Timestamp.now());
+
+        UserRepository users = Storage.getInstance().users();
+        Object email = requestBody.get("email");
+        if (email instanceof String && !((String) email).trim().isEmpty()) {
+            // Email changes move the uniqueness reservation in the same transaction as the update
+            try {
+                users.changeEmail(userId, (String) email, requestBody);
+            } catch (EmailIndex.DuplicateEmailException e) {
+                throw duplicateEmail();
+            }
+        } else {
+            users.update(userId, requestBody);
+        }
+
+        Json.write(response, ApiResponse.ok(requestBody).message("User updated successfully"));
+    }
+
+    private void handleDeleteUser(HttpServletRequest request, HttpServletResponse response, String userId)
+            throws IOException {
+
+        Map<String, Object> updates = Map.of("isActive", false, "deletedAt", Timestamp.now());
+        Storage.getInstance().users().update(userId, updates);
+
+        Json.write(response, ApiResponse.ok().message("User deleted successfully"));
+    }
+}
@@ -1,16 +1,24 @@
 package com.mlvisio.filters;
 
+import com.mlvisio.util.Log;
+import com.mlvisio.web.CorsMiddleware;
 import jakarta.servlet.*;
 import jakarta.servlet.annotation.WebFilter;
 import jakarta.servlet.http.*;
 import java.io.IOException;
 
-@WebFilter(filterName = "CorsFilter", urlPatterns = {"/*"})
+/**
+ * CORS for the servlets outside the API front controller (profile picture
+ * uploads); /api/* gets the same headers from {@link CorsMiddleware}.
+ */
+@WebFilter(filterName = "CorsFilter", urlPatterns = {"/api/uploadProfilePicture"}, asyncSupported = true)
 public class CorsFilter implements Filter {
 
+    private static final Log log = Log.get(CorsFilter.class);
+
     @Override
     public void init(FilterConfig filterConfig) {
-        System.out.println("✅ [CorsFilter] Initialized");
+        log.info("Initialized");
     }
 
     @Override
@@ -21,17 +29,13 @@ public class CorsFilter implements Filter {
         HttpServletRequest req = (HttpServletRequest) request;
 
         // CORS headers for React frontend
-        res.setHeader("Access-Control-Allow-Origin", "*");
-        res.setHeader("Access-Control-Allow-Methods", "GET, POST, PUT, DELETE, OPTIONS");
-        res.setHeader("Access-Control-Allow-Headers", "Origin, X-Requested-With, Content-Type, Accept, Authorization");
-        res.setHeader("Access-Control-Allow-Credentials", "true");
-        res.setHeader("Access-Control-Max-Age", "3600");
+        CorsMiddleware.apply(res);
 
-        System.out.println("🔧 [CorsFilter] Processing " + req.getMethod() + " " + req.getRequestURI());
+        log.debug("Processing {} {}", req.getMethod(), req.getRequestURI());
 
         // Handle preflight OPTIONS request
         if ("OPTIONS".equalsIgnoreCase(req.getMethod())) {
-            System.out.println("✅ [CorsFilter] Handling OPTIONS preflight request");
+            log.debug("Handling OPTIONS preflight request");
             res.setStatus(HttpServletResponse.SC_OK);
             return;
         }
@@ -42,6 +46,6 @@ public class CorsFilter implements Filter {
 
     @Override
     public void destroy() {
-        System.out.println("✅ [CorsFilter] Destroyed");
+        log.info("Destroyed");
     }
 }
@@ -0,0 +1,65 @@
+package com.mlvisio.filters;
+
+import com.mlvisio.services.FirestoreMeter;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * Adds the request's Firestore totals as `Server-Timing` (and the N+1
+ * flag, if raised) just before the body starts, when the handler has
+ * normally finished its Firestore work but headers can still be set.
+ */
+public final class FirestoreTimingResponse extends HttpServletResponseWrapper {
+
+    private final FirestoreMeter.RequestCost cost;
+    private boolean added;
+
+    public FirestoreTimingResponse(HttpServletResponse response, FirestoreMeter.RequestCost cost) {
+        super(response);
+        this.cost = cost;
+    }
+
+    public void addFirestoreHeaders() {
+        if (added || isCommitted()) return;
+        added = true;
+        addHeader("Server-Timing", cost.serverTiming());
+        String shape = cost.getNPlusOne();
+        if (shape != null) {
+            setHeader("X-Firestore-N-Plus-One", shape + "; count=" + cost.countOf(shape));
+        }
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        addFirestoreHeaders();
+        return super.getWriter();
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        addFirestoreHeaders();
+        return super.getOutputStream();
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        addFirestoreHeaders();
+        super.flushBuffer();
+    }
+
+    @Override
+    public void sendError(int sc, String msg) throws IOException {
+        addFirestoreHeaders();
+        super.sendError(sc, msg);
+    }
+
+    @Override
+    public void sendError(int sc) throws IOException {
+        addFirestoreHeaders();
+        super.sendError(sc);
+    }
+}
@@ -0,0 +1,76 @@
+package com.mlvisio.filters;
+
+import com.mlvisio.services.FirestoreMeter;
+import com.mlvisio.services.RouteMetrics;
+import jakarta.servlet.*;
+import jakarta.servlet.annotation.WebFilter;
+import jakarta.servlet.http.*;
+import java.io.IOException;
+
+/**
+ * Request and Firestore metrics for the servlets outside the API front
+ * controller (profile picture uploads); /api/* is measured by MetricsMiddleware.
+ */
+@WebFilter(filterName = "MetricsFilter", urlPatterns = {"/api/uploadProfilePicture"}, asyncSupported = true)
+public class MetricsFilter implements Filter {
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+
+        HttpServletRequest req = (HttpServletRequest) request;
+        HttpServletResponse res = (HttpServletResponse) response;
+
+        String path = RouteMetrics.normalise(req.getServletPath(), req.getPathInfo());
+        if (path.startsWith("/metrics") || "OPTIONS".equals(req.getMethod())) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        RouteMetrics.Route route = RouteMetrics.getInstance().route(req.getMethod(), path);
+        FirestoreMeter.RequestCost cost = FirestoreMeter.getInstance().begin(req.getMethod() + " " + path);
+        FirestoreTimingResponse timed = new FirestoreTimingResponse(res, cost);
+        long start = System.nanoTime();
+        route.start();
+        boolean finished = false;
+        boolean async = false;
+        try {
+            chain.doFilter(request, timed);
+            if (req.isAsyncStarted()) {
+                // Async requests are timed and booked when the async context completes;
+                // their Firestore headers go out when the handler starts the body
+                async = true;
+                req.getAsyncContext().addListener(new AsyncListener() {
+                    @Override
+                    public void onComplete(AsyncEvent event) {
+                        route.finish(start, res.getStatus());
+                        FirestoreMeter.getInstance().complete(cost);
+                    }
+
+                    @Override
+                    public void onTimeout(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onError(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) {
+                    }
+                });
+            } else {
+                timed.addFirestoreHeaders();
+                route.finish(start, res.getStatus());
+            }
+            finished = true;
+        } finally {
+            if (!finished) route.finish(start, 0);
+            if (async) {
+                FirestoreMeter.getInstance().detach();
+            } else {
+                FirestoreMeter.getInstance().end(cost);
+            }
+        }
+    }
+}
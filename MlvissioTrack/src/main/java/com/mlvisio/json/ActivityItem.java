@@ -0,0 +1,53 @@
+package com.mlvisio.json;
+
+import com.mlvisio.storage.Document;
+
+/** An entry of the recent-activity feed, derived from an attendance mark. */
+public final class ActivityItem {
+
+    private final String id;
+    private final String type;
+    private final String details;
+    private final String timestamp;
+
+    private ActivityItem(String id, String type, String details, String timestamp) {
+        this.id = id;
+        this.type = type;
+        this.details = details;
+        this.timestamp = timestamp;
+    }
+
+    public static ActivityItem of(Document mark) {
+        String status = mark.getString("status");
+        String subjectCode = mark.getString("subjectCode");
+        String type;
+        String details;
+        if ("Present".equals(status)) {
+            type = "check-in";
+            details = "Checked in for " + subjectCode + " class";
+        } else if ("Absent".equals(status)) {
+            type = "check-out";
+            details = "Marked absent for " + subjectCode + " class";
+        } else {
+            type = "check-in";
+            details = "Attendance recorded for " + subjectCode + " class";
+        }
+        return new ActivityItem(mark.getId(), type, details, Formats.instant(mark.getTimestamp("timestamp")));
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public String getDetails() {
+        return details;
+    }
+
+    public String getTimestamp() {
+        return timestamp;
+    }
+}
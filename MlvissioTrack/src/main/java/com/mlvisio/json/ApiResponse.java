@@ -0,0 +1,84 @@
+package com.mlvisio.json;
+
+import com.fasterxml.jackson.annotation.JsonAnyGetter;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The `{success, message, data}` envelope every endpoint answers with.
+ * Unset members are left out, as they were when the envelope was a map;
+ * endpoint-specific members (`count`, `day`, `nextPageToken`...) go in
+ * through {@link #with}.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public final class ApiResponse {
+
+    private final boolean success;
+    private String message;
+    private Object data;
+    private String error;
+    private Map<String, Object> extra;
+
+    private ApiResponse(boolean success) {
+        this.success = success;
+    }
+
+    public static ApiResponse ok(Object data) {
+        return new ApiResponse(true).data(data);
+    }
+
+    public static ApiResponse ok() {
+        return new ApiResponse(true);
+    }
+
+    public static ApiResponse error(String message) {
+        return new ApiResponse(false).message(message);
+    }
+
+    public ApiResponse message(String message) {
+        this.message = message;
+        return this;
+    }
+
+    public ApiResponse data(Object data) {
+        this.data = data;
+        return this;
+    }
+
+    /** The exception class name, as the error responses report it. */
+    public ApiResponse error(Exception e) {
+        this.error = e.getClass().getSimpleName();
+        return this;
+    }
+
+    /** Adds a top-level member; a null value is written as null. */
+    public ApiResponse with(String name, Object value) {
+        if (extra == null) extra = new LinkedHashMap<>(4);
+        extra.put(name, value);
+        return this;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public Object getData() {
+        return data;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    @JsonAnyGetter
+    @JsonInclude(JsonInclude.Include.ALWAYS)
+    public Map<String, Object> getExtra() {
+        return extra;
+    }
+}
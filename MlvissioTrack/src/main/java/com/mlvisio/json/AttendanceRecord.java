@@ -0,0 +1,102 @@
+package com.mlvisio.json;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.google.cloud.Timestamp;
+import com.mlvisio.storage.Document;
+
+/**
+ * One attendance mark as the attendance endpoints return it. The student
+ * history, the report and today's list each fill a different subset, and
+ * members a view does not fill are left out.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public final class AttendanceRecord {
+
+    private final String id;
+    private final String registrationNumber;
+    private final StudentInfo studentInfo;
+    private final String date;
+    private final String status;
+    private final String subjectCode;
+    private final String arrivalTime;
+    private final Timestamp timestamp;
+    private final String location;
+    private final Double confidence;
+
+    private AttendanceRecord(String id, String registrationNumber, StudentInfo studentInfo, String date,
+                             String status, String subjectCode, String arrivalTime, Timestamp timestamp,
+                             String location, Double confidence) {
+        this.id = id;
+        this.registrationNumber = registrationNumber;
+        this.studentInfo = studentInfo;
+        this.date = date;
+        this.status = status;
+        this.subjectCode = subjectCode;
+        this.arrivalTime = arrivalTime;
+        this.timestamp = timestamp;
+        this.location = location;
+        this.confidence = confidence;
+    }
+
+    /** A row of one student's own history. */
+    public static AttendanceRecord history(Document doc) {
+        return new AttendanceRecord(doc.getId(), null, null, doc.getString("date"), doc.getString("status"),
+                doc.getString("subjectCode"), Formats.time(doc.getTimestamp("timestamp")), null,
+                doc.getString("location"), doc.getDouble("confidence"));
+    }
+
+    /** A row of the admin report, with the student it belongs to. */
+    public static AttendanceRecord report(Document doc, StudentInfo student) {
+        Timestamp timestamp = doc.getTimestamp("timestamp");
+        return new AttendanceRecord(doc.getId(), doc.getString("registrationNumber"), student, doc.getString("date"),
+                doc.getString("status"), doc.getString("subjectCode"), Formats.time(timestamp), timestamp,
+                doc.getString("location"), doc.getDouble("confidence"));
+    }
+
+    /** A row of the day's marks. */
+    public static AttendanceRecord today(Document doc) {
+        return new AttendanceRecord(doc.getId(), doc.getString("registrationNumber"), null, null,
+                doc.getString("status"), doc.getString("subjectCode"), null, doc.getTimestamp("timestamp"),
+                doc.getString("location"), null);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getRegistrationNumber() {
+        return registrationNumber;
+    }
+
+    public StudentInfo getStudentInfo() {
+        return studentInfo;
+    }
+
+    public String getDate() {
+        return date;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public String getSubjectCode() {
+        return subjectCode;
+    }
+
+    public String getArrivalTime() {
+        return arrivalTime;
+    }
+
+    public Timestamp getTimestamp() {
+        return timestamp;
+    }
+
+    public String getLocation() {
+        return location;
+    }
+
+    public Double getConfidence() {
+        return confidence;
+    }
+}
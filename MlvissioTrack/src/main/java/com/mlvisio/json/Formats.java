@@ -0,0 +1,29 @@
+package com.mlvisio.json;
+
+import com.google.cloud.Timestamp;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+/** Shared, thread-safe formatters for the values the API renders as text. */
+public final class Formats {
+
+    /** Arrival times, in the server's zone as the old per-call SimpleDateFormat used. */
+    public static final DateTimeFormatter HH_MM = DateTimeFormatter.ofPattern("HH:mm").withZone(ZoneId.systemDefault());
+
+    private Formats() {
+    }
+
+    /** "HH:mm" of the timestamp, or "-" when there is none. */
+    public static String time(Timestamp timestamp) {
+        if (timestamp == null) return "-";
+        return HH_MM.format(Instant.ofEpochSecond(timestamp.getSeconds(), timestamp.getNanos()));
+    }
+
+    /** ISO-8601 instant at millisecond precision, e.g. "2025-01-06T08:58:12.345Z". */
+    public static String instant(Timestamp timestamp) {
+        if (timestamp == null) return null;
+        return Instant.ofEpochMilli(timestamp.getSeconds() * 1000 + timestamp.getNanos() / 1_000_000).toString();
+    }
+}
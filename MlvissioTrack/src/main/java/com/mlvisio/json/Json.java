@@ -0,0 +1,73 @@
+package com.mlvisio.json;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The one ObjectMapper the servlets share, and writers built from it once.
+ * Responses are written as UTF-8 bytes straight to the servlet output
+ * stream, without an intermediate Writer or String.
+ */
+public final class Json {
+
+    public static final ObjectMapper MAPPER = new ObjectMapper()
+            // UserSummary rows are written whole unless a list request narrows them
+            .setFilterProvider(new SimpleFilterProvider()
+                    .addFilter(UserSummary.FILTER, SimpleBeanPropertyFilter.serializeAll()));
+
+    private static final ObjectWriter RESPONSE = MAPPER.writerFor(ApiResponse.class);
+    private static final ObjectWriter ANY = MAPPER.writer();
+    private static final ObjectReader MAP = MAPPER.readerFor(Map.class);
+
+    private Json() {
+    }
+
+    public static void write(HttpServletResponse response, ApiResponse body) throws IOException {
+        write(response.getOutputStream(), body);
+    }
+
+    public static void write(OutputStream out, ApiResponse body) throws IOException {
+        RESPONSE.writeValue(out, body);
+    }
+
+    /** For bodies that are still plain maps (request echoes, the dashboard figures). */
+    public static void write(HttpServletResponse response, Object body) throws IOException {
+        if (body instanceof ApiResponse) {
+            write(response, (ApiResponse) body);
+            return;
+        }
+        ANY.writeValue(response.getOutputStream(), body);
+    }
+
+    /** Writes a response whose UserSummary rows carry only {@code fields} (plus id and thumbnails). */
+    public static void writeUsers(HttpServletResponse response, ApiResponse body, String[] fields)
+            throws IOException {
+        Set<String> included = new HashSet<>(Set.of(fields));
+        included.add("id");
+        included.add("profilePictureThumbnails");
+        RESPONSE.with(new SimpleFilterProvider().addFilter(UserSummary.FILTER,
+                        SimpleBeanPropertyFilter.filterOutAllExcept(included)))
+                .writeValue(response.getOutputStream(), body);
+    }
+
+    @SuppressWarnings("unchecked")
+    public static Map<String, Object> readMap(String json) throws IOException {
+        return (Map<String, Object>) MAP.readValue(json);
+    }
+
+    @SuppressWarnings("unchecked")
+    public static Map<String, Object> readMap(InputStream json) throws IOException {
+        return (Map<String, Object>) MAP.readValue(json);
+    }
+}
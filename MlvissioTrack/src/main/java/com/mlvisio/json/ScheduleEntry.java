@@ -0,0 +1,111 @@
+package com.mlvisio.json;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.mlvisio.storage.Document;
+
+import java.util.Map;
+
+/**
+ * A class in the timetable. Immutable, so the timetable views can share one
+ * instance across every department/year view it appears in; the occurrences
+ * of a recurring schedule are copies with their own date and weekday.
+ */
+public final class ScheduleEntry {
+
+    private final String id;
+    private final String subjectCode;
+    private final String dayOfWeek;
+    private final String scheduleDate;
+    private final String startTime;
+    private final String endTime;
+    private final String room;
+    private final String year;
+    private final String lecturerId;
+    private final String department;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private final Map<String, Object> recurrence;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private final String lecturerName;
+
+    private ScheduleEntry(String id, String subjectCode, String dayOfWeek, String scheduleDate, String startTime,
+                          String endTime, String room, String year, String lecturerId, String department,
+                          Map<String, Object> recurrence, String lecturerName) {
+        this.id = id;
+        this.subjectCode = subjectCode;
+        this.dayOfWeek = dayOfWeek;
+        this.scheduleDate = scheduleDate;
+        this.startTime = startTime;
+        this.endTime = endTime;
+        this.room = room;
+        this.year = year;
+        this.lecturerId = lecturerId;
+        this.department = department;
+        this.recurrence = recurrence;
+        this.lecturerName = lecturerName;
+    }
+
+    /**
+     * The stored schedule. A non-null {@code dayOfWeek} overrides the stored
+     * one, since a recurring schedule's weekday comes from its rule.
+     */
+    public static ScheduleEntry of(Document doc, String dayOfWeek, Map<String, Object> recurrence, String lecturerName) {
+        return new ScheduleEntry(doc.getId(), doc.getString("subjectCode"),
+                dayOfWeek != null ? dayOfWeek : doc.getString("dayOfWeek"), doc.getString("scheduleDate"),
+                doc.getString("startTime"), doc.getString("endTime"), doc.getString("room"), doc.getString("year"),
+                doc.getString("lecturerId"), doc.getString("department"), recurrence, lecturerName);
+    }
+
+    /** This schedule as it occurs on one date. */
+    public ScheduleEntry on(String date, String day) {
+        return new ScheduleEntry(id, subjectCode, day, date, startTime, endTime, room, year, lecturerId,
+                department, recurrence, lecturerName);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getSubjectCode() {
+        return subjectCode;
+    }
+
+    public String getDayOfWeek() {
+        return dayOfWeek;
+    }
+
+    public String getScheduleDate() {
+        return scheduleDate;
+    }
+
+    public String getStartTime() {
+        return startTime;
+    }
+
+    public String getEndTime() {
+        return endTime;
+    }
+
+    public String getRoom() {
+        return room;
+    }
+
+    public String getYear() {
+        return year;
+    }
+
+    public String getLecturerId() {
+        return lecturerId;
+    }
+
+    public String getDepartment() {
+        return department;
+    }
+
+    public Map<String, Object> getRecurrence() {
+        return recurrence;
+    }
+
+    public String getLecturerName() {
+        return lecturerName;
+    }
+}
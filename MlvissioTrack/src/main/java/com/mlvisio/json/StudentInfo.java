@@ -0,0 +1,45 @@
+package com.mlvisio.json;
+
+import com.mlvisio.storage.Document;
+
+/** The student columns of an attendance report row. */
+public final class StudentInfo {
+
+    private final String name;
+    private final String email;
+    private final String registrationNumber;
+    private final String department;
+
+    public StudentInfo(String name, String email, String registrationNumber, String department) {
+        this.name = name;
+        this.email = email;
+        this.registrationNumber = registrationNumber;
+        this.department = department;
+    }
+
+    public static StudentInfo of(Document student) {
+        return new StudentInfo(student.getString("name"), student.getString("email"),
+                student.getString("registrationNumber"), student.getString("department"));
+    }
+
+    /** Placeholder for marks whose student record is missing. */
+    public static StudentInfo unknown(String registrationNumber) {
+        return new StudentInfo("Unknown Student", "unknown@example.com", registrationNumber, "Unknown");
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public String getRegistrationNumber() {
+        return registrationNumber;
+    }
+
+    public String getDepartment() {
+        return department;
+    }
+}
@@ -0,0 +1,89 @@
+package com.mlvisio.json;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.mlvisio.storage.Document;
+
+/** A subject with its lecturer, as GET /api/subjects lists it. */
+public final class SubjectItem {
+
+    private final String id;
+    private final String courseCode;
+    private final String courseName;
+    private final String semester;
+    private final Long credits;
+    private final String department;
+    private final Boolean isActive;
+    private final String lecturerId;
+    private final String lecturerName;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private final String lecturerEmail;
+
+    private SubjectItem(Document subject, String semester, String department, Document lecturer) {
+        this.id = subject.getId();
+        this.courseCode = subject.getString("courseCode");
+        this.courseName = subject.getString("courseName");
+        this.semester = semester;
+        this.credits = subject.getLong("credits");
+        this.department = department;
+        this.isActive = subject.getBoolean("isActive");
+        this.lecturerId = subject.getString("lecturerId");
+        if (lecturerId == null || lecturerId.isEmpty()) {
+            this.lecturerName = "No Lecturer Assigned";
+            this.lecturerEmail = null;
+        } else if (lecturer == null) {
+            this.lecturerName = "Unknown Lecturer";
+            this.lecturerEmail = null;
+        } else {
+            this.lecturerName = lecturer.getString("name");
+            this.lecturerEmail = lecturer.getString("email");
+        }
+    }
+
+    /**
+     * {@code lecturer} is the document for the subject's lecturerId, or null
+     * when there is none or it could not be read.
+     */
+    public static SubjectItem of(Document subject, String semester, String department, Document lecturer) {
+        return new SubjectItem(subject, semester, department, lecturer);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getCourseCode() {
+        return courseCode;
+    }
+
+    public String getCourseName() {
+        return courseName;
+    }
+
+    public String getSemester() {
+        return semester;
+    }
+
+    public Long getCredits() {
+        return credits;
+    }
+
+    public String getDepartment() {
+        return department;
+    }
+
+    public Boolean getIsActive() {
+        return isActive;
+    }
+
+    public String getLecturerId() {
+        return lecturerId;
+    }
+
+    public String getLecturerName() {
+        return lecturerName;
+    }
+
+    public String getLecturerEmail() {
+        return lecturerEmail;
+    }
+}
@@ -0,0 +1,108 @@
+package com.mlvisio.json;
+
+import com.fasterxml.jackson.annotation.JsonFilter;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.mlvisio.storage.Document;
+
+import java.util.Map;
+
+/**
+ * A row of the user list. Never carries the password hash. User documents
+ * are written from free-form request bodies and CSV imports, so the values
+ * keep whatever types they were stored with.
+ */
+@JsonFilter(UserSummary.FILTER)
+public final class UserSummary {
+
+    /** Filter id used to narrow rows to the fields a request asked for; see {@link Json#writeUsers}. */
+    public static final String FILTER = "userFields";
+
+    private final String id;
+    private final Object name;
+    private final Object email;
+    private final Object registrationNumber;
+    private final Object department;
+    private final Object birthDate;
+    private final Object year;
+    private final Object type;
+    private final Object adminLevel;
+    private final Object profilePicture;
+    private final Object role;
+    private final Object isActive;
+    private final Object createdAt;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private final Map<String, String> profilePictureThumbnails;
+
+    public UserSummary(Document doc, Map<String, String> profilePictureThumbnails) {
+        this.id = doc.getId();
+        this.name = doc.get("name");
+        this.email = doc.get("email");
+        this.registrationNumber = doc.get("registrationNumber");
+        this.department = doc.get("department");
+        this.birthDate = doc.get("birthDate");
+        this.year = doc.get("year");
+        this.type = doc.get("type");
+        this.adminLevel = doc.get("adminLevel");
+        this.profilePicture = doc.get("profilePicture");
+        this.role = doc.get("role");
+        this.isActive = doc.get("isActive");
+        this.createdAt = doc.get("createdAt");
+        this.profilePictureThumbnails = profilePictureThumbnails;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Object getName() {
+        return name;
+    }
+
+    public Object getEmail() {
+        return email;
+    }
+
+    public Object getRegistrationNumber() {
+        return registrationNumber;
+    }
+
+    public Object getDepartment() {
+        return department;
+    }
+
+    public Object getBirthDate() {
+        return birthDate;
+    }
+
+    public Object getYear() {
+        return year;
+    }
+
+    public Object getType() {
+        return type;
+    }
+
+    public Object getAdminLevel() {
+        return adminLevel;
+    }
+
+    public Object getProfilePicture() {
+        return profilePicture;
+    }
+
+    public Object getRole() {
+        return role;
+    }
+
+    public Object getIsActive() {
+        return isActive;
+    }
+
+    public Object getCreatedAt() {
+        return createdAt;
+    }
+
+    public Map<String, String> getProfilePictureThumbnails() {
+        return profilePictureThumbnails;
+    }
+}
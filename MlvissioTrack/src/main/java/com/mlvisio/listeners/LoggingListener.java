@@ -0,0 +1,27 @@
+package com.mlvisio.listeners;
+
+import com.mlvisio.util.AsyncLogWriter;
+import jakarta.servlet.ServletContextEvent;
+import jakarta.servlet.ServletContextListener;
+
+/**
+ * Ties the {@link AsyncLogWriter} thread to the webapp's lifecycle, so an
+ * undeploy or redeploy drains and stops it instead of leaving it, and its
+ * shutdown hook, pinning the old classloader.
+ *
+ * Declared in web.xml rather than with `@WebListener`: listeners declared
+ * there start before the annotated ones and are destroyed after them, so
+ * the others can still log while they shut down.
+ */
+public class LoggingListener implements ServletContextListener {
+
+    @Override
+    public void contextInitialized(ServletContextEvent event) {
+        AsyncLogWriter.getInstance().start();
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent event) {
+        AsyncLogWriter.getInstance().shutdown();
+    }
+}
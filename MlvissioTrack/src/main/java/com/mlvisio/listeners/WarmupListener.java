@@ -0,0 +1,245 @@
+package com.mlvisio.listeners;
+
+import com.mlvisio.controllers.HotPathWarmup;
+import com.mlvisio.services.Readiness;
+import com.mlvisio.services.ScheduleIndex;
+import com.mlvisio.services.TimetableViewService;
+import com.mlvisio.services.WarmSnapshot;
+import com.mlvisio.storage.Document;
+import com.mlvisio.storage.Storage;
+import com.mlvisio.util.Config;
+import com.mlvisio.util.Log;
+import jakarta.servlet.ServletContextEvent;
+import jakarta.servlet.ServletContextListener;
+import jakarta.servlet.annotation.WebListener;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Warms the node up as soon as the webapp is deployed instead of on the
+ * first requests: storage (and with it Firebase credentials and the gRPC
+ * channel), one cheap read to open the channel, the schedule index and
+ * timetable views, then the handlers' hot paths for the JIT. It runs on a
+ * background thread so Tomcat finishes starting; `/api/ready` answers 503
+ * until it is done. Opening storage and the first read are retried with
+ * backoff, so a transient error at deploy does not fail the node for good.
+ *
+ * The data it reads becomes a {@link WarmSnapshot}, refreshed while the node
+ * runs from the current timetable view and the users and marks written
+ * since, and saved on shutdown as of its last refresh, so the next start
+ * reads only what changed since then and shutdown itself never waits on
+ * storage.
+ *
+ * - `-Dmlvisio.warmup` / `MLVISIO_WARMUP` - `false` skips it and reports ready at once
+ * - `-Dmlvisio.warmup.iterations` - hot path passes, default 200
+ * - `-Dmlvisio.warmup.maxSeconds` - time allowed for the hot path passes, default 20
+ * - `-Dmlvisio.warmup.storageAttempts` - tries at opening storage before the node fails, default 6
+ * - `-Dmlvisio.snapshot` / `MLVISIO_SNAPSHOT` - `false` neither reads nor writes the snapshot
+ * - `-Dmlvisio.snapshotFile` / `MLVISIO_SNAPSHOT_FILE` - default `~/.mlvisio/warm.snapshot`, or
+ *   `warm.snapshot` in the data directory with the local engine
+ * - `-Dmlvisio.snapshot.maxAgeHours` - older snapshots are ignored, default 72
+ * - `-Dmlvisio.snapshot.refreshMinutes` - how often the snapshot is refreshed, default 60
+ */
+@WebListener
+public class WarmupListener implements ServletContextListener {
+
+    private static final Log log = Log.get(WarmupListener.class);
+
+    // Marks read for the hot path passes; about one day of a busy department
+    private static final int WARMUP_MARKS = 500;
+    // Backoff between storage attempts doubles from the first delay up to the cap
+    private static final long FIRST_RETRY_MILLIS = 1000;
+    private static final long MAX_RETRY_MILLIS = 30_000;
+
+    private Thread thread;
+    // What warm-up read, kept current by the refresher and saved on shutdown
+    private volatile WarmSnapshot warm;
+    private ScheduledExecutorService refresher;
+
+    @Override
+    public void contextInitialized(ServletContextEvent event) {
+        Readiness readiness = Readiness.getInstance();
+        if (!Boolean.parseBoolean(Config.get("mlvisio.warmup", "MLVISIO_WARMUP", "true"))) {
+            log.info("Warm-up disabled");
+            readiness.ready();
+            return;
+        }
+        readiness.warming();
+        thread = new Thread(this::warmUp, "warmup");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent event) {
+        if (thread != null) thread.interrupt();
+        stopRefresher();
+        // A node that never got ready may have no storage; keep the last good snapshot instead
+        WarmSnapshot snapshot = warm;
+        if (!snapshotEnabled() || !Readiness.getInstance().isReady() || snapshot == null) return;
+        try {
+            long started = System.nanoTime();
+            String engine = Storage.getInstance().store().name();
+            snapshot.save(snapshotFile(engine), engine);
+            log.info("Saved warm-restart snapshot to {} in {} ms", snapshotFile(engine), elapsedMillis(started));
+        } catch (Exception e) {
+            log.warn("Could not save warm-restart snapshot: {}", e.getMessage());
+        }
+    }
+
+    private void warmUp() {
+        Readiness readiness = Readiness.getInstance();
+        long started = System.nanoTime();
+        Storage storage;
+        int attempts = Math.max(1, Integer.parseInt(
+                Config.get("mlvisio.warmup.storageAttempts", "MLVISIO_WARMUP_STORAGE_ATTEMPTS", "6")));
+        long delay = FIRST_RETRY_MILLIS;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                storage = openStorage(readiness);
+                break;
+            } catch (Throwable e) {
+                if (attempt >= attempts) {
+                    log.error("Warm-up failed after {} attempts, node stays unready", attempts, e);
+                    readiness.failed(e.getClass().getSimpleName() + ": " + e.getMessage());
+                    return;
+                }
+                log.warn("Storage not reachable (attempt {}), retrying in {} ms: {}", attempt, delay, e.getMessage());
+            }
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            delay = Math.min(delay * 2, MAX_RETRY_MILLIS);
+        }
+
+        // From here on a failure only costs warmth, not correctness
+        try {
+            long phase = System.nanoTime();
+            WarmSnapshot snapshot = restoreSnapshot(storage);
+            if (snapshot != null) readiness.phase("snapshot", elapsedMillis(phase));
+
+            phase = System.nanoTime();
+            long readTime = System.currentTimeMillis();
+            List<Document> schedules = snapshot != null ? snapshot.getSchedules() : storage.schedules().findActive();
+            List<Document> lecturers = snapshot != null ? snapshot.getLecturers() : storage.lecturers().findAll();
+            ScheduleIndex.getInstance().load(schedules);
+            TimetableViewService service = TimetableViewService.getInstance();
+            service.start(schedules, lecturers, snapshot != null ? snapshot.getReadTimeMillis() : readTime);
+            service.getView();
+            readiness.phase("referenceData", elapsedMillis(phase));
+
+            phase = System.nanoTime();
+            List<Document> students = snapshot != null ? snapshot.getStudents() : storage.users().findActiveStudents();
+            List<Document> marks = snapshot != null ? snapshot.getMarks() : storage.attendance().findRecent(WARMUP_MARKS);
+            readiness.phase("sampleData", elapsedMillis(phase));
+            warm = snapshot != null ? snapshot
+                    : WarmSnapshot.of(readTime, WARMUP_MARKS, schedules, lecturers, students, marks);
+            startRefresher(storage);
+
+            phase = System.nanoTime();
+            int iterations = Integer.parseInt(Config.get("mlvisio.warmup.iterations", "MLVISIO_WARMUP_ITERATIONS", "200"));
+            long budget = TimeUnit.SECONDS.toNanos(
+                    Long.parseLong(Config.get("mlvisio.warmup.maxSeconds", "MLVISIO_WARMUP_MAX_SECONDS", "20")));
+            int passes = HotPathWarmup.run(students, marks, iterations, System.nanoTime() + budget);
+            readiness.phase("hotPaths", elapsedMillis(phase));
+            log.info("Ran {} hot path passes over {} students and {} marks", passes, students.size(), marks.size());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (Exception e) {
+            log.warn("Warm-up step failed, continuing: {}", e.getMessage());
+        }
+
+        readiness.ready();
+        log.info("Ready after {} ms", elapsedMillis(started));
+    }
+
+    // Opens storage (and with it the Firestore client) and makes one read; throws on any failure to be retried
+    private static Storage openStorage(Readiness readiness) {
+        long phase = System.nanoTime();
+        Storage storage = Storage.getInstance();
+        readiness.phase("storage", elapsedMillis(phase));
+
+        // A single document get opens the channel and authenticates it
+        phase = System.nanoTime();
+        storage.settings().get("attendanceGoal");
+        readiness.phase("firstRead", elapsedMillis(phase));
+        return storage;
+    }
+
+    /** The saved snapshot brought up to date, or null to read everything from storage. */
+    private static WarmSnapshot restoreSnapshot(Storage storage) {
+        if (!snapshotEnabled()) return null;
+        try {
+            long maxAge = TimeUnit.HOURS.toMillis(
+                    Long.parseLong(Config.get("mlvisio.snapshot.maxAgeHours", "MLVISIO_SNAPSHOT_MAX_AGE_HOURS", "72")));
+            String engine = storage.store().name();
+            WarmSnapshot snapshot = WarmSnapshot.load(snapshotFile(engine), engine, maxAge, WARMUP_MARKS);
+            if (snapshot == null) {
+                log.info("No usable warm-restart snapshot at {}, reading from storage", snapshotFile(engine));
+                return null;
+            }
+            long age = System.currentTimeMillis() - snapshot.getReadTimeMillis();
+            int changes = snapshot.reconcile(storage);
+            log.info("Restored warm-restart snapshot read {} s ago, {} documents changed since",
+                    TimeUnit.MILLISECONDS.toSeconds(age), changes);
+            return snapshot;
+        } catch (Exception e) {
+            log.warn("Warm-restart snapshot unusable, reading from storage: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    // Keeps the snapshot as recent as the node's own state, so a long uptime never outlives maxAgeHours
+    private synchronized void startRefresher(Storage storage) {
+        if (!snapshotEnabled() || refresher != null) return;
+        long minutes = Long.parseLong(Config.get("mlvisio.snapshot.refreshMinutes", "MLVISIO_SNAPSHOT_REFRESH_MINUTES", "60"));
+        refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "warm-snapshot");
+            t.setDaemon(true);
+            return t;
+        });
+        refresher.scheduleWithFixedDelay(() -> {
+            WarmSnapshot snapshot = warm;
+            TimetableViewService.TimetableView view = TimetableViewService.getInstance().getCurrentView();
+            if (snapshot == null || view == null) return;
+            try {
+                int changes = snapshot.refresh(storage, view);
+                log.debug("Refreshed warm-restart snapshot, {} documents changed", changes);
+            } catch (Exception e) {
+                log.warn("Could not refresh warm-restart snapshot: {}", e.getMessage());
+            }
+        }, minutes, minutes, TimeUnit.MINUTES);
+    }
+
+    private synchronized void stopRefresher() {
+        if (refresher != null) refresher.shutdownNow();
+        refresher = null;
+    }
+
+    private static boolean snapshotEnabled() {
+        return Boolean.parseBoolean(Config.get("mlvisio.snapshot", "MLVISIO_SNAPSHOT", "true"));
+    }
+
+    // The local engine's snapshot lives with its data, so one data directory is never reconciled against another
+    private static Path snapshotFile(String engine) {
+        String file = Config.get("mlvisio.snapshotFile", "MLVISIO_SNAPSHOT_FILE", null);
+        if (file != null) return Paths.get(file);
+        Path home = Paths.get(System.getProperty("user.home"), ".mlvisio");
+        if (!"local".equals(engine)) return home.resolve("warm.snapshot");
+        String dataDir = Config.get("mlvisio.dataDir", "MLVISIO_DATA_DIR", null);
+        return (dataDir != null ? Paths.get(dataDir) : home.resolve("data")).resolve("warm.snapshot");
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+}
@@ -0,0 +1,345 @@
+package com.mlvisio.services;
+
+import com.mlvisio.storage.ArchiveSegment;
+import com.mlvisio.storage.AttendanceRepository;
+import com.mlvisio.storage.Document;
+import com.mlvisio.util.Config;
+import com.mlvisio.util.Log;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.MonthDay;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Moves attendance marks of closed semesters out of the live `attendance`
+ * collection into one compressed {@link ArchiveSegment} per semester on
+ * shared disk, and merges them back into report queries whose date range
+ * reaches that far. Live marks win over archived ones with the same id, so a
+ * query while both copies exist sees each mark once.
+ *
+ * A semester is closed once it ended more than the grace period ago; marks
+ * corrected later for a closed semester are folded into its segment on the
+ * next run. A run does not delete the marks it archives: it stamps them with
+ * `archivedAt`, and a run at least the retention period later deletes them
+ * only after reading them back from the segment, so a directory that turns
+ * out not to be shared or durable never costs the only copy.
+ *
+ * - `-Dmlvisio.archiveDir` / `MLVISIO_ARCHIVE_DIR` - required to archive; every
+ *   node serving reports must see the same directory, which each re-lists on
+ *   every read. Without it only `~/.mlvisio/archive` is read.
+ * - `-Dmlvisio.archive.semesterStarts` - month-days semesters start on, default `01-01,07-01`
+ * - `-Dmlvisio.archive.graceDays` - days after a semester ends before it is archived, default 30
+ * - `-Dmlvisio.archive.retainDays` - days archived marks stay live before they are deleted, default 7
+ * - `-Dmlvisio.archive.nightly` / `MLVISIO_ARCHIVE_NIGHTLY` - `true` runs the job at 02:00
+ */
+public class AttendanceArchive {
+
+    private static final Log log = Log.get(AttendanceArchive.class);
+
+    private static final AttendanceArchive INSTANCE = new AttendanceArchive();
+
+    public static AttendanceArchive getInstance() {
+        return INSTANCE;
+    }
+
+    /** One semester: {@code start} inclusive to {@code end} exclusive. */
+    static final class Semester {
+        final String label;
+        final LocalDate start;
+        final LocalDate end;
+
+        Semester(String label, LocalDate start, LocalDate end) {
+            this.label = label;
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    /** The segment files as last listed, and the segments opened from them. */
+    private static final class Listing {
+        final Map<Path, String> versions;
+        final Map<Path, ArchiveSegment> opened;
+        final List<ArchiveSegment> segments;
+
+        Listing(Map<Path, String> versions, Map<Path, ArchiveSegment> opened, List<ArchiveSegment> segments) {
+            this.versions = versions;
+            this.opened = opened;
+            this.segments = segments;
+        }
+    }
+
+    private static final String ARCHIVED_AT = "archivedAt";
+
+    private final Path directory;
+    // Archiving deletes live marks, so it never writes to a directory nobody chose
+    private final boolean configured;
+    private final List<MonthDay> semesterStarts;
+    private final int graceDays;
+    private final int retainDays;
+    private final boolean nightly;
+    // Held for a whole run; readers only take the monitor briefly to open the segments
+    private final Object archiving = new Object();
+    private volatile Listing listing;
+    private ScheduledExecutorService executor;
+
+    private AttendanceArchive() {
+        String dir = Config.get("mlvisio.archiveDir", "MLVISIO_ARCHIVE_DIR", null);
+        directory = dir != null ? Paths.get(dir) : Paths.get(System.getProperty("user.home"), ".mlvisio", "archive");
+        configured = dir != null;
+        List<MonthDay> starts = new ArrayList<>();
+        for (String start : Config.get("mlvisio.archive.semesterStarts", "MLVISIO_ARCHIVE_SEMESTER_STARTS", "01-01,07-01")
+                .split(",")) {
+            starts.add(MonthDay.parse("--" + start.trim()));
+        }
+        Collections.sort(starts);
+        semesterStarts = Collections.unmodifiableList(starts);
+        graceDays = Integer.parseInt(Config.get("mlvisio.archive.graceDays", "MLVISIO_ARCHIVE_GRACE_DAYS", "30"));
+        retainDays = Integer.parseInt(Config.get("mlvisio.archive.retainDays", "MLVISIO_ARCHIVE_RETAIN_DAYS", "7"));
+        nightly = Boolean.parseBoolean(Config.get("mlvisio.archive.nightly", "MLVISIO_ARCHIVE_NIGHTLY", "false"));
+    }
+
+    /** Schedules the nightly run when it is enabled. */
+    public synchronized void start(AttendanceRepository attendance) {
+        if (!nightly || executor != null) return;
+        if (!configured) {
+            log.warn("Nightly archive run not scheduled: set mlvisio.archiveDir to a directory every node shares");
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "attendance-archive");
+            t.setDaemon(true);
+            return t;
+        });
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime next = now.toLocalDate().atTime(2, 0);
+        if (!next.isAfter(now)) next = next.plusDays(1);
+        executor.scheduleAtFixedRate(() -> {
+            try {
+                archiveClosedSemesters(attendance, LocalDate.now());
+            } catch (Exception e) {
+                log.error("Nightly archive run failed", e);
+            }
+        }, ChronoUnit.MILLIS.between(now, next), TimeUnit.DAYS.toMillis(1), TimeUnit.MILLISECONDS);
+        log.info("Nightly archive run scheduled for {}", next);
+    }
+
+    public synchronized void shutdown() {
+        if (executor != null) executor.shutdownNow();
+        executor = null;
+    }
+
+    /**
+     * {@code live} plus the archived marks from {@code startDate} to
+     * {@code endDate} (inclusive; either may be empty), only those of
+     * {@code registrationNumber} unless it is null. Returns {@code live}
+     * itself when no segment overlaps the range.
+     */
+    public List<Document> merge(List<Document> live, String registrationNumber, String startDate, String endDate) {
+        List<Document> archived = new ArrayList<>();
+        for (ArchiveSegment segment : segments()) {
+            if (segment.overlaps(startDate, endDate)) {
+                archived.addAll(segment.find(registrationNumber, startDate, endDate));
+            }
+        }
+        if (archived.isEmpty()) return live;
+
+        Set<String> liveIds = new HashSet<>(live.size() * 2);
+        for (Document mark : live) liveIds.add(mark.getId());
+        List<Document> merged = new ArrayList<>(live.size() + archived.size());
+        merged.addAll(live);
+        for (Document mark : archived) {
+            if (!liveIds.contains(mark.getId())) merged.add(mark);
+        }
+        return merged;
+    }
+
+    /** The segments on disk, oldest first. */
+    public List<Map<String, Object>> describe() throws IOException {
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (ArchiveSegment segment : segments()) {
+            result.add(summary(segment, 0, 0));
+        }
+        return result;
+    }
+
+    /** Whether `mlvisio.archiveDir` was set, without which nothing is archived. */
+    public boolean isConfigured() {
+        return configured;
+    }
+
+    /**
+     * Archives every closed semester that still has live marks: writes (or
+     * rewrites) its segment with the marks not yet in it folded in and stamps
+     * them `archivedAt`, then deletes the marks stamped more than the
+     * retention period ago that the segment on disk holds. One run at a time.
+     * Throws IllegalStateException unless {@link #isConfigured}.
+     */
+    public List<Map<String, Object>> archiveClosedSemesters(AttendanceRepository attendance, LocalDate today)
+            throws IOException {
+        if (!configured) throw new IllegalStateException("mlvisio.archiveDir is not set");
+        synchronized (archiving) {
+            return archive(attendance, today);
+        }
+    }
+
+    private List<Map<String, Object>> archive(AttendanceRepository attendance, LocalDate today) throws IOException {
+        List<Map<String, Object>> archived = new ArrayList<>();
+        String earliest = attendance.findEarliestDate();
+        if (earliest == null) return archived;
+
+        // Every semester before the one holding (today - grace) has been over for the whole grace period
+        LocalDate cutoff = semesterOf(today.minusDays(graceDays)).start;
+        for (Semester semester = semesterOf(LocalDate.parse(earliest)); semester.start.isBefore(cutoff);
+                semester = semesterOf(semester.end)) {
+            List<Document> live = attendance.findBetween(semester.start.toString(), semester.end.toString());
+            if (live.isEmpty()) continue;
+
+            Path file = directory.resolve("attendance-" + semester.label + ".seg");
+            long started = System.nanoTime();
+            // Read back from disk rather than the cached listing: this is what confirms earlier runs' segments
+            Map<String, Document> marks = new LinkedHashMap<>();
+            if (Files.exists(file)) {
+                for (Document mark : ArchiveSegment.open(file).findAll()) marks.put(mark.getId(), mark);
+            }
+
+            // A mark is pending until it is stamped and in the segment; a re-mark drops its stamp
+            Instant expiry = Instant.now().minus(retainDays, ChronoUnit.DAYS);
+            List<String> pending = new ArrayList<>();
+            List<String> expired = new ArrayList<>();
+            for (Document mark : live) {
+                String archivedAt = mark.getString(ARCHIVED_AT);
+                if (archivedAt == null || !marks.containsKey(mark.getId())) {
+                    Map<String, Object> data = new HashMap<>(mark.getData());
+                    data.remove(ARCHIVED_AT);
+                    marks.put(mark.getId(), new Document(mark.getId(), data));
+                    pending.add(mark.getId());
+                } else if (Instant.parse(archivedAt).isBefore(expiry)) {
+                    expired.add(mark.getId());
+                }
+            }
+
+            ArchiveSegment segment = null;
+            if (!pending.isEmpty()) {
+                segment = ArchiveSegment.write(file, semester.label, semester.start.toString(),
+                        semester.end.toString(), marks.values());
+                if (segment.getRecords() != marks.size()) {
+                    throw new IOException(file + " holds " + segment.getRecords() + " marks, expected " + marks.size());
+                }
+                attendance.markArchived(pending, ARCHIVED_AT, Instant.now().toString());
+            }
+            // Stamped long enough ago and still read back from the segment: only now do the live copies go
+            if (!expired.isEmpty()) attendance.deleteAll(expired);
+            if (pending.isEmpty() && expired.isEmpty()) continue;
+            log.info("Archived {} marks to {} in {} ms", pending.size(), file,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+            if (!expired.isEmpty()) log.info("Deleted {} live marks of {} confirmed in its segment", expired.size(), semester.label);
+            archived.add(summary(segment != null ? segment : ArchiveSegment.open(file), pending.size(), expired.size()));
+        }
+        return archived;
+    }
+
+    /** The semester holding {@code date}. */
+    Semester semesterOf(LocalDate date) {
+        int index = -1;
+        for (int i = 0; i < semesterStarts.size(); i++) {
+            if (!semesterStarts.get(i).atYear(date.getYear()).isAfter(date)) index = i;
+        }
+        int year = date.getYear();
+        if (index < 0) {
+            // Before the year's first start: the last semester of the previous year
+            index = semesterStarts.size() - 1;
+            year--;
+        }
+        LocalDate start = semesterStarts.get(index).atYear(year);
+        LocalDate end = index + 1 < semesterStarts.size()
+                ? semesterStarts.get(index + 1).atYear(year)
+                : semesterStarts.get(0).atYear(year + 1);
+        return new Semester(year + "-S" + (index + 1), start, end);
+    }
+
+    /**
+     * The segments on disk, oldest first. The directory is listed on every
+     * call, which is cheap next to a query, so segments written or rewritten
+     * by another node's run are picked up at once; only new or changed files
+     * are opened again.
+     */
+    private List<ArchiveSegment> segments() {
+        Map<Path, String> versions = list();
+        Listing current = listing;
+        if (current != null && current.versions.equals(versions)) return current.segments;
+        synchronized (this) {
+            current = listing;
+            if (current != null && current.versions.equals(versions)) return current.segments;
+            Map<Path, ArchiveSegment> opened = new HashMap<>();
+            for (Map.Entry<Path, String> file : versions.entrySet()) {
+                ArchiveSegment segment = current != null && file.getValue().equals(current.versions.get(file.getKey()))
+                        ? current.opened.get(file.getKey()) : null;
+                if (segment == null) {
+                    try {
+                        segment = ArchiveSegment.open(file.getKey());
+                    } catch (IOException e) {
+                        log.error("Skipping unreadable archive segment {}: {}", file.getKey(), e.getMessage());
+                        continue;
+                    }
+                }
+                opened.put(file.getKey(), segment);
+            }
+            List<ArchiveSegment> sorted = new ArrayList<>(opened.values());
+            sorted.sort((a, b) -> a.getFirstDate().compareTo(b.getFirstDate()));
+            if (!sorted.isEmpty()) log.info("Opened {} archive segments from {}", sorted.size(), directory);
+            listing = new Listing(versions, opened, Collections.unmodifiableList(sorted));
+            return listing.segments;
+        }
+    }
+
+    // Each segment file with its size, modification time and file key; a rename over it changes the key
+    private Map<Path, String> list() {
+        Map<Path, String> versions = new HashMap<>();
+        if (!Files.isDirectory(directory)) return versions;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "attendance-*.seg")) {
+            for (Path file : files) {
+                try {
+                    BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                    versions.put(file, attributes.size() + "/" + attributes.lastModifiedTime().toMillis()
+                            + "/" + attributes.fileKey());
+                } catch (IOException e) {
+                    // Removed between the listing and the stat
+                }
+            }
+        } catch (IOException e) {
+            log.error("Could not list archive directory {}: {}", directory, e.getMessage());
+        }
+        return versions;
+    }
+
+    private static Map<String, Object> summary(ArchiveSegment segment, int archived, int deleted) throws IOException {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("semester", segment.getLabel());
+        summary.put("startDate", segment.getFirstDate());
+        summary.put("endDate", segment.getEndDate());
+        summary.put("records", segment.getRecords());
+        if (archived > 0) summary.put("archived", archived);
+        if (deleted > 0) summary.put("deleted", deleted);
+        summary.put("bytes", Files.size(segment.getPath()));
+        return summary;
+    }
+}
@@ -0,0 +1,848 @@
+package com.mlvisio.services;
+
+import com.google.cloud.Timestamp;
+import com.mlvisio.storage.Document;
+import com.mlvisio.storage.Storage;
+import com.mlvisio.util.Config;
+import com.mlvisio.util.IntBitmap;
+import com.mlvisio.util.Log;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.IntStream;
+
+/**
+ * Every attendance mark (live and archived) as primitive columns, for
+ * group-by queries that scan millions of rows without building a Document
+ * per mark. Registration number and subject are dictionary codes in int
+ * columns, department (taken from the student's user record) and status are
+ * byte codes, and the date is an epoch-day int. A mark is identified by
+ * student, subject and day, as its document id is, so a re-mark overwrites
+ * its row.
+ *
+ * The same student codes index {@link IntBitmap}s: per (subject, date)
+ * session the students marked, those who attended and those excused, and
+ * rosters of the active students per department and year, so absentee and
+ * eligibility questions across sessions are bitmap intersections, unions and
+ * differences.
+ *
+ * Loaded on first use, then kept in sync: marks written here are queued by
+ * the mark handler, and before a query at most every
+ * `-Dmlvisio.analytics.syncSeconds` (default 30) the marks and students
+ * written since the last sync are read from storage, which also picks up
+ * other nodes' writes. A sync rereads what is queued, so it drops the queue,
+ * and marks beyond a bounded backlog are left for the next sync.
+ */
+public class AttendanceColumns {
+
+    private static final Log log = Log.get(AttendanceColumns.class);
+
+    private static final AttendanceColumns INSTANCE = new AttendanceColumns();
+
+    public static AttendanceColumns getInstance() {
+        return INSTANCE;
+    }
+
+    public enum Dimension { DEPARTMENT, SUBJECT, STUDENT, STATUS, DATE, WEEK, MONTH }
+
+    public enum Metric { COUNT, PRESENT, RATE }
+
+    /** The roster students who missed the matched sessions, with those sessions. */
+    public static final class Absentees {
+        private final List<String> registrationNumbers;
+        private final List<Map<String, Object>> sessions;
+        private final int rosterSize;
+
+        Absentees(List<String> registrationNumbers, List<Map<String, Object>> sessions, int rosterSize) {
+            this.registrationNumbers = registrationNumbers;
+            this.sessions = sessions;
+            this.rosterSize = rosterSize;
+        }
+
+        public List<String> getRegistrationNumbers() {
+            return registrationNumbers;
+        }
+
+        /** Subject code, date and how many roster students attended, by date. */
+        public List<Map<String, Object>> getSessions() {
+            return sessions;
+        }
+
+        public int getRosterSize() {
+            return rosterSize;
+        }
+    }
+
+    /** Row filters; null fields match everything. Dates are ISO, inclusive. */
+    public static final class Filter {
+        String startDate;
+        String endDate;
+        String department;
+        String subject;
+        String student;
+        String status;
+
+        public Filter startDate(String value) { startDate = value; return this; }
+        public Filter endDate(String value) { endDate = value; return this; }
+        public Filter department(String value) { department = value; return this; }
+        public Filter subject(String value) { subject = value; return this; }
+        public Filter student(String value) { student = value; return this; }
+        public Filter status(String value) { status = value; return this; }
+    }
+
+    // Write timestamps come from the app servers' clocks, so sync from a little before the last read
+    private static final long CLOCK_SKEW_MILLIS = TimeUnit.MINUTES.toMillis(2);
+    // Per-chunk dense counters up to this many groups; more groups fall back to a hash map
+    private static final int DENSE_GROUPS = 1 << 18;
+    private static final int MIN_CHUNK_ROWS = 16 * 1024;
+    // Marks queued between syncs on a node that rarely serves these queries; the sync rereads them
+    private static final int MAX_PENDING = 10_000;
+    private static final String PRESENT = "Present";
+    private static final String LATE = "Late";
+    private static final String EXCUSED = "Excused";
+
+    private final long syncMillis = TimeUnit.SECONDS.toMillis(
+            Long.parseLong(Config.get("mlvisio.analytics.syncSeconds", "MLVISIO_ANALYTICS_SYNC_SECONDS", "30")));
+    // Share of a cohort that must be marked in a subject before the cohort counts as taking it
+    private final double minCohortShare = Double.parseDouble(
+            Config.get("mlvisio.analytics.minCohortShare", "MLVISIO_ANALYTICS_MIN_COHORT_SHARE", "0.25"));
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Object loading = new Object();
+    private final ConcurrentLinkedQueue<Document> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+
+    private final Dictionary students = new Dictionary(Integer.MAX_VALUE);
+    private final Dictionary subjects = new Dictionary(Integer.MAX_VALUE);
+    private final Dictionary departments = new Dictionary(256);
+    private final Dictionary statuses = new Dictionary(256);
+    private final Map<String, String> departmentOf = new HashMap<>();
+    private final Map<String, String> yearOf = new HashMap<>();
+    private final LongIntMap rowOf = new LongIntMap();
+
+    // Keyed by subject code and epoch day; a session exists once anyone is marked for it
+    private final TreeMap<Long, Session> sessions = new TreeMap<>();
+    private final IntBitmap roster = new IntBitmap();
+    private final Map<String, IntBitmap> rosterByDepartment = new HashMap<>();
+    private final Map<String, IntBitmap> rosterByYear = new HashMap<>();
+
+    private int[] studentColumn = new int[0];
+    private int[] subjectColumn = new int[0];
+    private byte[] departmentColumn = new byte[0];
+    private byte[] statusColumn = new byte[0];
+    private int[] dayColumn = new int[0];
+    private int rows;
+    private int minDay = Integer.MAX_VALUE;
+    private int maxDay = Integer.MIN_VALUE;
+
+    private volatile boolean loaded;
+    // When the last load or sync started reading
+    private volatile long lastSync;
+
+    private AttendanceColumns() {
+    }
+
+    /**
+     * Queues a mark just written on this node; applied before the next query,
+     * or read back by the next sync when the queue is full.
+     */
+    public void record(String id, Map<String, Object> mark) {
+        if (!loaded) return;
+        if (pendingCount.incrementAndGet() > MAX_PENDING) {
+            pendingCount.decrementAndGet();
+            return;
+        }
+        pending.add(new Document(id, mark));
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return rows;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Marks and present marks per group of {@code groupBy} values among the
+     * rows matching {@code filter}, one map per group with the dimension
+     * labels followed by the requested metrics. Scans run in parallel chunks.
+     * Throws IllegalArgumentException when the group keys cannot fit a long.
+     */
+    public List<Map<String, Object>> aggregate(List<Dimension> groupBy, List<Metric> metrics, Filter filter) {
+        ensureFresh(Storage.getInstance());
+        lock.readLock().lock();
+        try {
+            return new Query(groupBy, metrics, filter).run();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The active students (of {@code department} and {@code year} when
+     * given) who attended none of the matched sessions when
+     * {@code missedAll}, or missed at least one of them otherwise. A session
+     * is a subject in {@code subjectCodes} on a date from {@code startDate}
+     * to {@code endDate} (inclusive) on which anyone was marked. The roster is
+     * the cohorts taking those sessions, by the same rule as
+     * {@link #eligibility}, so students of unrelated departments are never
+     * reported absent.
+     */
+    public Absentees absentees(List<String> subjectCodes, String startDate, String endDate,
+                               String department, String year, boolean missedAll) {
+        ensureFresh(Storage.getInstance());
+        int from = (int) LocalDate.parse(startDate).toEpochDay();
+        int to = (int) LocalDate.parse(endDate).toEpochDay();
+        lock.readLock().lock();
+        try {
+            Map<Long, Session> found = new LinkedHashMap<>();
+            IntBitmap marked = new IntBitmap();
+            for (String subjectCode : subjectCodes) {
+                int subject = subjects.find(subjectCode);
+                if (subject < 0 || from > to) continue;
+                for (Map.Entry<Long, Session> session
+                        : sessions.subMap(session(subject, from), true, session(subject, to), true).entrySet()) {
+                    found.put(session.getKey(), session.getValue());
+                    marked = marked.or(session.getValue().marked);
+                }
+            }
+
+            IntBitmap candidates = new IntBitmap();
+            for (IntBitmap cohort : cohortsTaking(marked)) candidates = candidates.or(cohort);
+            if (department != null) {
+                candidates = candidates.and(rosterByDepartment.getOrDefault(department, new IntBitmap()));
+            }
+            if (year != null) candidates = candidates.and(rosterByYear.getOrDefault(year, new IntBitmap()));
+
+            List<Map<String, Object>> matched = new ArrayList<>();
+            IntBitmap combined = null;
+            for (Map.Entry<Long, Session> session : found.entrySet()) {
+                IntBitmap present = session.getValue().attended;
+                Map<String, Object> summary = new LinkedHashMap<>();
+                summary.put("subjectCode", subjects.value((int) (session.getKey() >>> 32)));
+                summary.put("date", LocalDate.ofEpochDay((int) (long) session.getKey()).toString());
+                summary.put("attended", present.and(candidates).cardinality());
+                matched.add(summary);
+                combined = combined == null ? present : missedAll ? combined.or(present) : combined.and(present);
+            }
+            matched.sort((a, b) -> ((String) a.get("date")).compareTo((String) b.get("date")));
+
+            List<String> absent = new ArrayList<>();
+            if (combined != null) candidates.andNot(combined).forEach(code -> absent.add(students.value(code)));
+            Collections.sort(absent);
+            return new Absentees(absent, matched, candidates.cardinality());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Attendance per subject ({@code subjectCode} only, when given) from
+     * {@code startDate} to {@code endDate} (inclusive; null for no bound) for
+     * every active student of {@code department} and {@code year} (when given)
+     * in a cohort taking it, whether or not they have any marks. A session is
+     * a (subject, date) on which anyone was marked, and a subject is taken by
+     * the department and year cohorts with at least
+     * `-Dmlvisio.analytics.minCohortShare` (default 0.25) of their students
+     * marked in it. Held is the subject's sessions in which anyone of the
+     * student's cohort was marked, less those the student was excused from,
+     * attended counts Present and Late, and a student with nothing held is at
+     * 100%.
+     * Subjects are computed in parallel; rows are ordered by registration
+     * number and subject.
+     */
+    public List<Map<String, Object>> eligibility(String department, String year, String subjectCode,
+                                                 String startDate, String endDate, double requiredPercentage) {
+        ensureFresh(Storage.getInstance());
+        lock.readLock().lock();
+        try {
+            int from = startDate != null ? (int) LocalDate.parse(startDate).toEpochDay() : minDay;
+            int to = endDate != null ? (int) LocalDate.parse(endDate).toEpochDay() : maxDay;
+            int subject = subjectCode != null ? subjects.find(subjectCode) : -1;
+            if ((subjectCode != null && subject < 0) || from > to) return new ArrayList<>();
+            IntBitmap candidates = roster;
+            if (department != null) {
+                candidates = candidates.and(rosterByDepartment.getOrDefault(department, new IntBitmap()));
+            }
+            if (year != null) candidates = candidates.and(rosterByYear.getOrDefault(year, new IntBitmap()));
+            IntBitmap cohort = candidates;
+
+            IntStream codes = subject >= 0 ? IntStream.of(subject) : IntStream.range(0, subjects.size());
+            List<Map<String, Object>> result = codes.parallel()
+                    .mapToObj(code -> eligibility(code, from, to, cohort, requiredPercentage))
+                    .reduce(new ArrayList<>(), (a, b) -> {
+                        List<Map<String, Object>> merged = new ArrayList<>(a.size() + b.size());
+                        merged.addAll(a);
+                        merged.addAll(b);
+                        return merged;
+                    });
+            result.sort(Comparator.comparing((Map<String, Object> row) -> (String) row.get("registrationNumber"))
+                    .thenComparing(row -> (String) row.get("subjectCode")));
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Caller holds the read lock
+    private List<Map<String, Object>> eligibility(int subject, int from, int to, IntBitmap candidates,
+                                                  double requiredPercentage) {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        List<Session> matched = new ArrayList<>(
+                sessions.subMap(session(subject, from), true, session(subject, to), true).values());
+        if (matched.isEmpty()) return rows;
+
+        IntBitmap marked = new IntBitmap();
+        for (Session session : matched) marked = marked.or(session.marked);
+
+        // A subject taught to several cohorts on different days is held for each only on its own days
+        IntBitmap taking = new IntBitmap();
+        int[] heldCount = new int[students.size()];
+        for (IntBitmap cohort : cohortsTaking(marked)) {
+            IntBitmap members = cohort.and(candidates);
+            if (members.cardinality() == 0) continue;
+            int held = 0;
+            for (Session session : matched) {
+                if (session.marked.and(cohort).cardinality() > 0) held++;
+            }
+            int cohortHeld = held;
+            members.forEach(student -> heldCount[student] = cohortHeld);
+            taking = taking.or(members);
+        }
+
+        int[] attendedCount = new int[students.size()];
+        int[] excusedCount = new int[students.size()];
+        for (Session session : matched) {
+            session.attended.and(taking).forEach(student -> attendedCount[student]++);
+            session.excused.and(taking).forEach(student -> excusedCount[student]++);
+        }
+        String subjectCode = subjects.value(subject);
+        taking.forEach(student -> {
+            int held = heldCount[student] - excusedCount[student];
+            int present = attendedCount[student];
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("registrationNumber", students.value(student));
+            row.put("subjectCode", subjectCode);
+            row.put("held", held);
+            row.put("attended", present);
+            row.put("percentage", held == 0 ? 100.0 : Math.round(present * 1000.0 / held) / 10.0);
+            row.put("eligible", present * 100.0 >= requiredPercentage * held);
+            rows.add(row);
+        });
+        return rows;
+    }
+
+    /**
+     * The department and year cohorts of the students in {@code marked} with
+     * at least {@link #minCohortShare} of their active students in it, so a
+     * stray mark does not enrol a whole cohort. Caller holds the read lock.
+     */
+    private List<IntBitmap> cohortsTaking(IntBitmap marked) {
+        Map<String, IntBitmap> cohorts = new HashMap<>();
+        marked.forEach(student -> {
+            String registrationNumber = students.value(student);
+            String department = departmentOf.get(registrationNumber);
+            String year = yearOf.get(registrationNumber);
+            if (department == null || year == null) return;
+            cohorts.computeIfAbsent(department + "|" + year, k -> rosterByDepartment
+                    .getOrDefault(department, new IntBitmap())
+                    .and(rosterByYear.getOrDefault(year, new IntBitmap())));
+        });
+        List<IntBitmap> taking = new ArrayList<>();
+        for (IntBitmap cohort : cohorts.values()) {
+            int size = cohort.cardinality();
+            if (size > 0 && cohort.and(marked).cardinality() >= minCohortShare * size) taking.add(cohort);
+        }
+        return taking;
+    }
+
+    private static long session(int subject, int day) {
+        return ((long) subject << 32) | (day & 0xFFFFFFFFL);
+    }
+
+    // ---- loading and sync -----------------------------------------------------------------
+
+    private void ensureFresh(Storage storage) {
+        if (!loaded) {
+            synchronized (loading) {
+                if (!loaded) load(storage);
+            }
+        } else if (System.currentTimeMillis() - lastSync >= syncMillis) {
+            synchronized (loading) {
+                if (System.currentTimeMillis() - lastSync >= syncMillis) sync(storage);
+            }
+        }
+        if (!pending.isEmpty()) {
+            lock.writeLock().lock();
+            try {
+                Document mark;
+                while ((mark = pending.poll()) != null) {
+                    pendingCount.decrementAndGet();
+                    apply(mark);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    private void load(Storage storage) {
+        long started = System.nanoTime();
+        long syncedAt = System.currentTimeMillis();
+        List<Document> users = storage.users().list(null, "student",
+                new String[] {"registrationNumber", "department", "year", "role", "isActive"}, 0, null);
+        List<Document> marks = AttendanceArchive.getInstance()
+                .merge(storage.attendance().findAll(), null, null, null);
+
+        lock.writeLock().lock();
+        try {
+            for (Document user : users) learnStudent(user);
+            ensureCapacity(marks.size());
+            for (Document mark : marks) apply(mark);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        lastSync = syncedAt;
+        loaded = true;
+        log.info("Loaded {} attendance rows in {} ms", rows,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+
+    private void sync(Storage storage) {
+        // Everything queued so far was written before the read below starts, so the read covers it
+        while (pending.poll() != null) pendingCount.decrementAndGet();
+        long syncedAt = System.currentTimeMillis();
+        Timestamp from = Timestamp.ofTimeMicroseconds(TimeUnit.MILLISECONDS.toMicros(lastSync - CLOCK_SKEW_MILLIS));
+        List<Document> users = storage.users().findChangedSince(from);
+        List<Document> marks = storage.attendance().findSince(from, 0);
+
+        lock.writeLock().lock();
+        try {
+            for (Document user : users) {
+                if (user.getString("registrationNumber") != null) learnStudent(user);
+            }
+            for (Document mark : marks) apply(mark);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        lastSync = syncedAt;
+        if (!marks.isEmpty()) log.debug("Synced {} attendance rows", marks.size());
+    }
+
+    // Caller holds the write lock
+    private void learnStudent(Document user) {
+        String registrationNumber = user.getString("registrationNumber");
+        if (registrationNumber == null) return;
+        int student = students.code(registrationNumber);
+        String department = user.getString("department");
+        String year = Objects.toString(user.get("year"), null);
+
+        // Out of its old rosters first, in case the department or year changed
+        roster.remove(student);
+        IntBitmap previous = rosterByDepartment.get(departmentOf.get(registrationNumber));
+        if (previous != null) previous.remove(student);
+        previous = rosterByYear.get(yearOf.get(registrationNumber));
+        if (previous != null) previous.remove(student);
+
+        if (department != null) departmentOf.put(registrationNumber, department);
+        if (year != null) yearOf.put(registrationNumber, year);
+        if (!"student".equals(user.getString("role")) || !Boolean.TRUE.equals(user.getBoolean("isActive"))) return;
+        roster.add(student);
+        if (department != null) rosterByDepartment.computeIfAbsent(department, k -> new IntBitmap()).add(student);
+        if (year != null) rosterByYear.computeIfAbsent(year, k -> new IntBitmap()).add(student);
+    }
+
+    // Caller holds the write lock
+    private void apply(Document mark) {
+        String registrationNumber = mark.getString("registrationNumber");
+        String date = mark.getString("date");
+        if (registrationNumber == null || date == null) return;
+        int day;
+        try {
+            day = (int) LocalDate.parse(date).toEpochDay();
+        } catch (DateTimeParseException e) {
+            return;
+        }
+        int student = students.code(registrationNumber);
+        int subject = subjects.code(valueOr(mark.getString("subjectCode")));
+        long key = ((long) student << 40) ^ ((long) subject << 20) ^ (day & 0xFFFFF);
+        int row = rowOf.get(key);
+        if (row < 0) {
+            ensureCapacity(rows + 1);
+            row = rows++;
+            rowOf.put(key, row);
+        }
+        studentColumn[row] = student;
+        subjectColumn[row] = subject;
+        departmentColumn[row] = (byte) departments.code(valueOr(departmentOf.get(registrationNumber)));
+        String status = valueOr(mark.getString("status"));
+        statusColumn[row] = (byte) statuses.code(status);
+        dayColumn[row] = day;
+        // A re-mark moves the student between the session's bitmaps
+        Session session = sessions.computeIfAbsent(session(subject, day), k -> new Session());
+        session.marked.add(student);
+        if (PRESENT.equals(status) || LATE.equals(status)) {
+            session.attended.add(student);
+        } else {
+            session.attended.remove(student);
+        }
+        if (EXCUSED.equals(status)) {
+            session.excused.add(student);
+        } else {
+            session.excused.remove(student);
+        }
+        minDay = Math.min(minDay, day);
+        maxDay = Math.max(maxDay, day);
+    }
+
+    private void ensureCapacity(int needed) {
+        if (needed <= dayColumn.length) return;
+        int capacity = Math.max(needed, Math.max(1024, dayColumn.length + (dayColumn.length >> 1)));
+        studentColumn = Arrays.copyOf(studentColumn, capacity);
+        subjectColumn = Arrays.copyOf(subjectColumn, capacity);
+        departmentColumn = Arrays.copyOf(departmentColumn, capacity);
+        statusColumn = Arrays.copyOf(statusColumn, capacity);
+        dayColumn = Arrays.copyOf(dayColumn, capacity);
+    }
+
+    private static String valueOr(String value) {
+        return value == null ? "" : value;
+    }
+
+    // ---- queries ------------------------------------------------------------------------------
+
+    /** One aggregation over a consistent view; constructed and run under the read lock. */
+    private final class Query {
+        final Dimension[] dimensions;
+        final List<Metric> metrics;
+        final long[] strides;
+        final int[] cardinalities;
+        final int groups;
+        final int firstDay;
+        final int lastDay;
+        final int firstWeek;
+        final int[] monthOfDay;
+        final String[] monthLabels;
+        final int department;
+        final int subject;
+        final int student;
+        final int status;
+        final int present;
+        final boolean empty;
+
+        Query(List<Dimension> groupBy, List<Metric> metrics, Filter filter) {
+            this.dimensions = groupBy.toArray(new Dimension[0]);
+            this.metrics = metrics;
+            int from = filter.startDate != null ? (int) LocalDate.parse(filter.startDate).toEpochDay() : minDay;
+            int to = filter.endDate != null ? (int) LocalDate.parse(filter.endDate).toEpochDay() : maxDay;
+            firstDay = Math.max(from, minDay);
+            lastDay = Math.min(to, maxDay);
+            department = filter.department != null ? departments.find(filter.department) : -1;
+            subject = filter.subject != null ? subjects.find(filter.subject) : -1;
+            student = filter.student != null ? students.find(filter.student) : -1;
+            status = filter.status != null ? statuses.find(filter.status) : -1;
+            present = statuses.find(PRESENT);
+            empty = rows == 0 || firstDay > lastDay
+                    || (filter.department != null && department < 0) || (filter.subject != null && subject < 0)
+                    || (filter.student != null && student < 0) || (filter.status != null && status < 0);
+
+            firstWeek = empty ? 0 : week(firstDay);
+            if (!empty && groupBy.contains(Dimension.MONTH)) {
+                // One lookup per row instead of a calendar calculation
+                monthOfDay = new int[lastDay - firstDay + 1];
+                List<String> labels = new ArrayList<>();
+                LocalDate date = LocalDate.ofEpochDay(firstDay);
+                int month = -1;
+                int previous = -1;
+                for (int i = 0; i < monthOfDay.length; i++, date = date.plusDays(1)) {
+                    int key = date.getYear() * 12 + date.getMonthValue();
+                    if (key != previous) {
+                        month++;
+                        previous = key;
+                        labels.add(String.format("%04d-%02d", date.getYear(), date.getMonthValue()));
+                    }
+                    monthOfDay[i] = month;
+                }
+                monthLabels = labels.toArray(new String[0]);
+            } else {
+                monthOfDay = null;
+                monthLabels = null;
+            }
+
+            cardinalities = new int[dimensions.length];
+            strides = new long[dimensions.length];
+            long total = 1;
+            for (int i = dimensions.length - 1; i >= 0; i--) {
+                cardinalities[i] = empty ? 1 : cardinality(dimensions[i]);
+                strides[i] = total;
+                try {
+                    total = Math.multiplyExact(total, cardinalities[i]);
+                } catch (ArithmeticException e) {
+                    throw new IllegalArgumentException("groupBy has too many combinations");
+                }
+            }
+            groups = total <= DENSE_GROUPS ? (int) total : -1;
+        }
+
+        private int cardinality(Dimension dimension) {
+            switch (dimension) {
+                case DEPARTMENT: return Math.max(1, departments.size());
+                case SUBJECT: return Math.max(1, subjects.size());
+                case STUDENT: return Math.max(1, students.size());
+                case STATUS: return Math.max(1, statuses.size());
+                case DATE: return lastDay - firstDay + 1;
+                case WEEK: return week(lastDay) - firstWeek + 1;
+                default: return monthLabels.length;
+            }
+        }
+
+        private int code(Dimension dimension, int row) {
+            switch (dimension) {
+                case DEPARTMENT: return departmentColumn[row] & 0xFF;
+                case SUBJECT: return subjectColumn[row];
+                case STUDENT: return studentColumn[row];
+                case STATUS: return statusColumn[row] & 0xFF;
+                case DATE: return dayColumn[row] - firstDay;
+                case WEEK: return week(dayColumn[row]) - firstWeek;
+                default: return monthOfDay[dayColumn[row] - firstDay];
+            }
+        }
+
+        private String label(Dimension dimension, int code) {
+            switch (dimension) {
+                case DEPARTMENT: return departments.value(code);
+                case SUBJECT: return subjects.value(code);
+                case STUDENT: return students.value(code);
+                case STATUS: return statuses.value(code);
+                case DATE: return LocalDate.ofEpochDay(firstDay + code).toString();
+                case WEEK: return LocalDate.ofEpochDay((long) (firstWeek + code) * 7 - 3).toString();
+                default: return monthLabels[code];
+            }
+        }
+
+        List<Map<String, Object>> run() {
+            if (empty) return new ArrayList<>();
+            int chunkRows = Math.max(MIN_CHUNK_ROWS, rows / (ForkJoinPool.getCommonPoolParallelism() * 4) + 1);
+            int chunks = (rows + chunkRows - 1) / chunkRows;
+            Counts total = IntStream.range(0, chunks).parallel()
+                    .mapToObj(chunk -> scan(chunk * chunkRows, Math.min(rows, (chunk + 1) * chunkRows)))
+                    .reduce(Counts::merge)
+                    .orElseGet(() -> new Counts(groups));
+
+            List<Map<String, Object>> result = new ArrayList<>();
+            total.forEach((key, marks, presentMarks) -> result.add(row(key, marks, presentMarks)));
+            return result;
+        }
+
+        // The loop touches only primitive arrays; the filters are branch-free compares the JIT can unroll
+        private Counts scan(int from, int to) {
+            Counts counts = new Counts(groups);
+            int[] days = dayColumn;
+            byte[] departmentCodes = departmentColumn;
+            int[] subjectCodes = subjectColumn;
+            int[] studentCodes = studentColumn;
+            byte[] statusCodes = statusColumn;
+            for (int row = from; row < to; row++) {
+                int day = days[row];
+                if (day < firstDay || day > lastDay) continue;
+                if (department >= 0 && (departmentCodes[row] & 0xFF) != department) continue;
+                if (subject >= 0 && subjectCodes[row] != subject) continue;
+                if (student >= 0 && studentCodes[row] != student) continue;
+                int statusCode = statusCodes[row] & 0xFF;
+                if (status >= 0 && statusCode != status) continue;
+                long key = 0;
+                for (int i = 0; i < dimensions.length; i++) key += code(dimensions[i], row) * strides[i];
+                counts.add(key, statusCode == present ? 1 : 0);
+            }
+            return counts;
+        }
+
+        private Map<String, Object> row(long key, long marks, long presentMarks) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            for (int i = 0; i < dimensions.length; i++) {
+                int code = (int) (key / strides[i] % cardinalities[i]);
+                row.put(dimensions[i].name().toLowerCase(), label(dimensions[i], code));
+            }
+            for (Metric metric : metrics) {
+                switch (metric) {
+                    case COUNT: row.put("count", marks); break;
+                    case PRESENT: row.put("present", presentMarks); break;
+                    default: row.put("rate", Math.round(presentMarks * 1000.0 / marks) / 10.0);
+                }
+            }
+            return row;
+        }
+    }
+
+    // Monday-based week number; epoch day 0 was a Thursday
+    private static int week(int epochDay) {
+        return Math.floorDiv(epochDay + 3, 7);
+    }
+
+    /** Marks and present marks per group key, dense for few groups. */
+    private static final class Counts {
+        interface Visitor {
+            void group(long key, long marks, long present);
+        }
+
+        final long[] marks;
+        final long[] present;
+        final Map<Long, long[]> sparse;
+
+        Counts(int groups) {
+            if (groups >= 0) {
+                marks = new long[groups];
+                present = new long[groups];
+                sparse = null;
+            } else {
+                marks = null;
+                present = null;
+                sparse = new HashMap<>();
+            }
+        }
+
+        void add(long key, int isPresent) {
+            if (sparse == null) {
+                marks[(int) key]++;
+                present[(int) key] += isPresent;
+            } else {
+                long[] counts = sparse.computeIfAbsent(key, k -> new long[2]);
+                counts[0]++;
+                counts[1] += isPresent;
+            }
+        }
+
+        Counts merge(Counts other) {
+            if (sparse == null) {
+                for (int i = 0; i < marks.length; i++) {
+                    marks[i] += other.marks[i];
+                    present[i] += other.present[i];
+                }
+            } else {
+                for (Map.Entry<Long, long[]> entry : other.sparse.entrySet()) {
+                    long[] counts = sparse.computeIfAbsent(entry.getKey(), k -> new long[2]);
+                    counts[0] += entry.getValue()[0];
+                    counts[1] += entry.getValue()[1];
+                }
+            }
+            return this;
+        }
+
+        /** Non-empty groups in key order, which is the order of the group-by values. */
+        void forEach(Visitor visitor) {
+            if (sparse == null) {
+                for (int i = 0; i < marks.length; i++) {
+                    if (marks[i] > 0) visitor.group(i, marks[i], present[i]);
+                }
+            } else {
+                List<Long> keys = new ArrayList<>(sparse.keySet());
+                Collections.sort(keys);
+                for (Long key : keys) visitor.group(key, sparse.get(key)[0], sparse.get(key)[1]);
+            }
+        }
+    }
+
+    /** The students marked for one (subject, date), and those of them who attended or were excused. */
+    private static final class Session {
+        final IntBitmap marked = new IntBitmap();
+        final IntBitmap attended = new IntBitmap();
+        final IntBitmap excused = new IntBitmap();
+    }
+
+    /** Append-only string dictionary; codes past {@code limit} share the last code. */
+    private static final class Dictionary {
+        private final int limit;
+        private final Map<String, Integer> codes = new HashMap<>();
+        private String[] values = new String[16];
+        private int size;
+
+        Dictionary(int limit) {
+            this.limit = limit;
+        }
+
+        int code(String value) {
+            Integer code = codes.get(value);
+            if (code != null) return code;
+            if (size == limit) return limit - 1;
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size] = value;
+            codes.put(value, size);
+            return size++;
+        }
+
+        int find(String value) {
+            Integer code = codes.get(value);
+            return code == null ? -1 : code;
+        }
+
+        String value(int code) {
+            return values[code];
+        }
+
+        int size() {
+            return size;
+        }
+    }
+
+    /** Open-addressing map from a long key (a mark's student, subject and day, say) to an int. */
+    private static final class LongIntMap {
+        private long[] keys = new long[1024];
+        private int[] values = new int[1024];
+        private boolean[] used = new boolean[1024];
+        private int size;
+
+        int get(long key) {
+            int mask = keys.length - 1;
+            for (int i = slot(key, mask); used[i]; i = (i + 1) & mask) {
+                if (keys[i] == key) return values[i];
+            }
+            return -1;
+        }
+
+        void put(long key, int value) {
+            if ((size + 1) * 2 > keys.length) grow();
+            int mask = keys.length - 1;
+            int i = slot(key, mask);
+            while (used[i] && keys[i] != key) i = (i + 1) & mask;
+            if (!used[i]) size++;
+            used[i] = true;
+            keys[i] = key;
+            values[i] = value;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            boolean[] oldUsed = used;
+            keys = new long[oldKeys.length * 2];
+            values = new int[oldKeys.length * 2];
+            used = new boolean[oldKeys.length * 2];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldUsed[i]) put(oldKeys[i], oldValues[i]);
+            }
+        }
+
+        private static int slot(long key, int mask) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32)) & mask;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.mlvisio.services;
+
+import com.mlvisio.util.Config;
+import com.mlvisio.util.Log;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * Bearer tokens issued at login and checked by the API's auth middleware.
+ * A token is `base64url(userId|role|expiry)` and a base64url HMAC-SHA256 of
+ * it, joined with a dot, so checking one needs no lookup.
+ *
+ * The key comes from `-Dmlvisio.auth.secret` / `MLVISIO_AUTH_SECRET`. Without
+ * one a random key is generated at startup and tokens stop working when the
+ * server restarts. Tokens last `-Dmlvisio.auth.ttlHours` (default 12).
+ */
+public class AuthTokens {
+
+    private static final Log log = Log.get(AuthTokens.class);
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private static final AuthTokens INSTANCE = new AuthTokens();
+
+    public static AuthTokens getInstance() {
+        return INSTANCE;
+    }
+
+    /** What a valid token says about its holder. */
+    public static final class Claims {
+        private final String userId;
+        private final String role;
+        private final long expiresAt;
+
+        Claims(String userId, String role, long expiresAt) {
+            this.userId = userId;
+            this.role = role;
+            this.expiresAt = expiresAt;
+        }
+
+        public String getUserId() {
+            return userId;
+        }
+
+        public String getRole() {
+            return role;
+        }
+
+        /** Epoch seconds. */
+        public long getExpiresAt() {
+            return expiresAt;
+        }
+    }
+
+    private final SecretKeySpec key;
+    private final Mac prototype;
+    private final long ttlSeconds;
+
+    private AuthTokens() {
+        String secret = Config.get("mlvisio.auth.secret", "MLVISIO_AUTH_SECRET", null);
+        byte[] keyBytes;
+        if (secret != null) {
+            keyBytes = secret.getBytes(StandardCharsets.UTF_8);
+        } else {
+            keyBytes = new byte[32];
+            new SecureRandom().nextBytes(keyBytes);
+            log.warn("No mlvisio.auth.secret set; tokens are signed with a per-process key and expire on restart");
+        }
+        key = new SecretKeySpec(keyBytes, ALGORITHM);
+        prototype = newMac();
+        ttlSeconds = Long.parseLong(Config.get("mlvisio.auth.ttlHours", "MLVISIO_AUTH_TTL_HOURS", "12")) * 3600;
+    }
+
+    public String issue(String userId, String role) {
+        long expiresAt = System.currentTimeMillis() / 1000 + ttlSeconds;
+        byte[] payload = (userId + "|" + role + "|" + expiresAt).getBytes(StandardCharsets.UTF_8);
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        return encoder.encodeToString(payload) + "." + encoder.encodeToString(sign(payload));
+    }
+
+    /** The token's claims, or null when it is malformed, forged or expired. */
+    public Claims verify(String token) {
+        if (token == null) return null;
+        int dot = token.indexOf('.');
+        if (dot <= 0) return null;
+        byte[] payload;
+        byte[] signature;
+        try {
+            Base64.Decoder decoder = Base64.getUrlDecoder();
+            payload = decoder.decode(token.substring(0, dot));
+            signature = decoder.decode(token.substring(dot + 1));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (!MessageDigest.isEqual(sign(payload), signature)) return null;
+
+        // The user id may contain '|', role and expiry cannot
+        String claims = new String(payload, StandardCharsets.UTF_8);
+        int expirySeparator = claims.lastIndexOf('|');
+        int roleSeparator = expirySeparator > 0 ? claims.lastIndexOf('|', expirySeparator - 1) : -1;
+        if (roleSeparator < 0) return null;
+        long expiresAt;
+        try {
+            expiresAt = Long.parseLong(claims.substring(expirySeparator + 1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        if (expiresAt < System.currentTimeMillis() / 1000) return null;
+        return new Claims(claims.substring(0, roleSeparator), claims.substring(roleSeparator + 1, expirySeparator), expiresAt);
+    }
+
+    // A Mac is not thread-safe; cloning the keyed prototype is cheaper than keying a new one
+    private byte[] sign(byte[] payload) {
+        Mac mac;
+        try {
+            mac = (Mac) prototype.clone();
+        } catch (CloneNotSupportedException e) {
+            mac = newMac();
+        }
+        return mac.doFinal(payload);
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(ALGORITHM + " unavailable", e);
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.mlvisio.services;
+
+import com.mlvisio.util.Config;
+import com.mlvisio.util.VirtualThreads;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-route concurrency limits, so a flood of one kind of request (say
+ * attendance reports) queues behind its own permits instead of taking every
+ * thread and starving marks and logins. Each bulkhead is a fair semaphore
+ * with a bounded wait queue: a request that finds the queue full, or waits
+ * longer than the configured time, is turned away with 503.
+ *
+ * Limits come from `-Dmlvisio.bulkhead.<name>` / `MLVISIO_BULKHEAD_<NAME>`
+ * (permits), `-Dmlvisio.bulkhead.<name>.queue` and `-Dmlvisio.bulkhead.maxWaitMs`.
+ */
+public class Bulkheads {
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99};
+
+    private static final Bulkheads INSTANCE = new Bulkheads();
+
+    public static Bulkheads getInstance() {
+        return INSTANCE;
+    }
+
+    public static final class Bulkhead {
+        final String name;
+        final int permits;
+        final int queueCapacity;
+        private final Semaphore semaphore;
+        final AtomicInteger waiting = new AtomicInteger();
+        final LongAdder rejected = new LongAdder();
+        final LatencyHistogram wait = new LatencyHistogram();
+
+        Bulkhead(String name, int permits, int queueCapacity) {
+            this.name = name;
+            this.permits = permits;
+            this.queueCapacity = queueCapacity;
+            this.semaphore = new Semaphore(permits, true);
+        }
+
+        /** Takes a permit, waiting up to {@code maxWaitMillis}; false means the request should be rejected. */
+        public boolean acquire(long maxWaitMillis) {
+            long start = System.nanoTime();
+            if (semaphore.tryAcquire()) {
+                wait.recordMicros(0);
+                return true;
+            }
+            if (waiting.incrementAndGet() > queueCapacity) {
+                waiting.decrementAndGet();
+                rejected.increment();
+                return false;
+            }
+            boolean acquired = false;
+            try {
+                acquired = semaphore.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                waiting.decrementAndGet();
+            }
+            if (acquired) {
+                wait.recordMicros((System.nanoTime() - start) / 1000);
+            } else {
+                rejected.increment();
+            }
+            return acquired;
+        }
+
+        public void release() {
+            semaphore.release();
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getActive() {
+            return permits - semaphore.availablePermits();
+        }
+    }
+
+    // Route template (or a prefix of it) -> bulkhead name; anything else shares "default"
+    private static final String[][] ROUTES = {
+            {"/login", "login"},
+            {"/attendance/mark", "mark"},
+            {"/attendance/report", "report"},
+            {"/analytics", "report"},
+            {"/attendance/absentees", "report"},
+            {"/attendance/eligibility", "report"},
+            {"/stats/dashboard", "dashboard"},
+            {"/users/import", "import"},
+            {"/attendance/archive", "import"},
+    };
+    private static final String[][] DEFAULT_PERMITS = {
+            {"login", "32"}, {"mark", "64"}, {"report", "8"}, {"dashboard", "8"}, {"import", "2"}, {"default", "64"},
+    };
+
+    private final ConcurrentMap<String, Bulkhead> bulkheads = new ConcurrentHashMap<>();
+    private final long maxWaitMillis = Long.parseLong(Config.get("mlvisio.bulkhead.maxWaitMs", "MLVISIO_BULKHEAD_MAX_WAIT_MS", "2000"));
+
+    private Bulkheads() {
+    }
+
+    public long getMaxWaitMillis() {
+        return maxWaitMillis;
+    }
+
+    public Bulkhead forRoute(String route) {
+        String name = "default";
+        for (String[] mapping : ROUTES) {
+            if (route.equals(mapping[0]) || route.startsWith(mapping[0] + "/")) {
+                name = mapping[1];
+                break;
+            }
+        }
+        return bulkheads.computeIfAbsent(name, this::create);
+    }
+
+    private Bulkhead create(String name) {
+        String defaultPermits = "64";
+        for (String[] entry : DEFAULT_PERMITS) {
+            if (entry[0].equals(name)) defaultPermits = entry[1];
+        }
+        String env = "MLVISIO_BULKHEAD_" + name.toUpperCase();
+        int permits = Integer.parseInt(Config.get("mlvisio.bulkhead." + name, env, defaultPermits));
+        // Waiting is only cheap on virtual threads; on the container's platform threads a full
+        // bulkhead rejects at once unless a queue is configured explicitly
+        int queue = Integer.parseInt(Config.get("mlvisio.bulkhead." + name + ".queue", env + "_QUEUE",
+                String.valueOf(VirtualThreads.enabled() ? permits * 4 : 0)));
+        return new Bulkhead(name, Math.max(1, permits), Math.max(0, queue));
+    }
+
+    public void writePrometheus(StringBuilder out) {
+        Map<String, Bulkhead> sorted = new TreeMap<>(bulkheads);
+
+        out.append("# HELP mlvisio_bulkhead_permits Concurrent requests allowed per bulkhead\n");
+        out.append("# TYPE mlvisio_bulkhead_permits gauge\n");
+        for (Bulkhead b : sorted.values()) {
+            out.append("mlvisio_bulkhead_permits{bulkhead=\"").append(b.name).append("\"} ").append(b.permits).append('\n');
+        }
+        out.append("# HELP mlvisio_bulkhead_active Requests currently holding a permit\n");
+        out.append("# TYPE mlvisio_bulkhead_active gauge\n");
+        for (Bulkhead b : sorted.values()) {
+            out.append("mlvisio_bulkhead_active{bulkhead=\"").append(b.name).append("\"} ").append(b.getActive()).append('\n');
+        }
+        out.append("# HELP mlvisio_bulkhead_queued Requests waiting for a permit\n");
+        out.append("# TYPE mlvisio_bulkhead_queued gauge\n");
+        for (Bulkhead b : sorted.values()) {
+            out.append("mlvisio_bulkhead_queued{bulkhead=\"").append(b.name).append("\"} ").append(b.waiting.get()).append('\n');
+        }
+        out.append("# HELP mlvisio_bulkhead_rejected_total Requests turned away with 503\n");
+        out.append("# TYPE mlvisio_bulkhead_rejected_total counter\n");
+        for (Bulkhead b : sorted.values()) {
+            out.append("mlvisio_bulkhead_rejected_total{bulkhead=\"").append(b.name).append("\"} ").append(b.rejected.sum()).append('\n');
+        }
+        out.append("# HELP mlvisio_bulkhead_wait_seconds Time spent waiting for a permit\n");
+        out.append("# TYPE mlvisio_bulkhead_wait_seconds summary\n");
+        for (Bulkhead b : sorted.values()) {
+            long[] values = b.wait.quantiles(QUANTILES);
+            for (int i = 0; i < QUANTILES.length; i++) {
+                out.append("mlvisio_bulkhead_wait_seconds{bulkhead=\"").append(b.name).append("\",quantile=\"")
+                        .append(QUANTILES[i]).append("\"} ").append(values[i] / 1_000_000.0).append('\n');
+            }
+            out.append("mlvisio_bulkhead_wait_seconds_sum{bulkhead=\"").append(b.name).append("\"} ")
+                    .append(b.wait.getSumMicros() / 1_000_000.0).append('\n');
+            out.append("mlvisio_bulkhead_wait_seconds_count{bulkhead=\"").append(b.name).append("\"} ")
+                    .append(b.wait.getCount()).append('\n');
+        }
+    }
+}
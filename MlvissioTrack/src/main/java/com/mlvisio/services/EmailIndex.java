@@ -0,0 +1,50 @@
+package com.mlvisio.services;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.Firestore;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * `emailIndex/{normalisedEmail}` reservation documents pointing at a user.
+ * A reservation is created in the same transaction (or atomic batch) as its
+ * user, so uniqueness and email lookups are single reads by document id.
+ *
+ * Users created before the index existed are found through the old email
+ * query once and the missing reservation is written back at that point.
+ * The reads and transactions live in {@link com.mlvisio.storage.UserRepository};
+ * this class holds the key scheme shared with it and the seeding tools.
+ */
+public class EmailIndex {
+
+    public static final String COLLECTION = "emailIndex";
+
+    private EmailIndex() {
+    }
+
+    public static class DuplicateEmailException extends Exception {
+        public DuplicateEmailException(String email) {
+            super("User with this email already exists: " + email);
+        }
+    }
+
+    /** Lower-cased, trimmed email escaped so it is a legal document id. */
+    public static String key(String email) {
+        return email.trim().toLowerCase(Locale.ROOT).replace("%", "%25").replace("/", "%2F");
+    }
+
+    public static DocumentReference ref(Firestore db, String email) {
+        return db.collection(COLLECTION).document(key(email));
+    }
+
+    public static Map<String, Object> reservation(String email, String userId) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("email", email.trim());
+        data.put("userId", userId);
+        data.put("createdAt", Timestamp.now());
+        return data;
+    }
+}
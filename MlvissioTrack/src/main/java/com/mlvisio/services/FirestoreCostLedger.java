@@ -0,0 +1,168 @@
+package com.mlvisio.services;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Running totals of Firestore usage fed by {@link FirestoreMeter}: cumulative
+ * counters per endpoint and collection for Prometheus, and a per-day,
+ * per-endpoint ledger with an estimated cost for the last 31 days. Days follow
+ * Pacific time because that is when Firestore's billing day rolls over.
+ */
+public class FirestoreCostLedger {
+
+    // List prices for a standard (non-multi-region) database, per operation
+    static final double USD_PER_READ = 0.06 / 100_000;
+    static final double USD_PER_WRITE = 0.18 / 100_000;
+
+    private static final ZoneId BILLING_ZONE = ZoneId.of("America/Los_Angeles");
+    private static final int KEEP_DAYS = 31;
+    private static final int MAX_KEYS = 1024;
+
+    private static final FirestoreCostLedger INSTANCE = new FirestoreCostLedger();
+
+    public static FirestoreCostLedger getInstance() {
+        return INSTANCE;
+    }
+
+    static final class Usage {
+        final LongAdder requests = new LongAdder();
+        final LongAdder reads = new LongAdder();
+        final LongAdder writes = new LongAdder();
+        final LongAdder roundTrips = new LongAdder();
+        final LongAdder nPlusOne = new LongAdder();
+    }
+
+    // "endpoint\u0000collection" -> usage since start-up
+    private final ConcurrentMap<String, Usage> totals = new ConcurrentHashMap<>();
+    // endpoint -> requests and N+1 flags since start-up
+    private final ConcurrentMap<String, Usage> endpoints = new ConcurrentHashMap<>();
+    private final ConcurrentMap<LocalDate, ConcurrentMap<String, Usage>> days = new ConcurrentHashMap<>();
+
+    private FirestoreCostLedger() {
+    }
+
+    /**
+     * Records a finished RPC's reads and writes against an endpoint and
+     * collection; an RPC spanning collections is recorded once per collection
+     * with only the first counting as a round trip.
+     */
+    void recordCall(String endpoint, String collection, long reads, long writes, boolean roundTrip) {
+        Usage total = usage(totals, endpoint + '\u0000' + collection);
+        Usage day = usage(today(), endpoint);
+        total.reads.add(reads);
+        total.writes.add(writes);
+        day.reads.add(reads);
+        day.writes.add(writes);
+        if (roundTrip) {
+            total.roundTrips.increment();
+            day.roundTrips.increment();
+        }
+    }
+
+    /** Records a finished HTTP request and whether it was flagged as N+1. */
+    void recordRequest(String endpoint, boolean nPlusOne) {
+        Usage total = usage(endpoints, endpoint);
+        Usage day = usage(today(), endpoint);
+        total.requests.increment();
+        day.requests.increment();
+        if (nPlusOne) {
+            total.nPlusOne.increment();
+            day.nPlusOne.increment();
+        }
+    }
+
+    private ConcurrentMap<String, Usage> today() {
+        LocalDate date = LocalDate.now(BILLING_ZONE);
+        ConcurrentMap<String, Usage> day = days.get(date);
+        if (day != null) return day;
+        days.keySet().removeIf(d -> d.isBefore(date.minusDays(KEEP_DAYS - 1)));
+        return days.computeIfAbsent(date, d -> new ConcurrentHashMap<>());
+    }
+
+    private static Usage usage(ConcurrentMap<String, Usage> map, String key) {
+        Usage usage = map.get(key);
+        if (usage != null) return usage;
+        if (map.size() >= MAX_KEYS) return map.computeIfAbsent("other", k -> new Usage());
+        return map.computeIfAbsent(key, k -> new Usage());
+    }
+
+    /**
+     * Per-day usage, newest first: date -> endpoint -> requests, reads,
+     * writes, roundTrips, nPlusOneRequests and estimatedCostUsd.
+     */
+    public Map<String, Object> dailyReport() {
+        Map<String, Object> report = new LinkedHashMap<>();
+        new TreeMap<>(days).descendingMap().forEach((date, day) -> {
+            Map<String, Object> byEndpoint = new LinkedHashMap<>();
+            new TreeMap<>(day).forEach((endpoint, usage) -> {
+                long reads = usage.reads.sum();
+                long writes = usage.writes.sum();
+                Map<String, Object> row = new LinkedHashMap<>();
+                row.put("requests", usage.requests.sum());
+                row.put("reads", reads);
+                row.put("writes", writes);
+                row.put("roundTrips", usage.roundTrips.sum());
+                row.put("nPlusOneRequests", usage.nPlusOne.sum());
+                row.put("estimatedCostUsd", estimate(reads, writes));
+                byEndpoint.put(endpoint, row);
+            });
+            report.put(date.toString(), byEndpoint);
+        });
+        return report;
+    }
+
+    static double estimate(long reads, long writes) {
+        // Rounded to a millionth of a dollar so the JSON stays readable
+        return Math.round((reads * USD_PER_READ + writes * USD_PER_WRITE) * 1_000_000) / 1_000_000.0;
+    }
+
+    public void writePrometheus(StringBuilder out) {
+        Map<String, Usage> sorted = new TreeMap<>(totals);
+
+        out.append("# HELP mlvisio_firestore_documents_read_total Billed Firestore document reads\n");
+        out.append("# TYPE mlvisio_firestore_documents_read_total counter\n");
+        sorted.forEach((key, usage) -> counter(out, "mlvisio_firestore_documents_read_total", key, usage.reads.sum()));
+
+        out.append("# HELP mlvisio_firestore_documents_written_total Firestore document writes\n");
+        out.append("# TYPE mlvisio_firestore_documents_written_total counter\n");
+        sorted.forEach((key, usage) -> counter(out, "mlvisio_firestore_documents_written_total", key, usage.writes.sum()));
+
+        out.append("# HELP mlvisio_firestore_round_trips_total Firestore RPCs\n");
+        out.append("# TYPE mlvisio_firestore_round_trips_total counter\n");
+        sorted.forEach((key, usage) -> counter(out, "mlvisio_firestore_round_trips_total", key, usage.roundTrips.sum()));
+
+        out.append("# HELP mlvisio_firestore_n_plus_one_total Requests that repeated one query shape past the N+1 threshold\n");
+        out.append("# TYPE mlvisio_firestore_n_plus_one_total counter\n");
+        new TreeMap<>(endpoints).forEach((endpoint, usage) -> {
+            out.append("mlvisio_firestore_n_plus_one_total{endpoint=");
+            quote(out, endpoint);
+            out.append("} ").append(usage.nPlusOne.sum()).append('\n');
+        });
+    }
+
+    private static void counter(StringBuilder out, String name, String key, long value) {
+        int split = key.indexOf('\u0000');
+        out.append(name).append("{endpoint=");
+        quote(out, split < 0 ? key : key.substring(0, split));
+        out.append(",collection=");
+        quote(out, split < 0 ? "" : key.substring(split + 1));
+        out.append("} ").append(value).append('\n');
+    }
+
+    private static void quote(StringBuilder out, String value) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') out.append('\\');
+            out.append(c);
+        }
+        out.append('"');
+    }
+}
@@ -0,0 +1,314 @@
+package com.mlvisio.services;
+
+import com.google.firestore.v1.*;
+import com.mlvisio.util.Log;
+import io.grpc.*;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Meters Firestore usage per HTTP request. Installed as a gRPC interceptor on
+ * the channel behind {@code FirestoreClient.getFirestore()} (see
+ * FirebaseInitializer), so every query, document get and commit is seen
+ * without touching call sites. MetricsFilter opens a {@link RequestCost} for
+ * each request; RPCs started on that thread count billed document reads,
+ * writes and round trips into it and into {@link FirestoreCostLedger}. RPCs
+ * started elsewhere (executor threads, start-up jobs) are booked under
+ * "background".
+ *
+ * A request that sends the same query shape (collection plus filtered fields,
+ * ignoring values) more than `-Dmlvisio.nPlusOneThreshold` times (default 10)
+ * is flagged as an N+1 loop.
+ */
+public class FirestoreMeter implements ClientInterceptor {
+
+    private static final Log log = Log.get(FirestoreMeter.class);
+
+    static final int N_PLUS_ONE_THRESHOLD = Integer.getInteger("mlvisio.nPlusOneThreshold", 10);
+    private static final String BACKGROUND = "background";
+
+    private static final FirestoreMeter INSTANCE = new FirestoreMeter();
+
+    public static FirestoreMeter getInstance() {
+        return INSTANCE;
+    }
+
+    /** Firestore usage of one HTTP request; updated from gRPC callback threads. */
+    public static final class RequestCost {
+        final String endpoint;
+        final LongAdder reads = new LongAdder();
+        final LongAdder writes = new LongAdder();
+        final LongAdder roundTrips = new LongAdder();
+        final LongAdder nanos = new LongAdder();
+        final ConcurrentMap<String, AtomicInteger> shapes = new ConcurrentHashMap<>();
+        final AtomicReference<String> nPlusOne = new AtomicReference<>();
+
+        RequestCost(String endpoint) {
+            this.endpoint = endpoint;
+        }
+
+        void noteShape(String shape) {
+            int count = shapes.computeIfAbsent(shape, s -> new AtomicInteger()).incrementAndGet();
+            if (count > N_PLUS_ONE_THRESHOLD) nPlusOne.compareAndSet(null, shape);
+        }
+
+        public long getReads() {
+            return reads.sum();
+        }
+
+        public long getWrites() {
+            return writes.sum();
+        }
+
+        public long getRoundTrips() {
+            return roundTrips.sum();
+        }
+
+        /** The first query shape that crossed the N+1 threshold, or null. */
+        public String getNPlusOne() {
+            return nPlusOne.get();
+        }
+
+        public int countOf(String shape) {
+            AtomicInteger count = shapes.get(shape);
+            return count == null ? 0 : count.get();
+        }
+
+        /** Value for a `Server-Timing` header, e.g. `firestore;dur=41.7;desc="12 reads, 0 writes, 3 round trips"`. */
+        public String serverTiming() {
+            return String.format(Locale.ROOT, "firestore;dur=%.1f;desc=\"%d reads, %d writes, %d round trips\"",
+                    nanos.sum() / 1_000_000.0, getReads(), getWrites(), getRoundTrips());
+        }
+    }
+
+    private final ThreadLocal<RequestCost> current = new ThreadLocal<>();
+
+    private FirestoreMeter() {
+    }
+
+    /** Starts metering Firestore calls made on this thread for the given endpoint. */
+    public RequestCost begin(String endpoint) {
+        RequestCost cost = new RequestCost(endpoint);
+        current.set(cost);
+        return cost;
+    }
+
+    /** The request being metered on this thread, or null. */
+    public RequestCost current() {
+        return current.get();
+    }
+
+    /** Meters this thread's calls into a request begun on another thread. */
+    public void attach(RequestCost cost) {
+        if (cost != null) current.set(cost);
+    }
+
+    /** Stops metering this thread without booking the request. */
+    public void detach() {
+        current.remove();
+    }
+
+    /** Stops metering this thread and books the request. */
+    public void end(RequestCost cost) {
+        current.remove();
+        complete(cost);
+    }
+
+    /** Books a request whose work finished on another thread. */
+    public void complete(RequestCost cost) {
+        String shape = cost.getNPlusOne();
+        FirestoreCostLedger.getInstance().recordRequest(cost.endpoint, shape != null);
+        if (shape != null) {
+            log.warn("N+1 Firestore access on {}: \"{}\" sent {} times", cost.endpoint, shape, cost.countOf(shape));
+        }
+    }
+
+    @Override
+    public <Q, R> ClientCall<Q, R> interceptCall(MethodDescriptor<Q, R> method, CallOptions options, Channel next) {
+        return new MeteredCall<>(next.newCall(method, options), current.get());
+    }
+
+    private static final class MeteredCall<Q, R> extends ForwardingClientCall.SimpleForwardingClientCall<Q, R> {
+        private final RequestCost cost;
+        // collection -> {reads, writes}, in the order the RPC touched them
+        private final Map<String, long[]> usage = Collections.synchronizedMap(new LinkedHashMap<>());
+        private volatile String queryCollection;
+        private volatile boolean commit;
+        private volatile long startNanos;
+
+        MeteredCall(ClientCall<Q, R> delegate, RequestCost cost) {
+            super(delegate);
+            this.cost = cost;
+        }
+
+        @Override
+        public void start(Listener<R> listener, Metadata headers) {
+            startNanos = System.nanoTime();
+            super.start(new ForwardingClientCallListener.SimpleForwardingClientCallListener<R>(listener) {
+                @Override
+                public void onMessage(R message) {
+                    countResponse(message);
+                    super.onMessage(message);
+                }
+
+                @Override
+                public void onClose(Status status, Metadata trailers) {
+                    finish(status);
+                    super.onClose(status, trailers);
+                }
+            }, headers);
+        }
+
+        @Override
+        public void sendMessage(Q message) {
+            inspectRequest(message);
+            super.sendMessage(message);
+        }
+
+        private void inspectRequest(Object message) {
+            if (message instanceof RunQueryRequest) {
+                noteQuery(((RunQueryRequest) message).getStructuredQuery(), "");
+            } else if (message instanceof RunAggregationQueryRequest) {
+                noteQuery(((RunAggregationQueryRequest) message)
+                        .getStructuredAggregationQuery().getStructuredQuery(), "count ");
+            } else if (message instanceof BatchGetDocumentsRequest) {
+                BatchGetDocumentsRequest get = (BatchGetDocumentsRequest) message;
+                // A loop of single-document gets is the same N+1 as a loop of queries
+                if (get.getDocumentsCount() == 1 && cost != null) {
+                    cost.noteShape(collectionOf(get.getDocuments(0)) + "/{id}");
+                }
+            } else if (message instanceof CommitRequest) {
+                commit = true;
+                for (Write write : ((CommitRequest) message).getWritesList()) add(collectionOf(write), 0, 1);
+            } else if (message instanceof BatchWriteRequest) {
+                commit = true;
+                for (Write write : ((BatchWriteRequest) message).getWritesList()) add(collectionOf(write), 0, 1);
+            }
+        }
+
+        private void noteQuery(StructuredQuery query, String prefix) {
+            queryCollection = query.getFromCount() == 0 ? "" : query.getFrom(0).getCollectionId();
+            if (cost != null) cost.noteShape(prefix + shapeOf(query));
+        }
+
+        private void countResponse(Object message) {
+            if (message instanceof RunQueryResponse) {
+                if (((RunQueryResponse) message).hasDocument()) addToQuery(1);
+            } else if (message instanceof RunAggregationQueryResponse) {
+                // Billed one read per 1000 index entries scanned; the response does not say how many
+                if (((RunAggregationQueryResponse) message).hasResult()) addToQuery(1);
+            } else if (message instanceof BatchGetDocumentsResponse) {
+                BatchGetDocumentsResponse get = (BatchGetDocumentsResponse) message;
+                // Missing documents are billed as reads too
+                if (get.hasFound()) add(collectionOf(get.getFound().getName()), 1, 0);
+                else if (get.hasMissing()) add(collectionOf(get.getMissing()), 1, 0);
+            } else if (message instanceof ListDocumentsResponse) {
+                ListDocumentsResponse list = (ListDocumentsResponse) message;
+                for (Document document : list.getDocumentsList()) add(collectionOf(document.getName()), 1, 0);
+            }
+        }
+
+        private void finish(Status status) {
+            long elapsed = System.nanoTime() - startNanos;
+            String endpoint = cost == null ? BACKGROUND : cost.endpoint;
+            FirestoreCostLedger ledger = FirestoreCostLedger.getInstance();
+            synchronized (usage) {
+                if (commit && !status.isOk()) {
+                    // Failed commits write nothing
+                    usage.values().forEach(counts -> counts[1] = 0);
+                }
+                if (queryCollection != null && status.isOk() && !usage.containsKey(queryCollection)) {
+                    // A query that matches nothing is still billed one read
+                    addToQuery(1);
+                }
+
+                if (usage.isEmpty()) {
+                    ledger.recordCall(endpoint, "", 0, 0, true);
+                }
+                // One round trip per RPC, booked against the first collection it touched
+                boolean first = true;
+                for (Map.Entry<String, long[]> entry : usage.entrySet()) {
+                    ledger.recordCall(endpoint, entry.getKey(), entry.getValue()[0], entry.getValue()[1], first);
+                    first = false;
+                    if (cost != null) {
+                        cost.reads.add(entry.getValue()[0]);
+                        cost.writes.add(entry.getValue()[1]);
+                    }
+                }
+            }
+
+            if (cost != null) {
+                cost.roundTrips.increment();
+                cost.nanos.add(elapsed);
+            }
+        }
+
+        private void add(String collection, long reads, long writes) {
+            synchronized (usage) {
+                long[] counts = usage.computeIfAbsent(collection, c -> new long[2]);
+                counts[0] += reads;
+                counts[1] += writes;
+            }
+        }
+
+        private void addToQuery(long reads) {
+            if (queryCollection != null) add(queryCollection, reads, 0);
+        }
+    }
+
+    /** "users where registrationNumber EQUAL" - the query minus its values. */
+    static String shapeOf(StructuredQuery query) {
+        StringBuilder shape = new StringBuilder();
+        shape.append(query.getFromCount() == 0 ? "?" : query.getFrom(0).getCollectionId());
+        if (query.hasWhere()) {
+            shape.append(" where");
+            appendFilter(shape, query.getWhere());
+        }
+        for (StructuredQuery.Order order : query.getOrderByList()) {
+            shape.append(" order ").append(order.getField().getFieldPath());
+        }
+        return shape.toString();
+    }
+
+    private static void appendFilter(StringBuilder shape, StructuredQuery.Filter filter) {
+        switch (filter.getFilterTypeCase()) {
+            case COMPOSITE_FILTER:
+                for (StructuredQuery.Filter part : filter.getCompositeFilter().getFiltersList()) {
+                    appendFilter(shape, part);
+                }
+                break;
+            case FIELD_FILTER:
+                StructuredQuery.FieldFilter field = filter.getFieldFilter();
+                shape.append(' ').append(field.getField().getFieldPath()).append(' ').append(field.getOp());
+                break;
+            case UNARY_FILTER:
+                StructuredQuery.UnaryFilter unary = filter.getUnaryFilter();
+                shape.append(' ').append(unary.getField().getFieldPath()).append(' ').append(unary.getOp());
+                break;
+            default:
+                break;
+        }
+    }
+
+    private static String collectionOf(Write write) {
+        if (write.hasUpdate()) return collectionOf(write.getUpdate().getName());
+        if (write.hasTransform()) return collectionOf(write.getTransform().getDocument());
+        return collectionOf(write.getDelete());
+    }
+
+    /** ".../documents/schedules/abc/attendance/xyz" -> "attendance". */
+    static String collectionOf(String documentName) {
+        int end = documentName.lastIndexOf('/');
+        if (end <= 0) return "";
+        int start = documentName.lastIndexOf('/', end - 1);
+        return documentName.substring(start + 1, end);
+    }
+}
@@ -0,0 +1,58 @@
+package com.mlvisio.services;
+
+import com.mlvisio.util.Config;
+
+import java.io.InputStream;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Where uploaded profile pictures end up. Uploads complete asynchronously on
+ * the backend's own threads so the servlet can release its request thread.
+ *
+ * The backend is chosen with `-Dmlvisio.imageBackend` or `MLVISIO_IMAGE_BACKEND`:
+ * `local` (default), `imgur` or `stub`.
+ */
+public interface ImageBackend {
+
+    /** Result of an upload. A url starting with "/" is relative to the web app's context path. */
+    final class Upload {
+        private final String url;
+        private final String hash;
+        private final long size;
+
+        public Upload(String url, String hash, long size) {
+            this.url = url;
+            this.hash = hash;
+            this.size = size;
+        }
+
+        public String getUrl() { return url; }
+        public String getHash() { return hash; }
+        public long getSize() { return size; }
+    }
+
+    String name();
+
+    /**
+     * Stores the image read from {@code in}. The stream is consumed on the
+     * backend's thread and closed when the upload finishes. Failures complete
+     * the future exceptionally; IllegalArgumentException means a bad upload.
+     */
+    CompletableFuture<Upload> upload(InputStream in, String contentType);
+
+    void shutdown();
+
+    static ImageBackend fromConfig() {
+        String name = Config.get("mlvisio.imageBackend", "MLVISIO_IMAGE_BACKEND", "local").trim().toLowerCase(Locale.ROOT);
+        switch (name) {
+            case "imgur":
+                return new ImgurImageBackend(
+                        Config.get("mlvisio.imgurClientId", "IMGUR_CLIENT_ID", ImgurImageBackend.DEFAULT_CLIENT_ID));
+            case "stub":
+                return new StubImageBackend();
+            default:
+                return new LocalImageBackend();
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.mlvisio.services;
+
+import com.mlvisio.util.Config;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Content-addressed image store on local disk. An upload is streamed through a
+ * SHA-256 digest into a temp file and moved to `{root}/{hash[0..2]}/{hash}.{ext}`;
+ * identical uploads land on the same file and are stored once.
+ *
+ * The root is `-Dmlvisio.imageDir`, then `MLVISIO_IMAGE_DIR`, then
+ * `~/.mlvisio/images`.
+ */
+public class ImageStore {
+
+    public static final long MAX_BYTES = 5L * 1024 * 1024;
+
+    private static final Pattern NAME = Pattern.compile("([0-9a-f]{64})(?:-([0-9a-z]{1,16}))?\\.([A-Za-z]{3,4})");
+
+    private static final Map<String, String> EXTENSIONS = new HashMap<>();
+    private static final Map<String, String> CONTENT_TYPES = new HashMap<>();
+
+    static {
+        register("image/jpeg", "jpg");
+        register("image/png", "png");
+        register("image/gif", "gif");
+        register("image/webp", "webp");
+    }
+
+    private static void register(String contentType, String extension) {
+        EXTENSIONS.put(contentType, extension);
+        CONTENT_TYPES.put(extension, contentType);
+    }
+
+    private static final ImageStore INSTANCE = new ImageStore(defaultRoot());
+
+    public static ImageStore getInstance() {
+        return INSTANCE;
+    }
+
+    /** A stored image; the name `{hash}.{ext}` is also its URL path segment. */
+    public static final class StoredImage {
+        private final String hash;
+        private final String extension;
+        private final long size;
+        private final boolean created;
+
+        StoredImage(String hash, String extension, long size, boolean created) {
+            this.hash = hash;
+            this.extension = extension;
+            this.size = size;
+            this.created = created;
+        }
+
+        public String getHash() { return hash; }
+        public String getExtension() { return extension; }
+        public String getName() { return hash + "." + extension; }
+        public String getContentType() { return CONTENT_TYPES.get(extension); }
+        public long getSize() { return size; }
+        /** False when an identical image was already stored. */
+        public boolean isCreated() { return created; }
+    }
+
+    private final Path root;
+
+    ImageStore(Path root) {
+        this.root = root;
+    }
+
+    private static Path defaultRoot() {
+        String configured = Config.get("mlvisio.imageDir", "MLVISIO_IMAGE_DIR", null);
+        if (configured != null) return Paths.get(configured);
+        return Paths.get(System.getProperty("user.home"), ".mlvisio", "images");
+    }
+
+    public static boolean isSupported(String contentType) {
+        return contentType != null && EXTENSIONS.containsKey(contentType.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Streams an upload into the store. Throws IllegalArgumentException for an
+     * unsupported content type or an upload over {@link #MAX_BYTES}.
+     */
+    public StoredImage store(InputStream in, String contentType) throws IOException {
+        if (!isSupported(contentType)) {
+            throw new IllegalArgumentException("Unsupported image type: " + contentType);
+        }
+        String extension = EXTENSIONS.get(contentType.toLowerCase(Locale.ROOT));
+
+        Files.createDirectories(root);
+        Path temp = Files.createTempFile(root, "upload-", ".tmp");
+        try {
+            MessageDigest digest = sha256();
+            long size = 0;
+            ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+            try (ReadableByteChannel source = Channels.newChannel(in);
+                 FileChannel target = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                while (source.read(buffer) != -1) {
+                    buffer.flip();
+                    size += buffer.remaining();
+                    if (size > MAX_BYTES) {
+                        throw new IllegalArgumentException("Image exceeds " + (MAX_BYTES / (1024 * 1024)) + " MB");
+                    }
+                    digest.update(buffer.duplicate());
+                    while (buffer.hasRemaining()) target.write(buffer);
+                    buffer.clear();
+                }
+            }
+
+            String hash = toHex(digest.digest());
+            Path path = resolve(hash, extension);
+            if (Files.exists(path)) {
+                return new StoredImage(hash, extension, size, false);
+            }
+            Files.createDirectories(path.getParent());
+            try {
+                Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE);
+            } catch (FileAlreadyExistsException e) {
+                // A concurrent upload of the same bytes won the move
+                return new StoredImage(hash, extension, size, false);
+            }
+            return new StoredImage(hash, extension, size, true);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Path of a stored image by its `{hash}.{ext}` name, or of a derivative by
+     * `{hash}-{variant}.{ext}`; null if the name is invalid or the file is missing.
+     */
+    public Path find(String name) {
+        Matcher matcher = NAME.matcher(name);
+        if (!matcher.matches()) return null;
+        String extension = matcher.group(3).toLowerCase(Locale.ROOT);
+        if (!CONTENT_TYPES.containsKey(extension)) return null;
+        Path path = resolve(matcher.group(1), matcher.group(2), extension);
+        return Files.isRegularFile(path) ? path : null;
+    }
+
+    /** Where a derivative of the image (e.g. a thumbnail) lives, next to the original. */
+    public Path derivativePath(String hash, String variant, String extension) {
+        return resolve(hash, variant, extension);
+    }
+
+    public Path originalPath(StoredImage image) {
+        return resolve(image.hash, null, image.extension);
+    }
+
+    /** Parses a `{hash}.{ext}` name back into a stored image, or null. */
+    public StoredImage lookup(String name) throws IOException {
+        Matcher matcher = NAME.matcher(name);
+        if (!matcher.matches() || matcher.group(2) != null) return null;
+        Path path = find(name);
+        if (path == null) return null;
+        return new StoredImage(matcher.group(1), matcher.group(3).toLowerCase(Locale.ROOT), Files.size(path), false);
+    }
+
+    public static String contentTypeOf(String name) {
+        int dot = name.lastIndexOf('.');
+        return dot < 0 ? null : CONTENT_TYPES.get(name.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+
+    private Path resolve(String hash, String extension) {
+        return resolve(hash, null, extension);
+    }
+
+    private Path resolve(String hash, String variant, String extension) {
+        String name = variant == null ? hash + "." + extension : hash + "-" + variant + "." + extension;
+        return root.resolve(hash.substring(0, 2)).resolve(name);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+}
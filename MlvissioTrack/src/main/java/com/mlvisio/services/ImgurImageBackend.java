@@ -0,0 +1,172 @@
+package com.mlvisio.services;
+
+import com.mlvisio.util.Log;
+import org.apache.http.HttpEntity;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.mime.MultipartEntityBuilder;
+import org.apache.http.entity.mime.content.AbstractContentBody;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.util.EntityUtils;
+import org.json.JSONObject;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Base64;
+import java.util.concurrent.*;
+
+/**
+ * Uploads to Imgur over a pooled keep-alive HttpClient. The image is
+ * base64-encoded while it is written to the request body, so neither the raw
+ * bytes nor the encoded string are ever held in memory.
+ */
+public class ImgurImageBackend implements ImageBackend {
+
+    private static final Log log = Log.get(ImgurImageBackend.class);
+
+    static final String DEFAULT_CLIENT_ID = "b98c6214bd0d2f2";
+
+    private static final String UPLOAD_URL = "https://api.imgur.com/3/image";
+    private static final int CONNECT_TIMEOUT_MS = 5_000;
+    private static final int READ_TIMEOUT_MS = 30_000;
+    private static final int POOL_WAIT_MS = 5_000;
+    private static final int MAX_CONNECTIONS = 10;
+
+    private final String clientId;
+    private final PoolingHttpClientConnectionManager connections;
+    private final CloseableHttpClient client;
+    private final ExecutorService executor;
+
+    public ImgurImageBackend(String clientId) {
+        this.clientId = clientId;
+
+        connections = new PoolingHttpClientConnectionManager(60, TimeUnit.SECONDS);
+        connections.setMaxTotal(MAX_CONNECTIONS);
+        connections.setDefaultMaxPerRoute(MAX_CONNECTIONS);
+        connections.setValidateAfterInactivity(10_000);
+
+        RequestConfig timeouts = RequestConfig.custom()
+                .setConnectTimeout(CONNECT_TIMEOUT_MS)
+                .setSocketTimeout(READ_TIMEOUT_MS)
+                .setConnectionRequestTimeout(POOL_WAIT_MS)
+                .build();
+
+        client = HttpClients.custom()
+                .setConnectionManager(connections)
+                .setDefaultRequestConfig(timeouts)
+                .setKeepAliveStrategy(DefaultConnectionKeepAliveStrategy.INSTANCE)
+                .evictIdleConnections(30, TimeUnit.SECONDS)
+                .build();
+
+        // One worker per pooled connection; a full queue rejects instead of piling up uploads
+        executor = new ThreadPoolExecutor(
+                MAX_CONNECTIONS, MAX_CONNECTIONS, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(MAX_CONNECTIONS * 4),
+                r -> {
+                    Thread t = new Thread(r, "image-imgur");
+                    t.setDaemon(true);
+                    return t;
+                });
+        ((ThreadPoolExecutor) executor).allowCoreThreadTimeOut(true);
+    }
+
+    @Override
+    public String name() {
+        return "imgur";
+    }
+
+    @Override
+    public CompletableFuture<Upload> upload(InputStream in, String contentType) {
+        try {
+            return CompletableFuture.supplyAsync(() -> post(in), executor);
+        } catch (RejectedExecutionException e) {
+            CompletableFuture<Upload> busy = new CompletableFuture<>();
+            busy.completeExceptionally(e);
+            return busy;
+        }
+    }
+
+    private Upload post(InputStream in) {
+        HttpPost post = new HttpPost(UPLOAD_URL);
+        post.setHeader("Authorization", "Client-ID " + clientId);
+        post.setEntity(MultipartEntityBuilder.create()
+                .addPart("image", new Base64Body(in))
+                .addTextBody("type", "base64")
+                .build());
+
+        try (InputStream source = in; CloseableHttpResponse response = client.execute(post)) {
+            HttpEntity entity = response.getEntity();
+            String body = entity == null ? "" : EntityUtils.toString(entity);
+            int status = response.getStatusLine().getStatusCode();
+            if (status / 100 != 2) {
+                throw new IOException("Imgur responded " + status);
+            }
+            JSONObject data = new JSONObject(body).getJSONObject("data");
+            return new Upload(data.getString("link"), data.optString("id", null), data.optLong("size", -1));
+        } catch (IOException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            client.close();
+        } catch (IOException e) {
+            log.warn("Close failed: {}", e.getMessage());
+        }
+        connections.shutdown();
+    }
+
+    /** A multipart body that base64-encodes its source stream as it is written. */
+    private static final class Base64Body extends AbstractContentBody {
+        private final InputStream source;
+
+        Base64Body(InputStream source) {
+            super(ContentType.TEXT_PLAIN);
+            this.source = source;
+        }
+
+        @Override
+        public void writeTo(OutputStream out) throws IOException {
+            // The encoder must be closed to emit its final padding, but the request stream must stay open
+            OutputStream shield = new FilterOutputStream(out) {
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    out.write(b, off, len);
+                }
+
+                @Override
+                public void close() throws IOException {
+                    flush();
+                }
+            };
+            try (OutputStream encoder = Base64.getEncoder().wrap(shield)) {
+                source.transferTo(encoder);
+            }
+        }
+
+        @Override
+        public String getFilename() {
+            return null;
+        }
+
+        @Override
+        public String getTransferEncoding() {
+            return "7bit";
+        }
+
+        @Override
+        public long getContentLength() {
+            return -1;
+        }
+    }
+}
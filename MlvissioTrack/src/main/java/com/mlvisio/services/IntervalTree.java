@@ -0,0 +1,158 @@
+package com.mlvisio.services;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+
+/**
+ * Treap of half-open [start, end) intervals augmented with the maximum end
+ * of each subtree, so overlap lookups run in O(log n + k).
+ * Entries are ordered by start and then by a unique key. Not thread-safe.
+ */
+public class IntervalTree<T> {
+
+    private static final class Node<T> {
+        final long start;
+        final long end;
+        final String key;
+        final T value;
+        final int priority;
+        long maxEnd;
+        Node<T> left;
+        Node<T> right;
+
+        Node(long start, long end, String key, T value) {
+            this.start = start;
+            this.end = end;
+            this.key = key;
+            this.value = value;
+            this.priority = ThreadLocalRandom.current().nextInt();
+            this.maxEnd = end;
+        }
+    }
+
+    private Node<T> root;
+    private int size;
+
+    public void insert(long start, long end, String key, T value) {
+        root = insert(root, new Node<>(start, end, key, value));
+        size++;
+    }
+
+    public boolean remove(long start, String key) {
+        int before = size;
+        root = remove(root, start, key);
+        return size < before;
+    }
+
+    public List<T> overlapping(long start, long end) {
+        List<T> result = new ArrayList<>();
+        collect(root, start, end, result);
+        return result;
+    }
+
+    public void forEach(Consumer<T> action) {
+        forEach(root, action);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    private Node<T> insert(Node<T> node, Node<T> fresh) {
+        if (node == null) return fresh;
+        if (fresh.priority > node.priority) {
+            Node<T>[] parts = split(node, fresh.start, fresh.key);
+            fresh.left = parts[0];
+            fresh.right = parts[1];
+            update(fresh);
+            return fresh;
+        }
+        if (compare(fresh.start, fresh.key, node) < 0) {
+            node.left = insert(node.left, fresh);
+        } else {
+            node.right = insert(node.right, fresh);
+        }
+        update(node);
+        return node;
+    }
+
+    private Node<T> remove(Node<T> node, long start, String key) {
+        if (node == null) return null;
+        int cmp = compare(start, key, node);
+        if (cmp == 0) {
+            size--;
+            return merge(node.left, node.right);
+        }
+        if (cmp < 0) {
+            node.left = remove(node.left, start, key);
+        } else {
+            node.right = remove(node.right, start, key);
+        }
+        update(node);
+        return node;
+    }
+
+    // Splits into entries ordered before (start, key) and entries at or after it
+    @SuppressWarnings("unchecked")
+    private Node<T>[] split(Node<T> node, long start, String key) {
+        if (node == null) return new Node[]{null, null};
+        if (compare(start, key, node) <= 0) {
+            Node<T>[] parts = split(node.left, start, key);
+            node.left = parts[1];
+            update(node);
+            parts[1] = node;
+            return parts;
+        }
+        Node<T>[] parts = split(node.right, start, key);
+        node.right = parts[0];
+        update(node);
+        parts[0] = node;
+        return parts;
+    }
+
+    private Node<T> merge(Node<T> a, Node<T> b) {
+        if (a == null) return b;
+        if (b == null) return a;
+        if (a.priority > b.priority) {
+            a.right = merge(a.right, b);
+            update(a);
+            return a;
+        }
+        b.left = merge(a, b.left);
+        update(b);
+        return b;
+    }
+
+    private void collect(Node<T> node, long start, long end, List<T> out) {
+        if (node == null || node.maxEnd <= start) return;
+        collect(node.left, start, end, out);
+        if (node.start >= end) return;
+        if (node.end > start) out.add(node.value);
+        collect(node.right, start, end, out);
+    }
+
+    private void forEach(Node<T> node, Consumer<T> action) {
+        if (node == null) return;
+        forEach(node.left, action);
+        action.accept(node.value);
+        forEach(node.right, action);
+    }
+
+    private static int compare(long start, String key, Node<?> node) {
+        int cmp = Long.compare(start, node.start);
+        return cmp != 0 ? cmp : key.compareTo(node.key);
+    }
+
+    private static void update(Node<?> node) {
+        long max = node.end;
+        if (node.left != null && node.left.maxEnd > max) max = node.left.maxEnd;
+        if (node.right != null && node.right.maxEnd > max) max = node.right.maxEnd;
+        node.maxEnd = max;
+    }
+}
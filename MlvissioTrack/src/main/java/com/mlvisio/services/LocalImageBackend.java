@@ -0,0 +1,55 @@
+package com.mlvisio.services;
+
+import com.mlvisio.util.Log;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.*;
+
+/** Stores uploads in the local {@link ImageStore} and queues their thumbnails. */
+public class LocalImageBackend implements ImageBackend {
+
+    private static final Log log = Log.get(LocalImageBackend.class);
+
+    private final ExecutorService executor = new ThreadPoolExecutor(
+            2, 4, 30, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(64),
+            r -> {
+                Thread t = new Thread(r, "image-local");
+                t.setDaemon(true);
+                return t;
+            });
+
+    @Override
+    public String name() {
+        return "local";
+    }
+
+    @Override
+    public CompletableFuture<Upload> upload(InputStream in, String contentType) {
+        try {
+            return CompletableFuture.supplyAsync(() -> store(in, contentType), executor);
+        } catch (RejectedExecutionException e) {
+            CompletableFuture<Upload> busy = new CompletableFuture<>();
+            busy.completeExceptionally(e);
+            return busy;
+        }
+    }
+
+    private Upload store(InputStream in, String contentType) {
+        try (InputStream source = in) {
+            ImageStore.StoredImage image = ImageStore.getInstance().store(source, contentType);
+            ThumbnailService.getInstance().submit(image);
+            log.debug("{} {} ({} bytes)", image.isCreated() ? "Stored" : "Reused", image.getName(), image.getSize());
+            return new Upload("/api/images/" + image.getName(), image.getHash(), image.getSize());
+        } catch (IOException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        executor.shutdown();
+        ThumbnailService.getInstance().shutdown();
+    }
+}
@@ -0,0 +1,67 @@
+package com.mlvisio.services;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Whether this node has finished its startup warm-up and should receive
+ * traffic. The warm-up listener records each phase here as it completes,
+ * and `/api/ready` reports the result to the load balancer.
+ */
+public class Readiness {
+
+    public enum State { STARTING, WARMING, READY, FAILED }
+
+    private static final Readiness INSTANCE = new Readiness();
+
+    public static Readiness getInstance() {
+        return INSTANCE;
+    }
+
+    private final long createdAt = System.currentTimeMillis();
+    private final Map<String, Long> phases = new LinkedHashMap<>();
+    private volatile State state = State.STARTING;
+    private volatile String failure;
+    private volatile long readyAt;
+
+    private Readiness() {
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public boolean isReady() {
+        return state == State.READY;
+    }
+
+    public void warming() {
+        state = State.WARMING;
+    }
+
+    /** Records how long a finished warm-up phase took. */
+    public synchronized void phase(String name, long millis) {
+        phases.put(name, millis);
+    }
+
+    public void ready() {
+        readyAt = System.currentTimeMillis();
+        state = State.READY;
+    }
+
+    /** Keeps the node out of rotation once warm-up has given up retrying; only a redeploy clears this. */
+    public void failed(String reason) {
+        failure = reason;
+        state = State.FAILED;
+    }
+
+    /** The state, phase timings in milliseconds and, once ready, the total warm-up time. */
+    public synchronized Map<String, Object> snapshot() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("status", state.name().toLowerCase());
+        result.put("phases", new LinkedHashMap<>(phases));
+        if (state == State.READY) result.put("warmupMillis", readyAt - createdAt);
+        if (failure != null) result.put("failure", failure);
+        return result;
+    }
+}
@@ -0,0 +1,128 @@
+package com.mlvisio.services;
+
+import com.mlvisio.util.Log;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+
+/**
+ * Weekly recurrence stored on a schedule document as
+ * {@code recurrence: {frequency, interval, startDate, endDate, exceptionDates}}.
+ * Occurrences are never stored; they are expanded on demand for a date range.
+ */
+public class RecurrenceRule {
+
+    private static final Log log = Log.get(RecurrenceRule.class);
+
+    public static final String WEEKLY = "WEEKLY";
+
+    // Upper bound on expansion so a rule without a sensible end date cannot run away
+    private static final int MAX_OCCURRENCES = 156;
+
+    private final LocalDate startDate;
+    private final LocalDate endDate;
+    private final int interval;
+    private final Set<LocalDate> exceptionDates;
+
+    private RecurrenceRule(LocalDate startDate, LocalDate endDate, int interval, Set<LocalDate> exceptionDates) {
+        this.startDate = startDate;
+        this.endDate = endDate;
+        this.interval = interval;
+        this.exceptionDates = exceptionDates;
+    }
+
+    /**
+     * Parses a rule from a request or document map. The start date falls back
+     * to {@code defaultStart} (the schedule's own date). Throws
+     * IllegalArgumentException when the rule is malformed.
+     */
+    public static RecurrenceRule fromMap(Map<String, Object> map, String defaultStart) {
+        Object frequency = map.getOrDefault("frequency", WEEKLY);
+        if (!WEEKLY.equalsIgnoreCase(String.valueOf(frequency))) {
+            throw new IllegalArgumentException("Only WEEKLY recurrence is supported");
+        }
+        Object start = map.getOrDefault("startDate", defaultStart);
+        Object end = map.get("endDate");
+        if (!(start instanceof String) || !(end instanceof String)) {
+            throw new IllegalArgumentException("Recurrence requires startDate and endDate");
+        }
+        int interval = 1;
+        Object rawInterval = map.get("interval");
+        if (rawInterval instanceof Number) {
+            interval = Math.max(1, ((Number) rawInterval).intValue());
+        }
+
+        LocalDate startDate = LocalDate.parse((String) start);
+        LocalDate endDate = LocalDate.parse((String) end);
+        if (endDate.isBefore(startDate)) {
+            throw new IllegalArgumentException("Recurrence endDate is before startDate");
+        }
+        if (ChronoUnit.WEEKS.between(startDate, endDate) / interval >= MAX_OCCURRENCES) {
+            throw new IllegalArgumentException("Recurrence spans more than " + MAX_OCCURRENCES + " occurrences");
+        }
+
+        Set<LocalDate> exceptions = new HashSet<>();
+        Object rawExceptions = map.get("exceptionDates");
+        if (rawExceptions instanceof Collection) {
+            for (Object value : (Collection<?>) rawExceptions) {
+                if (value instanceof String) exceptions.add(LocalDate.parse((String) value));
+            }
+        }
+        return new RecurrenceRule(startDate, endDate, interval, exceptions);
+    }
+
+    /** Returns the rule stored on a schedule document, or null for one-off schedules. */
+    @SuppressWarnings("unchecked")
+    public static RecurrenceRule fromDocument(Map<String, Object> data) {
+        Object recurrence = data.get("recurrence");
+        if (!(recurrence instanceof Map)) return null;
+        try {
+            return fromMap((Map<String, Object>) recurrence, null);
+        } catch (Exception e) {
+            log.warn("Ignoring invalid recurrence: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    public LocalDate getStartDate() {
+        return startDate;
+    }
+
+    /** Occurrence dates within [from, to], in ascending order. */
+    public List<LocalDate> occurrencesBetween(LocalDate from, LocalDate to) {
+        List<LocalDate> dates = new ArrayList<>();
+        LocalDate first = startDate;
+        if (from.isAfter(startDate)) {
+            long weeks = ChronoUnit.WEEKS.between(startDate, from);
+            long steps = (weeks + interval - 1) / interval;
+            first = startDate.plusWeeks(steps * interval);
+            if (first.isBefore(from)) first = first.plusWeeks(interval);
+        }
+        LocalDate last = to.isBefore(endDate) ? to : endDate;
+        for (LocalDate date = first; !date.isAfter(last); date = date.plusWeeks(interval)) {
+            if (!exceptionDates.contains(date)) dates.add(date);
+        }
+        return dates;
+    }
+
+    public List<LocalDate> occurrences() {
+        return occurrencesBetween(startDate, endDate);
+    }
+
+    public Map<String, Object> toMap() {
+        List<String> exceptions = new ArrayList<>();
+        for (LocalDate date : exceptionDates) {
+            exceptions.add(date.toString());
+        }
+        Collections.sort(exceptions);
+
+        Map<String, Object> map = new HashMap<>();
+        map.put("frequency", WEEKLY);
+        map.put("interval", interval);
+        map.put("startDate", startDate.toString());
+        map.put("endDate", endDate.toString());
+        map.put("exceptionDates", exceptions);
+        return map;
+    }
+}
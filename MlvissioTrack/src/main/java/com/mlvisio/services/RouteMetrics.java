@@ -0,0 +1,159 @@
+package com.mlvisio.services;
+
+import com.mlvisio.util.AsyncLogWriter;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-route request metrics: a latency histogram, an in-flight gauge and
+ * error counters, keyed by method and normalised route. Rendered in the
+ * Prometheus text format by {@link #writePrometheus(StringBuilder)}.
+ */
+public class RouteMetrics {
+
+    // Guards against unbounded label cardinality if a path segment slips through normalisation
+    private static final int MAX_ROUTES = 256;
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private static final RouteMetrics INSTANCE = new RouteMetrics();
+
+    public static RouteMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    public static final class Route {
+        final String method;
+        final String path;
+        final LatencyHistogram latency = new LatencyHistogram();
+        final AtomicLong inFlight = new AtomicLong();
+        final LongAdder clientErrors = new LongAdder();
+        final LongAdder serverErrors = new LongAdder();
+
+        Route(String method, String path) {
+            this.method = method;
+            this.path = path;
+        }
+
+        public void start() {
+            inFlight.incrementAndGet();
+        }
+
+        /** Records a finished request; status 0 means it failed with an exception. */
+        public void finish(long startNanos, int status) {
+            inFlight.decrementAndGet();
+            latency.recordMicros((System.nanoTime() - startNanos) / 1000);
+            if (status == 0 || status >= 500) {
+                serverErrors.increment();
+            } else if (status >= 400) {
+                clientErrors.increment();
+            }
+        }
+    }
+
+    private final ConcurrentMap<String, Route> routes = new ConcurrentHashMap<>();
+
+    private RouteMetrics() {
+    }
+
+    public Route route(String method, String path) {
+        String key = method + " " + path;
+        Route route = routes.get(key);
+        if (route != null) return route;
+        if (routes.size() >= MAX_ROUTES) {
+            return routes.computeIfAbsent(method + " other", k -> new Route(method, "other"));
+        }
+        return routes.computeIfAbsent(key, k -> new Route(method, path));
+    }
+
+    /**
+     * Maps a request path below /api to a route label: word-like segments are
+     * kept, anything that looks like an id becomes "{id}", and at most three
+     * segments are used. "/api/schedule/HNDIT401_2025-01-06_0900/attendance"
+     * becomes "/schedule/{id}/attendance".
+     */
+    public static String normalise(String servletPath, String pathInfo) {
+        String path = (servletPath == null ? "" : servletPath) + (pathInfo == null ? "" : pathInfo);
+        if (path.startsWith("/api")) path = path.substring(4);
+        StringBuilder route = new StringBuilder();
+        int segments = 0;
+        for (String segment : path.split("/")) {
+            if (segment.isEmpty()) continue;
+            if (++segments > 3) break;
+            route.append('/').append(isWord(segment) ? segment : "{id}");
+        }
+        return route.length() == 0 ? "/" : route.toString();
+    }
+
+    private static boolean isWord(String segment) {
+        // Firestore auto ids are 20 characters, so longer segments are never route words
+        if (segment.length() > 16) return false;
+        for (int i = 0; i < segment.length(); i++) {
+            char c = segment.charAt(i);
+            if (!Character.isLetter(c) && c != '-') return false;
+        }
+        return true;
+    }
+
+    public void writePrometheus(StringBuilder out) {
+        Map<String, Route> sorted = new TreeMap<>(routes);
+
+        out.append("# HELP mlvisio_http_request_duration_seconds Request latency by route\n");
+        out.append("# TYPE mlvisio_http_request_duration_seconds summary\n");
+        for (Route route : sorted.values()) {
+            long[] values = route.latency.quantiles(QUANTILES);
+            for (int i = 0; i < QUANTILES.length; i++) {
+                out.append("mlvisio_http_request_duration_seconds{");
+                labels(out, route);
+                out.append(",quantile=\"").append(QUANTILES[i]).append("\"} ").append(seconds(values[i])).append('\n');
+            }
+            out.append("mlvisio_http_request_duration_seconds_sum{");
+            labels(out, route);
+            out.append("} ").append(seconds(route.latency.getSumMicros())).append('\n');
+            out.append("mlvisio_http_request_duration_seconds_count{");
+            labels(out, route);
+            out.append("} ").append(route.latency.getCount()).append('\n');
+        }
+
+        out.append("# HELP mlvisio_http_requests_in_flight Requests currently being served\n");
+        out.append("# TYPE mlvisio_http_requests_in_flight gauge\n");
+        for (Route route : sorted.values()) {
+            out.append("mlvisio_http_requests_in_flight{");
+            labels(out, route);
+            out.append("} ").append(route.inFlight.get()).append('\n');
+        }
+
+        out.append("# HELP mlvisio_http_request_errors_total Requests answered with 4xx or 5xx (or an exception)\n");
+        out.append("# TYPE mlvisio_http_request_errors_total counter\n");
+        for (Route route : sorted.values()) {
+            out.append("mlvisio_http_request_errors_total{");
+            labels(out, route);
+            out.append(",class=\"4xx\"} ").append(route.clientErrors.sum()).append('\n');
+            out.append("mlvisio_http_request_errors_total{");
+            labels(out, route);
+            out.append(",class=\"5xx\"} ").append(route.serverErrors.sum()).append('\n');
+        }
+
+        out.append("# HELP mlvisio_log_events_dropped_total Log events dropped because the log queue was full\n");
+        out.append("# TYPE mlvisio_log_events_dropped_total counter\n");
+        out.append("mlvisio_log_events_dropped_total ").append(AsyncLogWriter.getInstance().getDropped()).append('\n');
+    }
+
+    private static void labels(StringBuilder out, Route route) {
+        out.append("method=\"").append(route.method).append("\",route=\"");
+        for (int i = 0; i < route.path.length(); i++) {
+            char c = route.path.charAt(i);
+            if (c == '"' || c == '\\') out.append('\\');
+            out.append(c);
+        }
+        out.append('"');
+    }
+
+    private static String seconds(long micros) {
+        return String.valueOf(micros / 1_000_000.0);
+    }
+}
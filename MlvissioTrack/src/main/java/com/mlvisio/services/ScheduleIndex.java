@@ -0,0 +1,325 @@
+package com.mlvisio.services;
+
+import com.mlvisio.storage.Document;
+import com.mlvisio.storage.ScheduleRepository;
+import com.mlvisio.util.Log;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory interval index of active schedules, one tree per room and one per
+ * lecturer, used to detect double bookings without scanning `schedules`.
+ */
+public class ScheduleIndex {
+
+    private static final Log log = Log.get(ScheduleIndex.class);
+
+    private static final ScheduleIndex INSTANCE = new ScheduleIndex();
+
+    public static ScheduleIndex getInstance() {
+        return INSTANCE;
+    }
+
+    public static final class Slot {
+        final String id;
+        final String scheduleId;
+        final String subjectCode;
+        final String room;
+        final String lecturerId;
+        final String scheduleDate;
+        final String startTime;
+        final String endTime;
+        final long start;
+        final long end;
+
+        private Slot(String id, String scheduleId, String subjectCode, String room, String lecturerId,
+                     String scheduleDate, String startTime, String endTime, long start, long end) {
+            this.id = id;
+            this.scheduleId = scheduleId;
+            this.subjectCode = subjectCode;
+            this.room = room;
+            this.lecturerId = lecturerId;
+            this.scheduleDate = scheduleDate;
+            this.startTime = startTime;
+            this.endTime = endTime;
+            this.start = start;
+            this.end = end;
+        }
+
+        public String getId() { return id; }
+        public String getScheduleId() { return scheduleId; }
+        public String getScheduleDate() { return scheduleDate; }
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new HashMap<>();
+            map.put("id", scheduleId);
+            map.put("subjectCode", subjectCode);
+            map.put("room", room);
+            map.put("lecturerId", lecturerId);
+            map.put("scheduleDate", scheduleDate);
+            map.put("startTime", startTime);
+            map.put("endTime", endTime);
+            return map;
+        }
+    }
+
+    /**
+     * Builds the slots for a schedule: one for a dated schedule, one per
+     * occurrence for a recurring one. Entries with missing or empty time
+     * ranges produce no slots.
+     */
+    public static List<Slot> toSlots(String scheduleId, Map<String, Object> data) {
+        List<Slot> slots = new ArrayList<>();
+        RecurrenceRule rule = RecurrenceRule.fromDocument(data);
+        if (rule == null) {
+            Slot slot = toSlot(scheduleId, scheduleId, data, data.get("scheduleDate"));
+            if (slot != null) slots.add(slot);
+            return slots;
+        }
+        for (LocalDate date : rule.occurrences()) {
+            Slot slot = toSlot(scheduleId + "@" + date, scheduleId, data, date.toString());
+            if (slot != null) slots.add(slot);
+        }
+        return slots;
+    }
+
+    private static Slot toSlot(String id, String scheduleId, Map<String, Object> data, Object scheduleDate) {
+        Object subjectCode = data.get("subjectCode");
+        Object room = data.get("room");
+        Object lecturerId = data.get("lecturerId");
+        Object startTime = data.get("startTime");
+        Object endTime = data.get("endTime");
+        if (!(scheduleDate instanceof String) || !(startTime instanceof String) || !(endTime instanceof String)) {
+            return null;
+        }
+        try {
+            long dayBase = LocalDate.parse((String) scheduleDate).toEpochDay() * 1440L;
+            long start = dayBase + LocalTime.parse((String) startTime).toSecondOfDay() / 60;
+            long end = dayBase + LocalTime.parse((String) endTime).toSecondOfDay() / 60;
+            if (end <= start) return null;
+            return new Slot(id, scheduleId,
+                    subjectCode instanceof String ? (String) subjectCode : null,
+                    room instanceof String ? (String) room : null,
+                    lecturerId instanceof String ? (String) lecturerId : null,
+                    (String) scheduleDate, (String) startTime, (String) endTime, start, end);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * The outcome of {@link #tryReserve}: the conflicting slots found and
+     * whether the schedule's slots were put in the index.
+     */
+    public static final class Reservation {
+        private final String scheduleId;
+        private final List<Slot> slots;
+        private final List<Slot> previous;
+        private final List<Slot> conflicts;
+        private final boolean reserved;
+
+        private Reservation(String scheduleId, List<Slot> slots, List<Slot> previous, List<Slot> conflicts,
+                            boolean reserved) {
+            this.scheduleId = scheduleId;
+            this.slots = slots;
+            this.previous = previous;
+            this.conflicts = conflicts;
+            this.reserved = reserved;
+        }
+
+        public boolean isReserved() { return reserved; }
+        public List<Slot> getConflicts() { return conflicts; }
+    }
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, IntervalTree<Slot>> byRoom = new HashMap<>();
+    private final Map<String, IntervalTree<Slot>> byLecturer = new HashMap<>();
+    private final Map<String, List<Slot>> bySchedule = new HashMap<>();
+    private volatile boolean loaded = false;
+
+    private ScheduleIndex() {
+    }
+
+    public void ensureLoaded(ScheduleRepository schedules) {
+        if (loaded) return;
+        load(schedules.findActive());
+    }
+
+    /** Loads from active schedules already in hand (a warm-restart snapshot); does nothing once loaded. */
+    public void load(List<Document> documents) {
+        if (loaded) return;
+        lock.writeLock().lock();
+        try {
+            if (loaded) return;
+            for (Document doc : documents) {
+                List<Slot> slots = toSlots(doc.getId(), doc.getData());
+                if (!slots.isEmpty()) insert(doc.getId(), slots);
+            }
+            loaded = true;
+            log.info("Indexed {} active schedules", bySchedule.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Checks a schedule's slots for conflicts and, when there are none or
+     * {@code allowConflict} is set, puts them in place of its current slots,
+     * in one step under the write lock, so two concurrent bookings of the
+     * same room or lecturer cannot both pass the check. Reserve before
+     * writing the schedule and {@link #release} if the write fails.
+     */
+    public Reservation tryReserve(String scheduleId, List<Slot> slots, boolean allowConflict) {
+        lock.writeLock().lock();
+        try {
+            Map<String, Slot> conflicts = new LinkedHashMap<>();
+            for (Slot candidate : slots) {
+                collectOverlaps(byRoom.get(roomKey(candidate.room)), candidate, conflicts);
+                collectOverlaps(byLecturer.get(candidate.lecturerId), candidate, conflicts);
+            }
+            List<Slot> found = new ArrayList<>(conflicts.values());
+            if (!found.isEmpty() && !allowConflict) {
+                return new Reservation(scheduleId, slots, null, found, false);
+            }
+            List<Slot> previous = bySchedule.get(scheduleId);
+            delete(scheduleId);
+            if (!slots.isEmpty()) insert(scheduleId, slots);
+            return new Reservation(scheduleId, slots, previous, found, true);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Undoes a reservation whose schedule write failed, unless the schedule's slots changed since. */
+    public void release(Reservation reservation) {
+        if (!reservation.reserved) return;
+        lock.writeLock().lock();
+        try {
+            List<Slot> current = bySchedule.get(reservation.scheduleId);
+            if (current != (reservation.slots.isEmpty() ? null : reservation.slots)) return;
+            delete(reservation.scheduleId);
+            if (reservation.previous != null) insert(reservation.scheduleId, reservation.previous);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String scheduleId) {
+        lock.writeLock().lock();
+        try {
+            delete(scheduleId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Every overlapping pair in the index, optionally restricted to one date.
+     * Each pair is reported once per shared resource. With a date only that
+     * day's window of each tree is read; an unparseable date matches nothing.
+     */
+    public List<Map<String, Object>> listConflicts(String date) {
+        long dayStart = 0;
+        if (date != null) {
+            try {
+                dayStart = LocalDate.parse(date).toEpochDay() * 1440L;
+            } catch (DateTimeParseException e) {
+                return new ArrayList<>();
+            }
+        }
+        lock.readLock().lock();
+        try {
+            List<Map<String, Object>> result = new ArrayList<>();
+            for (Map.Entry<String, IntervalTree<Slot>> entry : byRoom.entrySet()) {
+                collectPairs("room", entry.getValue(), date, dayStart, result);
+            }
+            for (Map.Entry<String, IntervalTree<Slot>> entry : byLecturer.entrySet()) {
+                collectPairs("lecturer", entry.getValue(), date, dayStart, result);
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void collectPairs(String type, IntervalTree<Slot> tree, String date, long dayStart,
+                              List<Map<String, Object>> out) {
+        if (date == null) {
+            tree.forEach(slot -> {
+                for (Slot other : tree.overlapping(slot.start, slot.end)) {
+                    if (other.id.compareTo(slot.id) > 0) addPair(type, slot, other, out);
+                }
+            });
+            return;
+        }
+        // Slots never cross midnight, so the day's window holds every slot of
+        // that date, in start order: each one can only overlap those after it
+        // that start before it ends
+        List<Slot> day = tree.overlapping(dayStart, dayStart + 1440);
+        for (int i = 0; i < day.size(); i++) {
+            Slot slot = day.get(i);
+            if (!date.equals(slot.scheduleDate)) continue;
+            for (int j = i + 1; j < day.size() && day.get(j).start < slot.end; j++) {
+                Slot other = day.get(j);
+                if (other.id.compareTo(slot.id) > 0) addPair(type, slot, other, out);
+                else addPair(type, other, slot, out);
+            }
+        }
+    }
+
+    private static void addPair(String type, Slot first, Slot second, List<Map<String, Object>> out) {
+        if (second.scheduleId.equals(first.scheduleId)) return;
+        Map<String, Object> conflict = new HashMap<>();
+        conflict.put("type", type);
+        conflict.put("resource", "room".equals(type) ? first.room : first.lecturerId);
+        conflict.put("first", first.toMap());
+        conflict.put("second", second.toMap());
+        out.add(conflict);
+    }
+
+    private void collectOverlaps(IntervalTree<Slot> tree, Slot candidate, Map<String, Slot> out) {
+        if (tree == null) return;
+        for (Slot other : tree.overlapping(candidate.start, candidate.end)) {
+            if (!other.scheduleId.equals(candidate.scheduleId)) out.put(other.id, other);
+        }
+    }
+
+    private void insert(String scheduleId, List<Slot> slots) {
+        bySchedule.put(scheduleId, slots);
+        for (Slot slot : slots) {
+            String room = roomKey(slot.room);
+            if (room != null) {
+                byRoom.computeIfAbsent(room, k -> new IntervalTree<>()).insert(slot.start, slot.end, slot.id, slot);
+            }
+            if (slot.lecturerId != null) {
+                byLecturer.computeIfAbsent(slot.lecturerId, k -> new IntervalTree<>()).insert(slot.start, slot.end, slot.id, slot);
+            }
+        }
+    }
+
+    private void delete(String scheduleId) {
+        List<Slot> existing = bySchedule.remove(scheduleId);
+        if (existing == null) return;
+        for (Slot slot : existing) {
+            detach(byRoom, roomKey(slot.room), slot);
+            detach(byLecturer, slot.lecturerId, slot);
+        }
+    }
+
+    private static void detach(Map<String, IntervalTree<Slot>> trees, String key, Slot slot) {
+        if (key == null) return;
+        IntervalTree<Slot> tree = trees.get(key);
+        if (tree == null) return;
+        tree.remove(slot.start, slot.id);
+        if (tree.isEmpty()) trees.remove(key);
+    }
+
+    private static String roomKey(String room) {
+        if (room == null || room.trim().isEmpty()) return null;
+        return room.trim().toLowerCase(Locale.ROOT);
+    }
+}
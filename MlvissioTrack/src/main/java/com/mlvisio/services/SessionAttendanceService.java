@@ -0,0 +1,203 @@
+package com.mlvisio.services;
+
+import com.google.cloud.Timestamp;
+import com.mlvisio.json.ScheduleEntry;
+import com.mlvisio.storage.AttendanceRepository;
+import com.mlvisio.storage.Storage;
+import com.mlvisio.util.Log;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Maintains one `sessionAttendance` document per class session with
+ * present/late/absent counts and registration numbers. Marks are buffered and
+ * applied once a second in a single transaction per session, so a burst of
+ * check-ins at the start of a class does not contend on the same document.
+ *
+ * A session id has the same shape as a one-off schedule id
+ * (subjectCode_date_HHmm), so for one-off schedules it is the schedule id.
+ */
+public class SessionAttendanceService {
+
+    private static final Log log = Log.get(SessionAttendanceService.class);
+
+    public static final String COLLECTION = "sessionAttendance";
+    public static final String[] STATUSES = {"present", "late", "absent"};
+
+    private static final SessionAttendanceService INSTANCE = new SessionAttendanceService();
+
+    public static SessionAttendanceService getInstance() {
+        return INSTANCE;
+    }
+
+    private static final class PendingSession {
+        final ScheduleEntry session;
+        final Map<String, String> marks = new LinkedHashMap<>();
+
+        PendingSession(ScheduleEntry session) {
+            this.session = session;
+        }
+    }
+
+    private final Map<String, PendingSession> pending = new HashMap<>();
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "session-attendance");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private SessionAttendanceService() {
+        executor.scheduleWithFixedDelay(this::flush, 1, 1, TimeUnit.SECONDS);
+    }
+
+    public static String sessionId(String subjectCode, String date, String startTime) {
+        return subjectCode + "_" + date + "_" + startTime.replace(":", "");
+    }
+
+    /**
+     * Queues a mark against the session it belongs to. Returns the session id,
+     * or null when no scheduled session of that subject falls on the date.
+     */
+    public String record(String subjectCode, String date, String arrivalTime,
+                         String registrationNumber, String status)
+            throws ExecutionException, InterruptedException {
+        ScheduleEntry session = resolveSession(subjectCode, date, arrivalTime);
+        if (session == null) return null;
+
+        String id = sessionId(subjectCode, date, session.getStartTime());
+        synchronized (pending) {
+            pending.computeIfAbsent(id, k -> new PendingSession(session))
+                    .marks.put(registrationNumber, status == null ? "" : status.toLowerCase(Locale.ROOT));
+        }
+        return id;
+    }
+
+    /** Resolves a schedule id (one-off or recurring plus an ISO date) or a session id to a session id. */
+    public String resolveSessionId(String scheduleId, String date) throws ExecutionException, InterruptedException {
+        if (date == null || date.isEmpty()) return scheduleId;
+        List<ScheduleEntry> sessions = TimetableViewService.getInstance().getView()
+                .forDate(null, null, date).get(TimetableViewService.dayName(LocalDate.parse(date)));
+        for (ScheduleEntry session : sessions) {
+            if (scheduleId.equals(session.getId())) {
+                return sessionId(session.getSubjectCode(), date, session.getStartTime());
+            }
+        }
+        return scheduleId;
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+        flush();
+    }
+
+    // Picks the session of the subject that day whose start is closest to the arrival time
+    private ScheduleEntry resolveSession(String subjectCode, String date, String arrivalTime)
+            throws ExecutionException, InterruptedException {
+        LocalDate day;
+        try {
+            day = LocalDate.parse(date);
+        } catch (Exception e) {
+            return null;
+        }
+        List<ScheduleEntry> sessions = TimetableViewService.getInstance().getView()
+                .forDate(null, null, date).get(TimetableViewService.dayName(day));
+
+        int arrival = minutes(arrivalTime);
+        if (arrival < 0) {
+            arrival = day.equals(LocalDate.now()) ? LocalTime.now().toSecondOfDay() / 60 : 0;
+        }
+
+        ScheduleEntry best = null;
+        int bestDistance = Integer.MAX_VALUE;
+        for (ScheduleEntry session : sessions) {
+            if (!subjectCode.equals(session.getSubjectCode())) continue;
+            int start = minutes(session.getStartTime());
+            int end = minutes(session.getEndTime());
+            if (start < 0) continue;
+            int distance = arrival >= start && end > start && arrival < end ? 0 : Math.abs(arrival - start);
+            if (distance < bestDistance) {
+                best = session;
+                bestDistance = distance;
+            }
+        }
+        return best;
+    }
+
+    private void flush() {
+        Map<String, PendingSession> batch;
+        synchronized (pending) {
+            if (pending.isEmpty()) return;
+            batch = new HashMap<>(pending);
+            pending.clear();
+        }
+
+        AttendanceRepository attendance = Storage.getInstance().attendance();
+        for (Map.Entry<String, PendingSession> entry : batch.entrySet()) {
+            try {
+                apply(attendance, entry.getKey(), entry.getValue());
+            } catch (Exception e) {
+                log.warn("Roll-up failed for {}: {}", entry.getKey(), e.getMessage());
+                requeue(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    private void apply(AttendanceRepository attendance, String id, PendingSession batch) {
+        attendance.updateSession(id, snapshot -> {
+            Map<String, List<String>> lists = new LinkedHashMap<>();
+            for (String status : STATUSES) {
+                List<String> existing = new ArrayList<>();
+                Object stored = snapshot != null ? snapshot.get(status) : null;
+                if (stored instanceof List) {
+                    for (Object value : (List<?>) stored) existing.add(String.valueOf(value));
+                }
+                lists.put(status, existing);
+            }
+
+            for (Map.Entry<String, String> mark : batch.marks.entrySet()) {
+                for (List<String> list : lists.values()) list.remove(mark.getKey());
+                List<String> target = lists.get(mark.getValue());
+                if (target != null) target.add(mark.getKey());
+            }
+
+            Map<String, Object> counts = new HashMap<>();
+            Map<String, Object> data = new HashMap<>();
+            for (Map.Entry<String, List<String>> list : lists.entrySet()) {
+                counts.put(list.getKey(), list.getValue().size());
+                data.put(list.getKey(), list.getValue());
+            }
+            data.put("counts", counts);
+            data.put("scheduleId", batch.session.getId());
+            data.put("subjectCode", batch.session.getSubjectCode());
+            data.put("date", batch.session.getScheduleDate());
+            data.put("startTime", batch.session.getStartTime());
+            data.put("endTime", batch.session.getEndTime());
+            data.put("room", batch.session.getRoom());
+            data.put("department", batch.session.getDepartment());
+            data.put("updatedAt", Timestamp.now());
+            return data;
+        });
+    }
+
+    // Puts failed marks back unless a newer mark for the same student is already queued
+    private void requeue(String id, PendingSession failed) {
+        synchronized (pending) {
+            PendingSession current = pending.computeIfAbsent(id, k -> new PendingSession(failed.session));
+            for (Map.Entry<String, String> mark : failed.marks.entrySet()) {
+                current.marks.putIfAbsent(mark.getKey(), mark.getValue());
+            }
+        }
+    }
+
+    private static int minutes(String time) {
+        if (time == null || time.isEmpty()) return -1;
+        try {
+            return LocalTime.parse(time).toSecondOfDay() / 60;
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+}
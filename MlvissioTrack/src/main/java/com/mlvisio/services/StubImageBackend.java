@@ -0,0 +1,55 @@
+package com.mlvisio.services;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * In-memory backend for local testing: keeps the uploaded bytes and returns
+ * a fake URL without touching disk or the network.
+ */
+public class StubImageBackend implements ImageBackend {
+
+    private final Map<String, byte[]> images = new ConcurrentHashMap<>();
+    private final List<String> contentTypes = new CopyOnWriteArrayList<>();
+
+    @Override
+    public String name() {
+        return "stub";
+    }
+
+    @Override
+    public CompletableFuture<Upload> upload(InputStream in, String contentType) {
+        CompletableFuture<Upload> result = new CompletableFuture<>();
+        try (InputStream source = in) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            source.transferTo(bytes);
+            String id = UUID.randomUUID().toString();
+            images.put(id, bytes.toByteArray());
+            contentTypes.add(contentType);
+            result.complete(new Upload("https://stub.invalid/images/" + id, id, bytes.size()));
+        } catch (IOException e) {
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    public Map<String, byte[]> getImages() {
+        return images;
+    }
+
+    public List<String> getContentTypes() {
+        return contentTypes;
+    }
+
+    @Override
+    public void shutdown() {
+        images.clear();
+    }
+}
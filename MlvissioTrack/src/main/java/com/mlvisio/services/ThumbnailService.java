@@ -0,0 +1,253 @@
+package com.mlvisio.services;
+
+import com.mlvisio.util.Log;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Derives square thumbnails (48, 128 and 512 px) of stored profile pictures
+ * on a small bounded pool. The source is decoded with ImageIO subsampling so a
+ * large photo is never held in memory at full resolution. Thumbnails are
+ * written next to the original as `{hash}-{size}.{ext}`; PNG and GIF sources
+ * produce PNG thumbnails, everything else JPEG.
+ *
+ * Which pictures have every size is remembered per content hash, so list
+ * rows build their thumbnail URLs from the naming convention after one look
+ * at the disk per picture; only a profile read queues missing sizes.
+ */
+public class ThumbnailService {
+
+    private static final Log log = Log.get(ThumbnailService.class);
+
+    public static final int[] SIZES = {48, 128, 512};
+
+    private static final String IMAGES_PATH = "/api/images/";
+    private static final int THREADS = 2;
+    private static final int QUEUE_CAPACITY = 32;
+
+    static {
+        // Thumbnails are drawn with Java2D on a server without a display
+        if (System.getProperty("java.awt.headless") == null) System.setProperty("java.awt.headless", "true");
+    }
+
+    private static final ThumbnailService INSTANCE = new ThumbnailService();
+
+    public static ThumbnailService getInstance() {
+        return INSTANCE;
+    }
+
+    private final ImageStore store = ImageStore.getInstance();
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+    // Content hash to whether every size exists; a stored file never changes, so only false goes stale
+    private final ConcurrentHashMap<String, Boolean> complete = new ConcurrentHashMap<>();
+    private final ThreadPoolExecutor pool = new ThreadPoolExecutor(
+            THREADS, THREADS, 30, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(QUEUE_CAPACITY),
+            r -> {
+                Thread t = new Thread(r, "thumbnails");
+                t.setDaemon(true);
+                t.setPriority(Thread.MIN_PRIORITY);
+                return t;
+            });
+
+    private ThumbnailService() {
+        pool.allowCoreThreadTimeOut(true);
+    }
+
+    public static String thumbnailExtension(String extension) {
+        return "png".equals(extension) || "gif".equals(extension) ? "png" : "jpg";
+    }
+
+    public static String thumbnailName(ImageStore.StoredImage image, int size) {
+        return image.getHash() + "-" + size + "." + thumbnailExtension(image.getExtension());
+    }
+
+    /**
+     * Queues generation of any missing thumbnails. Returns false when the
+     * pool is saturated; the next profile read queues it again.
+     */
+    public boolean submit(ImageStore.StoredImage image) {
+        if (!ImageIO.getImageReadersBySuffix(image.getExtension()).hasNext()) return false;
+        if (missingSizes(image).isEmpty() || !inFlight.add(image.getHash())) return true;
+        try {
+            pool.execute(() -> {
+                try {
+                    generate(image);
+                } catch (Exception e) {
+                    log.warn("Failed for {}: {}", image.getName(), e.getMessage());
+                } finally {
+                    inFlight.remove(image.getHash());
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(image.getHash());
+            log.warn("Queue full, deferring {}", image.getName());
+            return false;
+        }
+    }
+
+    /**
+     * Thumbnail URLs for a profile picture URL served from `/api/images/`,
+     * keyed by size. Missing sizes are queued and left out; returns null for
+     * pictures that are not in the local store.
+     */
+    public Map<String, String> thumbnailsFor(Object profilePicture) {
+        if (!(profilePicture instanceof String)) return null;
+        String url = (String) profilePicture;
+        int marker = url.lastIndexOf(IMAGES_PATH);
+        if (marker < 0) return null;
+        String baseUrl = url.substring(0, marker + IMAGES_PATH.length());
+        try {
+            ImageStore.StoredImage image = store.lookup(url.substring(baseUrl.length()));
+            if (image == null) return null;
+            submit(image);
+            return availableUrls(image, baseUrl);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Thumbnail URLs for a list row, keyed by size, without queueing anything:
+     * built from the naming convention for pictures known to have every size,
+     * null otherwise and for pictures that are not served from `/api/images/`.
+     */
+    public Map<String, String> cachedThumbnailsFor(Object profilePicture) {
+        if (!(profilePicture instanceof String)) return null;
+        String url = (String) profilePicture;
+        int marker = url.lastIndexOf(IMAGES_PATH);
+        if (marker < 0) return null;
+        int start = marker + IMAGES_PATH.length();
+        int dot = url.lastIndexOf('.');
+        if (dot <= start) return null;
+        String hash = url.substring(start, dot);
+        String extension = url.substring(dot + 1).toLowerCase(Locale.ROOT);
+
+        Boolean ready = complete.get(hash);
+        if (ready == null) {
+            ready = true;
+            for (int size : SIZES) {
+                if (store.find(hash + "-" + size + "." + thumbnailExtension(extension)) == null) ready = false;
+            }
+            complete.put(hash, ready);
+        }
+        if (!ready) return null;
+
+        String baseUrl = url.substring(0, start);
+        Map<String, String> urls = new LinkedHashMap<>();
+        for (int size : SIZES) {
+            urls.put(String.valueOf(size), baseUrl + hash + "-" + size + "." + thumbnailExtension(extension));
+        }
+        return urls;
+    }
+
+    /** URLs of the thumbnails that exist, keyed by size, relative to the given images base URL. */
+    public Map<String, String> availableUrls(ImageStore.StoredImage image, String baseUrl) {
+        Map<String, String> urls = new LinkedHashMap<>();
+        for (int size : SIZES) {
+            String name = thumbnailName(image, size);
+            if (store.find(name) != null) urls.put(String.valueOf(size), baseUrl + name);
+        }
+        if (urls.size() == SIZES.length) complete.put(image.getHash(), true);
+        return urls;
+    }
+
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    private List<Integer> missingSizes(ImageStore.StoredImage image) {
+        List<Integer> missing = new ArrayList<>();
+        for (int size : SIZES) {
+            if (store.find(thumbnailName(image, size)) == null) missing.add(size);
+        }
+        return missing;
+    }
+
+    // Largest size first so smaller thumbnails can be scaled from it instead of re-decoding
+    private void generate(ImageStore.StoredImage image) throws IOException {
+        List<Integer> missing = missingSizes(image);
+        if (missing.isEmpty()) return;
+        int largest = Collections.max(missing);
+
+        BufferedImage source = decodeSquare(store.originalPath(image), largest);
+        if (source == null) throw new IOException("Unreadable image");
+
+        String format = thumbnailExtension(image.getExtension());
+        for (int i = SIZES.length - 1; i >= 0; i--) {
+            int size = SIZES[i];
+            if (!missing.contains(size)) continue;
+            BufferedImage thumbnail = scale(source, size, "png".equals(format));
+            write(thumbnail, format, store.derivativePath(image.getHash(), String.valueOf(size), format));
+        }
+        complete.put(image.getHash(), true);
+        log.debug("Thumbnails ready for {}", image.getName());
+    }
+
+    // Decodes the centred square crop, subsampled to the smallest resolution still at least `size` px
+    private static BufferedImage decodeSquare(Path path, int size) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(path.toFile())) {
+            if (in == null) return null;
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) return null;
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                int side = Math.min(width, height);
+
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceRegion(new Rectangle((width - side) / 2, (height - side) / 2, side, side));
+                int factor = Math.max(1, side / size);
+                param.setSourceSubsampling(factor, factor, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static BufferedImage scale(BufferedImage source, int size, boolean alpha) {
+        BufferedImage target = new BufferedImage(size, size, alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = target.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            if (!alpha) {
+                g.setColor(Color.WHITE);
+                g.fillRect(0, 0, size, size);
+            }
+            g.drawImage(source, 0, 0, size, size, null);
+        } finally {
+            g.dispose();
+        }
+        return target;
+    }
+
+    // Written to a temp file first so the servlet never serves a half-written thumbnail
+    private static void write(BufferedImage image, String format, Path path) throws IOException {
+        Path temp = Files.createTempFile(path.getParent(), "thumb-", ".tmp");
+        try {
+            if (!ImageIO.write(image, "jpg".equals(format) ? "jpeg" : format, temp.toFile())) {
+                throw new IOException("No ImageIO writer for " + format);
+            }
+            Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+}
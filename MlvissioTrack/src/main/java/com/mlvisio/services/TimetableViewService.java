@@ -0,0 +1,368 @@
+package com.mlvisio.services;
+
+import com.mlvisio.json.ScheduleEntry;
+import com.mlvisio.storage.Document;
+import com.mlvisio.storage.Storage;
+import com.mlvisio.util.Log;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.TextStyle;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Serves the today and week timetables from immutable views built from one
+ * read of `schedules` and `lecturers`. Views are rebuilt at midnight and
+ * whenever a schedule is written; readers after a write wait for the rebuild.
+ * Recurring schedules are stored once and expanded per ISO week on demand.
+ */
+public class TimetableViewService {
+
+    private static final Log log = Log.get(TimetableViewService.class);
+
+    private static final TimetableViewService INSTANCE = new TimetableViewService();
+
+    public static final String[] DAYS = {"Monday", "Tuesday", "Wednesday", "Thursday", "Friday", "Saturday", "Sunday"};
+    private static final String ANY = "*";
+
+    public static TimetableViewService getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * One immutable snapshot of the timetable for a given day. The current week
+     * is built eagerly; other ISO weeks are expanded from recurrence rules the
+     * first time they are requested and cached for the life of the snapshot.
+     */
+    public static final class TimetableView {
+        private static final int MAX_CACHED_WEEKS = 64;
+
+        private final LocalDate today;
+        private final LocalDate weekStart;
+        private final long readTimeMillis;
+        private final List<Document> schedules;
+        private final List<Document> lecturers;
+        private final List<ScheduleEntry> oneOff;
+        private final List<Recurring> recurring;
+        private final Map<String, Map<String, List<ScheduleEntry>>> allViews;
+        private final ConcurrentHashMap<LocalDate, Map<String, Map<String, List<ScheduleEntry>>>> weeks =
+                new ConcurrentHashMap<>();
+
+        private TimetableView(LocalDate today, long readTimeMillis, List<Document> schedules, List<Document> lecturers,
+                              List<ScheduleEntry> oneOff, List<Recurring> recurring,
+                              Map<String, Map<String, List<ScheduleEntry>>> allViews) {
+            this.today = today;
+            this.weekStart = today.with(DayOfWeek.MONDAY);
+            this.readTimeMillis = readTimeMillis;
+            this.schedules = schedules;
+            this.lecturers = lecturers;
+            this.oneOff = oneOff;
+            this.recurring = recurring;
+            this.allViews = allViews;
+            weekViews(weekStart);
+        }
+
+        public LocalDate getToday() {
+            return today;
+        }
+
+        /** When the schedules and lecturers this view was built from were read. */
+        public long getReadTimeMillis() {
+            return readTimeMillis;
+        }
+
+        /** The active schedule documents this view was built from. */
+        public List<Document> getSchedules() {
+            return schedules;
+        }
+
+        public List<Document> getLecturers() {
+            return lecturers;
+        }
+
+        public List<ScheduleEntry> today(String department, String year) {
+            return week(department, year).get(dayName(today));
+        }
+
+        /** Schedules occurring in the current week, grouped by day. */
+        public Map<String, List<ScheduleEntry>> week(String department, String year) {
+            return weekViews(weekStart).getOrDefault(viewKey(department, year), EMPTY_WEEK);
+        }
+
+        /** Every active schedule grouped by its day of week; recurring ones appear once. */
+        public Map<String, List<ScheduleEntry>> all(String department, String year) {
+            return allViews.getOrDefault(viewKey(department, year), EMPTY_WEEK);
+        }
+
+        /** Schedules for one date, grouped by day, answered from that date's ISO week. */
+        public Map<String, List<ScheduleEntry>> forDate(String department, String year, String date) {
+            Map<String, List<ScheduleEntry>> result = emptyWeek();
+            LocalDate parsed;
+            try {
+                parsed = LocalDate.parse(date);
+            } catch (Exception e) {
+                // Not an ISO date, so nothing can match the stored yyyy-MM-dd values
+                return result;
+            }
+            String day = dayName(parsed);
+            result.put(day, weekViews(parsed.with(DayOfWeek.MONDAY))
+                    .getOrDefault(viewKey(department, year), EMPTY_WEEK).get(day));
+            return result;
+        }
+
+        private Map<String, Map<String, List<ScheduleEntry>>> weekViews(LocalDate monday) {
+            Map<String, Map<String, List<ScheduleEntry>>> cached = weeks.get(monday);
+            if (cached != null) return cached;
+            if (weeks.size() >= MAX_CACHED_WEEKS) {
+                weeks.keySet().removeIf(week -> !week.equals(weekStart));
+            }
+            return weeks.computeIfAbsent(monday, this::materialiseWeek);
+        }
+
+        private Map<String, Map<String, List<ScheduleEntry>>> materialiseWeek(LocalDate monday) {
+            LocalDate sunday = monday.plusDays(6);
+            Map<String, Map<String, List<ScheduleEntry>>> views = new HashMap<>();
+
+            for (ScheduleEntry entry : oneOff) {
+                LocalDate date = effectiveDate(entry, monday);
+                if (date == null || date.isBefore(monday) || date.isAfter(sunday)) continue;
+                for (String key : viewKeys(entry)) {
+                    views.computeIfAbsent(key, k -> emptyWeek()).get(dayName(date)).add(entry);
+                }
+            }
+            for (Recurring series : recurring) {
+                for (LocalDate date : series.rule.occurrencesBetween(monday, sunday)) {
+                    ScheduleEntry occurrence = series.entry.on(date.toString(), dayName(date));
+                    for (String key : viewKeys(occurrence)) {
+                        views.computeIfAbsent(key, k -> emptyWeek()).get(dayName(date)).add(occurrence);
+                    }
+                }
+            }
+            return freezeWeeks(views);
+        }
+    }
+
+    private static final class Recurring {
+        final ScheduleEntry entry;
+        final RecurrenceRule rule;
+
+        Recurring(ScheduleEntry entry, RecurrenceRule rule) {
+            this.entry = entry;
+            this.rule = rule;
+        }
+    }
+
+    private static final Map<String, List<ScheduleEntry>> EMPTY_WEEK = Collections.unmodifiableMap(emptyWeek());
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "timetable-views");
+        t.setDaemon(true);
+        return t;
+    });
+    private volatile TimetableView current;
+    private volatile CompletableFuture<TimetableView> pending;
+    private CompletableFuture<TimetableView> queued;
+    private volatile boolean started = false;
+
+    private TimetableViewService() {
+    }
+
+    public synchronized void start() {
+        if (started) return;
+        started = true;
+        scheduleMidnightRollover();
+        refresh();
+    }
+
+    /**
+     * Starts from documents already in hand, read at {@code readTimeMillis},
+     * such as a reconciled warm-restart snapshot, instead of reading them.
+     * Does nothing once started, and a rebuild that is already queued or
+     * finished wins over the seed.
+     */
+    public synchronized void start(List<Document> schedules, List<Document> lecturers, long readTimeMillis) {
+        if (started) return;
+        started = true;
+        scheduleMidnightRollover();
+        if (pending == null && current == null) {
+            current = build(schedules, lecturers, LocalDate.now(), readTimeMillis);
+        }
+    }
+
+    /** The last view built, without waiting for a rebuild; null before the first one. */
+    public TimetableView getCurrentView() {
+        return current;
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /** Returns the current view, waiting for any rebuild triggered by a write or a new day. */
+    public TimetableView getView() throws ExecutionException, InterruptedException {
+        if (!started) start();
+        CompletableFuture<TimetableView> inFlight = pending;
+        if (inFlight != null) return inFlight.get();
+        TimetableView view = current;
+        if (view != null && view.today.equals(LocalDate.now())) return view;
+        return refresh().get();
+    }
+
+    /** Queues a rebuild; concurrent requests coalesce into a rebuild that has not started yet. */
+    public synchronized CompletableFuture<TimetableView> refresh() {
+        if (queued != null) return queued;
+        CompletableFuture<TimetableView> future = new CompletableFuture<>();
+        queued = future;
+        pending = future;
+        executor.execute(() -> {
+            synchronized (TimetableViewService.this) {
+                if (queued == future) queued = null;
+            }
+            try {
+                Storage storage = Storage.getInstance();
+                long readTime = System.currentTimeMillis();
+                TimetableView view = build(storage.schedules().findActive(), storage.lecturers().findAll(),
+                        LocalDate.now(), readTime);
+                current = view;
+                future.complete(view);
+            } catch (Throwable t) {
+                log.error("Rebuild failed: {}", t.getMessage());
+                future.completeExceptionally(t);
+            } finally {
+                synchronized (TimetableViewService.this) {
+                    if (pending == future) pending = null;
+                }
+            }
+        });
+        return future;
+    }
+
+    private void scheduleMidnightRollover() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime midnight = now.toLocalDate().plusDays(1).atStartOfDay();
+        long delayMillis = Math.max(1, ChronoUnit.MILLIS.between(now, midnight));
+        executor.schedule(() -> {
+            refresh();
+            scheduleMidnightRollover();
+        }, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private TimetableView build(List<Document> scheduleDocs, List<Document> lecturers, LocalDate today,
+                                long readTimeMillis) {
+        // One read of the lecturers collection instead of a lookup per schedule
+        Map<String, String> lecturerNames = new HashMap<>();
+        for (Document doc : lecturers) {
+            lecturerNames.put(doc.getId(), doc.getString("name"));
+        }
+
+        List<ScheduleEntry> oneOff = new ArrayList<>();
+        List<Recurring> recurring = new ArrayList<>();
+        Map<String, Map<String, List<ScheduleEntry>>> allViews = new HashMap<>();
+
+        for (Document doc : scheduleDocs) {
+            RecurrenceRule rule = RecurrenceRule.fromDocument(doc.getData());
+            ScheduleEntry entry = toEntry(doc, lecturerNames, rule);
+            if (rule != null) {
+                recurring.add(new Recurring(entry, rule));
+            } else {
+                oneOff.add(entry);
+            }
+
+            String dayOfWeek = entry.getDayOfWeek();
+            if (dayOfWeek == null) continue;
+            for (String key : viewKeys(entry)) {
+                List<ScheduleEntry> allDay = allViews.computeIfAbsent(key, k -> emptyWeek()).get(dayOfWeek);
+                if (allDay != null) allDay.add(entry);
+            }
+        }
+
+        log.info("Built views for {} from {} one-off and {} recurring schedules", today, oneOff.size(), recurring.size());
+        return new TimetableView(today, readTimeMillis, Collections.unmodifiableList(new ArrayList<>(scheduleDocs)),
+                Collections.unmodifiableList(new ArrayList<>(lecturers)), Collections.unmodifiableList(oneOff),
+                Collections.unmodifiableList(recurring), freezeWeeks(allViews));
+    }
+
+    private static ScheduleEntry toEntry(Document doc, Map<String, String> lecturerNames, RecurrenceRule rule) {
+        String lecturerId = doc.getString("lecturerId");
+        String lecturerName = null;
+        if (lecturerId != null) {
+            String name = lecturerNames.get(lecturerId);
+            lecturerName = name != null ? name : "Unknown Lecturer";
+        }
+        if (rule != null) {
+            return ScheduleEntry.of(doc, dayName(rule.getStartDate()), rule.toMap(), lecturerName);
+        }
+        return ScheduleEntry.of(doc, null, null, lecturerName);
+    }
+
+    // Dated schedules use their date; undated ones fall on their weekday in the given week
+    private static LocalDate effectiveDate(ScheduleEntry entry, LocalDate weekStart) {
+        String scheduleDate = entry.getScheduleDate();
+        if (scheduleDate != null && !scheduleDate.isEmpty()) {
+            try {
+                return LocalDate.parse(scheduleDate);
+            } catch (Exception e) {
+                return null;
+            }
+        }
+        String dayOfWeek = entry.getDayOfWeek();
+        for (int i = 0; i < DAYS.length; i++) {
+            if (DAYS[i].equals(dayOfWeek)) return weekStart.plusDays(i);
+        }
+        return null;
+    }
+
+    private static List<String> viewKeys(ScheduleEntry entry) {
+        String department = entry.getDepartment();
+        String year = entry.getYear();
+        List<String> keys = new ArrayList<>(4);
+        keys.add(viewKey(null, null));
+        if (department != null) keys.add(viewKey(department, null));
+        if (year != null) keys.add(viewKey(null, year));
+        if (department != null && year != null) keys.add(viewKey(department, year));
+        return keys;
+    }
+
+    private static String viewKey(String department, String year) {
+        String d = department == null || department.isEmpty() ? ANY : department;
+        String y = year == null || year.isEmpty() ? ANY : year;
+        return d + "|" + y;
+    }
+
+    public static String dayName(LocalDate date) {
+        return date.getDayOfWeek().getDisplayName(TextStyle.FULL, Locale.ENGLISH);
+    }
+
+    private static Map<String, List<ScheduleEntry>> emptyWeek() {
+        Map<String, List<ScheduleEntry>> week = new LinkedHashMap<>();
+        for (String day : DAYS) {
+            week.put(day, new ArrayList<>());
+        }
+        return week;
+    }
+
+    private static void sortByStartTime(List<ScheduleEntry> schedules) {
+        schedules.sort(Comparator.comparing(ScheduleEntry::getStartTime, Comparator.nullsLast(Comparator.naturalOrder())));
+    }
+
+    private static Map<String, List<ScheduleEntry>> freezeLists(Map<String, List<ScheduleEntry>> views) {
+        Map<String, List<ScheduleEntry>> frozen = new LinkedHashMap<>();
+        for (Map.Entry<String, List<ScheduleEntry>> e : views.entrySet()) {
+            sortByStartTime(e.getValue());
+            frozen.put(e.getKey(), Collections.unmodifiableList(e.getValue()));
+        }
+        return Collections.unmodifiableMap(frozen);
+    }
+
+    private static Map<String, Map<String, List<ScheduleEntry>>> freezeWeeks(
+            Map<String, Map<String, List<ScheduleEntry>>> views) {
+        Map<String, Map<String, List<ScheduleEntry>>> frozen = new HashMap<>();
+        for (Map.Entry<String, Map<String, List<ScheduleEntry>>> e : views.entrySet()) {
+            frozen.put(e.getKey(), freezeLists(e.getValue()));
+        }
+        return Collections.unmodifiableMap(frozen);
+    }
+}
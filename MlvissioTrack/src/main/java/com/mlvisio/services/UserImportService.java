@@ -0,0 +1,226 @@
+package com.mlvisio.services;
+
+import com.google.cloud.Timestamp;
+import com.mlvisio.storage.UserRepository;
+import org.mindrot.jbcrypt.BCrypt;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Bulk student provisioning from CSV. Rows are streamed in chunks whose email
+ * reservations are checked with one batched read (users created before the
+ * email index are found by batched email queries and get their reservations
+ * backfilled), passwords are hashed on a bounded pool (the reader blocks when
+ * the pool is saturated) and each user is committed together with its
+ * reservation. Returns one result per data row.
+ */
+public class UserImportService {
+
+    private static final int BCRYPT_COST = 12;
+    private static final int HASH_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors());
+    private static final int LOOKUP_CHUNK = 200;
+    private static final String[] OPTIONAL_FIELDS = {"department", "year", "type", "birthDate", "adminLevel"};
+
+    private static final ExecutorService HASH_POOL = new ThreadPoolExecutor(
+            HASH_THREADS, HASH_THREADS, 30, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(HASH_THREADS * 4),
+            r -> {
+                Thread t = new Thread(r, "user-import-hash");
+                t.setDaemon(true);
+                return t;
+            },
+            new ThreadPoolExecutor.CallerRunsPolicy());
+
+    private final UserRepository users;
+
+    public UserImportService(UserRepository users) {
+        this.users = users;
+    }
+
+    public List<Map<String, Object>> importCsv(BufferedReader reader)
+            throws IOException, ExecutionException, InterruptedException {
+
+        List<String> header = parseCsvLine(reader.readLine());
+        if (header == null || !header.contains("email") || !header.contains("name") || !header.contains("registrationNumber")) {
+            throw new IllegalArgumentException("CSV header must include name, email and registrationNumber");
+        }
+
+        Set<String> seenEmails = new HashSet<>();
+        List<Map<String, Object>> results = new ArrayList<>();
+        List<PendingWrite> pendingWrites = new ArrayList<>();
+        List<Row> chunk = new ArrayList<>();
+
+        String line;
+        int row = 1;
+        while ((line = reader.readLine()) != null) {
+            row++;
+            if (line.trim().isEmpty()) continue;
+
+            Map<String, String> values = toRow(header, parseCsvLine(line));
+            String email = values.getOrDefault("email", "").trim();
+            String name = values.getOrDefault("name", "").trim();
+            String registrationNumber = values.getOrDefault("registrationNumber", "").trim();
+
+            if (email.isEmpty() || name.isEmpty() || registrationNumber.isEmpty()) {
+                results.add(result(row, email, "failed", "Missing name, email or registrationNumber", null));
+                continue;
+            }
+            if (!seenEmails.add(normaliseEmail(email))) {
+                results.add(result(row, email, "skipped", "Duplicate email in file", null));
+                continue;
+            }
+            chunk.add(new Row(row, email, name, registrationNumber, values));
+            if (chunk.size() == LOOKUP_CHUNK) {
+                submitChunk(chunk, results, pendingWrites);
+                chunk.clear();
+            }
+        }
+        submitChunk(chunk, results, pendingWrites);
+
+        for (PendingWrite pending : pendingWrites) {
+            try {
+                pending.task.get().get();
+                results.add(result(pending.row, pending.email, "created", null, pending.id));
+            } catch (ExecutionException e) {
+                // A create on the reservation fails if another request took the email after our check
+                results.add(result(pending.row, pending.email, "failed", rootMessage(e), null));
+            }
+        }
+
+        results.sort(Comparator.comparingInt(r -> (Integer) r.get("row")));
+        return results;
+    }
+
+    // One batched uniqueness check per chunk (reservations, then legacy users), then hashing for the rows that are free
+    private void submitChunk(List<Row> chunk, List<Map<String, Object>> results, List<PendingWrite> pendingWrites) {
+        if (chunk.isEmpty()) return;
+        List<String> emails = new ArrayList<>();
+        for (Row r : chunk) {
+            emails.add(r.email);
+        }
+        Set<String> reserved = users.findReservedEmails(emails);
+
+        for (Row r : chunk) {
+            if (reserved.contains(EmailIndex.key(r.email))) {
+                results.add(result(r.row, r.email, "skipped", "User with this email already exists", null));
+                continue;
+            }
+
+            // Default password follows the seeded accounts: the registration number
+            String password = r.values.getOrDefault("password", "").isEmpty()
+                    ? r.registrationNumber : r.values.get("password");
+
+            String id = users.newId();
+            Future<CompletableFuture<Void>> task = HASH_POOL.submit(() -> {
+                Map<String, Object> user = new HashMap<>();
+                user.put("name", r.name);
+                user.put("email", r.email);
+                user.put("registrationNumber", r.registrationNumber);
+                user.put("vertexLabel", r.registrationNumber);
+                for (String field : OPTIONAL_FIELDS) {
+                    String value = r.values.get(field);
+                    if (value != null && !value.isEmpty()) user.put(field, value);
+                }
+                user.putIfAbsent("department", "HNDIT");
+                user.put("role", "student");
+                user.put("isActive", true);
+                user.put("createdAt", Timestamp.now());
+                user.put("password", BCrypt.hashpw(password, BCrypt.gensalt(BCRYPT_COST)));
+
+                // The user and its email reservation commit together or not at all
+                return users.createReserved(id, r.email, user);
+            });
+            pendingWrites.add(new PendingWrite(r.row, r.email, id, task));
+        }
+    }
+
+    private static final class Row {
+        final int row;
+        final String email;
+        final String name;
+        final String registrationNumber;
+        final Map<String, String> values;
+
+        Row(int row, String email, String name, String registrationNumber, Map<String, String> values) {
+            this.row = row;
+            this.email = email;
+            this.name = name;
+            this.registrationNumber = registrationNumber;
+            this.values = values;
+        }
+    }
+
+    private static final class PendingWrite {
+        final int row;
+        final String email;
+        final String id;
+        final Future<CompletableFuture<Void>> task;
+
+        PendingWrite(int row, String email, String id, Future<CompletableFuture<Void>> task) {
+            this.row = row;
+            this.email = email;
+            this.id = id;
+            this.task = task;
+        }
+    }
+
+    private static String rootMessage(ExecutionException e) {
+        Throwable cause = e.getCause() != null ? e.getCause() : e;
+        return cause.getMessage();
+    }
+
+    public static String normaliseEmail(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static Map<String, Object> result(int row, String email, String status, String message, String id) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("row", row);
+        result.put("email", email);
+        result.put("status", status);
+        if (message != null) result.put("message", message);
+        if (id != null) result.put("id", id);
+        return result;
+    }
+
+    private static Map<String, String> toRow(List<String> header, List<String> cells) {
+        Map<String, String> row = new HashMap<>();
+        for (int i = 0; i < header.size() && i < cells.size(); i++) {
+            row.put(header.get(i), cells.get(i));
+        }
+        return row;
+    }
+
+    /** Splits one CSV line, honouring double-quoted cells and "" escapes. */
+    static List<String> parseCsvLine(String line) {
+        if (line == null) return null;
+        List<String> cells = new ArrayList<>();
+        StringBuilder cell = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    cell.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    cell.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                cells.add(cell.toString().trim());
+                cell.setLength(0);
+            } else if (c != '\r' && c != '\uFEFF') {
+                cell.append(c);
+            }
+        }
+        cells.add(cell.toString().trim());
+        return cells;
+    }
+}
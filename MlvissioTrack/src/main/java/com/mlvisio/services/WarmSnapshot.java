@@ -0,0 +1,219 @@
+package com.mlvisio.services;
+
+import com.google.cloud.Timestamp;
+import com.mlvisio.storage.Document;
+import com.mlvisio.storage.SnapshotFile;
+import com.mlvisio.storage.Storage;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The data a node reads to warm up, kept on local disk between restarts:
+ * active schedules and lecturers (the schedule index and timetable views),
+ * active students and the latest marks (the hot path passes). It is built
+ * from what warm-up read, kept current while the node runs by
+ * {@link #refresh}, and written on shutdown; on startup it is read back and
+ * then brought up to date with only the documents written since it was
+ * read, instead of reading every collection again.
+ *
+ * Students keep only the fields the hot path passes read and are keyed by
+ * registration number rather than by their user id (an email), so password
+ * hashes and other personal fields never reach the file.
+ */
+public final class WarmSnapshot {
+
+    private static final String SCHEDULES = "schedules";
+    private static final String LECTURERS = "lecturers";
+    private static final String STUDENTS = "students";
+    private static final String MARKS = "marks";
+    private static final String[] STUDENT_FIELDS = {"registrationNumber", "name", "department", "year", "status"};
+
+    // Write timestamps come from the app servers' clocks, so reconcile from a little before the read
+    private static final long CLOCK_SKEW_MILLIS = TimeUnit.MINUTES.toMillis(2);
+
+    private long readTimeMillis;
+    private final int markLimit;
+    private final Map<String, Document> schedules;
+    private final List<Document> lecturers;
+    private final Map<String, Document> students;
+    private final Map<String, Document> marks;
+
+    private WarmSnapshot(long readTimeMillis, int markLimit, List<Document> schedules, List<Document> lecturers,
+                         List<Document> students, List<Document> marks) {
+        this.readTimeMillis = readTimeMillis;
+        this.markLimit = markLimit;
+        this.schedules = byId(schedules);
+        this.lecturers = new ArrayList<>(lecturers);
+        this.students = byId(project(students));
+        this.marks = byId(marks);
+    }
+
+    /** A snapshot of documents already in hand, read from storage at {@code readTimeMillis}. */
+    public static WarmSnapshot of(long readTimeMillis, int markLimit, List<Document> schedules,
+                                  List<Document> lecturers, List<Document> students, List<Document> marks) {
+        return new WarmSnapshot(readTimeMillis, markLimit, schedules, lecturers, students, marks);
+    }
+
+    /**
+     * The snapshot in {@code file}, or null if there is none, it was taken
+     * from another storage engine or it is older than {@code maxAgeMillis}.
+     * It is stale until {@link #reconcile} has run.
+     */
+    public static WarmSnapshot load(Path file, String engine, long maxAgeMillis, int markLimit) throws IOException {
+        SnapshotFile snapshot = SnapshotFile.read(file);
+        if (snapshot == null || !engine.equals(snapshot.getEngine())) return null;
+        if (System.currentTimeMillis() - snapshot.getReadTimeMillis() > maxAgeMillis) return null;
+        return new WarmSnapshot(snapshot.getReadTimeMillis(), markLimit,
+                snapshot.section(SCHEDULES),
+                snapshot.section(LECTURERS),
+                snapshot.section(STUDENTS),
+                snapshot.section(MARKS));
+    }
+
+    public synchronized void save(Path file, String engine) throws IOException {
+        Map<String, List<Document>> sections = new LinkedHashMap<>();
+        sections.put(SCHEDULES, new ArrayList<>(schedules.values()));
+        sections.put(LECTURERS, lecturers);
+        sections.put(STUDENTS, new ArrayList<>(students.values()));
+        sections.put(MARKS, new ArrayList<>(marks.values()));
+        SnapshotFile.write(file, readTimeMillis, engine, sections);
+    }
+
+    /**
+     * Applies every schedule, user and mark written since the snapshot was
+     * read and re-reads the (small, untimestamped) lecturers collection, after
+     * which the snapshot counts as read now. Returns the number of changed
+     * documents applied.
+     */
+    public synchronized int reconcile(Storage storage) {
+        long started = System.currentTimeMillis();
+        Timestamp since = since();
+        int changes = 0;
+
+        for (Document schedule : storage.schedules().findChangedSince(since)) {
+            if (Boolean.TRUE.equals(schedule.getBoolean("isActive"))) {
+                schedules.put(schedule.getId(), schedule);
+            } else {
+                schedules.remove(schedule.getId());
+            }
+            changes++;
+        }
+        changes += applyStudentsAndMarks(storage.users().findChangedSince(since),
+                storage.attendance().findSince(since, markLimit));
+
+        lecturers.clear();
+        lecturers.addAll(storage.lecturers().findAll());
+        readTimeMillis = started;
+        return changes;
+    }
+
+    /**
+     * Brings the snapshot up to date while the node runs, so the file saved on
+     * shutdown is recent whatever the uptime: schedules and lecturers are
+     * taken from {@code view} without reading them, and only the users and
+     * marks written since the last refresh are read. The snapshot then counts
+     * as read when the older of the two was. Storage is read outside the
+     * lock, so a {@link #save} never waits on it. Returns the number of
+     * changed users and marks applied.
+     */
+    public int refresh(Storage storage, TimetableViewService.TimetableView view) {
+        long started = System.currentTimeMillis();
+        Timestamp since;
+        synchronized (this) {
+            since = since();
+        }
+        List<Document> users = storage.users().findChangedSince(since);
+        List<Document> recentMarks = storage.attendance().findSince(since, markLimit);
+        synchronized (this) {
+            int changes = applyStudentsAndMarks(users, recentMarks);
+            schedules.clear();
+            schedules.putAll(byId(view.getSchedules()));
+            lecturers.clear();
+            lecturers.addAll(view.getLecturers());
+            readTimeMillis = Math.min(started, view.getReadTimeMillis());
+            return changes;
+        }
+    }
+
+    private Timestamp since() {
+        return Timestamp.ofTimeMicroseconds(TimeUnit.MILLISECONDS.toMicros(readTimeMillis - CLOCK_SKEW_MILLIS));
+    }
+
+    private int applyStudentsAndMarks(List<Document> users, List<Document> recentMarks) {
+        int changes = 0;
+        for (Document user : users) {
+            String registrationNumber = user.getString("registrationNumber");
+            if (registrationNumber == null) continue;
+            if ("student".equals(user.getString("role")) && Boolean.TRUE.equals(user.getBoolean("isActive"))) {
+                students.put(registrationNumber, project(user));
+            } else {
+                students.remove(registrationNumber);
+            }
+            changes++;
+        }
+
+        for (Document mark : recentMarks) {
+            marks.put(mark.getId(), mark);
+            changes++;
+        }
+        if (marks.size() > markLimit) {
+            List<Document> latest = new ArrayList<>(marks.values());
+            latest.sort(Comparator.comparing((Document mark) -> mark.getTimestamp("timestamp"),
+                    Comparator.nullsFirst(Comparator.naturalOrder())).reversed());
+            marks.clear();
+            marks.putAll(byId(latest.subList(0, markLimit)));
+        }
+        return changes;
+    }
+
+    public synchronized long getReadTimeMillis() {
+        return readTimeMillis;
+    }
+
+    public synchronized List<Document> getSchedules() {
+        return new ArrayList<>(schedules.values());
+    }
+
+    public synchronized List<Document> getLecturers() {
+        return new ArrayList<>(lecturers);
+    }
+
+    public synchronized List<Document> getStudents() {
+        return new ArrayList<>(students.values());
+    }
+
+    public synchronized List<Document> getMarks() {
+        return new ArrayList<>(marks.values());
+    }
+
+    private static List<Document> project(List<Document> students) {
+        List<Document> projected = new ArrayList<>(students.size());
+        for (Document student : students) {
+            if (student.getString("registrationNumber") != null) projected.add(project(student));
+        }
+        return projected;
+    }
+
+    private static Document project(Document student) {
+        Map<String, Object> data = new HashMap<>();
+        for (String field : STUDENT_FIELDS) {
+            Object value = student.get(field);
+            if (value != null) data.put(field, value);
+        }
+        return new Document(student.getString("registrationNumber"), data);
+    }
+
+    private static Map<String, Document> byId(List<Document> documents) {
+        Map<String, Document> map = new LinkedHashMap<>(Math.max(16, documents.size() * 2));
+        for (Document document : documents) map.put(document.getId(), document);
+        return map;
+    }
+}
@@ -0,0 +1,157 @@
+package com.mlvisio.servlets;
+
+import com.mlvisio.controllers.ActivityController;
+import com.mlvisio.controllers.AnalyticsController;
+import com.mlvisio.controllers.AttendanceController;
+import com.mlvisio.controllers.DashboardStatsController;
+import com.mlvisio.controllers.ImageController;
+import com.mlvisio.controllers.LecturerController;
+import com.mlvisio.controllers.LoginController;
+import com.mlvisio.controllers.MetricsController;
+import com.mlvisio.controllers.ReadinessController;
+import com.mlvisio.controllers.ScheduleController;
+import com.mlvisio.controllers.SettingsController;
+import com.mlvisio.controllers.SubjectController;
+import com.mlvisio.controllers.UserManagementController;
+import com.mlvisio.storage.Storage;
+import com.mlvisio.util.Log;
+import com.mlvisio.util.VirtualThreads;
+import com.mlvisio.web.AuthMiddleware;
+import com.mlvisio.web.BulkheadMiddleware;
+import com.mlvisio.web.Controller;
+import com.mlvisio.web.CorsMiddleware;
+import com.mlvisio.web.ErrorMiddleware;
+import com.mlvisio.web.MetricsMiddleware;
+import com.mlvisio.web.RouteTable;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.annotation.MultipartConfig;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * The single entry point for /api/*. Each controller registers its routes
+ * once at startup; a request is matched against the route trie and runs
+ * through one middleware chain (CORS, metrics, errors, auth, bulkhead)
+ * before its handler. In the Java 21 build the whole chain runs on a
+ * virtual thread, so blocking Firestore calls park it instead of holding
+ * one of the container's threads.
+ *
+ * Profile picture uploads keep their own servlet and filters.
+ */
+@WebServlet(name = "FrontController", urlPatterns = "/api/*", loadOnStartup = 1, asyncSupported = true)
+@MultipartConfig
+public class FrontController extends HttpServlet {
+
+    private static final Log log = Log.get(FrontController.class);
+
+    private static final long serialVersionUID = 1L;
+
+    private transient List<Controller> controllers;
+    private transient RouteTable routes;
+
+    @Override
+    public void init() throws ServletException {
+        log.info("Initializing...");
+        try {
+            Storage.getInstance();
+            log.info("Storage ready.");
+        } catch (Exception e) {
+            log.error("Storage init failed", e);
+            throw new ServletException("Storage initialization failed in FrontController", e);
+        }
+
+        controllers = List.of(
+                new LoginController(),
+                new AttendanceController(),
+                new ScheduleController(),
+                new UserManagementController(),
+                new DashboardStatsController(),
+                new AnalyticsController(),
+                new ActivityController(),
+                new SubjectController(),
+                new LecturerController(),
+                new SettingsController(),
+                new ImageController(),
+                new MetricsController(),
+                new ReadinessController());
+
+        RouteTable.Builder builder = RouteTable.builder();
+        for (Controller controller : controllers) {
+            controller.register(builder);
+        }
+        routes = builder.build(List.of(
+                new CorsMiddleware(),
+                new MetricsMiddleware(),
+                new ErrorMiddleware(),
+                new AuthMiddleware(),
+                new BulkheadMiddleware()));
+        log.info("{} routes registered", routes.getRoutes().size());
+    }
+
+    @Override
+    public void destroy() {
+        if (controllers == null) return;
+        for (Controller controller : controllers) {
+            try {
+                controller.destroy();
+            } catch (Exception e) {
+                log.warn("{} failed to stop: {}", controller.getClass().getSimpleName(), e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    protected void service(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+
+        if ("OPTIONS".equals(request.getMethod())) {
+            CorsMiddleware.preflight(response);
+            return;
+        }
+
+        RouteTable.Match match = routes.match(request.getMethod(), request.getPathInfo());
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+
+        ExecutorService executor = VirtualThreads.requestExecutor();
+        if (executor == null || !request.isAsyncSupported() || request.getDispatcherType() != DispatcherType.REQUEST) {
+            try {
+                match.dispatch(request, response);
+            } catch (IOException | ServletException | RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new ServletException(e);
+            }
+            return;
+        }
+
+        AsyncContext async = request.startAsync(request, response);
+        async.setTimeout(0);
+        try {
+            executor.execute(() -> {
+                try {
+                    match.dispatch(request, response);
+                } catch (Exception e) {
+                    log.error("Unhandled error on {}: {}", request.getRequestURI(), e.getMessage(), e);
+                    if (!response.isCommitted()) {
+                        response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+                    }
+                } finally {
+                    async.complete();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            async.complete();
+        }
+    }
+}
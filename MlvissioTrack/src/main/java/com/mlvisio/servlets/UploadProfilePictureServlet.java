@@ -1,73 +1,111 @@
 package com.mlvisio.servlets;
 
+import com.mlvisio.services.ImageBackend;
+import com.mlvisio.services.ImageStore;
+import com.mlvisio.util.Log;
+import jakarta.servlet.AsyncContext;
 import jakarta.servlet.annotation.MultipartConfig;
 import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.*;
 import jakarta.servlet.ServletException;
 
 import java.io.*;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.util.Base64;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
 import org.json.JSONObject;
 
-@WebServlet("/api/uploadProfilePicture")
-@MultipartConfig
+@WebServlet(value = "/api/uploadProfilePicture", asyncSupported = true)
+@MultipartConfig(maxFileSize = ImageStore.MAX_BYTES, fileSizeThreshold = 256 * 1024)
 public class UploadProfilePictureServlet extends HttpServlet {
 
-    private static final String IMGUR_UPLOAD_URL = "https://api.imgur.com/3/image";
-    private static final String IMGUR_CLIENT_ID = "b98c6214bd0d2f2"; 
+    private static final Log log = Log.get(UploadProfilePictureServlet.class);
+
+    private static final long UPLOAD_TIMEOUT_MS = 60_000;
+
+    private ImageBackend backend;
+
+    @Override
+    public void init() throws ServletException {
+        backend = ImageBackend.fromConfig();
+        log.info("Image backend: {}", backend.name());
+    }
 
     @Override
     protected void doPost(HttpServletRequest request, HttpServletResponse response)
             throws ServletException, IOException {
 
-        Part filePart = request.getPart("image");
-        if (filePart == null) {
-            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
-            response.getWriter().write("{\"success\": false, \"message\": \"No image uploaded\"}");
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+
+        Part filePart;
+        try {
+            filePart = request.getPart("image");
+        } catch (IllegalStateException e) {
+            // Thrown by the container when the part exceeds maxFileSize
+            writeError(response, HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE, "Image is too large");
             return;
         }
-
-        
-        InputStream inputStream = filePart.getInputStream();
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        byte[] buffer = new byte[8192];
-        int len;
-        while ((len = inputStream.read(buffer)) != -1) {
-            baos.write(buffer, 0, len);
+        if (filePart == null) {
+            writeError(response, HttpServletResponse.SC_BAD_REQUEST, "No image uploaded");
+            return;
         }
-        byte[] imageBytes = baos.toByteArray();
-        String base64Image = Base64.getEncoder().encodeToString(imageBytes);
-
-        // Upload to Imgur
-        HttpURLConnection conn = (HttpURLConnection) new URL(IMGUR_UPLOAD_URL).openConnection();
-        conn.setRequestMethod("POST");
-        conn.setRequestProperty("Authorization", "Client-ID " + IMGUR_CLIENT_ID);
-        conn.setDoOutput(true);
-
-        String postData = "image=" + base64Image;
-        try (OutputStream os = conn.getOutputStream()) {
-            os.write(postData.getBytes());
+        if (!ImageStore.isSupported(filePart.getContentType())) {
+            writeError(response, HttpServletResponse.SC_UNSUPPORTED_MEDIA_TYPE, "Unsupported image type");
+            return;
         }
 
-        BufferedReader reader = new BufferedReader(new InputStreamReader(conn.getInputStream()));
-        StringBuilder jsonResponse = new StringBuilder();
-        String line;
-        while ((line = reader.readLine()) != null) {
-            jsonResponse.append(line);
-        }
-        reader.close();
+        // The backend consumes the part on its own threads; the request thread is released here
+        AsyncContext async = request.startAsync();
+        async.setTimeout(UPLOAD_TIMEOUT_MS);
+        String baseUrl = request.getScheme() + "://" + request.getServerName() + ":" + request.getServerPort()
+                + request.getContextPath();
 
-        JSONObject result = new JSONObject(jsonResponse.toString());
-        String imageUrl = result.getJSONObject("data").getString("link");
+        backend.upload(filePart.getInputStream(), filePart.getContentType()).whenComplete((upload, error) -> {
+            HttpServletResponse asyncResponse = (HttpServletResponse) async.getResponse();
+            try {
+                if (error != null) {
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                    log.error("{} upload failed: {}", backend.name(), cause.getMessage());
+                    if (cause instanceof IllegalArgumentException) {
+                        writeError(asyncResponse, HttpServletResponse.SC_BAD_REQUEST, cause.getMessage());
+                    } else if (cause instanceof RejectedExecutionException) {
+                        writeError(asyncResponse, HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Too many uploads in progress, try again");
+                    } else {
+                        writeError(asyncResponse, HttpServletResponse.SC_BAD_GATEWAY, "Upload failed");
+                    }
+                    return;
+                }
 
-        // Return success with image URL
-        response.setContentType("application/json");
-        response.setCharacterEncoding("UTF-8");
-        response.getWriter().write(new JSONObject()
-                .put("success", true)
-                .put("data", new JSONObject().put("url", imageUrl))
-                .toString());
+                String imageUrl = upload.getUrl().startsWith("/") ? baseUrl + upload.getUrl() : upload.getUrl();
+
+                // Return success with image URL
+                asyncResponse.getWriter().write(new JSONObject()
+                        .put("success", true)
+                        .put("data", new JSONObject()
+                                .put("url", imageUrl)
+                                .put("hash", upload.getHash())
+                                .put("size", upload.getSize()))
+                        .toString());
+            } catch (IOException | IllegalStateException e) {
+                // IllegalStateException: the async timeout already answered the client
+                log.warn("Could not write response: {}", e.getMessage());
+            } finally {
+                try {
+                    filePart.delete();
+                    async.complete();
+                } catch (IOException | IllegalStateException ignored) {
+                }
+            }
+        });
+    }
+
+    @Override
+    public void destroy() {
+        backend.shutdown();
+    }
+
+    private void writeError(HttpServletResponse response, int status, String message) throws IOException {
+        response.setStatus(status);
+        response.getWriter().write(new JSONObject().put("success", false).put("message", message).toString());
     }
 }
@@ -0,0 +1,338 @@
+package com.mlvisio.storage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * One closed period of attendance marks in a read-only, compressed file.
+ * Marks are partitioned by their `date` and, on busy days, split further
+ * into shards by registration number, so a student's history inflates one
+ * small block per day. The block index sits at the front of the file; a
+ * reader maps the file, reads the index once and inflates only the blocks
+ * a query can match.
+ *
+ * Layout: an 8-byte magic, {@code [int version][string label][string firstDate]
+ * [string endDate][int records][int blocks]}, then per block
+ * {@code [string date][int shards][int shard][int records][int offset][int length][int crc32]},
+ * then the deflated blocks. Offsets count from the end of the index. A block
+ * inflates to {@code [string id][record]} per mark. Strings are
+ * {@code [int length][utf-8]}.
+ */
+public final class ArchiveSegment {
+
+    private static final byte[] MAGIC = "MLVARC01".getBytes(StandardCharsets.US_ASCII);
+    public static final int VERSION = 1;
+
+    // About this many marks per block; a day with more is sharded by registration number
+    private static final int BLOCK_RECORDS = 512;
+
+    private static final class Block {
+        final String date;
+        final int shards;
+        final int shard;
+        final int records;
+        final int offset;
+        final int length;
+        final int crc;
+
+        Block(String date, int shards, int shard, int records, int offset, int length, int crc) {
+            this.date = date;
+            this.shards = shards;
+            this.shard = shard;
+            this.records = records;
+            this.offset = offset;
+            this.length = length;
+            this.crc = crc;
+        }
+    }
+
+    private final Path path;
+    private final String label;
+    private final String firstDate;
+    private final String endDate;
+    private final int records;
+    private final List<Block> blocks;
+    private final MappedByteBuffer data;
+    private final int dataStart;
+
+    private ArchiveSegment(Path path, String label, String firstDate, String endDate, int records,
+                           List<Block> blocks, MappedByteBuffer data, int dataStart) {
+        this.path = path;
+        this.label = label;
+        this.firstDate = firstDate;
+        this.endDate = endDate;
+        this.records = records;
+        this.blocks = blocks;
+        this.data = data;
+        this.dataStart = dataStart;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    /** The first date the segment covers, inclusive. */
+    public String getFirstDate() {
+        return firstDate;
+    }
+
+    /** The date the segment's period ends, exclusive. */
+    public String getEndDate() {
+        return endDate;
+    }
+
+    public int getRecords() {
+        return records;
+    }
+
+    /** Whether any date from {@code startDate} to {@code endDate} (inclusive, either may be null) is covered. */
+    public boolean overlaps(String startDate, String endDate) {
+        boolean afterStart = startDate == null || startDate.isEmpty() || startDate.compareTo(this.endDate) < 0;
+        boolean beforeEnd = endDate == null || endDate.isEmpty() || endDate.compareTo(firstDate) >= 0;
+        return afterStart && beforeEnd;
+    }
+
+    /**
+     * The marks dated from {@code startDate} to {@code endDate} (inclusive;
+     * either may be null), only those of {@code registrationNumber} unless it
+     * is null.
+     */
+    public List<Document> find(String registrationNumber, String startDate, String endDate) {
+        List<Document> result = new ArrayList<>();
+        for (Block block : blocks) {
+            if (startDate != null && !startDate.isEmpty() && block.date.compareTo(startDate) < 0) continue;
+            if (endDate != null && !endDate.isEmpty() && block.date.compareTo(endDate) > 0) continue;
+            if (registrationNumber != null && block.shard != shardOf(registrationNumber, block.shards)) continue;
+            for (Document mark : inflate(block)) {
+                if (registrationNumber == null || registrationNumber.equals(mark.getString("registrationNumber"))) {
+                    result.add(mark);
+                }
+            }
+        }
+        return result;
+    }
+
+    /** Every mark in the segment. */
+    public List<Document> findAll() {
+        return find(null, null, null);
+    }
+
+    private List<Document> inflate(Block block) {
+        ByteBuffer compressed = data.duplicate();
+        compressed.position(dataStart + block.offset);
+        compressed.limit(dataStart + block.offset + block.length);
+        CRC32 crc = new CRC32();
+        crc.update(compressed.duplicate());
+        if ((int) crc.getValue() != block.crc) {
+            throw new StorageException(path + ": block " + block.date + "/" + block.shard + " is corrupt");
+        }
+        byte[] input = new byte[block.length];
+        compressed.get(input);
+
+        Inflater inflater = new Inflater();
+        ByteArrayOutputStream raw = new ByteArrayOutputStream(block.length * 4);
+        try {
+            inflater.setInput(input);
+            byte[] chunk = new byte[16 * 1024];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(chunk);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new StorageException(path + ": block " + block.date + "/" + block.shard + " is truncated");
+                }
+                raw.write(chunk, 0, n);
+            }
+        } catch (DataFormatException e) {
+            throw new StorageException(path + ": block " + block.date + "/" + block.shard + " is corrupt", e);
+        } finally {
+            inflater.end();
+        }
+
+        ByteBuffer in = ByteBuffer.wrap(raw.toByteArray());
+        List<Document> marks = new ArrayList<>(block.records);
+        for (int i = 0; i < block.records; i++) {
+            String id = RecordCodec.readString(in);
+            marks.add(new Document(id, RecordCodec.decode(in)));
+        }
+        return marks;
+    }
+
+    /**
+     * Writes {@code marks} as the segment {@code label}, covering
+     * {@code firstDate} up to (not including) {@code endDate}. The file is
+     * written beside {@code file} and moved into place, replacing any
+     * earlier version of the segment.
+     */
+    public static ArchiveSegment write(Path file, String label, String firstDate, String endDate,
+                                       Collection<Document> marks) throws IOException {
+        Map<String, List<Document>> byDate = new TreeMap<>();
+        for (Document mark : marks) {
+            String date = mark.getString("date");
+            if (date == null) throw new IllegalArgumentException("Mark " + mark.getId() + " has no date");
+            byDate.computeIfAbsent(date, k -> new ArrayList<>()).add(mark);
+        }
+
+        List<Block> blocks = new ArrayList<>();
+        ByteArrayOutputStream body = new ByteArrayOutputStream(64 * 1024);
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            for (Map.Entry<String, List<Document>> day : byDate.entrySet()) {
+                int shards = (day.getValue().size() + BLOCK_RECORDS - 1) / BLOCK_RECORDS;
+                List<List<Document>> split = new ArrayList<>(shards);
+                for (int i = 0; i < shards; i++) split.add(new ArrayList<>());
+                for (Document mark : day.getValue()) {
+                    split.get(shardOf(mark.getString("registrationNumber"), shards)).add(mark);
+                }
+                for (int shard = 0; shard < shards; shard++) {
+                    List<Document> group = split.get(shard);
+                    if (group.isEmpty()) continue;
+                    byte[] compressed = deflate(deflater, encode(group));
+                    CRC32 crc = new CRC32();
+                    crc.update(compressed);
+                    blocks.add(new Block(day.getKey(), shards, shard, group.size(), body.size(), compressed.length,
+                            (int) crc.getValue()));
+                    body.write(compressed);
+                }
+            }
+        } finally {
+            deflater.end();
+        }
+
+        ByteArrayOutputStream header = new ByteArrayOutputStream(256 + blocks.size() * 48);
+        try (DataOutputStream out = new DataOutputStream(header)) {
+            out.write(MAGIC);
+            out.writeInt(VERSION);
+            writeString(out, label);
+            writeString(out, firstDate);
+            writeString(out, endDate);
+            out.writeInt(marks.size());
+            out.writeInt(blocks.size());
+            for (Block block : blocks) {
+                writeString(out, block.date);
+                out.writeInt(block.shards);
+                out.writeInt(block.shard);
+                out.writeInt(block.records);
+                out.writeInt(block.offset);
+                out.writeInt(block.length);
+                out.writeInt(block.crc);
+            }
+        }
+
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = parent.resolve(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer headerBuffer = ByteBuffer.wrap(header.toByteArray());
+            ByteBuffer bodyBuffer = ByteBuffer.wrap(body.toByteArray());
+            while (headerBuffer.hasRemaining() || bodyBuffer.hasRemaining()) {
+                channel.write(new ByteBuffer[] {headerBuffer, bodyBuffer});
+            }
+            channel.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        syncDirectory(parent);
+        return open(file);
+    }
+
+    // The rename is only durable once the directory is; callers delete the live marks right after
+    private static void syncDirectory(Path directory) throws IOException {
+        // Directories cannot be opened as channels on Windows, where NTFS journals the rename anyway
+        if (!Files.getFileStore(directory).supportsFileAttributeView(PosixFileAttributeView.class)) return;
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+    }
+
+    public static ArchiveSegment open(Path file) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) throw new IOException(file + " is larger than 2 GB");
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+        try {
+            for (int i = 0; i < MAGIC.length; i++) {
+                if (buffer.get(i) != MAGIC[i]) throw new IOException(file + " is not an archive segment");
+            }
+            buffer.position(MAGIC.length);
+            int version = buffer.getInt();
+            if (version != VERSION) throw new IOException(file + " has unsupported version " + version);
+            String label = RecordCodec.readString(buffer);
+            String firstDate = RecordCodec.readString(buffer);
+            String endDate = RecordCodec.readString(buffer);
+            int records = buffer.getInt();
+            int count = buffer.getInt();
+            List<Block> blocks = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                blocks.add(new Block(RecordCodec.readString(buffer), buffer.getInt(), buffer.getInt(),
+                        buffer.getInt(), buffer.getInt(), buffer.getInt(), buffer.getInt()));
+            }
+            int dataStart = buffer.position();
+            for (Block block : blocks) {
+                if (block.offset < 0 || block.length < 0 || (long) dataStart + block.offset + block.length > buffer.capacity()) {
+                    throw new IOException(file + " is truncated");
+                }
+            }
+            return new ArchiveSegment(file, label, firstDate, endDate, records, blocks, buffer, dataStart);
+        } catch (RuntimeException e) {
+            throw new IOException(file + " is corrupt: " + e.getMessage(), e);
+        }
+    }
+
+    private static byte[] encode(List<Document> marks) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(marks.size() * 256);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            for (Document mark : marks) {
+                writeString(out, mark.getId());
+                out.write(RecordCodec.encode(mark.getData()));
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] deflate(Deflater deflater, byte[] input) {
+        deflater.reset();
+        deflater.setInput(input);
+        deflater.finish();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, input.length / 4));
+        byte[] chunk = new byte[16 * 1024];
+        while (!deflater.finished()) {
+            int n = deflater.deflate(chunk);
+            out.write(chunk, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+    private static int shardOf(String registrationNumber, int shards) {
+        return shards <= 1 || registrationNumber == null ? 0 : Math.floorMod(registrationNumber.hashCode(), shards);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(utf8.length);
+        out.write(utf8);
+    }
+}
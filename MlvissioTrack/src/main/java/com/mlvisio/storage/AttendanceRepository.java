@@ -0,0 +1,47 @@
+package com.mlvisio.storage;
+
+import com.google.cloud.Timestamp;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/** Individual `attendance` marks and the per-session `sessionAttendance` roll-ups. */
+public interface AttendanceRepository {
+
+    List<Document> findByRegistrationNumber(String registrationNumber);
+
+    List<Document> findByDate(String date);
+
+    List<Document> findAll();
+
+    /** The latest marks by timestamp. */
+    List<Document> findRecent(int limit);
+
+    /** Marks dated from {@code startDate} up to (not including) {@code endDate}, ISO dates. */
+    List<Document> findBetween(String startDate, String endDate);
+
+    /** The date of the oldest mark, or null if there are none. */
+    String findEarliestDate();
+
+    /** Up to {@code limit} (0 for all) marks written at or after {@code since}, latest first; a re-mark counts as a new write. */
+    List<Document> findSince(Timestamp since, int limit);
+
+    /** Writes a mark under its deterministic id, replacing any earlier mark with that id. */
+    void save(String id, Map<String, Object> attendance);
+
+    /** Sets {@code field} to {@code value} on each mark in atomic batches, leaving the rest of it alone. */
+    void markArchived(Collection<String> ids, String field, String value);
+
+    /** Deletes marks in atomic batches; used only once they are archived. */
+    void deleteAll(Collection<String> ids);
+
+    Document findSession(String sessionId);
+
+    /**
+     * Replaces a session roll-up with {@code change} applied to the current one
+     * (null if there is none yet), atomically with respect to other updates.
+     */
+    void updateSession(String sessionId, Function<Document, Map<String, Object>> change);
+}
@@ -0,0 +1,106 @@
+package com.mlvisio.storage;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The query shapes the repositories need: equality and membership filters, range bounds, one
+ * ordering (a field or the document id), an optional limit, keyset pagination
+ * after a document id and a field projection. Anything richer is filtered in
+ * memory by the caller, as the handlers already do to avoid composite indexes.
+ *
+ * Built fluently per call: {@code Criteria.where("role", "student").and("isActive", true)}.
+ */
+public final class Criteria {
+
+    /** Pass to {@link #orderBy} to order by document id. */
+    public static final String ID = "__id__";
+
+    enum Op { EQUAL, IN, AT_LEAST, BELOW }
+
+    static final class Filter {
+        final String field;
+        final Object value;
+        final Op op;
+
+        Filter(String field, Object value, Op op) {
+            this.field = field;
+            this.value = value;
+            this.op = op;
+        }
+    }
+
+    final List<Filter> filters = new ArrayList<>(2);
+    String orderBy;
+    boolean descending;
+    int limit;
+    String startAfterId;
+    String[] fields;
+
+    private Criteria() {
+    }
+
+    public static Criteria all() {
+        return new Criteria();
+    }
+
+    public static Criteria where(String field, Object value) {
+        return new Criteria().and(field, value);
+    }
+
+    public Criteria and(String field, Object value) {
+        filters.add(new Filter(field, value, Op.EQUAL));
+        return this;
+    }
+
+    /** Keeps documents whose {@code field} equals one of {@code values}; Firestore takes at most 30. */
+    public Criteria in(String field, Collection<?> values) {
+        filters.add(new Filter(field, new ArrayList<>(values), Op.IN));
+        return this;
+    }
+
+    /**
+     * Keeps documents whose {@code field} is at least {@code value}. As in
+     * Firestore, only values of the same type match, and at most one field may
+     * carry bounds; order by that field first if you order at all.
+     */
+    public Criteria atLeast(String field, Object value) {
+        filters.add(new Filter(field, value, Op.AT_LEAST));
+        return this;
+    }
+
+    /** Keeps documents whose {@code field} is less than {@code value}; see {@link #atLeast}. */
+    public Criteria below(String field, Object value) {
+        filters.add(new Filter(field, value, Op.BELOW));
+        return this;
+    }
+
+    public Criteria orderBy(String field, boolean descending) {
+        this.orderBy = field;
+        this.descending = descending;
+        return this;
+    }
+
+    public Criteria limit(int limit) {
+        this.limit = limit;
+        return this;
+    }
+
+    /** Keyset pagination; only meaningful together with {@code orderBy(ID, false)}. */
+    public Criteria startAfter(String id) {
+        this.startAfterId = id;
+        return this;
+    }
+
+    /** Only these fields are returned (Firestore reads less; the local engine copies less). */
+    public Criteria select(String... fields) {
+        this.fields = fields;
+        return this;
+    }
+
+    List<Filter> filters() {
+        return Collections.unmodifiableList(filters);
+    }
+}
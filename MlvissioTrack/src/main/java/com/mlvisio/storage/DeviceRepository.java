@@ -0,0 +1,18 @@
+package com.mlvisio.storage;
+
+import java.util.List;
+import java.util.Map;
+
+/** `devices`: the classroom cameras that post attendance marks, keyed by device id. */
+public interface DeviceRepository {
+
+    List<Document> findAll();
+
+    Document findById(String id);
+
+    List<Document> findByRoom(String room);
+
+    void save(String id, Map<String, Object> device);
+
+    void update(String id, Map<String, Object> updates);
+}
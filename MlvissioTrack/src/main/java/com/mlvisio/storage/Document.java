@@ -0,0 +1,67 @@
+package com.mlvisio.storage;
+
+import com.google.cloud.Timestamp;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * One stored document: its id and field map. The getters mirror the ones on
+ * Firestore's DocumentSnapshot so handlers read the same way whichever
+ * {@link DocumentStore} produced the record. Numbers come back as Long or
+ * Double and times as {@link Timestamp}, as they do from Firestore.
+ */
+public final class Document {
+
+    private final String id;
+    private final Map<String, Object> data;
+
+    public Document(String id, Map<String, Object> data) {
+        this.id = id;
+        this.data = data;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    /** The record's fields; a fresh map per read, so callers may modify it. */
+    public Map<String, Object> getData() {
+        return new HashMap<>(data);
+    }
+
+    public boolean contains(String field) {
+        return data.containsKey(field);
+    }
+
+    public Object get(String field) {
+        return data.get(field);
+    }
+
+    public String getString(String field) {
+        return (String) data.get(field);
+    }
+
+    public Boolean getBoolean(String field) {
+        return (Boolean) data.get(field);
+    }
+
+    public Long getLong(String field) {
+        Object value = data.get(field);
+        return value == null ? null : ((Number) value).longValue();
+    }
+
+    public Double getDouble(String field) {
+        Object value = data.get(field);
+        return value == null ? null : ((Number) value).doubleValue();
+    }
+
+    public Timestamp getTimestamp(String field) {
+        return (Timestamp) data.get(field);
+    }
+
+    @Override
+    public String toString() {
+        return id + "=" + data;
+    }
+}
@@ -0,0 +1,111 @@
+package com.mlvisio.storage;
+
+import com.google.cloud.Timestamp;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+final class DocumentAttendanceRepository implements AttendanceRepository {
+
+    private static final String ATTENDANCE = "attendance";
+    private static final String SESSIONS = "sessionAttendance";
+    // Firestore allows 500 writes per batch
+    private static final int WRITE_BATCH = 400;
+
+    private final DocumentStore store;
+
+    DocumentAttendanceRepository(DocumentStore store) {
+        this.store = store;
+        store.declareIndex(ATTENDANCE, "registrationNumber", false);
+        store.declareIndex(ATTENDANCE, "date", false);
+        store.declareIndex(ATTENDANCE, "timestamp", true);
+    }
+
+    @Override
+    public List<Document> findByRegistrationNumber(String registrationNumber) {
+        return store.find(ATTENDANCE, Criteria.where("registrationNumber", registrationNumber));
+    }
+
+    @Override
+    public List<Document> findByDate(String date) {
+        return store.find(ATTENDANCE, Criteria.where("date", date));
+    }
+
+    @Override
+    public List<Document> findAll() {
+        return store.find(ATTENDANCE, Criteria.all());
+    }
+
+    @Override
+    public List<Document> findRecent(int limit) {
+        return store.find(ATTENDANCE, Criteria.all().orderBy("timestamp", true).limit(limit));
+    }
+
+    @Override
+    public List<Document> findBetween(String startDate, String endDate) {
+        return store.find(ATTENDANCE, Criteria.all().atLeast("date", startDate).below("date", endDate));
+    }
+
+    @Override
+    public String findEarliestDate() {
+        List<Document> oldest = store.find(ATTENDANCE, Criteria.all().orderBy("date", false).limit(1).select("date"));
+        return oldest.isEmpty() ? null : oldest.get(0).getString("date");
+    }
+
+    @Override
+    public List<Document> findSince(Timestamp since, int limit) {
+        return store.find(ATTENDANCE, Criteria.all().atLeast("timestamp", since).orderBy("timestamp", true).limit(limit));
+    }
+
+    @Override
+    public void save(String id, Map<String, Object> attendance) {
+        store.set(ATTENDANCE, id, attendance);
+    }
+
+    @Override
+    public void markArchived(Collection<String> ids, String field, String value) {
+        Map<String, Object> stamp = Collections.singletonMap(field, value);
+        DocumentStore.Batch batch = store.batch();
+        int pending = 0;
+        for (String id : ids) {
+            batch.update(ATTENDANCE, id, stamp);
+            if (++pending == WRITE_BATCH) {
+                batch.commit().join();
+                batch = store.batch();
+                pending = 0;
+            }
+        }
+        if (pending > 0) batch.commit().join();
+    }
+
+    @Override
+    public void deleteAll(Collection<String> ids) {
+        DocumentStore.Batch batch = store.batch();
+        int pending = 0;
+        for (String id : ids) {
+            batch.delete(ATTENDANCE, id);
+            if (++pending == WRITE_BATCH) {
+                batch.commit().join();
+                batch = store.batch();
+                pending = 0;
+            }
+        }
+        if (pending > 0) batch.commit().join();
+    }
+
+    @Override
+    public Document findSession(String sessionId) {
+        return store.get(SESSIONS, sessionId);
+    }
+
+    @Override
+    public void updateSession(String sessionId, Function<Document, Map<String, Object>> change) {
+        store.runTransaction(transaction -> {
+            transaction.set(SESSIONS, sessionId, change.apply(transaction.get(SESSIONS, sessionId)));
+            return null;
+        });
+    }
+}
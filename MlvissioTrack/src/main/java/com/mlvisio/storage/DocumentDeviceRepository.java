@@ -0,0 +1,41 @@
+package com.mlvisio.storage;
+
+import java.util.List;
+import java.util.Map;
+
+final class DocumentDeviceRepository implements DeviceRepository {
+
+    private static final String DEVICES = "devices";
+
+    private final DocumentStore store;
+
+    DocumentDeviceRepository(DocumentStore store) {
+        this.store = store;
+        store.declareIndex(DEVICES, "room", false);
+    }
+
+    @Override
+    public List<Document> findAll() {
+        return store.find(DEVICES, Criteria.all());
+    }
+
+    @Override
+    public Document findById(String id) {
+        return store.get(DEVICES, id);
+    }
+
+    @Override
+    public List<Document> findByRoom(String room) {
+        return store.find(DEVICES, Criteria.where("room", room));
+    }
+
+    @Override
+    public void save(String id, Map<String, Object> device) {
+        store.set(DEVICES, id, device);
+    }
+
+    @Override
+    public void update(String id, Map<String, Object> updates) {
+        store.update(DEVICES, id, updates);
+    }
+}
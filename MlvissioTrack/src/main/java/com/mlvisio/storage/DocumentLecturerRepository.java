@@ -0,0 +1,31 @@
+package com.mlvisio.storage;
+
+import java.util.List;
+
+final class DocumentLecturerRepository implements LecturerRepository {
+
+    private static final String LECTURERS = "lecturers";
+
+    private final DocumentStore store;
+
+    DocumentLecturerRepository(DocumentStore store) {
+        this.store = store;
+        store.declareIndex(LECTURERS, "name", false);
+    }
+
+    @Override
+    public List<Document> findAll() {
+        return store.find(LECTURERS, Criteria.all());
+    }
+
+    @Override
+    public Document findById(String id) {
+        return store.get(LECTURERS, id);
+    }
+
+    @Override
+    public Document findByName(String name) {
+        List<Document> matches = store.find(LECTURERS, Criteria.where("name", name).limit(1));
+        return matches.isEmpty() ? null : matches.get(0);
+    }
+}
@@ -0,0 +1,52 @@
+package com.mlvisio.storage;
+
+import com.google.cloud.Timestamp;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+final class DocumentScheduleRepository implements ScheduleRepository {
+
+    private static final String SCHEDULES = "schedules";
+
+    private final DocumentStore store;
+
+    DocumentScheduleRepository(DocumentStore store) {
+        this.store = store;
+        store.declareIndex(SCHEDULES, "isActive", false);
+    }
+
+    @Override
+    public List<Document> findActive() {
+        return store.find(SCHEDULES, Criteria.where("isActive", true));
+    }
+
+    @Override
+    public Document findById(String id) {
+        return store.get(SCHEDULES, id);
+    }
+
+    @Override
+    public List<Document> findChangedSince(Timestamp since) {
+        // One range query per timestamp field; Firestore has no OR across ranges without composite indexes
+        Map<String, Document> changed = new LinkedHashMap<>();
+        for (String field : new String[] {"createdAt", "updatedAt"}) {
+            for (Document doc : store.find(SCHEDULES, Criteria.all().atLeast(field, since))) {
+                changed.put(doc.getId(), doc);
+            }
+        }
+        return new ArrayList<>(changed.values());
+    }
+
+    @Override
+    public void save(String id, Map<String, Object> schedule) {
+        store.set(SCHEDULES, id, schedule);
+    }
+
+    @Override
+    public void update(String id, Map<String, Object> updates) {
+        store.update(SCHEDULES, id, updates);
+    }
+}
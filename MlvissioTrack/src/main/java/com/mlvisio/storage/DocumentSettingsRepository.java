@@ -0,0 +1,24 @@
+package com.mlvisio.storage;
+
+import java.util.Map;
+
+final class DocumentSettingsRepository implements SettingsRepository {
+
+    private static final String SETTINGS = "settings";
+
+    private final DocumentStore store;
+
+    DocumentSettingsRepository(DocumentStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public Document get(String key) {
+        return store.get(SETTINGS, key);
+    }
+
+    @Override
+    public void put(String key, Map<String, Object> values) {
+        store.set(SETTINGS, key, values);
+    }
+}
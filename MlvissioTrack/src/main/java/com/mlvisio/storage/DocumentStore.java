@@ -0,0 +1,102 @@
+package com.mlvisio.storage;
+
+import com.mlvisio.util.Config;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The storage SPI under the repositories: collections of id-keyed documents.
+ * Collection names are paths, so "courses/HNDIT/semesters" is a subcollection.
+ * Failures are reported as {@link StorageException}.
+ *
+ * The engine is chosen with `-Dmlvisio.storage` or `MLVISIO_STORAGE`:
+ * `firestore` (default) or `local`, the embedded {@link LogStructuredStore}
+ * kept under `-Dmlvisio.dataDir` / `MLVISIO_DATA_DIR` (default `~/.mlvisio/data`).
+ */
+public interface DocumentStore {
+
+    /** Reads and buffered writes that commit atomically. Reads must come before writes. */
+    interface Transaction {
+        Document get(String collection, String id);
+
+        /** Fails the transaction if the document already exists. */
+        void create(String collection, String id, Map<String, Object> data);
+
+        void set(String collection, String id, Map<String, Object> data);
+
+        /** Merges top-level fields into an existing document. */
+        void update(String collection, String id, Map<String, Object> updates);
+
+        void delete(String collection, String id);
+    }
+
+    interface TransactionWork<T> {
+        T run(Transaction transaction) throws Exception;
+    }
+
+    /** Blind writes that commit atomically, without a read round trip. */
+    interface Batch {
+        Batch create(String collection, String id, Map<String, Object> data);
+
+        Batch set(String collection, String id, Map<String, Object> data);
+
+        Batch update(String collection, String id, Map<String, Object> updates);
+
+        Batch delete(String collection, String id);
+
+        /** Completes exceptionally if any create finds its document already there. */
+        CompletableFuture<Void> commit();
+    }
+
+    String name();
+
+    /** The document, or null if there is none. */
+    Document get(String collection, String id);
+
+    /** The documents that exist among {@code ids}, in one round trip. */
+    List<Document> getAll(String collection, Collection<String> ids);
+
+    List<Document> find(String collection, Criteria criteria);
+
+    void set(String collection, String id, Map<String, Object> data);
+
+    /** Merges top-level fields into an existing document; fails if it does not exist. */
+    void update(String collection, String id, Map<String, Object> updates);
+
+    void delete(String collection, String id);
+
+    /** A new random document id in the same 20-character form Firestore uses. */
+    String newId();
+
+    /**
+     * Hints that {@code collection} is filtered on {@code field} (or ordered by
+     * it, when {@code sorted}). Firestore indexes every field already; the local
+     * engine builds an in-memory index so those queries do not scan.
+     */
+    default void declareIndex(String collection, String field, boolean sorted) {
+    }
+
+    <T> T runTransaction(TransactionWork<T> work);
+
+    Batch batch();
+
+    void close();
+
+    static DocumentStore fromConfig() {
+        String name = Config.get("mlvisio.storage", "MLVISIO_STORAGE", "firestore").trim().toLowerCase(Locale.ROOT);
+        if ("local".equals(name)) {
+            String dir = Config.get("mlvisio.dataDir", "MLVISIO_DATA_DIR", null);
+            Path path = dir != null
+                    ? Paths.get(dir)
+                    : Paths.get(System.getProperty("user.home"), ".mlvisio", "data");
+            return LogStructuredStore.open(path);
+        }
+        return new FirestoreDocumentStore();
+    }
+}
@@ -0,0 +1,38 @@
+package com.mlvisio.storage;
+
+import java.util.ArrayList;
+import java.util.List;
+
+final class DocumentSubjectRepository implements SubjectRepository {
+
+    private static final String FLAT = "subjects";
+
+    private final DocumentStore store;
+
+    DocumentSubjectRepository(DocumentStore store) {
+        this.store = store;
+        store.declareIndex(FLAT, "department", false);
+    }
+
+    @Override
+    public List<String> findSemesterIds(String department) {
+        List<String> ids = new ArrayList<>();
+        for (Document semester : store.find("courses/" + department + "/semesters", Criteria.all().select())) {
+            ids.add(semester.getId());
+        }
+        return ids;
+    }
+
+    @Override
+    public List<Document> findInSemester(String department, String semester) {
+        return store.find("courses/" + department + "/semesters/" + semester + "/subjects", Criteria.all());
+    }
+
+    @Override
+    public List<Document> findFlat(String department) {
+        Criteria criteria = department == null || department.isEmpty()
+                ? Criteria.all()
+                : Criteria.where("department", department);
+        return store.find(FLAT, criteria);
+    }
+}
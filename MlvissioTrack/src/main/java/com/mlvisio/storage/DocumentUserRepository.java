@@ -0,0 +1,184 @@
+package com.mlvisio.storage;
+
+import com.google.cloud.Timestamp;
+import com.mlvisio.services.EmailIndex;
+import com.mlvisio.services.EmailIndex.DuplicateEmailException;
+import com.mlvisio.util.Log;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+final class DocumentUserRepository implements UserRepository {
+
+    private static final Log log = Log.get(DocumentUserRepository.class);
+
+    private static final String USERS = "users";
+    // Firestore's limit on the values of one "in" filter
+    private static final int IN_LIMIT = 30;
+
+    private final DocumentStore store;
+
+    DocumentUserRepository(DocumentStore store) {
+        this.store = store;
+        store.declareIndex(USERS, "email", false);
+        store.declareIndex(USERS, "registrationNumber", false);
+        store.declareIndex(USERS, "role", false);
+        store.declareIndex(USERS, "department", false);
+    }
+
+    @Override
+    public Document findById(String id) {
+        return store.get(USERS, id);
+    }
+
+    @Override
+    public Document findByEmail(String email) {
+        if (email == null || email.trim().isEmpty()) return null;
+        Document reservation = store.get(EmailIndex.COLLECTION, EmailIndex.key(email));
+        if (reservation != null) {
+            String userId = reservation.getString("userId");
+            if (userId != null) {
+                Document user = store.get(USERS, userId);
+                if (user != null) return user;
+            }
+        }
+
+        // Not indexed yet: fall back to the query once and backfill the reservation
+        List<Document> matches = store.find(USERS, Criteria.where("email", email.trim()).limit(1));
+        if (matches.isEmpty()) return null;
+        Document user = matches.get(0);
+        try {
+            store.set(EmailIndex.COLLECTION, EmailIndex.key(email), EmailIndex.reservation(email, user.getId()));
+        } catch (StorageException e) {
+            log.warn("Email reservation backfill failed for user {}: {}", user.getId(), e.getMessage());
+        }
+        return user;
+    }
+
+    @Override
+    public Document findByRegistrationNumber(String registrationNumber) {
+        List<Document> matches = store.find(USERS, Criteria.where("registrationNumber", registrationNumber).limit(1));
+        return matches.isEmpty() ? null : matches.get(0);
+    }
+
+    @Override
+    public List<Document> findActiveStudents() {
+        return store.find(USERS, Criteria.where("role", "student").and("isActive", true));
+    }
+
+    @Override
+    public List<Document> findChangedSince(Timestamp since) {
+        Map<String, Document> changed = new LinkedHashMap<>();
+        for (String field : new String[] {"createdAt", "updatedAt", "deletedAt"}) {
+            for (Document doc : store.find(USERS, Criteria.all().atLeast(field, since))) {
+                changed.put(doc.getId(), doc);
+            }
+        }
+        return new ArrayList<>(changed.values());
+    }
+
+    @Override
+    public List<Document> list(String department, String role, String[] fields, int pageSize, String afterId) {
+        Criteria criteria = Criteria.all().select(fields);
+        if (department != null && !department.isEmpty()) criteria.and("department", department);
+        if (role != null && !role.isEmpty()) criteria.and("role", role);
+        if (pageSize > 0) {
+            criteria.orderBy(Criteria.ID, false).limit(pageSize);
+            if (afterId != null) criteria.startAfter(afterId);
+        }
+        return store.find(USERS, criteria);
+    }
+
+    @Override
+    public Set<String> findReservedEmails(Collection<String> emails) {
+        Set<String> keys = new LinkedHashSet<>();
+        for (String email : emails) keys.add(EmailIndex.key(email));
+        Set<String> reserved = new HashSet<>();
+        for (Document record : store.getAll(EmailIndex.COLLECTION, keys)) reserved.add(record.getId());
+
+        // Emails with no reservation may still belong to users created before the index; match as written and lower-cased
+        List<String> unreserved = new ArrayList<>();
+        for (String email : emails) {
+            if (reserved.contains(EmailIndex.key(email))) continue;
+            for (String form : new LinkedHashSet<>(Arrays.asList(email.trim(), email.trim().toLowerCase(Locale.ROOT)))) {
+                if (!unreserved.contains(form)) unreserved.add(form);
+            }
+        }
+        Map<String, Document> legacy = new LinkedHashMap<>();
+        for (int i = 0; i < unreserved.size(); i += IN_LIMIT) {
+            List<String> values = unreserved.subList(i, Math.min(unreserved.size(), i + IN_LIMIT));
+            for (Document user : store.find(USERS, Criteria.all().in("email", values).select("email"))) {
+                String key = EmailIndex.key(user.getString("email"));
+                if (keys.contains(key)) legacy.putIfAbsent(key, user);
+            }
+        }
+        if (!legacy.isEmpty()) {
+            DocumentStore.Batch backfill = store.batch();
+            for (Map.Entry<String, Document> entry : legacy.entrySet()) {
+                Document user = entry.getValue();
+                backfill.set(EmailIndex.COLLECTION, entry.getKey(),
+                        EmailIndex.reservation(user.getString("email"), user.getId()));
+            }
+            try {
+                backfill.commit().join();
+            } catch (RuntimeException e) {
+                log.warn("Email reservation backfill failed for {} users: {}", legacy.size(), e.getMessage());
+            }
+            reserved.addAll(legacy.keySet());
+        }
+        return reserved;
+    }
+
+    @Override
+    public String create(String email, Map<String, Object> user) throws DuplicateEmailException {
+        String key = EmailIndex.key(email);
+        String userId = store.newId();
+        boolean created = store.runTransaction(transaction -> {
+            if (transaction.get(EmailIndex.COLLECTION, key) != null) return false;
+            transaction.create(EmailIndex.COLLECTION, key, EmailIndex.reservation(email, userId));
+            transaction.create(USERS, userId, user);
+            return true;
+        });
+        if (!created) throw new DuplicateEmailException(email);
+        return userId;
+    }
+
+    @Override
+    public String newId() {
+        return store.newId();
+    }
+
+    @Override
+    public CompletableFuture<Void> createReserved(String id, String email, Map<String, Object> user) {
+        return store.batch()
+                .create(EmailIndex.COLLECTION, EmailIndex.key(email), EmailIndex.reservation(email, id))
+                .create(USERS, id, user)
+                .commit();
+    }
+
+    @Override
+    public void update(String id, Map<String, Object> updates) {
+        store.update(USERS, id, updates);
+    }
+
+    @Override
+    public void changeEmail(String id, String newEmail, Map<String, Object> updates) throws DuplicateEmailException {
+        String newKey = EmailIndex.key(newEmail);
+        boolean changed = store.runTransaction(transaction -> {
+            Document user = transaction.get(USERS, id);
+            Document reserved = transaction.get(EmailIndex.COLLECTION, newKey);
+            if (reserved != null && !id.equals(reserved.getString("userId"))) return false;
+
+            String oldEmail = user == null ? null : user.getString("email");
+            if (oldEmail != null && !EmailIndex.key(oldEmail).equals(newKey)) {
+                transaction.delete(EmailIndex.COLLECTION, EmailIndex.key(oldEmail));
+            }
+            if (reserved == null) {
+                transaction.create(EmailIndex.COLLECTION, newKey, EmailIndex.reservation(newEmail, id));
+            }
+            transaction.update(USERS, id, updates);
+            return true;
+        });
+        if (!changed) throw new DuplicateEmailException(newEmail);
+    }
+}
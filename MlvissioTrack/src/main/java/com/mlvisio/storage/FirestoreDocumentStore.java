@@ -0,0 +1,225 @@
+package com.mlvisio.storage;
+
+import com.google.api.core.ApiFuture;
+import com.google.cloud.firestore.*;
+import com.google.firebase.cloud.FirestoreClient;
+import com.mlvisio.services.FirestoreMeter;
+import com.mlvisio.util.FirebaseInitializer;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/** {@link DocumentStore} over the Firebase Admin Firestore client. */
+public class FirestoreDocumentStore implements DocumentStore {
+
+    private volatile Firestore db;
+
+    public FirestoreDocumentStore() {
+        // Initialise eagerly so the first request does not pay for it; the client itself is looked up lazily
+        FirebaseInitializer.initialize();
+    }
+
+    private Firestore db() {
+        Firestore current = db;
+        if (current == null) {
+            // A no-op once it has succeeded; retries an initialisation that failed at startup
+            FirebaseInitializer.initialize();
+            current = db = FirestoreClient.getFirestore();
+        }
+        return current;
+    }
+
+    @Override
+    public String name() {
+        return "firestore";
+    }
+
+    @Override
+    public Document get(String collection, String id) {
+        return toRecord(await(db().collection(collection).document(id).get()));
+    }
+
+    @Override
+    public List<Document> getAll(String collection, Collection<String> ids) {
+        List<Document> records = new ArrayList<>(ids.size());
+        if (ids.isEmpty()) return records;
+        CollectionReference ref = db().collection(collection);
+        DocumentReference[] refs = new DocumentReference[ids.size()];
+        int i = 0;
+        for (String id : ids) refs[i++] = ref.document(id);
+        for (DocumentSnapshot snapshot : await(db().getAll(refs))) {
+            Document record = toRecord(snapshot);
+            if (record != null) records.add(record);
+        }
+        return records;
+    }
+
+    @Override
+    public List<Document> find(String collection, Criteria criteria) {
+        Query query = db().collection(collection);
+        if (criteria.fields != null) query = query.select(criteria.fields);
+        for (Criteria.Filter filter : criteria.filters()) {
+            switch (filter.op) {
+                case IN: query = query.whereIn(filter.field, (List<?>) filter.value); break;
+                case AT_LEAST: query = query.whereGreaterThanOrEqualTo(filter.field, filter.value); break;
+                case BELOW: query = query.whereLessThan(filter.field, filter.value); break;
+                default: query = query.whereEqualTo(filter.field, filter.value);
+            }
+        }
+        if (criteria.orderBy != null) {
+            Query.Direction direction = criteria.descending ? Query.Direction.DESCENDING : Query.Direction.ASCENDING;
+            query = Criteria.ID.equals(criteria.orderBy)
+                    ? query.orderBy(FieldPath.documentId(), direction)
+                    : query.orderBy(criteria.orderBy, direction);
+            if (criteria.startAfterId != null) query = query.startAfter(criteria.startAfterId);
+        }
+        if (criteria.limit > 0) query = query.limit(criteria.limit);
+
+        List<QueryDocumentSnapshot> documents = await(query.get()).getDocuments();
+        List<Document> records = new ArrayList<>(documents.size());
+        for (QueryDocumentSnapshot doc : documents) records.add(new Document(doc.getId(), doc.getData()));
+        return records;
+    }
+
+    @Override
+    public void set(String collection, String id, Map<String, Object> data) {
+        await(db().collection(collection).document(id).set(data));
+    }
+
+    @Override
+    public void update(String collection, String id, Map<String, Object> updates) {
+        await(db().collection(collection).document(id).update(updates));
+    }
+
+    @Override
+    public void delete(String collection, String id) {
+        await(db().collection(collection).document(id).delete());
+    }
+
+    @Override
+    public String newId() {
+        return db().collection("_").document().getId();
+    }
+
+    @Override
+    public <T> T runTransaction(TransactionWork<T> work) {
+        Firestore firestore = db();
+        // The SDK runs the callback on its own executor, where the request's cost is not on the thread
+        FirestoreMeter meter = FirestoreMeter.getInstance();
+        FirestoreMeter.RequestCost cost = meter.current();
+        return await(firestore.runTransaction(transaction -> {
+            boolean attached = cost != null && meter.current() == null;
+            if (attached) meter.attach(cost);
+            try {
+                return runWork(work, firestore, transaction);
+            } finally {
+                if (attached) meter.detach();
+            }
+        }));
+    }
+
+    private <T> T runWork(TransactionWork<T> work, Firestore firestore, com.google.cloud.firestore.Transaction transaction)
+            throws Exception {
+        return work.run(new Transaction() {
+            @Override
+            public Document get(String collection, String id) {
+                return toRecord(await(transaction.get(firestore.collection(collection).document(id))));
+            }
+
+            @Override
+            public void create(String collection, String id, Map<String, Object> data) {
+                transaction.create(firestore.collection(collection).document(id), data);
+            }
+
+            @Override
+            public void set(String collection, String id, Map<String, Object> data) {
+                transaction.set(firestore.collection(collection).document(id), data);
+            }
+
+            @Override
+            public void update(String collection, String id, Map<String, Object> updates) {
+                transaction.update(firestore.collection(collection).document(id), updates);
+            }
+
+            @Override
+            public void delete(String collection, String id) {
+                transaction.delete(firestore.collection(collection).document(id));
+            }
+        });
+    }
+
+    @Override
+    public Batch batch() {
+        Firestore firestore = db();
+        WriteBatch batch = firestore.batch();
+        return new Batch() {
+            @Override
+            public Batch create(String collection, String id, Map<String, Object> data) {
+                batch.create(firestore.collection(collection).document(id), data);
+                return this;
+            }
+
+            @Override
+            public Batch set(String collection, String id, Map<String, Object> data) {
+                batch.set(firestore.collection(collection).document(id), data);
+                return this;
+            }
+
+            @Override
+            public Batch update(String collection, String id, Map<String, Object> updates) {
+                batch.update(firestore.collection(collection).document(id), updates);
+                return this;
+            }
+
+            @Override
+            public Batch delete(String collection, String id) {
+                batch.delete(firestore.collection(collection).document(id));
+                return this;
+            }
+
+            @Override
+            public CompletableFuture<Void> commit() {
+                CompletableFuture<Void> done = new CompletableFuture<>();
+                ApiFuture<List<WriteResult>> commit = batch.commit();
+                commit.addListener(() -> {
+                    try {
+                        commit.get();
+                        done.complete(null);
+                    } catch (ExecutionException e) {
+                        done.completeExceptionally(e.getCause() != null ? e.getCause() : e);
+                    } catch (InterruptedException e) {
+                        done.completeExceptionally(e);
+                    }
+                }, Runnable::run);
+                return done;
+            }
+        };
+    }
+
+    @Override
+    public void close() {
+        // The Firestore client belongs to the FirebaseApp and lives as long as it does
+    }
+
+    private static Document toRecord(DocumentSnapshot snapshot) {
+        if (!snapshot.exists()) return null;
+        return new Document(snapshot.getId(), snapshot.getData());
+    }
+
+    private static <T> T await(ApiFuture<T> future) {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof StorageException) throw (StorageException) cause;
+            throw new StorageException(cause.getMessage(), cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new StorageException("Interrupted waiting for Firestore", e);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.mlvisio.storage;
+
+import java.util.List;
+
+/** `lecturers` documents. */
+public interface LecturerRepository {
+
+    List<Document> findAll();
+
+    Document findById(String id);
+
+    /** The first lecturer with exactly this name, or null. */
+    Document findByName(String name);
+}
@@ -0,0 +1,164 @@
+package com.mlvisio.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * One append-only log file, memory-mapped read/write from offset 0. The
+ * mapping is grown by doubling (which also extends the file), so the tail of
+ * the file past the last frame is zeros.
+ *
+ * Layout: an 8-byte magic, then frames of {@code [int length][int crc32][payload]}.
+ * A zero length marks the end; a frame whose CRC does not match is a torn
+ * write from a crash and ends the log there.
+ */
+final class LogSegment {
+
+    private static final byte[] MAGIC = "MLVLOG01".getBytes(StandardCharsets.US_ASCII);
+    static final int HEADER = 8;
+    static final int FRAME_OVERHEAD = 8;
+
+    interface FrameVisitor {
+        /** {@code payload} is positioned at the payload start, which is at {@code offset} in the file. */
+        void frame(int offset, ByteBuffer payload);
+    }
+
+    // Follows the file through moveTo, so errors name the file as it is now
+    volatile Path path;
+    final long generation;
+    private final FileChannel channel;
+    private volatile MappedByteBuffer buffer;
+    private int end;
+    private boolean dirty;
+
+    private LogSegment(Path path, long generation, FileChannel channel, MappedByteBuffer buffer, int end) {
+        this.path = path;
+        this.generation = generation;
+        this.channel = channel;
+        this.buffer = buffer;
+        this.end = end;
+    }
+
+    static LogSegment create(Path path, long generation, int capacity) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(capacity, 4096));
+        for (int i = 0; i < MAGIC.length; i++) buffer.put(i, MAGIC[i]);
+        return new LogSegment(path, generation, channel, buffer, HEADER);
+    }
+
+    /** Opens an existing log and replays every intact frame through {@code visitor}. */
+    static LogSegment open(Path path, long generation, FrameVisitor visitor) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = channel.size();
+        if (size > Integer.MAX_VALUE) throw new IOException(path + " is larger than 2 GB");
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(size, 4096));
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (buffer.get(i) != MAGIC[i]) throw new IOException(path + " is not a storage log");
+        }
+
+        int position = HEADER;
+        CRC32 crc = new CRC32();
+        boolean torn = false;
+        while (position + FRAME_OVERHEAD <= buffer.capacity()) {
+            int length = buffer.getInt(position);
+            if (length == 0) break;
+            if (length < 0 || position + FRAME_OVERHEAD + length > buffer.capacity()) {
+                torn = true;
+                break;
+            }
+            ByteBuffer payload = slice(buffer, position + FRAME_OVERHEAD, length);
+            crc.reset();
+            crc.update(payload.duplicate());
+            if ((int) crc.getValue() != buffer.getInt(position + 4)) {
+                torn = true;
+                break;
+            }
+            visitor.frame(position + FRAME_OVERHEAD, payload);
+            position += FRAME_OVERHEAD + length;
+        }
+
+        if (torn) {
+            // Clear the partial frame so later appends are not followed by stale bytes that parse
+            for (int i = position; i < buffer.capacity(); i++) buffer.put(i, (byte) 0);
+            buffer.force();
+        }
+        return new LogSegment(path, generation, channel, buffer, position);
+    }
+
+    /** Appends one frame and returns the file offset of its payload. */
+    int append(ByteBuffer payload) throws IOException {
+        int length = payload.remaining();
+        ensureCapacity(FRAME_OVERHEAD + length);
+        CRC32 crc = new CRC32();
+        crc.update(payload.duplicate());
+
+        MappedByteBuffer target = buffer;
+        int offset = end + FRAME_OVERHEAD;
+        ByteBuffer body = target.duplicate();
+        body.position(offset);
+        body.put(payload);
+        target.putInt(end + 4, (int) crc.getValue());
+        // Length last: until it is written the frame reads as the end of the log
+        target.putInt(end, length);
+        end = offset + length;
+        dirty = true;
+        return offset;
+    }
+
+    private void ensureCapacity(int needed) throws IOException {
+        long required = (long) end + needed + FRAME_OVERHEAD;
+        int capacity = buffer.capacity();
+        if (required <= capacity) return;
+        long grown = Math.max(required, (long) capacity * 2);
+        if (grown > Integer.MAX_VALUE) {
+            if (required > Integer.MAX_VALUE) throw new IOException(path + " would exceed 2 GB; compaction is overdue");
+            grown = Integer.MAX_VALUE;
+        }
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, grown);
+    }
+
+    /** A read-only view of {@code length} bytes at {@code offset}; safe to call from any thread. */
+    ByteBuffer read(int offset, int length) {
+        return slice(buffer, offset, length).asReadOnlyBuffer();
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int offset, int length) {
+        ByteBuffer view = buffer.duplicate();
+        view.limit(offset + length);
+        view.position(offset);
+        return view.slice();
+    }
+
+    int size() {
+        return end;
+    }
+
+    void force() {
+        if (!dirty) return;
+        dirty = false;
+        buffer.force();
+    }
+
+    void moveTo(Path target) throws IOException {
+        Files.move(path, target, StandardCopyOption.ATOMIC_MOVE);
+        path = target;
+    }
+
+    /** Closes the file; the mapping stays readable until it is garbage collected. */
+    void close() {
+        try {
+            force();
+            channel.close();
+        } catch (IOException ignored) {
+        }
+    }
+}
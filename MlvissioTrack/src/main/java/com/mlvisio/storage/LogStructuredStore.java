@@ -0,0 +1,733 @@
+package com.mlvisio.storage;
+
+import com.mlvisio.util.Log;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Embedded {@link DocumentStore} for running without Google Cloud: every
+ * write is appended to a memory-mapped log ({@link LogSegment}) and the
+ * in-memory indexes point into it. Per collection there is a sorted map from
+ * document id to log position (which also serves id-ordered pagination), plus
+ * hash indexes for equality filters and sorted indexes for ordering on the
+ * fields the repositories declare. A read is an index lookup and a decode from
+ * the mapping, with no copy through the page cache.
+ *
+ * Writes go through one lock; a transaction or batch is one log frame, so it
+ * survives a crash whole or not at all. The mapping is flushed to disk once a
+ * second (`-Dmlvisio.storage.syncWrites=true` flushes every commit). When
+ * superseded records make up more than half of a log over 4 MB, it is
+ * compacted into a new generation holding only live records.
+ */
+public class LogStructuredStore implements DocumentStore {
+
+    private static final Log log = Log.get(LogStructuredStore.class);
+
+    private static final int INITIAL_CAPACITY = 16 * 1024 * 1024;
+    private static final long COMPACT_MIN_GARBAGE = 4L * 1024 * 1024;
+    private static final boolean SYNC_WRITES = Boolean.getBoolean("mlvisio.storage.syncWrites");
+    private static final String ID_CHARS = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
+
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+
+    private static final ConcurrentMap<Path, LogStructuredStore> OPEN = new ConcurrentHashMap<>();
+
+    /** Opens (or creates) the store in {@code directory}; one instance per directory per JVM. */
+    public static LogStructuredStore open(Path directory) {
+        return OPEN.computeIfAbsent(directory.toAbsolutePath().normalize(), LogStructuredStore::new);
+    }
+
+    /** Where a live document's encoded fields sit in the log. */
+    private static final class Location {
+        final LogSegment segment;
+        final int offset;
+        final int length;
+
+        Location(LogSegment segment, int offset, int length) {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    private static final class Collection {
+        final ConcurrentSkipListMap<String, Location> documents = new ConcurrentSkipListMap<>();
+        // field -> value -> ids
+        final ConcurrentMap<String, ConcurrentMap<Object, Set<String>>> hashIndexes = new ConcurrentHashMap<>();
+        final ConcurrentMap<String, ConcurrentSkipListMap<Object, Set<String>>> sortedIndexes = new ConcurrentHashMap<>();
+    }
+
+    /** One staged write; data is null for a delete. */
+    private static final class Write {
+        final String collection;
+        final String id;
+        final Map<String, Object> data;
+        byte[] encoded;
+
+        Write(String collection, String id, Map<String, Object> data) {
+            this.collection = collection;
+            this.id = id;
+            this.data = data;
+        }
+    }
+
+    private final Path directory;
+    private final ConcurrentMap<String, Collection> collections = new ConcurrentHashMap<>();
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final ScheduledExecutorService maintenance;
+    private LogSegment segment;
+    private long garbageBytes;
+
+    private LogStructuredStore(Path directory) {
+        this.directory = directory;
+        try {
+            Files.createDirectories(directory);
+            segment = recover();
+        } catch (IOException e) {
+            throw new StorageException("Could not open local store in " + directory, e);
+        }
+        maintenance = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "local-store-maintenance");
+            t.setDaemon(true);
+            return t;
+        });
+        maintenance.scheduleWithFixedDelay(this::flush, 1, 1, TimeUnit.SECONDS);
+        maintenance.scheduleWithFixedDelay(this::compactIfWorthwhile, 30, 30, TimeUnit.SECONDS);
+        log.info("Opened local store {} ({} collections, {} KB log)", directory, collections.size(), segment.size() / 1024);
+    }
+
+    // ---- recovery -----------------------------------------------------------------------------
+
+    private LogSegment recover() throws IOException {
+        long newest = -1;
+        List<Path> stale = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "data-*.log*")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(".tmp")) {
+                    // An interrupted compaction; the previous generation is still complete
+                    stale.add(file);
+                    continue;
+                }
+                long generation = Long.parseLong(name.substring(5, name.length() - 4));
+                if (generation > newest) {
+                    if (newest >= 0) stale.add(segmentPath(newest));
+                    newest = generation;
+                } else {
+                    stale.add(file);
+                }
+            }
+        }
+        for (Path file : stale) Files.deleteIfExists(file);
+
+        if (newest < 0) return LogSegment.create(segmentPath(0), 0, INITIAL_CAPACITY);
+        // Frames are replayed into positions first; the segment object exists only once the scan is done
+        List<Object[]> pending = new ArrayList<>();
+        LogSegment recovered = LogSegment.open(segmentPath(newest), newest,
+                (offset, payload) -> readFrame(offset, payload, pending));
+        for (Object[] op : pending) {
+            String collection = (String) op[0];
+            String id = (String) op[1];
+            int offset = (Integer) op[2];
+            int length = (Integer) op[3];
+            Collection c = collection(collection);
+            Location previous = length < 0
+                    ? c.documents.remove(id)
+                    : c.documents.put(id, new Location(recovered, offset, length));
+            if (previous != null) garbageBytes += previous.length;
+        }
+        return recovered;
+    }
+
+    private static void readFrame(int frameOffset, ByteBuffer payload, List<Object[]> out) {
+        int count = payload.getInt();
+        for (int i = 0; i < count; i++) {
+            byte type = payload.get();
+            String collection = RecordCodec.readString(payload);
+            String id = RecordCodec.readString(payload);
+            if (type == PUT) {
+                int length = payload.getInt();
+                out.add(new Object[]{collection, id, frameOffset + payload.position(), length});
+                payload.position(payload.position() + length);
+            } else {
+                out.add(new Object[]{collection, id, 0, -1});
+            }
+        }
+    }
+
+    private Path segmentPath(long generation) {
+        return directory.resolve("data-" + generation + ".log");
+    }
+
+    private Collection collection(String name) {
+        return collections.computeIfAbsent(name, n -> new Collection());
+    }
+
+    // ---- reads --------------------------------------------------------------------------------
+
+    @Override
+    public String name() {
+        return "local";
+    }
+
+    @Override
+    public Document get(String collection, String id) {
+        Collection c = collections.get(collection);
+        if (c == null) return null;
+        Location location = c.documents.get(id);
+        return location == null ? null : new Document(id, decode(location));
+    }
+
+    @Override
+    public List<Document> getAll(String collection, java.util.Collection<String> ids) {
+        List<Document> records = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            Document record = get(collection, id);
+            if (record != null) records.add(record);
+        }
+        return records;
+    }
+
+    @Override
+    public List<Document> find(String collection, Criteria criteria) {
+        Collection c = collections.get(collection);
+        if (c == null) return new ArrayList<>();
+
+        boolean ordered = false;
+        Iterable<String> candidates = null;
+
+        // The most selective hash index narrows the scan; every filter is re-checked on the record
+        Set<String> smallest = null;
+        for (Criteria.Filter filter : criteria.filters()) {
+            ConcurrentMap<Object, Set<String>> index = c.hashIndexes.get(filter.field);
+            if (index == null || filter.value == null) continue;
+            Set<String> ids;
+            if (filter.op == Criteria.Op.EQUAL) {
+                ids = index.get(indexKey(filter.value));
+            } else if (filter.op == Criteria.Op.IN) {
+                ids = new HashSet<>();
+                for (Object value : (List<?>) filter.value) {
+                    Set<String> matching = index.get(indexKey(value));
+                    if (matching != null) ids.addAll(matching);
+                }
+            } else {
+                continue;
+            }
+            if (ids == null || ids.isEmpty()) return new ArrayList<>();
+            if (smallest == null || ids.size() < smallest.size()) smallest = ids;
+        }
+        NavigableMap<Object, Set<String>> bounded = null;
+        for (Criteria.Filter filter : criteria.filters()) {
+            if (filter.op == Criteria.Op.EQUAL || filter.op == Criteria.Op.IN || filter.value == null) continue;
+            if (bounded == null) bounded = c.sortedIndexes.get(filter.field);
+            if (bounded == null) break;
+            bounded = filter.op == Criteria.Op.AT_LEAST
+                    ? bounded.tailMap(indexKey(filter.value), true)
+                    : bounded.headMap(indexKey(filter.value), false);
+        }
+        if (smallest != null) {
+            candidates = new ArrayList<>(smallest);
+        } else if (bounded != null) {
+            // Only a slice of the sorted index can satisfy the bounds
+            List<String> ids = new ArrayList<>();
+            for (Set<String> group : bounded.values()) ids.addAll(group);
+            candidates = ids;
+        } else if (Criteria.ID.equals(criteria.orderBy)) {
+            NavigableMap<String, Location> range = criteria.startAfterId == null
+                    ? c.documents
+                    : c.documents.tailMap(criteria.startAfterId, false);
+            candidates = (criteria.descending ? range.descendingMap() : range).keySet();
+            ordered = true;
+        } else if (criteria.orderBy != null && c.sortedIndexes.containsKey(criteria.orderBy)) {
+            ConcurrentSkipListMap<Object, Set<String>> index = c.sortedIndexes.get(criteria.orderBy);
+            List<String> ids = new ArrayList<>();
+            for (Set<String> group : (criteria.descending ? index.descendingMap() : index).values()) {
+                ids.addAll(group);
+                if (criteria.limit > 0 && criteria.filters().isEmpty() && ids.size() >= criteria.limit) break;
+            }
+            candidates = ids;
+            ordered = true;
+        } else {
+            candidates = c.documents.keySet();
+        }
+
+        List<Document> records = new ArrayList<>();
+        for (String id : candidates) {
+            Location location = c.documents.get(id);
+            if (location == null) continue;
+            Map<String, Object> data = decode(location);
+            if (!matches(data, criteria)) continue;
+            records.add(new Document(id, data));
+            if (ordered && criteria.limit > 0 && records.size() >= criteria.limit) break;
+        }
+
+        if (!ordered && criteria.orderBy != null) {
+            Comparator<Document> order = Criteria.ID.equals(criteria.orderBy)
+                    ? Comparator.comparing(Document::getId)
+                    : (a, b) -> compareValues(a.get(criteria.orderBy), b.get(criteria.orderBy));
+            records.sort(criteria.descending ? order.reversed() : order);
+            if (Criteria.ID.equals(criteria.orderBy) && criteria.startAfterId != null) {
+                records.removeIf(r -> criteria.descending
+                        ? r.getId().compareTo(criteria.startAfterId) >= 0
+                        : r.getId().compareTo(criteria.startAfterId) <= 0);
+            }
+        }
+        if (criteria.limit > 0 && records.size() > criteria.limit) {
+            records = new ArrayList<>(records.subList(0, criteria.limit));
+        }
+        if (criteria.fields != null) {
+            List<Document> projected = new ArrayList<>(records.size());
+            for (Document record : records) {
+                Map<String, Object> fields = new HashMap<>();
+                for (String field : criteria.fields) {
+                    if (record.contains(field)) fields.put(field, record.get(field));
+                }
+                projected.add(new Document(record.getId(), fields));
+            }
+            records = projected;
+        }
+        return records;
+    }
+
+    private static boolean matches(Map<String, Object> data, Criteria criteria) {
+        for (Criteria.Filter filter : criteria.filters()) {
+            if (filter.op == Criteria.Op.EQUAL) {
+                if (!Objects.equals(indexKey(data.get(filter.field)), indexKey(filter.value))) return false;
+            } else if (filter.op == Criteria.Op.IN) {
+                Object value = indexKey(data.get(filter.field));
+                boolean found = false;
+                for (Object candidate : (List<?>) filter.value) {
+                    if (Objects.equals(value, indexKey(candidate))) {
+                        found = true;
+                        break;
+                    }
+                }
+                if (!found) return false;
+            } else {
+                int order = compareInType(data.get(filter.field), filter.value);
+                if (order == Integer.MIN_VALUE || (filter.op == Criteria.Op.AT_LEAST ? order < 0 : order >= 0)) {
+                    return false;
+                }
+            }
+        }
+        // As in Firestore, ordering by a field leaves out documents that do not have it
+        return criteria.orderBy == null || Criteria.ID.equals(criteria.orderBy) || data.containsKey(criteria.orderBy);
+    }
+
+    // Range filters only match values of the bound's own type, as in Firestore; MIN_VALUE means no match
+    private static int compareInType(Object value, Object bound) {
+        value = RecordCodec.normalise(value);
+        bound = RecordCodec.normalise(bound);
+        if (value == null || rank(value) != rank(bound)) return Integer.MIN_VALUE;
+        return compareValues(value, bound);
+    }
+
+    private static Map<String, Object> decode(Location location) {
+        return RecordCodec.decode(location.segment.read(location.offset, location.length));
+    }
+
+    // ---- indexes ------------------------------------------------------------------------------
+
+    /**
+     * Maintains a hash index (equality filters) or a sorted index (ordering)
+     * on {@code field}, built from the documents already stored.
+     */
+    @Override
+    public void declareIndex(String collection, String field, boolean sorted) {
+        writeLock.lock();
+        try {
+            Collection c = collection(collection);
+            if (sorted ? c.sortedIndexes.containsKey(field) : c.hashIndexes.containsKey(field)) return;
+            if (sorted) {
+                c.sortedIndexes.put(field, new ConcurrentSkipListMap<>(LogStructuredStore::compareValues));
+            } else {
+                c.hashIndexes.put(field, new ConcurrentHashMap<>());
+            }
+            for (Map.Entry<String, Location> entry : c.documents.entrySet()) {
+                Object value = decode(entry.getValue()).get(field);
+                if (sorted) {
+                    addTo(c.sortedIndexes.get(field), value, entry.getKey());
+                } else {
+                    addTo(c.hashIndexes.get(field), value, entry.getKey());
+                }
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private static void reindex(Collection c, String id, Map<String, Object> before, Map<String, Object> after) {
+        for (Map.Entry<String, ConcurrentMap<Object, Set<String>>> index : c.hashIndexes.entrySet()) {
+            reindex(index.getValue(), index.getKey(), id, before, after);
+        }
+        for (Map.Entry<String, ConcurrentSkipListMap<Object, Set<String>>> index : c.sortedIndexes.entrySet()) {
+            reindex(index.getValue(), index.getKey(), id, before, after);
+        }
+    }
+
+    private static void reindex(Map<Object, Set<String>> index, String field, String id,
+                                Map<String, Object> before, Map<String, Object> after) {
+        boolean had = before != null && before.containsKey(field);
+        boolean has = after != null && after.containsKey(field);
+        Object old = had ? before.get(field) : null;
+        Object value = has ? after.get(field) : null;
+        if (had && has && Objects.equals(indexKey(old), indexKey(value))) return;
+        if (had) {
+            Set<String> ids = index.get(indexKey(old));
+            if (ids != null) {
+                ids.remove(id);
+                if (ids.isEmpty()) index.remove(indexKey(old), ids);
+            }
+        }
+        if (has) addTo(index, value, id);
+    }
+
+    private static void addTo(Map<Object, Set<String>> index, Object value, String id) {
+        if (value == null) return;
+        index.computeIfAbsent(indexKey(value), k -> ConcurrentHashMap.newKeySet()).add(id);
+    }
+
+    // Firestore compares 1 and 1.0 as equal, so index keys treat whole doubles as longs
+    private static Object indexKey(Object value) {
+        value = RecordCodec.normalise(value);
+        if (value instanceof Double) {
+            double d = (Double) value;
+            if (d == Math.rint(d) && !Double.isInfinite(d) && Math.abs(d) < 1L << 53) return (long) d;
+        }
+        return value;
+    }
+
+    /** Firestore's cross-type order: null, booleans, numbers, timestamps, strings, then the rest. */
+    @SuppressWarnings("unchecked")
+    static int compareValues(Object a, Object b) {
+        int rankA = rank(a);
+        int rankB = rank(b);
+        if (rankA != rankB) return Integer.compare(rankA, rankB);
+        switch (rankA) {
+            case 0: return 0;
+            case 2: return Double.compare(((Number) a).doubleValue(), ((Number) b).doubleValue());
+            case 1: case 3: case 4: return ((Comparable<Object>) a).compareTo(b);
+            default: return String.valueOf(a).compareTo(String.valueOf(b));
+        }
+    }
+
+    private static int rank(Object value) {
+        if (value == null) return 0;
+        if (value instanceof Boolean) return 1;
+        if (value instanceof Number) return 2;
+        if (value instanceof com.google.cloud.Timestamp) return 3;
+        if (value instanceof String) return 4;
+        return 5;
+    }
+
+    // ---- writes -------------------------------------------------------------------------------
+
+    @Override
+    public void set(String collection, String id, Map<String, Object> data) {
+        commit(Collections.singletonList(new Write(collection, id, new HashMap<>(data))));
+    }
+
+    @Override
+    public void update(String collection, String id, Map<String, Object> updates) {
+        writeLock.lock();
+        try {
+            Document existing = get(collection, id);
+            if (existing == null) throw new StorageException("No document to update: " + collection + "/" + id);
+            Map<String, Object> merged = existing.getData();
+            merged.putAll(updates);
+            commit(Collections.singletonList(new Write(collection, id, merged)));
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void delete(String collection, String id) {
+        commit(Collections.singletonList(new Write(collection, id, null)));
+    }
+
+    @Override
+    public String newId() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        char[] id = new char[20];
+        for (int i = 0; i < id.length; i++) id[i] = ID_CHARS.charAt(random.nextInt(ID_CHARS.length()));
+        return new String(id);
+    }
+
+    @Override
+    public <T> T runTransaction(TransactionWork<T> work) {
+        writeLock.lock();
+        try {
+            Staged staged = new Staged();
+            T result = work.run(new Transaction() {
+                @Override
+                public Document get(String collection, String id) {
+                    return staged.read(collection, id);
+                }
+
+                @Override
+                public void create(String collection, String id, Map<String, Object> data) {
+                    staged.create(collection, id, data);
+                }
+
+                @Override
+                public void set(String collection, String id, Map<String, Object> data) {
+                    staged.set(collection, id, data);
+                }
+
+                @Override
+                public void update(String collection, String id, Map<String, Object> updates) {
+                    staged.update(collection, id, updates);
+                }
+
+                @Override
+                public void delete(String collection, String id) {
+                    staged.set(collection, id, null);
+                }
+            });
+            staged.commit();
+            return result;
+        } catch (StorageException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new StorageException(e.getMessage(), e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public Batch batch() {
+        List<Runnable> ops = new ArrayList<>();
+        Staged[] holder = new Staged[1];
+        return new Batch() {
+            @Override
+            public Batch create(String collection, String id, Map<String, Object> data) {
+                ops.add(() -> holder[0].create(collection, id, data));
+                return this;
+            }
+
+            @Override
+            public Batch set(String collection, String id, Map<String, Object> data) {
+                ops.add(() -> holder[0].set(collection, id, data));
+                return this;
+            }
+
+            @Override
+            public Batch update(String collection, String id, Map<String, Object> updates) {
+                ops.add(() -> holder[0].update(collection, id, updates));
+                return this;
+            }
+
+            @Override
+            public Batch delete(String collection, String id) {
+                ops.add(() -> holder[0].set(collection, id, null));
+                return this;
+            }
+
+            @Override
+            public CompletableFuture<Void> commit() {
+                writeLock.lock();
+                try {
+                    holder[0] = new Staged();
+                    for (Runnable op : ops) op.run();
+                    holder[0].commit();
+                    return CompletableFuture.completedFuture(null);
+                } catch (RuntimeException e) {
+                    CompletableFuture<Void> failed = new CompletableFuture<>();
+                    failed.completeExceptionally(e);
+                    return failed;
+                } finally {
+                    writeLock.unlock();
+                }
+            }
+        };
+    }
+
+    /** Writes of one transaction or batch, applied over the current state under the write lock. */
+    private final class Staged {
+        // "collection\u0000id" -> staged document (null value = deleted)
+        private final Map<String, Write> writes = new LinkedHashMap<>();
+
+        Document read(String collection, String id) {
+            Write staged = writes.get(collection + '\u0000' + id);
+            if (staged != null) return staged.data == null ? null : new Document(id, new HashMap<>(staged.data));
+            return LogStructuredStore.this.get(collection, id);
+        }
+
+        void create(String collection, String id, Map<String, Object> data) {
+            if (read(collection, id) != null) {
+                throw new StorageException("Document already exists: " + collection + "/" + id);
+            }
+            set(collection, id, data);
+        }
+
+        void set(String collection, String id, Map<String, Object> data) {
+            writes.put(collection + '\u0000' + id, new Write(collection, id, data == null ? null : new HashMap<>(data)));
+        }
+
+        void update(String collection, String id, Map<String, Object> updates) {
+            Document existing = read(collection, id);
+            if (existing == null) throw new StorageException("No document to update: " + collection + "/" + id);
+            Map<String, Object> merged = existing.getData();
+            merged.putAll(updates);
+            set(collection, id, merged);
+        }
+
+        void commit() {
+            if (!writes.isEmpty()) LogStructuredStore.this.commit(new ArrayList<>(writes.values()));
+        }
+    }
+
+    /** Appends the writes as one frame and moves the indexes over to it. */
+    private void commit(List<Write> writes) {
+        writeLock.lock();
+        try {
+            int size = 4;
+            for (Write write : writes) {
+                byte[] collection = write.collection.getBytes(StandardCharsets.UTF_8);
+                byte[] id = write.id.getBytes(StandardCharsets.UTF_8);
+                size += 1 + 4 + collection.length + 4 + id.length;
+                if (write.data != null) {
+                    write.encoded = RecordCodec.encode(write.data);
+                    size += 4 + write.encoded.length;
+                }
+            }
+
+            ByteBuffer payload = ByteBuffer.allocate(size);
+            int[] dataOffsets = new int[writes.size()];
+            payload.putInt(writes.size());
+            for (int i = 0; i < writes.size(); i++) {
+                Write write = writes.get(i);
+                payload.put(write.data == null ? DELETE : PUT);
+                putString(payload, write.collection);
+                putString(payload, write.id);
+                if (write.data != null) {
+                    payload.putInt(write.encoded.length);
+                    dataOffsets[i] = payload.position();
+                    payload.put(write.encoded);
+                }
+            }
+            payload.flip();
+
+            int payloadOffset;
+            try {
+                payloadOffset = segment.append(payload);
+            } catch (IOException e) {
+                throw new StorageException("Could not append to " + segment.path, e);
+            }
+
+            for (int i = 0; i < writes.size(); i++) {
+                Write write = writes.get(i);
+                Collection c = collection(write.collection);
+                boolean indexed = !c.hashIndexes.isEmpty() || !c.sortedIndexes.isEmpty();
+                Location previous = c.documents.get(write.id);
+                Map<String, Object> before = indexed && previous != null ? decode(previous) : null;
+                if (write.data == null) {
+                    c.documents.remove(write.id);
+                } else {
+                    c.documents.put(write.id, new Location(segment, payloadOffset + dataOffsets[i], write.encoded.length));
+                }
+                if (indexed) reindex(c, write.id, before, write.data);
+                if (previous != null) garbageBytes += previous.length;
+            }
+            if (SYNC_WRITES) segment.force();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private static void putString(ByteBuffer out, String value) {
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        out.putInt(utf8.length);
+        out.put(utf8);
+    }
+
+    // ---- maintenance --------------------------------------------------------------------------
+
+    private void flush() {
+        writeLock.lock();
+        try {
+            segment.force();
+        } catch (RuntimeException e) {
+            log.warn("Flush failed: {}", e.getMessage());
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void compactIfWorthwhile() {
+        try {
+            if (garbageBytes >= COMPACT_MIN_GARBAGE && garbageBytes * 2 > segment.size()) compact();
+        } catch (Exception e) {
+            log.error("Compaction failed", e);
+        }
+    }
+
+    /** Rewrites the live documents into the next log generation and switches to it. */
+    public void compact() throws IOException {
+        writeLock.lock();
+        try {
+            LogSegment old = segment;
+            long generation = old.generation + 1;
+            Path temporary = directory.resolve("data-" + generation + ".log.tmp");
+            Files.deleteIfExists(temporary);
+            long live = Math.max(0, (long) old.size() - garbageBytes);
+            LogSegment next = LogSegment.create(temporary, generation,
+                    (int) Math.min(Integer.MAX_VALUE, Math.max(INITIAL_CAPACITY, live * 2)));
+
+            Map<Location, Location> moved = new IdentityHashMap<>();
+            for (Map.Entry<String, Collection> c : collections.entrySet()) {
+                for (Map.Entry<String, Location> doc : c.getValue().documents.entrySet()) {
+                    Location from = doc.getValue();
+                    ByteBuffer data = from.segment.read(from.offset, from.length);
+                    byte[] collection = c.getKey().getBytes(StandardCharsets.UTF_8);
+                    byte[] id = doc.getKey().getBytes(StandardCharsets.UTF_8);
+                    ByteBuffer payload = ByteBuffer.allocate(4 + 1 + 4 + collection.length + 4 + id.length + 4 + from.length);
+                    payload.putInt(1).put(PUT);
+                    payload.putInt(collection.length).put(collection);
+                    payload.putInt(id.length).put(id);
+                    payload.putInt(from.length);
+                    int dataOffset = payload.position();
+                    payload.put(data);
+                    payload.flip();
+                    moved.put(from, new Location(next, next.append(payload) + dataOffset, from.length));
+                }
+            }
+            next.force();
+            next.moveTo(segmentPath(generation));
+
+            for (Collection c : collections.values()) {
+                c.documents.replaceAll((id, location) -> moved.getOrDefault(location, location));
+            }
+            segment = next;
+            garbageBytes = 0;
+            old.close();
+            Files.deleteIfExists(segmentPath(old.generation));
+            log.info("Compacted local store: {} KB -> {} KB (generation {})", old.size() / 1024, next.size() / 1024, generation);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        maintenance.shutdown();
+        writeLock.lock();
+        try {
+            segment.close();
+        } finally {
+            writeLock.unlock();
+        }
+        OPEN.remove(directory, this);
+    }
+}
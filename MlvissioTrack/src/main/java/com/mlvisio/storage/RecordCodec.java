@@ -0,0 +1,142 @@
+package com.mlvisio.storage;
+
+import com.google.cloud.Timestamp;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Tagged binary encoding of document field maps for the log: the value types
+ * Firestore hands back (null, Boolean, Long, Double, String, Timestamp, List,
+ * Map). Ints and floats are widened on the way in, as Firestore does, and a
+ * java.util.Date becomes a Timestamp.
+ */
+final class RecordCodec {
+
+    private static final byte NULL = 0;
+    private static final byte FALSE = 1;
+    private static final byte TRUE = 2;
+    private static final byte LONG = 3;
+    private static final byte DOUBLE = 4;
+    private static final byte STRING = 5;
+    private static final byte TIMESTAMP = 6;
+    private static final byte LIST = 7;
+    private static final byte MAP = 8;
+
+    private RecordCodec() {
+    }
+
+    static byte[] encode(Map<String, Object> data) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            writeMap(out, data);
+        } catch (IOException e) {
+            throw new StorageException("Could not encode document", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    static Map<String, Object> decode(ByteBuffer in) {
+        if (in.get() != MAP) throw new StorageException("Corrupt document: expected a map");
+        return readMap(in);
+    }
+
+    /** Encodes {@code value} the way it will be stored; used to normalise index keys. */
+    static Object normalise(Object value) {
+        if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return ((Number) value).longValue();
+        }
+        if (value instanceof Float) return ((Float) value).doubleValue();
+        if (value instanceof Date) return Timestamp.of((Date) value);
+        return value;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void write(DataOutputStream out, Object value) throws IOException {
+        value = normalise(value);
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof Boolean) {
+            out.writeByte((Boolean) value ? TRUE : FALSE);
+        } else if (value instanceof Long) {
+            out.writeByte(LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof Double) {
+            out.writeByte(DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (value instanceof String) {
+            out.writeByte(STRING);
+            writeString(out, (String) value);
+        } else if (value instanceof Timestamp) {
+            out.writeByte(TIMESTAMP);
+            out.writeLong(((Timestamp) value).getSeconds());
+            out.writeInt(((Timestamp) value).getNanos());
+        } else if (value instanceof List) {
+            List<Object> list = (List<Object>) value;
+            out.writeByte(LIST);
+            out.writeInt(list.size());
+            for (Object item : list) write(out, item);
+        } else if (value instanceof Map) {
+            writeMap(out, (Map<String, Object>) value);
+        } else {
+            throw new IllegalArgumentException("Unsupported field type: " + value.getClass().getName());
+        }
+    }
+
+    private static void writeMap(DataOutputStream out, Map<String, Object> map) throws IOException {
+        out.writeByte(MAP);
+        out.writeInt(map.size());
+        for (Map.Entry<String, Object> entry : map.entrySet()) {
+            writeString(out, entry.getKey());
+            write(out, entry.getValue());
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(utf8.length);
+        out.write(utf8);
+    }
+
+    private static Object read(ByteBuffer in) {
+        byte tag = in.get();
+        switch (tag) {
+            case NULL: return null;
+            case FALSE: return Boolean.FALSE;
+            case TRUE: return Boolean.TRUE;
+            case LONG: return in.getLong();
+            case DOUBLE: return in.getDouble();
+            case STRING: return readString(in);
+            case TIMESTAMP: return Timestamp.ofTimeSecondsAndNanos(in.getLong(), in.getInt());
+            case LIST: {
+                int size = in.getInt();
+                List<Object> list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) list.add(read(in));
+                return list;
+            }
+            case MAP: return readMap(in);
+            default: throw new StorageException("Corrupt document: unknown tag " + tag);
+        }
+    }
+
+    private static Map<String, Object> readMap(ByteBuffer in) {
+        int size = in.getInt();
+        Map<String, Object> map = new HashMap<>(Math.max(4, size * 4 / 3 + 1));
+        for (int i = 0; i < size; i++) {
+            String key = readString(in);
+            map.put(key, read(in));
+        }
+        return map;
+    }
+
+    static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        byte[] utf8 = new byte[length];
+        in.get(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,21 @@
+package com.mlvisio.storage;
+
+import com.google.cloud.Timestamp;
+
+import java.util.List;
+import java.util.Map;
+
+/** `schedules` documents; deletion is a soft delete through {@link #update}. */
+public interface ScheduleRepository {
+
+    List<Document> findActive();
+
+    Document findById(String id);
+
+    /** Schedules created or updated (soft deletes included) at or after {@code since}. */
+    List<Document> findChangedSince(Timestamp since);
+
+    void save(String id, Map<String, Object> schedule);
+
+    void update(String id, Map<String, Object> updates);
+}
@@ -0,0 +1,12 @@
+package com.mlvisio.storage;
+
+import java.util.Map;
+
+/** `settings/{key}` documents, one per setting group. */
+public interface SettingsRepository {
+
+    /** The setting document, or null when it has never been saved. */
+    Document get(String key);
+
+    void put(String key, Map<String, Object> values);
+}
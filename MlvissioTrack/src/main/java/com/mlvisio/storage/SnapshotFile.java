@@ -0,0 +1,172 @@
+package com.mlvisio.storage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * A point-in-time copy of a few named lists of documents on local disk, for
+ * warm restarts. Documents are encoded with the storage log's
+ * {@link RecordCodec}, and the file is memory-mapped to read it back.
+ *
+ * Layout: an 8-byte magic, {@code [int version][long readTimeMillis][string engine]
+ * [int crc32][int bodyLength]}, then the body: {@code [int sections]} and per
+ * section {@code [string name][int count]} followed by {@code [string id][record]}
+ * per document. Strings are {@code [int length][utf-8]}.
+ *
+ * The file is written to a temporary sibling and moved into place, so a
+ * reader sees either the old snapshot or the new one. The temporary file is
+ * created readable by its owner only where the file system has POSIX
+ * permissions. A file with another version or a bad checksum reads as no
+ * snapshot.
+ */
+public final class SnapshotFile {
+
+    private static final byte[] MAGIC = "MLVSNAP1".getBytes(StandardCharsets.US_ASCII);
+    public static final int VERSION = 1;
+
+    private final long readTimeMillis;
+    private final String engine;
+    private final Map<String, List<Document>> sections;
+
+    private SnapshotFile(long readTimeMillis, String engine, Map<String, List<Document>> sections) {
+        this.readTimeMillis = readTimeMillis;
+        this.engine = engine;
+        this.sections = sections;
+    }
+
+    /** When the documents were read; anything written since then is not in the snapshot. */
+    public long getReadTimeMillis() {
+        return readTimeMillis;
+    }
+
+    /** The {@link DocumentStore#name()} the documents came from. */
+    public String getEngine() {
+        return engine;
+    }
+
+    /** The documents of a section, or an empty list if the snapshot has none. */
+    public List<Document> section(String name) {
+        List<Document> documents = sections.get(name);
+        return documents == null ? Collections.emptyList() : documents;
+    }
+
+    public static void write(Path file, long readTimeMillis, String engine, Map<String, List<Document>> sections)
+            throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream(64 * 1024);
+        try (DataOutputStream out = new DataOutputStream(body)) {
+            out.writeInt(sections.size());
+            for (Map.Entry<String, List<Document>> section : sections.entrySet()) {
+                writeString(out, section.getKey());
+                out.writeInt(section.getValue().size());
+                for (Document document : section.getValue()) {
+                    writeString(out, document.getId());
+                    out.write(RecordCodec.encode(document.getData()));
+                }
+            }
+        }
+        byte[] bytes = body.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+
+        ByteArrayOutputStream header = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(header)) {
+            out.write(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(readTimeMillis);
+            writeString(out, engine);
+            out.writeInt((int) crc.getValue());
+            out.writeInt(bytes.length);
+        }
+
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = parent.resolve(file.getFileName() + ".tmp");
+        // A leftover temp file may have been created with wider permissions
+        Files.deleteIfExists(temp);
+        if (Files.getFileStore(parent).supportsFileAttributeView(PosixFileAttributeView.class)) {
+            Files.createFile(temp, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+        } else {
+            Files.createFile(temp);
+        }
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            ByteBuffer headerBuffer = ByteBuffer.wrap(header.toByteArray());
+            ByteBuffer bodyBuffer = ByteBuffer.wrap(bytes);
+            while (headerBuffer.hasRemaining() || bodyBuffer.hasRemaining()) {
+                channel.write(new ByteBuffer[] {headerBuffer, bodyBuffer});
+            }
+            channel.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /** The snapshot in {@code file}, or null if there is none or it cannot be used. */
+    public static SnapshotFile read(Path file) throws IOException {
+        if (!Files.isRegularFile(file)) return null;
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) throw new IOException(file + " is larger than 2 GB");
+            if (size < MAGIC.length + 4) return null;
+            // The mapping stays valid after the channel is closed
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (buffer.get(i) != MAGIC[i]) return null;
+        }
+        buffer.position(MAGIC.length);
+        if (buffer.getInt() != VERSION) return null;
+
+        try {
+            long readTimeMillis = buffer.getLong();
+            String engine = RecordCodec.readString(buffer);
+            int expectedCrc = buffer.getInt();
+            int length = buffer.getInt();
+            if (length < 0 || length > buffer.remaining()) return null;
+            ByteBuffer body = buffer.slice();
+            body.limit(length);
+            CRC32 crc = new CRC32();
+            crc.update(body.duplicate());
+            if ((int) crc.getValue() != expectedCrc) return null;
+
+            int count = body.getInt();
+            Map<String, List<Document>> sections = new LinkedHashMap<>(count * 2);
+            for (int i = 0; i < count; i++) {
+                String name = RecordCodec.readString(body);
+                int documents = body.getInt();
+                List<Document> section = new ArrayList<>(documents);
+                for (int j = 0; j < documents; j++) {
+                    String id = RecordCodec.readString(body);
+                    section.add(new Document(id, RecordCodec.decode(body)));
+                }
+                sections.put(name, section);
+            }
+            return new SnapshotFile(readTimeMillis, engine, sections);
+        } catch (RuntimeException e) {
+            // A truncated or hand-edited file is no worse than a missing one
+            return null;
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(utf8.length);
+        out.write(utf8);
+    }
+}
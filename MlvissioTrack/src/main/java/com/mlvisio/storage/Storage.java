@@ -0,0 +1,77 @@
+package com.mlvisio.storage;
+
+/**
+ * The repositories over the configured {@link DocumentStore}. Handlers and
+ * services get their data through here instead of the Firestore client, so
+ * the whole backend runs unchanged on the embedded engine
+ * (`-Dmlvisio.storage=local`).
+ */
+public class Storage {
+
+    // Built on first use rather than in the class initializer, so a store that failed to open can be retried
+    private static volatile Storage instance;
+
+    /** The storage over the configured store, opening it on first use; throws if it cannot be opened. */
+    public static Storage getInstance() {
+        Storage current = instance;
+        if (current == null) {
+            synchronized (Storage.class) {
+                current = instance;
+                if (current == null) current = instance = new Storage(DocumentStore.fromConfig());
+            }
+        }
+        return current;
+    }
+
+    private final DocumentStore store;
+    private final UserRepository users;
+    private final AttendanceRepository attendance;
+    private final ScheduleRepository schedules;
+    private final LecturerRepository lecturers;
+    private final SubjectRepository subjects;
+    private final DeviceRepository devices;
+    private final SettingsRepository settings;
+
+    private Storage(DocumentStore store) {
+        this.store = store;
+        this.users = new DocumentUserRepository(store);
+        this.attendance = new DocumentAttendanceRepository(store);
+        this.schedules = new DocumentScheduleRepository(store);
+        this.lecturers = new DocumentLecturerRepository(store);
+        this.subjects = new DocumentSubjectRepository(store);
+        this.devices = new DocumentDeviceRepository(store);
+        this.settings = new DocumentSettingsRepository(store);
+    }
+
+    public DocumentStore store() {
+        return store;
+    }
+
+    public UserRepository users() {
+        return users;
+    }
+
+    public AttendanceRepository attendance() {
+        return attendance;
+    }
+
+    public ScheduleRepository schedules() {
+        return schedules;
+    }
+
+    public LecturerRepository lecturers() {
+        return lecturers;
+    }
+
+    public SubjectRepository subjects() {
+        return subjects;
+    }
+
+    public DeviceRepository devices() {
+        return devices;
+    }
+
+    public SettingsRepository settings() {
+        return settings;
+    }
+}
@@ -0,0 +1,13 @@
+package com.mlvisio.storage;
+
+/** A read or write the storage engine could not complete. */
+public class StorageException extends RuntimeException {
+
+    public StorageException(String message) {
+        super(message);
+    }
+
+    public StorageException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
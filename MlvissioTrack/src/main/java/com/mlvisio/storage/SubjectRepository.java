@@ -0,0 +1,19 @@
+package com.mlvisio.storage;
+
+import java.util.List;
+
+/**
+ * Subjects, stored either hierarchically under
+ * `courses/{department}/semesters/{semester}/subjects` or in the older flat
+ * `subjects` collection.
+ */
+public interface SubjectRepository {
+
+    /** The semester document ids under a department's course. */
+    List<String> findSemesterIds(String department);
+
+    List<Document> findInSemester(String department, String semester);
+
+    /** Subjects in the flat collection, optionally only those of {@code department}. */
+    List<Document> findFlat(String department);
+}
@@ -0,0 +1,61 @@
+package com.mlvisio.storage;
+
+import com.google.cloud.Timestamp;
+import com.mlvisio.services.EmailIndex.DuplicateEmailException;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * `users` documents and their `emailIndex` reservations. Every write that
+ * sets or changes an email goes through here so a reservation is always
+ * written atomically with its user.
+ */
+public interface UserRepository {
+
+    Document findById(String id);
+
+    /** The user holding this email's reservation, falling back to (and backfilling from) an email query. */
+    Document findByEmail(String email);
+
+    Document findByRegistrationNumber(String registrationNumber);
+
+    List<Document> findActiveStudents();
+
+    /** Users created, updated or deleted at or after {@code since}, whatever their role or state. */
+    List<Document> findChangedSince(Timestamp since);
+
+    /**
+     * One page of users ordered by id, with only {@code fields} read; every
+     * match when {@code pageSize} is 0. {@code department} and {@code role}
+     * are optional equality filters.
+     */
+    List<Document> list(String department, String role, String[] fields, int pageSize, String afterId);
+
+    /**
+     * The {@link com.mlvisio.services.EmailIndex#key keys} among {@code emails}
+     * that belong to an existing user: one read of the reservations, then, for
+     * emails without one, batched email queries for users created before the
+     * index, whose reservations are backfilled.
+     */
+    Set<String> findReservedEmails(Collection<String> emails);
+
+    /** Creates the user and its reservation atomically and returns the new id. */
+    String create(String email, Map<String, Object> user) throws DuplicateEmailException;
+
+    String newId();
+
+    /**
+     * Blind atomic write of a user and its reservation under a pre-allocated id,
+     * for bulk imports that checked the reservations up front. Fails if either exists.
+     */
+    CompletableFuture<Void> createReserved(String id, String email, Map<String, Object> user);
+
+    void update(String id, Map<String, Object> updates);
+
+    /** Moves the user's reservation to {@code newEmail} and applies {@code updates} in one transaction. */
+    void changeEmail(String id, String newEmail, Map<String, Object> updates) throws DuplicateEmailException;
+}
@@ -0,0 +1,307 @@
+package com.mlvisio.util;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Background writer behind {@link Log}. Events go into a bounded queue that
+ * drops (and counts) on overflow instead of blocking request threads; one
+ * daemon thread drains it in batches and appends JSON lines to
+ * `mlvisio.log`, rolling to `mlvisio.log.1` … `.5` at 10 MB.
+ *
+ * {@code LoggingListener} starts it with the webapp and stops it on undeploy,
+ * so a redeploy leaves no thread or shutdown hook holding the old
+ * classloader. Outside a container (tools, benchmarks) the first event
+ * starts it and the JVM shutdown hook drains it. Events logged after it has
+ * stopped are dropped.
+ *
+ * Configured with `-Dmlvisio.logDir` / `MLVISIO_LOG_DIR` (default
+ * `${catalina.base}/logs`, else `~/.mlvisio/logs`) and
+ * `-Dmlvisio.logConsole=true` to echo lines to stdout during development.
+ */
+public final class AsyncLogWriter {
+
+    private static final int QUEUE_CAPACITY = 8192;
+    private static final int BATCH_SIZE = 512;
+    private static final long MAX_FILE_BYTES = 10L * 1024 * 1024;
+    private static final int KEEP_FILES = 5;
+    private static final String FILE_NAME = "mlvisio.log";
+
+    /** A log line already rendered on the calling thread, plus the Throwable whose stack it carries. */
+    static final class Event {
+        final long timestamp;
+        final Log.Level level;
+        final String logger;
+        final String thread;
+        final String message;
+        final Throwable error;
+
+        Event(long timestamp, Log.Level level, String logger, String thread, String message, Throwable error) {
+            this.timestamp = timestamp;
+            this.level = level;
+            this.logger = logger;
+            this.thread = thread;
+            this.message = message;
+            this.error = error;
+        }
+    }
+
+    private static final AsyncLogWriter INSTANCE = new AsyncLogWriter();
+
+    public static AsyncLogWriter getInstance() {
+        return INSTANCE;
+    }
+
+    private final BlockingQueue<Event> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final AtomicLong dropped = new AtomicLong();
+    private final boolean console = Boolean.getBoolean("mlvisio.logConsole");
+    private final Path directory;
+    private Thread worker;
+    private Thread shutdownHook;
+    private volatile boolean running;
+    private volatile boolean stopped;
+
+    private Writer out;
+    private long fileBytes;
+
+    private AsyncLogWriter() {
+        directory = logDirectory();
+    }
+
+    /** Starts the writer thread; does nothing once started or stopped. */
+    public synchronized void start() {
+        if (running || stopped) return;
+        running = true;
+        worker = new Thread(this::drainLoop, "async-log-writer");
+        worker.setDaemon(true);
+        worker.start();
+        shutdownHook = new Thread(this::drain, "async-log-shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    private static Path logDirectory() {
+        String configured = Config.get("mlvisio.logDir", "MLVISIO_LOG_DIR", null);
+        if (configured != null) return Paths.get(configured);
+        String catalinaBase = System.getProperty("catalina.base");
+        if (catalinaBase != null) return Paths.get(catalinaBase, "logs");
+        return Paths.get(System.getProperty("user.home"), ".mlvisio", "logs");
+    }
+
+    void enqueue(Event event) {
+        if (!running) {
+            if (stopped) {
+                dropped.incrementAndGet();
+                return;
+            }
+            start();
+        }
+        if (!queue.offer(event)) dropped.incrementAndGet();
+    }
+
+    /** Events discarded because the queue was full. */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /** Stops the writer after draining what is already queued, and removes its shutdown hook. */
+    public void shutdown() {
+        Thread hook;
+        synchronized (this) {
+            stopped = true;
+            hook = shutdownHook;
+            shutdownHook = null;
+        }
+        if (hook != null) {
+            try {
+                Runtime.getRuntime().removeShutdownHook(hook);
+            } catch (IllegalStateException e) {
+                // The JVM is already shutting down and runs the hook itself
+            }
+        }
+        drain();
+    }
+
+    private void drain() {
+        Thread thread;
+        synchronized (this) {
+            if (!running) return;
+            running = false;
+            thread = worker;
+        }
+        thread.interrupt();
+        try {
+            thread.join(2000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void drainLoop() {
+        List<Event> batch = new ArrayList<>(BATCH_SIZE);
+        StringBuilder line = new StringBuilder(256);
+        long reportedDrops = 0;
+        while (running || !queue.isEmpty()) {
+            try {
+                Event first = queue.poll(500, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+            } catch (InterruptedException e) {
+                // Shutdown: fall through and drain what is left
+            }
+            queue.drainTo(batch, BATCH_SIZE - batch.size());
+
+            try {
+                long drops = dropped.get();
+                if (drops != reportedDrops) {
+                    line.setLength(0);
+                    appendJson(line, new Event(System.currentTimeMillis(), Log.Level.WARN, "AsyncLogWriter",
+                            "async-log-writer", "Dropped " + (drops - reportedDrops) + " log events", null));
+                    write(line);
+                    reportedDrops = drops;
+                }
+                for (Event event : batch) {
+                    line.setLength(0);
+                    appendJson(line, event);
+                    write(line);
+                }
+                if (out != null) out.flush();
+            } catch (IOException e) {
+                System.err.println("⚠️ [AsyncLogWriter] Write failed: " + e.getMessage());
+                closeQuietly();
+            }
+            batch.clear();
+        }
+        closeQuietly();
+    }
+
+    private void write(StringBuilder line) throws IOException {
+        if (console) System.out.print(line);
+        if (out == null || fileBytes >= MAX_FILE_BYTES) open();
+        out.append(line);
+        // Close enough for rolling: log lines are almost entirely ASCII
+        fileBytes += line.length();
+    }
+
+    private void open() throws IOException {
+        closeQuietly();
+        Files.createDirectories(directory);
+        Path file = directory.resolve(FILE_NAME);
+        if (Files.exists(file) && Files.size(file) >= MAX_FILE_BYTES) roll(file);
+        fileBytes = Files.exists(file) ? Files.size(file) : 0;
+        out = new BufferedWriter(new OutputStreamWriter(
+                Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND),
+                StandardCharsets.UTF_8), 64 * 1024);
+    }
+
+    private void roll(Path file) throws IOException {
+        Files.deleteIfExists(directory.resolve(FILE_NAME + "." + KEEP_FILES));
+        for (int i = KEEP_FILES - 1; i >= 1; i--) {
+            Path older = directory.resolve(FILE_NAME + "." + i);
+            if (Files.exists(older)) {
+                Files.move(older, directory.resolve(FILE_NAME + "." + (i + 1)), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        Files.move(file, directory.resolve(FILE_NAME + ".1"), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private void closeQuietly() {
+        if (out == null) return;
+        try {
+            out.close();
+        } catch (IOException ignored) {
+        }
+        out = null;
+    }
+
+    // {"ts":"…","level":"INFO","logger":"…","thread":"…","msg":"…"[,"error":"…"]}
+    private static void appendJson(StringBuilder sb, Event event) {
+        sb.append("{\"ts\":\"").append(Instant.ofEpochMilli(event.timestamp)).append('"');
+        sb.append(",\"level\":\"").append(event.level).append('"');
+        sb.append(",\"logger\":");
+        appendString(sb, event.logger);
+        sb.append(",\"thread\":");
+        appendString(sb, event.thread);
+        sb.append(",\"msg\":");
+        appendString(sb, event.message);
+        if (event.error != null) {
+            StringWriter trace = new StringWriter();
+            event.error.printStackTrace(new PrintWriter(trace));
+            sb.append(",\"error\":");
+            appendString(sb, trace.toString());
+        }
+        sb.append("}\n");
+    }
+
+    /**
+     * Renders {@code message} with its "{}" placeholders filled from the first
+     * {@code argCount} of {@code a}, {@code b}, {@code c}. A trailing Throwable
+     * without a placeholder of its own is left out; see {@link #error}.
+     */
+    static String format(String message, int argCount, Object a, Object b, Object c) {
+        if (message == null) return "";
+        int args = error(message, argCount, a, b, c) != null ? argCount - 1 : argCount;
+        if (args == 0) return message;
+        StringBuilder sb = new StringBuilder(message.length() + 32);
+        int argIndex = 0;
+        for (int i = 0; i < message.length(); i++) {
+            char ch = message.charAt(i);
+            if (ch == '{' && i + 1 < message.length() && message.charAt(i + 1) == '}' && argIndex < args) {
+                Object arg = argIndex == 0 ? a : argIndex == 1 ? b : c;
+                sb.append(arg);
+                argIndex++;
+                i++;
+            } else {
+                sb.append(ch);
+            }
+        }
+        return sb.toString();
+    }
+
+    /** The trailing Throwable argument that has no placeholder of its own, or null. */
+    static Throwable error(String message, int argCount, Object a, Object b, Object c) {
+        if (argCount == 0 || argCount <= countPlaceholders(message)) return null;
+        Object last = argCount == 1 ? a : argCount == 2 ? b : c;
+        return last instanceof Throwable ? (Throwable) last : null;
+    }
+
+    private static int countPlaceholders(String message) {
+        if (message == null) return 0;
+        int count = 0;
+        for (int i = message.indexOf("{}"); i >= 0; i = message.indexOf("{}", i + 2)) count++;
+        return count;
+    }
+
+    private static void appendString(StringBuilder sb, String value) {
+        sb.append('"');
+        escape(sb, value == null ? "" : value);
+        sb.append('"');
+    }
+
+    private static void escape(StringBuilder sb, String value) {
+        for (int i = 0; i < value.length(); i++) escape(sb, value.charAt(i));
+    }
+
+    private static void escape(StringBuilder sb, char ch) {
+        switch (ch) {
+            case '"': sb.append("\\\""); break;
+            case '\\': sb.append("\\\\"); break;
+            case '\n': sb.append("\\n"); break;
+            case '\r': sb.append("\\r"); break;
+            case '\t': sb.append("\\t"); break;
+            default:
+                if (ch < 0x20) {
+                    sb.append(String.format("\\u%04x", (int) ch));
+                } else {
+                    sb.append(ch);
+                }
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.mlvisio.util;
+
+/**
+ * Reads a setting from a `-D` system property, falling back to an
+ * environment variable and then to a default. An empty value counts as
+ * unset, so `-Dmlvisio.x=` does not hide `MLVISIO_X`.
+ */
+public final class Config {
+
+    private Config() {
+    }
+
+    public static String get(String property, String env, String defaultValue) {
+        String value = System.getProperty(property);
+        if (value == null || value.isEmpty()) value = System.getenv(env);
+        return value == null || value.isEmpty() ? defaultValue : value;
+    }
+}
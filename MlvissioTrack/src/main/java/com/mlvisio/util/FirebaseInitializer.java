@@ -1,12 +1,18 @@
 package com.mlvisio.util;
 
 import com.google.auth.oauth2.GoogleCredentials;
+import com.google.auth.oauth2.ServiceAccountCredentials;
+import com.google.cloud.firestore.FirestoreOptions;
 import com.google.firebase.FirebaseApp;
 import com.google.firebase.FirebaseOptions;
+import com.mlvisio.services.FirestoreMeter;
 
 import java.io.InputStream;
+import java.util.Collections;
 
 public class FirebaseInitializer {
+    private static final Log log = Log.get(FirebaseInitializer.class);
+
     private static boolean initialized = false;
 
     public static synchronized void initialize() {
@@ -18,25 +24,37 @@ public class FirebaseInitializer {
                     .getResourceAsStream("serviceAccountKey.json");
 
             if (serviceAccount == null) {
-                throw new RuntimeException("❌ serviceAccountKey.json not found in classpath.");
+                throw new RuntimeException("serviceAccountKey.json not found in classpath");
+            }
+
+            GoogleCredentials credentials = GoogleCredentials.fromStream(serviceAccount);
+
+            // Same channel FirestoreClient would build, plus the per-request read/write meter
+            FirestoreOptions.Builder firestoreOptions = FirestoreOptions.newBuilder()
+                    .setCredentials(credentials)
+                    .setChannelProvider(FirestoreOptions.getDefaultTransportChannelProviderBuilder()
+                            .setInterceptorProvider(() -> Collections.singletonList(FirestoreMeter.getInstance()))
+                            .build());
+            if (credentials instanceof ServiceAccountCredentials) {
+                firestoreOptions.setProjectId(((ServiceAccountCredentials) credentials).getProjectId());
             }
 
             FirebaseOptions options = FirebaseOptions.builder()
-                    .setCredentials(GoogleCredentials.fromStream(serviceAccount))
+                    .setCredentials(credentials)
+                    .setFirestoreOptions(firestoreOptions.build())
                     .build();
 
             if (FirebaseApp.getApps().isEmpty()) {
                 FirebaseApp.initializeApp(options);
-                System.out.println("✅ Firebase Initialized");
+                log.info("Firebase initialized");
             } else {
-                System.out.println("⚠️ Firebase already initialized");
+                log.warn("Firebase already initialized");
             }
 
             initialized = true;
 
         } catch (Exception e) {
-            System.err.println("❌ Firebase initialization failed:");
-            e.printStackTrace();
+            log.error("Firebase initialization failed", e);
         }
     }
 }
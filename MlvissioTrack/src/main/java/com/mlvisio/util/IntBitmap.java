@@ -0,0 +1,301 @@
+package com.mlvisio.util;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * A compressed set of non-negative ints, laid out like a Roaring bitmap: the
+ * high 16 bits of a value pick a container and the low 16 bits go into it. A
+ * container holds a sorted array of up to 4096 values, or a 1024-word bitset
+ * once it has more, so a sparse set costs two bytes a value and a dense one
+ * a bit a value. {@link #and}, {@link #or} and {@link #andNot} return new
+ * bitmaps and leave their operands alone.
+ *
+ * Not thread-safe; callers guard shared bitmaps themselves.
+ */
+public final class IntBitmap {
+
+    // An array container past this many values is larger than a bitset
+    private static final int ARRAY_MAX = 4096;
+    private static final int WORDS = 1024;
+
+    private char[] keys = new char[0];
+    private Object[] containers = new Object[0];
+    private int size;
+
+    public void add(int value) {
+        char key = (char) (value >>> 16);
+        int index = find(key);
+        if (index < 0) {
+            index = -index - 1;
+            insert(index, key, new Container());
+        }
+        ((Container) containers[index]).add((char) value);
+    }
+
+    public void remove(int value) {
+        int index = find((char) (value >>> 16));
+        if (index < 0) return;
+        Container container = (Container) containers[index];
+        container.remove((char) value);
+        if (container.cardinality == 0) delete(index);
+    }
+
+    public boolean contains(int value) {
+        int index = find((char) (value >>> 16));
+        return index >= 0 && ((Container) containers[index]).contains((char) value);
+    }
+
+    public int cardinality() {
+        int cardinality = 0;
+        for (int i = 0; i < size; i++) cardinality += ((Container) containers[i]).cardinality;
+        return cardinality;
+    }
+
+    /** Calls {@code action} with every value, in ascending order. */
+    public void forEach(IntConsumer action) {
+        for (int i = 0; i < size; i++) ((Container) containers[i]).forEach(keys[i] << 16, action);
+    }
+
+    public IntBitmap and(IntBitmap other) {
+        IntBitmap result = new IntBitmap();
+        for (int i = 0, j = 0; i < size && j < other.size; ) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                Container container = ((Container) containers[i]).and((Container) other.containers[j]);
+                if (container.cardinality > 0) result.append(keys[i], container);
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    public IntBitmap or(IntBitmap other) {
+        IntBitmap result = new IntBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < size || j < other.size) {
+            if (j == other.size || (i < size && keys[i] < other.keys[j])) {
+                result.append(keys[i], ((Container) containers[i++]).copy());
+            } else if (i == size || keys[i] > other.keys[j]) {
+                result.append(other.keys[j], ((Container) other.containers[j++]).copy());
+            } else {
+                result.append(keys[i], ((Container) containers[i++]).or((Container) other.containers[j++]));
+            }
+        }
+        return result;
+    }
+
+    /** The values in this bitmap and not in {@code other}. */
+    public IntBitmap andNot(IntBitmap other) {
+        IntBitmap result = new IntBitmap();
+        for (int i = 0; i < size; i++) {
+            int j = other.find(keys[i]);
+            Container container = j < 0
+                    ? ((Container) containers[i]).copy()
+                    : ((Container) containers[i]).andNot((Container) other.containers[j]);
+            if (container.cardinality > 0) result.append(keys[i], container);
+        }
+        return result;
+    }
+
+    private int find(char key) {
+        return Arrays.binarySearch(keys, 0, size, key);
+    }
+
+    private void insert(int index, char key, Container container) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, Math.max(4, size * 2));
+            containers = Arrays.copyOf(containers, keys.length);
+        }
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(containers, index, containers, index + 1, size - index);
+        keys[index] = key;
+        containers[index] = container;
+        size++;
+    }
+
+    private void append(char key, Container container) {
+        insert(size, key, container);
+    }
+
+    private void delete(int index) {
+        System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+        System.arraycopy(containers, index + 1, containers, index, size - index - 1);
+        containers[--size] = null;
+    }
+
+    /** The low 16 bits of one container's values: a sorted array, or a bitset when {@code words} is set. */
+    private static final class Container {
+        char[] values = new char[4];
+        long[] words;
+        int cardinality;
+
+        boolean contains(char value) {
+            if (words != null) return (words[value >>> 6] & (1L << value)) != 0;
+            return Arrays.binarySearch(values, 0, cardinality, value) >= 0;
+        }
+
+        void add(char value) {
+            if (words != null) {
+                long bit = 1L << value;
+                if ((words[value >>> 6] & bit) == 0) {
+                    words[value >>> 6] |= bit;
+                    cardinality++;
+                }
+                return;
+            }
+            int index = Arrays.binarySearch(values, 0, cardinality, value);
+            if (index >= 0) return;
+            if (cardinality == ARRAY_MAX) {
+                toBitset();
+                add(value);
+                return;
+            }
+            index = -index - 1;
+            if (cardinality == values.length) values = Arrays.copyOf(values, Math.min(ARRAY_MAX, cardinality * 2));
+            System.arraycopy(values, index, values, index + 1, cardinality - index);
+            values[index] = value;
+            cardinality++;
+        }
+
+        void remove(char value) {
+            if (words != null) {
+                long bit = 1L << value;
+                if ((words[value >>> 6] & bit) != 0) {
+                    words[value >>> 6] &= ~bit;
+                    if (--cardinality <= ARRAY_MAX) toArray();
+                }
+                return;
+            }
+            int index = Arrays.binarySearch(values, 0, cardinality, value);
+            if (index < 0) return;
+            System.arraycopy(values, index + 1, values, index, cardinality - index - 1);
+            cardinality--;
+        }
+
+        void forEach(int high, IntConsumer action) {
+            if (words == null) {
+                for (int i = 0; i < cardinality; i++) action.accept(high | values[i]);
+                return;
+            }
+            for (int w = 0; w < WORDS; w++) {
+                for (long word = words[w]; word != 0; word &= word - 1) {
+                    action.accept(high | (w << 6) | Long.numberOfTrailingZeros(word));
+                }
+            }
+        }
+
+        Container copy() {
+            Container copy = new Container();
+            copy.cardinality = cardinality;
+            if (words != null) {
+                copy.words = words.clone();
+                copy.values = null;
+            } else {
+                copy.values = Arrays.copyOf(values, Math.max(4, cardinality));
+            }
+            return copy;
+        }
+
+        Container and(Container other) {
+            if (words != null && other.words != null) {
+                long[] result = new long[WORDS];
+                for (int w = 0; w < WORDS; w++) result[w] = words[w] & other.words[w];
+                return fromWords(result);
+            }
+            Container small = words == null ? this : other;
+            Container large = small == this ? other : this;
+            Container result = new Container();
+            result.values = new char[Math.max(4, small.cardinality)];
+            for (int i = 0; i < small.cardinality; i++) {
+                if (large.contains(small.values[i])) result.values[result.cardinality++] = small.values[i];
+            }
+            return result;
+        }
+
+        Container or(Container other) {
+            if (words == null && other.words == null && cardinality + other.cardinality <= ARRAY_MAX) {
+                Container result = new Container();
+                result.values = new char[Math.max(4, cardinality + other.cardinality)];
+                int i = 0;
+                int j = 0;
+                while (i < cardinality || j < other.cardinality) {
+                    char next;
+                    if (j == other.cardinality || (i < cardinality && values[i] < other.values[j])) {
+                        next = values[i++];
+                    } else if (i == cardinality || values[i] > other.values[j]) {
+                        next = other.values[j++];
+                    } else {
+                        next = values[i++];
+                        j++;
+                    }
+                    result.values[result.cardinality++] = next;
+                }
+                return result;
+            }
+            long[] result = bits();
+            if (other.words != null) {
+                for (int w = 0; w < WORDS; w++) result[w] |= other.words[w];
+            } else {
+                for (int i = 0; i < other.cardinality; i++) result[other.values[i] >>> 6] |= 1L << other.values[i];
+            }
+            return fromWords(result);
+        }
+
+        Container andNot(Container other) {
+            if (words == null) {
+                Container result = new Container();
+                result.values = new char[Math.max(4, cardinality)];
+                for (int i = 0; i < cardinality; i++) {
+                    if (!other.contains(values[i])) result.values[result.cardinality++] = values[i];
+                }
+                return result;
+            }
+            long[] result = words.clone();
+            if (other.words != null) {
+                for (int w = 0; w < WORDS; w++) result[w] &= ~other.words[w];
+            } else {
+                for (int i = 0; i < other.cardinality; i++) result[other.values[i] >>> 6] &= ~(1L << other.values[i]);
+            }
+            return fromWords(result);
+        }
+
+        private long[] bits() {
+            if (words != null) return words.clone();
+            long[] bits = new long[WORDS];
+            for (int i = 0; i < cardinality; i++) bits[values[i] >>> 6] |= 1L << values[i];
+            return bits;
+        }
+
+        private void toBitset() {
+            words = bits();
+            values = null;
+        }
+
+        private void toArray() {
+            char[] array = new char[Math.max(4, cardinality)];
+            int n = 0;
+            for (int w = 0; w < WORDS; w++) {
+                for (long word = words[w]; word != 0; word &= word - 1) {
+                    array[n++] = (char) ((w << 6) | Long.numberOfTrailingZeros(word));
+                }
+            }
+            values = array;
+            words = null;
+        }
+
+        private static Container fromWords(long[] words) {
+            Container container = new Container();
+            container.words = words;
+            container.values = null;
+            for (long word : words) container.cardinality += Long.bitCount(word);
+            if (container.cardinality <= ARRAY_MAX) container.toArray();
+            return container;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.mlvisio.util;
+
+import java.util.Locale;
+
+/**
+ * Level-gated logger that hands events to {@link AsyncLogWriter}. Messages
+ * use SLF4J-style "{}" placeholders. A disabled level costs one comparison;
+ * an enabled one renders the message on the calling thread, so arguments
+ * changed after the call cannot race the writer, and queues it for the
+ * writer thread to encode and write. A trailing Throwable argument is logged
+ * with its stack.
+ *
+ * The threshold comes from `-Dmlvisio.logLevel` or `MLVISIO_LOG_LEVEL`
+ * (DEBUG, INFO, WARN, ERROR; default INFO).
+ */
+public final class Log {
+
+    public enum Level { DEBUG, INFO, WARN, ERROR }
+
+    private static volatile Level threshold = parseLevel(
+            Config.get("mlvisio.logLevel", "MLVISIO_LOG_LEVEL", null));
+
+    private final String name;
+
+    private Log(String name) {
+        this.name = name;
+    }
+
+    public static Log get(Class<?> type) {
+        return new Log(type.getSimpleName());
+    }
+
+    public static void setThreshold(Level level) {
+        threshold = level;
+    }
+
+    public boolean isDebugEnabled() {
+        return threshold == Level.DEBUG;
+    }
+
+    public boolean isEnabled(Level level) {
+        return level.compareTo(threshold) >= 0;
+    }
+
+    public void debug(String message) { log(Level.DEBUG, 0, message, null, null, null); }
+    public void debug(String message, Object a) { log(Level.DEBUG, 1, message, a, null, null); }
+    public void debug(String message, Object a, Object b) { log(Level.DEBUG, 2, message, a, b, null); }
+    public void debug(String message, Object a, Object b, Object c) { log(Level.DEBUG, 3, message, a, b, c); }
+
+    public void info(String message) { log(Level.INFO, 0, message, null, null, null); }
+    public void info(String message, Object a) { log(Level.INFO, 1, message, a, null, null); }
+    public void info(String message, Object a, Object b) { log(Level.INFO, 2, message, a, b, null); }
+    public void info(String message, Object a, Object b, Object c) { log(Level.INFO, 3, message, a, b, c); }
+
+    public void warn(String message) { log(Level.WARN, 0, message, null, null, null); }
+    public void warn(String message, Object a) { log(Level.WARN, 1, message, a, null, null); }
+    public void warn(String message, Object a, Object b) { log(Level.WARN, 2, message, a, b, null); }
+    public void warn(String message, Object a, Object b, Object c) { log(Level.WARN, 3, message, a, b, c); }
+
+    public void error(String message) { log(Level.ERROR, 0, message, null, null, null); }
+    public void error(String message, Object a) { log(Level.ERROR, 1, message, a, null, null); }
+    public void error(String message, Object a, Object b) { log(Level.ERROR, 2, message, a, b, null); }
+    public void error(String message, Object a, Object b, Object c) { log(Level.ERROR, 3, message, a, b, c); }
+
+    private void log(Level level, int argCount, String message, Object a, Object b, Object c) {
+        if (level.compareTo(threshold) < 0) return;
+        AsyncLogWriter.getInstance().enqueue(new AsyncLogWriter.Event(
+                System.currentTimeMillis(), level, name, Thread.currentThread().getName(),
+                AsyncLogWriter.format(message, argCount, a, b, c), AsyncLogWriter.error(message, argCount, a, b, c)));
+    }
+
+    private static Level parseLevel(String value) {
+        if (value == null || value.isEmpty()) return Level.INFO;
+        try {
+            return Level.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return Level.INFO;
+        }
+    }
+}
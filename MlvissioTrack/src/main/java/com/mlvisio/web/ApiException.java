@@ -0,0 +1,22 @@
+package com.mlvisio.web;
+
+/**
+ * Ends a request with an HTTP status and a `{success: false, message}` body,
+ * written by {@link ErrorMiddleware}. Handlers throw it instead of building
+ * error responses themselves.
+ */
+public class ApiException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int status;
+
+    public ApiException(int status, String message) {
+        super(message);
+        this.status = status;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+}
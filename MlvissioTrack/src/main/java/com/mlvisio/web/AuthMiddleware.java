@@ -0,0 +1,40 @@
+package com.mlvisio.web;
+
+import com.mlvisio.services.AuthTokens;
+import com.mlvisio.util.Config;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Resolves the `Authorization: Bearer` token issued at login into
+ * {@link Exchange#getUser()}. With `-Dmlvisio.auth.required=true`
+ * (`MLVISIO_AUTH_REQUIRED`) requests to routes that are not public are
+ * refused with 401 unless their token is valid; by default they are let
+ * through, as clients holding tokens from before signed tokens existed
+ * would otherwise be locked out.
+ */
+public final class AuthMiddleware implements Middleware {
+
+    private static final String BEARER = "Bearer ";
+
+    private final boolean required;
+
+    public AuthMiddleware() {
+        this.required = Boolean.parseBoolean(Config.get("mlvisio.auth.required", "MLVISIO_AUTH_REQUIRED", "false"));
+    }
+
+    @Override
+    public void handle(Exchange exchange, Handler next) throws Exception {
+        String header = exchange.getRequest().getHeader("Authorization");
+        AuthTokens.Claims user = null;
+        if (header != null && header.regionMatches(true, 0, BEARER, 0, BEARER.length())) {
+            user = AuthTokens.getInstance().verify(header.substring(BEARER.length()).trim());
+        }
+        if (user != null) {
+            exchange.setUser(user);
+        } else if (required && !exchange.getRoute().isPublicAccess()) {
+            exchange.getResponse().setHeader("WWW-Authenticate", "Bearer");
+            throw new ApiException(HttpServletResponse.SC_UNAUTHORIZED, "Sign-in required");
+        }
+        next.handle(exchange);
+    }
+}
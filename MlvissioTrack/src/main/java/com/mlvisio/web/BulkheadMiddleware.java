@@ -0,0 +1,27 @@
+package com.mlvisio.web;
+
+import com.mlvisio.services.Bulkheads;
+import com.mlvisio.util.Log;
+import jakarta.servlet.http.HttpServletResponse;
+
+/** Holds a permit from the route's bulkhead while the handler runs; see {@link Bulkheads}. */
+public final class BulkheadMiddleware implements Middleware {
+
+    private static final Log log = Log.get(BulkheadMiddleware.class);
+
+    @Override
+    public void handle(Exchange exchange, Handler next) throws Exception {
+        Bulkheads.Bulkhead bulkhead = exchange.getRoute().getBulkhead();
+        if (!bulkhead.acquire(Bulkheads.getInstance().getMaxWaitMillis())) {
+            log.warn("Bulkhead {} full, rejecting {} {}", bulkhead.getName(), exchange.getRequest().getMethod(),
+                    exchange.getRequest().getRequestURI());
+            exchange.getResponse().setHeader("Retry-After", "1");
+            throw new ApiException(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Server busy, please retry");
+        }
+        try {
+            next.handle(exchange);
+        } finally {
+            bulkhead.release();
+        }
+    }
+}
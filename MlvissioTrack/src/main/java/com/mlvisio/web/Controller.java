@@ -0,0 +1,14 @@
+package com.mlvisio.web;
+
+/**
+ * A group of related API routes. The front controller creates each
+ * controller once, lets it add its routes, and calls {@link #destroy} when
+ * the application stops.
+ */
+public interface Controller {
+
+    void register(RouteTable.Builder routes);
+
+    default void destroy() {
+    }
+}
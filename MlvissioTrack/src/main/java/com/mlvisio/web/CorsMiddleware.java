@@ -0,0 +1,27 @@
+package com.mlvisio.web;
+
+import jakarta.servlet.http.HttpServletResponse;
+
+/** Adds the CORS headers the React frontend needs to every API response. */
+public final class CorsMiddleware implements Middleware {
+
+    public static void apply(HttpServletResponse response) {
+        response.setHeader("Access-Control-Allow-Origin", "*");
+        response.setHeader("Access-Control-Allow-Methods", "GET, POST, PUT, DELETE, OPTIONS");
+        response.setHeader("Access-Control-Allow-Headers", "Origin, X-Requested-With, Content-Type, Accept, Authorization");
+        response.setHeader("Access-Control-Allow-Credentials", "true");
+        response.setHeader("Access-Control-Max-Age", "3600");
+    }
+
+    /** Answers a preflight OPTIONS request. */
+    public static void preflight(HttpServletResponse response) {
+        apply(response);
+        response.setStatus(HttpServletResponse.SC_OK);
+    }
+
+    @Override
+    public void handle(Exchange exchange, Handler next) throws Exception {
+        apply(exchange.getResponse());
+        next.handle(exchange);
+    }
+}
@@ -0,0 +1,47 @@
+package com.mlvisio.web;
+
+import com.mlvisio.json.ApiResponse;
+import com.mlvisio.json.Json;
+import com.mlvisio.util.Log;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Turns an {@link ApiException} into its status and error body, and any
+ * other exception into a 500, so handlers need no catch-all of their own.
+ */
+public final class ErrorMiddleware implements Middleware {
+
+    private static final Log log = Log.get(ErrorMiddleware.class);
+
+    @Override
+    public void handle(Exchange exchange, Handler next) throws Exception {
+        try {
+            next.handle(exchange);
+        } catch (ApiException e) {
+            write(exchange, e.getStatus(), ApiResponse.error(e.getMessage()));
+        } catch (Exception e) {
+            log.error("{} {} failed", exchange.getRequest().getMethod(), exchange.getRequest().getRequestURI(), e);
+            write(exchange, HttpServletResponse.SC_INTERNAL_SERVER_ERROR,
+                    ApiResponse.error("Failed to process request: " + e.getMessage()).error(e));
+        }
+    }
+
+    private static void write(Exchange exchange, int status, ApiResponse body) {
+        HttpServletResponse response = exchange.getResponse();
+        if (response.isCommitted()) {
+            log.warn("Response to {} already committed, dropping error: {}", exchange.getRequest().getRequestURI(),
+                    body.getMessage());
+            return;
+        }
+        try {
+            response.resetBuffer();
+            response.setStatus(status);
+            response.setContentType("application/json");
+            response.setCharacterEncoding("UTF-8");
+            Json.write(response, body);
+        } catch (Exception e) {
+            // The handler took the writer rather than the stream
+            log.warn("Could not write error response for {}: {}", exchange.getRequest().getRequestURI(), e.getMessage());
+        }
+    }
+}
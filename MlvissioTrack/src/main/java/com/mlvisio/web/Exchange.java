@@ -0,0 +1,89 @@
+package com.mlvisio.web;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.mlvisio.json.ApiResponse;
+import com.mlvisio.json.Json;
+import com.mlvisio.services.AuthTokens;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * One API request as it passes through the middleware chain: the servlet
+ * request and response, the route it matched and that route's path
+ * parameters. Middleware may wrap the response; handlers should read it
+ * through {@link #getResponse()} when they run rather than capture it
+ * earlier.
+ */
+public final class Exchange {
+
+    private final HttpServletRequest request;
+    private HttpServletResponse response;
+    private final Route route;
+    private final String[] params;
+    private AuthTokens.Claims user;
+
+    Exchange(HttpServletRequest request, HttpServletResponse response, RouteTable.Match match) {
+        this.request = request;
+        this.response = response;
+        this.route = match.route;
+        this.params = match.params;
+    }
+
+    public HttpServletRequest getRequest() {
+        return request;
+    }
+
+    public HttpServletResponse getResponse() {
+        return response;
+    }
+
+    void setResponse(HttpServletResponse response) {
+        this.response = response;
+    }
+
+    public Route getRoute() {
+        return route;
+    }
+
+    /** The value of a "{name}" segment of the route template. */
+    public String getParam(String name) {
+        int index = route.indexOf(name);
+        if (index < 0) throw new IllegalArgumentException("Route " + route.getTemplate() + " has no {" + name + "}");
+        return params[index];
+    }
+
+    /** A query or form parameter. */
+    public String getQuery(String name) {
+        return request.getParameter(name);
+    }
+
+    /** The request body parsed as a JSON object; 400 when it is not one. */
+    public Map<String, Object> readJson() throws IOException {
+        try {
+            return Json.readMap(request.getInputStream());
+        } catch (JsonProcessingException e) {
+            throw new ApiException(HttpServletResponse.SC_BAD_REQUEST, "Request body is not valid JSON");
+        }
+    }
+
+    public void send(ApiResponse body) throws IOException {
+        Json.write(response, body);
+    }
+
+    public void send(int status, ApiResponse body) throws IOException {
+        response.setStatus(status);
+        Json.write(response, body);
+    }
+
+    /** The signed-in user, or null when the request carried no valid token. */
+    public AuthTokens.Claims getUser() {
+        return user;
+    }
+
+    void setUser(AuthTokens.Claims user) {
+        this.user = user;
+    }
+}
@@ -0,0 +1,8 @@
+package com.mlvisio.web;
+
+/** Handles one routed API request. */
+@FunctionalInterface
+public interface Handler {
+
+    void handle(Exchange exchange) throws Exception;
+}
@@ -0,0 +1,42 @@
+package com.mlvisio.web;
+
+import com.mlvisio.filters.FirestoreTimingResponse;
+import com.mlvisio.services.FirestoreMeter;
+import com.mlvisio.services.RouteMetrics;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Times each request into {@link RouteMetrics} under its route template and
+ * books its Firestore reads and writes through {@link FirestoreMeter}, adding
+ * the `Server-Timing` header when the body starts.
+ */
+public final class MetricsMiddleware implements Middleware {
+
+    @Override
+    public void handle(Exchange exchange, Handler next) throws Exception {
+        Route route = exchange.getRoute();
+        if (!route.isMetered()) {
+            next.handle(exchange);
+            return;
+        }
+
+        String method = exchange.getRequest().getMethod();
+        RouteMetrics.Route metrics = RouteMetrics.getInstance().route(method, route.getTemplate());
+        FirestoreMeter.RequestCost cost = FirestoreMeter.getInstance().begin(method + " " + route.getTemplate());
+        HttpServletResponse response = exchange.getResponse();
+        FirestoreTimingResponse timed = new FirestoreTimingResponse(response, cost);
+        exchange.setResponse(timed);
+
+        long start = System.nanoTime();
+        metrics.start();
+        int status = 0;
+        try {
+            next.handle(exchange);
+            timed.addFirestoreHeaders();
+            status = response.getStatus();
+        } finally {
+            metrics.finish(start, status);
+            FirestoreMeter.getInstance().end(cost);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.mlvisio.web;
+
+/**
+ * One step of the request chain. It runs around {@code next}, which is the
+ * rest of the chain ending in the route's handler, and may also answer
+ * without calling it. The chain for each route is put together once, when
+ * the route table is built.
+ */
+@FunctionalInterface
+public interface Middleware {
+
+    void handle(Exchange exchange, Handler next) throws Exception;
+}
@@ -0,0 +1,59 @@
+package com.mlvisio.web;
+
+import com.mlvisio.services.Bulkheads;
+
+/**
+ * A compiled route: its template, the options it was registered with and
+ * the handler already wrapped in the middleware chain. Everything a request
+ * needs from its route is resolved here once, when the table is built.
+ */
+public final class Route {
+
+    private final String method;
+    private final String template;
+    private final String[] paramNames;
+    private final boolean publicAccess;
+    private final boolean metered;
+    private final Bulkheads.Bulkhead bulkhead;
+    Handler chain;
+
+    Route(String method, String template, String[] paramNames, boolean publicAccess, boolean metered) {
+        this.method = method;
+        this.template = template;
+        this.paramNames = paramNames;
+        this.publicAccess = publicAccess;
+        this.metered = metered;
+        this.bulkhead = Bulkheads.getInstance().forRoute(template);
+    }
+
+    /** The HTTP method, or "*" for the fallback routes that answer 404 and 405. */
+    public String getMethod() {
+        return method;
+    }
+
+    /** The path below /api as registered, e.g. "/users/profile/{id}"; also the metrics label. */
+    public String getTemplate() {
+        return template;
+    }
+
+    /** Whether the route is served without a signed-in user. */
+    public boolean isPublicAccess() {
+        return publicAccess;
+    }
+
+    /** Whether requests are counted in the route and Firestore metrics. */
+    public boolean isMetered() {
+        return metered;
+    }
+
+    public Bulkheads.Bulkhead getBulkhead() {
+        return bulkhead;
+    }
+
+    int indexOf(String paramName) {
+        for (int i = 0; i < paramNames.length; i++) {
+            if (paramNames[i].equals(paramName)) return i;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,248 @@
+package com.mlvisio.web;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+
+/**
+ * The API's routes as a trie of path segments. A segment is either a
+ * literal ("users") or a parameter ("{id}"); literals are tried first, so
+ * "/schedule/week" wins over "/schedule/{id}". Matching walks the request
+ * path once without regular expressions, and the handler it finds is
+ * already wrapped in the middleware chain.
+ *
+ * A path with no route is answered by a 404 route, and a known path with
+ * the wrong method by a 405 route naming the allowed methods. Both run
+ * through the same chain, so they get CORS headers and the JSON error body.
+ */
+public final class RouteTable {
+
+    private static final String[] NO_PARAMS = new String[0];
+
+    private static final class Node {
+        Map<String, Node> literals;
+        Node param;
+        String paramName;
+        Map<String, Route> routes;
+        Route notAllowed;
+    }
+
+    /** The route a request resolved to and its path parameter values. */
+    public static final class Match {
+        final Route route;
+        final String[] params;
+
+        Match(Route route, String[] params) {
+            this.route = route;
+            this.params = params;
+        }
+
+        public Route getRoute() {
+            return route;
+        }
+
+        /** Runs the route's middleware chain and handler for this request. */
+        public void dispatch(HttpServletRequest request, HttpServletResponse response) throws Exception {
+            route.chain.handle(new Exchange(request, response, this));
+        }
+    }
+
+    private final Node root;
+    private final int maxParams;
+    private final Match notFound;
+    private final List<Route> routes;
+
+    private RouteTable(Node root, int maxParams, Route notFound, List<Route> routes) {
+        this.root = root;
+        this.maxParams = maxParams;
+        this.notFound = new Match(notFound, NO_PARAMS);
+        this.routes = routes;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /** Resolves a path below /api ("/users/profile/abc") for a method; never returns null. */
+    public Match match(String method, String path) {
+        String[] values = maxParams == 0 ? NO_PARAMS : new String[maxParams];
+        Node node = find(root, path == null ? "" : path, 0, values, 0);
+        if (node == null) return notFound;
+        Route route = node.routes.get(method);
+        return route != null ? new Match(route, values) : new Match(node.notAllowed, NO_PARAMS);
+    }
+
+    /** The registered routes in registration order. */
+    public List<Route> getRoutes() {
+        return routes;
+    }
+
+    private static Node find(Node node, String path, int from, String[] values, int depth) {
+        int length = path.length();
+        while (from < length && path.charAt(from) == '/') from++;
+        if (from == length) return node.routes != null ? node : null;
+
+        int end = path.indexOf('/', from);
+        if (end < 0) end = length;
+        if (node.literals != null) {
+            Node child = node.literals.get(path.substring(from, end));
+            if (child != null) {
+                Node found = find(child, path, end, values, depth);
+                if (found != null) return found;
+            }
+        }
+        if (node.param != null) {
+            values[depth] = path.substring(from, end);
+            return find(node.param, path, end, values, depth + 1);
+        }
+        return null;
+    }
+
+    /** Options for one registered route. */
+    public static final class Spec {
+        final String method;
+        final String template;
+        final Handler handler;
+        boolean publicAccess;
+        boolean metered = true;
+
+        Spec(String method, String template, Handler handler) {
+            this.method = method;
+            this.template = template;
+            this.handler = handler;
+        }
+
+        /** Serve the route without a signed-in user (login, images, metrics). */
+        public Spec publicAccess() {
+            publicAccess = true;
+            return this;
+        }
+
+        /** Leave the route out of the request and Firestore metrics. */
+        public Spec unmetered() {
+            metered = false;
+            return this;
+        }
+    }
+
+    public static final class Builder {
+
+        private final List<Spec> specs = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        public Spec get(String template, Handler handler) {
+            return add("GET", template, handler);
+        }
+
+        public Spec head(String template, Handler handler) {
+            return add("HEAD", template, handler);
+        }
+
+        public Spec post(String template, Handler handler) {
+            return add("POST", template, handler);
+        }
+
+        public Spec put(String template, Handler handler) {
+            return add("PUT", template, handler);
+        }
+
+        public Spec delete(String template, Handler handler) {
+            return add("DELETE", template, handler);
+        }
+
+        public Spec add(String method, String template, Handler handler) {
+            Spec spec = new Spec(method, template, handler);
+            specs.add(spec);
+            return spec;
+        }
+
+        /**
+         * Builds the trie and wraps every handler in {@code chain}, first
+         * middleware outermost.
+         */
+        public RouteTable build(List<Middleware> chain) {
+            Node root = new Node();
+            int maxParams = 0;
+            List<Route> routes = new ArrayList<>(specs.size());
+            List<Node> terminals = new ArrayList<>();
+
+            for (Spec spec : specs) {
+                Node node = root;
+                List<String> paramNames = new ArrayList<>();
+                for (String segment : spec.template.split("/")) {
+                    if (segment.isEmpty()) continue;
+                    if (segment.startsWith("{") && segment.endsWith("}")) {
+                        String name = segment.substring(1, segment.length() - 1);
+                        if (node.param == null) {
+                            node.param = new Node();
+                            node.paramName = name;
+                        } else if (!node.paramName.equals(name)) {
+                            throw new IllegalStateException("Route " + spec.template + " names parameter {" + name
+                                    + "} where another route has {" + node.paramName + "}");
+                        }
+                        paramNames.add(name);
+                        node = node.param;
+                    } else {
+                        if (node.literals == null) node.literals = new HashMap<>();
+                        node = node.literals.computeIfAbsent(segment, s -> new Node());
+                    }
+                }
+                if (node.routes == null) {
+                    node.routes = new LinkedHashMap<>();
+                    terminals.add(node);
+                }
+                if (node.routes.containsKey(spec.method)) {
+                    throw new IllegalStateException("Duplicate route " + spec.method + " " + spec.template);
+                }
+                Route route = new Route(spec.method, spec.template, paramNames.toArray(NO_PARAMS),
+                        spec.publicAccess, spec.metered);
+                route.chain = wrap(chain, spec.handler);
+                node.routes.put(spec.method, route);
+                routes.add(route);
+                maxParams = Math.max(maxParams, paramNames.size());
+            }
+
+            for (Node node : terminals) {
+                StringJoiner allowed = new StringJoiner(", ");
+                String template = null;
+                for (Route route : node.routes.values()) {
+                    allowed.add(route.getMethod());
+                    template = route.getTemplate();
+                }
+                String allow = allowed.add("OPTIONS").toString();
+                node.notAllowed = fallback(chain, template, exchange -> {
+                    exchange.getResponse().setHeader("Allow", allow);
+                    throw new ApiException(HttpServletResponse.SC_METHOD_NOT_ALLOWED, "Method not allowed");
+                });
+            }
+            Route notFound = fallback(chain, "unmatched", exchange -> {
+                throw new ApiException(HttpServletResponse.SC_NOT_FOUND, "Endpoint not found");
+            });
+            return new RouteTable(root, maxParams, notFound, List.copyOf(routes));
+        }
+
+        private static Route fallback(List<Middleware> chain, String template, Handler handler) {
+            Route route = new Route("*", template, NO_PARAMS, true, true);
+            route.chain = wrap(chain, handler);
+            return route;
+        }
+
+        private static Handler wrap(List<Middleware> chain, Handler handler) {
+            Handler wrapped = handler;
+            for (int i = chain.size() - 1; i >= 0; i--) {
+                Middleware middleware = chain.get(i);
+                Handler next = wrapped;
+                wrapped = exchange -> middleware.handle(exchange, next);
+            }
+            return wrapped;
+        }
+    }
+}
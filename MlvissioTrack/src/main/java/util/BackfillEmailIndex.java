@@ -0,0 +1,63 @@
+package util;
+
+import com.google.auth.oauth2.GoogleCredentials;
+import com.google.cloud.firestore.*;
+import com.google.firebase.FirebaseApp;
+import com.google.firebase.FirebaseOptions;
+import com.google.firebase.cloud.FirestoreClient;
+import com.mlvisio.services.EmailIndex;
+
+import java.io.InputStream;
+import java.util.*;
+
+/**
+ * One-off migration: writes an emailIndex reservation for every existing user.
+ * Emails shared by several users are reported and left unreserved.
+ */
+public class BackfillEmailIndex {
+
+    static Firestore db;
+
+    public static void main(String[] args) {
+        try {
+            InputStream serviceAccount = BackfillEmailIndex.class.getClassLoader().getResourceAsStream("serviceAccountKey.json");
+
+            if (serviceAccount == null) {
+                System.err.println("❌ serviceAccountKey.json not found.");
+                return;
+            }
+
+            FirebaseOptions options = FirebaseOptions.builder()
+                    .setCredentials(GoogleCredentials.fromStream(serviceAccount))
+                    .build();
+            FirebaseApp.initializeApp(options);
+
+            db = FirestoreClient.getFirestore();
+
+            Map<String, List<QueryDocumentSnapshot>> byEmail = new HashMap<>();
+            for (QueryDocumentSnapshot doc : db.collection("users").select("email").get().get().getDocuments()) {
+                String email = doc.getString("email");
+                if (email == null || email.trim().isEmpty()) continue;
+                byEmail.computeIfAbsent(EmailIndex.key(email), k -> new ArrayList<>()).add(doc);
+            }
+
+            int written = 0;
+            BulkWriter writer = db.bulkWriter();
+            for (Map.Entry<String, List<QueryDocumentSnapshot>> entry : byEmail.entrySet()) {
+                if (entry.getValue().size() > 1) {
+                    System.out.println("⚠️ Duplicate email " + entry.getKey() + " on " + entry.getValue().size() + " users, skipped");
+                    continue;
+                }
+                QueryDocumentSnapshot doc = entry.getValue().get(0);
+                writer.set(EmailIndex.ref(db, doc.getString("email")), EmailIndex.reservation(doc.getString("email"), doc.getId()));
+                written++;
+            }
+            writer.close();
+
+            System.out.println("\n🎉 Reserved " + written + " emails");
+
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+}
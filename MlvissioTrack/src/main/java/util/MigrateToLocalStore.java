@@ -0,0 +1,64 @@
+package util;
+
+import com.mlvisio.storage.Criteria;
+import com.mlvisio.storage.DocumentStore;
+import com.mlvisio.storage.FirestoreDocumentStore;
+import com.mlvisio.storage.LogStructuredStore;
+import com.mlvisio.storage.Document;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Copies the Firestore data into the embedded local store, so a deployment
+ * can switch to `-Dmlvisio.storage=local` with its existing data.
+ * Usage: MigrateToLocalStore [dataDir] (default ~/.mlvisio/data).
+ */
+public class MigrateToLocalStore {
+
+    private static final String[] COLLECTIONS = {
+            "users", "emailIndex", "attendance", "sessionAttendance", "schedules",
+            "lecturers", "subjects", "settings", "devices"
+    };
+    private static final String[] DEPARTMENTS = {"HNDIT", "HNDA", "HNDM", "HNDE"};
+    private static final int BATCH_SIZE = 500;
+
+    public static void main(String[] args) {
+        Path dir = args.length > 0
+                ? Paths.get(args[0])
+                : Paths.get(System.getProperty("user.home"), ".mlvisio", "data");
+        DocumentStore source = new FirestoreDocumentStore();
+        DocumentStore target = LogStructuredStore.open(dir);
+        try {
+            List<String> collections = new ArrayList<>(List.of(COLLECTIONS));
+            for (String department : DEPARTMENTS) {
+                String semesters = "courses/" + department + "/semesters";
+                collections.add(semesters);
+                for (Document semester : source.find(semesters, Criteria.all())) {
+                    collections.add(semesters + "/" + semester.getId() + "/subjects");
+                }
+            }
+
+            int total = 0;
+            for (String collection : collections) {
+                List<Document> documents = source.find(collection, Criteria.all());
+                for (int i = 0; i < documents.size(); i += BATCH_SIZE) {
+                    DocumentStore.Batch batch = target.batch();
+                    for (Document doc : documents.subList(i, Math.min(i + BATCH_SIZE, documents.size()))) {
+                        batch.set(collection, doc.getId(), doc.getData());
+                    }
+                    batch.commit().join();
+                }
+                total += documents.size();
+                System.out.println("✅ " + collection + ": " + documents.size() + " documents");
+            }
+            System.out.println("\n🎉 Copied " + total + " documents into " + dir.toAbsolutePath());
+        } catch (Exception e) {
+            e.printStackTrace();
+        } finally {
+            target.close();
+        }
+    }
+}
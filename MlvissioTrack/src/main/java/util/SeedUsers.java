@@ -7,6 +7,7 @@ import com.google.cloud.firestore.*;
 import com.google.firebase.FirebaseApp;
 import com.google.firebase.FirebaseOptions;
 import com.google.firebase.cloud.FirestoreClient;
+import com.mlvisio.services.EmailIndex;
 import org.mindrot.jbcrypt.BCrypt;
 
 import java.io.InputStream;
@@ -108,6 +109,7 @@ public class SeedUsers {
             doc.put("createdAt", Timestamp.now());
 
             db.collection("users").document(s[2]).set(doc).get();
+            EmailIndex.ref(db, s[2]).set(EmailIndex.reservation(s[2], s[2])).get();
             userMap.put(s[2], s[1]);
             System.out.println("✅ Student: " + s[0]);
         }
@@ -125,6 +127,7 @@ public class SeedUsers {
             doc.put("createdAt", Timestamp.now());
 
             db.collection("users").document(a[2]).set(doc).get();
+            EmailIndex.ref(db, a[2]).set(EmailIndex.reservation(a[2], a[2])).get();
             userMap.put(a[2], a[1]);
             System.out.println("✅ Admin: " + a[0]);
         }
@@ -0,0 +1,21 @@
+package com.mlvisio.util;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Virtual threads are not available in the Java 11 build; servlet work runs
+ * on the container's threads. Build with `-Pjava21` to enable them.
+ */
+public final class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    public static boolean enabled() {
+        return false;
+    }
+
+    public static ExecutorService requestExecutor() {
+        return null;
+    }
+}
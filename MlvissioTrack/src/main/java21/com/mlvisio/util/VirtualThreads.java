@@ -0,0 +1,37 @@
+package com.mlvisio.util;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Virtual-thread request execution for the Java 21 build. On by default;
+ * `-Dmlvisio.virtualThreads=false` / `MLVISIO_VIRTUAL_THREADS=false` keeps
+ * servlet work on the container's threads.
+ */
+public final class VirtualThreads {
+
+    private static final boolean ENABLED = !"false".equalsIgnoreCase(config());
+
+    private VirtualThreads() {
+    }
+
+    private static final class Holder {
+        static final ExecutorService EXECUTOR =
+                Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("request-", 0).factory());
+    }
+
+    public static boolean enabled() {
+        return ENABLED;
+    }
+
+    /** One virtual thread per task, or null when disabled. */
+    public static ExecutorService requestExecutor() {
+        return ENABLED ? Holder.EXECUTOR : null;
+    }
+
+    private static String config() {
+        String value = System.getProperty("mlvisio.virtualThreads");
+        if (value == null || value.isEmpty()) value = System.getenv("MLVISIO_VIRTUAL_THREADS");
+        return value;
+    }
+}
@@ -0,0 +1,336 @@
+package com.mlvisio.storage;
+
+import com.google.cloud.Timestamp;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LogStructuredStoreTest {
+
+    private static final String USERS = "users";
+
+    @TempDir
+    Path dir;
+
+    private LogStructuredStore store;
+
+    @AfterEach
+    void closeStore() {
+        if (store != null) store.close();
+    }
+
+    @Test
+    void roundTripsEveryValueType() {
+        store = LogStructuredStore.open(dir);
+        Map<String, Object> nested = new HashMap<>();
+        nested.put("room", "A1");
+        nested.put("floor", 2L);
+        Map<String, Object> data = new HashMap<>();
+        data.put("name", "Nimal");
+        data.put("age", 21);
+        data.put("gpa", 3.5);
+        data.put("active", true);
+        data.put("nickname", null);
+        data.put("joined", Timestamp.ofTimeMicroseconds(1_700_000_000_000_000L));
+        data.put("tags", Arrays.asList("a", 1L, false));
+        data.put("seat", nested);
+        store.set(USERS, "u1", data);
+
+        Map<String, Object> expected = new HashMap<>(data);
+        expected.put("age", 21L);
+        assertEquals(expected, store.get(USERS, "u1").getData());
+
+        store.update(USERS, "u1", Collections.singletonMap("age", 22L));
+        assertEquals(22L, store.get(USERS, "u1").getLong("age"));
+        assertEquals("Nimal", store.get(USERS, "u1").getString("name"));
+
+        store.delete(USERS, "u1");
+        assertNull(store.get(USERS, "u1"));
+        assertThrows(StorageException.class, () -> store.update(USERS, "u1", Collections.singletonMap("age", 1L)));
+    }
+
+    @Test
+    void reopenReplaysEveryWrite() {
+        store = LogStructuredStore.open(dir);
+        store.set(USERS, "a", doc("name", "A"));
+        store.set(USERS, "b", doc("name", "B"));
+        store.update(USERS, "a", doc("name", "A2"));
+        store.delete(USERS, "b");
+        DocumentStore.Batch batch = store.batch();
+        batch.set(USERS, "c", doc("name", "C")).set(USERS, "d", doc("name", "D")).delete(USERS, "c");
+        batch.commit().join();
+
+        reopen();
+        assertEquals("A2", store.get(USERS, "a").getString("name"));
+        assertNull(store.get(USERS, "b"));
+        assertNull(store.get(USERS, "c"));
+        assertEquals("D", store.get(USERS, "d").getString("name"));
+    }
+
+    @Test
+    void reopenDropsACorruptedTailFrame() throws IOException {
+        store = LogStructuredStore.open(dir);
+        store.set(USERS, "kept", doc("name", "K"));
+        store.set(USERS, "torn", doc("name", "T"));
+        store.close();
+        store = null;
+
+        // Flip a payload byte of the last frame so its CRC no longer matches
+        Path log = dir.resolve("data-0.log");
+        int[] frames = frameOffsets(log);
+        int last = frames[frames.length - 1];
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer b = ByteBuffer.allocate(1);
+            channel.read(b, last + LogSegment.FRAME_OVERHEAD + 2);
+            b.flip();
+            byte flipped = (byte) (b.get(0) ^ 0x5A);
+            channel.write(ByteBuffer.wrap(new byte[]{flipped}), last + LogSegment.FRAME_OVERHEAD + 2);
+        }
+
+        store = LogStructuredStore.open(dir);
+        assertEquals("K", store.get(USERS, "kept").getString("name"));
+        assertNull(store.get(USERS, "torn"));
+
+        // The torn bytes were cleared, so a later write and reopen replay cleanly
+        store.set(USERS, "after", doc("name", "N"));
+        reopen();
+        assertEquals("K", store.get(USERS, "kept").getString("name"));
+        assertEquals("N", store.get(USERS, "after").getString("name"));
+        assertNull(store.get(USERS, "torn"));
+    }
+
+    @Test
+    void reopenDropsATruncatedTailFrame() throws IOException {
+        store = LogStructuredStore.open(dir);
+        store.set(USERS, "kept", doc("name", "K"));
+        store.set(USERS, "cut", doc("name", "a longer value so the frame can be cut in half"));
+        store.close();
+        store = null;
+
+        Path log = dir.resolve("data-0.log");
+        int[] frames = frameOffsets(log);
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.WRITE)) {
+            channel.truncate(frames[frames.length - 1] + LogSegment.FRAME_OVERHEAD + 4);
+        }
+
+        store = LogStructuredStore.open(dir);
+        assertEquals("K", store.get(USERS, "kept").getString("name"));
+        assertNull(store.get(USERS, "cut"));
+        store.set(USERS, "after", doc("name", "N"));
+        reopen();
+        assertEquals("N", store.get(USERS, "after").getString("name"));
+    }
+
+    @Test
+    void compactionKeepsLiveDocumentsAndSurvivesReopen() throws IOException {
+        store = LogStructuredStore.open(dir);
+        store.declareIndex(USERS, "department", false);
+        store.declareIndex(USERS, "year", true);
+        Map<String, Map<String, Object>> expected = new HashMap<>();
+        for (int i = 0; i < 500; i++) {
+            Map<String, Object> data = user(i % 3 == 0 ? "IT" : "EE", 1 + i % 4);
+            store.set(USERS, "u" + i, data);
+            expected.put("u" + i, data);
+        }
+        for (int i = 0; i < 500; i += 2) {
+            Map<String, Object> data = user("BM", 2);
+            store.set(USERS, "u" + i, data);
+            expected.put("u" + i, data);
+        }
+        for (int i = 1; i < 500; i += 5) {
+            store.delete(USERS, "u" + i);
+            expected.remove("u" + i);
+        }
+
+        store.compact();
+        assertTrue(Files.exists(dir.resolve("data-1.log")));
+        assertFalse(Files.exists(dir.resolve("data-0.log")));
+        assertContents(expected);
+        assertEquals(ids(expected, "department", "BM"), ids(store.find(USERS, Criteria.where("department", "BM"))));
+
+        // Writes after the switch land in the new generation
+        store.set(USERS, "late", user("IT", 3));
+        expected.put("late", user("IT", 3));
+        store.update(USERS, "u0", doc("department", "EE"));
+        expected.get("u0").put("department", "EE");
+
+        reopen();
+        store.declareIndex(USERS, "department", false);
+        assertContents(expected);
+        assertEquals(ids(expected, "department", "EE"), ids(store.find(USERS, Criteria.where("department", "EE"))));
+    }
+
+    @Test
+    void reopenKeepsTheNewestGenerationAndRemovesStaleFiles() throws IOException {
+        Path other = Files.createDirectory(dir.resolve("other"));
+        LogStructuredStore stale = LogStructuredStore.open(other);
+        stale.set(USERS, "stale", doc("name", "S"));
+        stale.close();
+
+        store = LogStructuredStore.open(dir);
+        store.set(USERS, "current", doc("name", "C"));
+        store.compact();
+        store.close();
+        store = null;
+
+        // An older generation left behind and an interrupted compaction's output
+        Files.copy(other.resolve("data-0.log"), dir.resolve("data-0.log"));
+        Files.write(dir.resolve("data-2.log.tmp"), new byte[]{1, 2, 3});
+
+        store = LogStructuredStore.open(dir);
+        assertEquals("C", store.get(USERS, "current").getString("name"));
+        assertNull(store.get(USERS, "stale"));
+        assertFalse(Files.exists(dir.resolve("data-0.log")));
+        assertFalse(Files.exists(dir.resolve("data-2.log.tmp")));
+        assertTrue(Files.exists(dir.resolve("data-1.log")));
+    }
+
+    @Test
+    void indexedQueriesMatchAScan() {
+        store = LogStructuredStore.open(dir);
+        store.declareIndex(USERS, "department", false);
+        store.declareIndex(USERS, "year", true);
+        Map<String, Map<String, Object>> expected = new HashMap<>();
+        String[] departments = {"IT", "EE", "BM", "QS"};
+        for (int i = 0; i < 200; i++) {
+            Map<String, Object> data = user(departments[i % 4], 1 + i % 5);
+            store.set(USERS, "u" + i, data);
+            expected.put("u" + i, data);
+        }
+        // Moving a document between index keys must leave no trace under the old one
+        for (int i = 0; i < 200; i += 7) {
+            store.update(USERS, "u" + i, doc("department", "IT", "year", 5));
+            expected.get("u" + i).put("department", "IT");
+            expected.get("u" + i).put("year", 5L);
+        }
+        for (int i = 3; i < 200; i += 11) {
+            store.delete(USERS, "u" + i);
+            expected.remove("u" + i);
+        }
+
+        assertEquals(ids(expected, "department", "IT"), ids(store.find(USERS, Criteria.where("department", "IT"))));
+        assertEquals(matching(expected, d -> "EE".equals(d.get("department")) && Long.valueOf(2).equals(d.get("year"))),
+                ids(store.find(USERS, Criteria.where("department", "EE").and("year", 2))));
+        assertEquals(matching(expected, d -> "BM".equals(d.get("department")) || "QS".equals(d.get("department"))),
+                ids(store.find(USERS, Criteria.all().in("department", Arrays.asList("BM", "QS")))));
+        assertEquals(matching(expected, d -> (Long) d.get("year") >= 3),
+                ids(store.find(USERS, Criteria.all().atLeast("year", 3))));
+        assertEquals(matching(expected, d -> (Long) d.get("year") < 3),
+                ids(store.find(USERS, Criteria.all().below("year", 3))));
+        assertEquals(matching(expected, d -> (Long) d.get("year") >= 2 && (Long) d.get("year") < 4),
+                ids(store.find(USERS, Criteria.all().atLeast("year", 2).below("year", 4))));
+        assertTrue(store.find(USERS, Criteria.where("department", "none")).isEmpty());
+
+        // A range bound of another type matches nothing, as in Firestore
+        assertTrue(store.find(USERS, Criteria.all().atLeast("year", "3")).isEmpty());
+
+        List<Document> ordered = store.find(USERS, Criteria.all().orderBy("year", true).limit(10));
+        assertEquals(10, ordered.size());
+        for (Document d : ordered) assertEquals(5L, d.getLong("year"));
+    }
+
+    @Test
+    void randomWritesMatchAMapAcrossCompactionsAndReopens() throws IOException {
+        store = LogStructuredStore.open(dir);
+        store.declareIndex(USERS, "department", false);
+        Map<String, Map<String, Object>> expected = new HashMap<>();
+        Random random = new Random(42);
+        String[] departments = {"IT", "EE", "BM"};
+        for (int step = 0; step < 5000; step++) {
+            String id = "u" + random.nextInt(300);
+            int op = random.nextInt(10);
+            if (op < 5) {
+                Map<String, Object> data = user(departments[random.nextInt(3)], 1 + random.nextInt(4));
+                store.set(USERS, id, data);
+                expected.put(id, data);
+            } else if (op < 8) {
+                if (!expected.containsKey(id)) continue;
+                String department = departments[random.nextInt(3)];
+                store.update(USERS, id, doc("department", department));
+                expected.get(id).put("department", department);
+            } else {
+                store.delete(USERS, id);
+                expected.remove(id);
+            }
+            if (step % 1000 == 999) store.compact();
+            if (step % 1500 == 1499) {
+                reopen();
+                store.declareIndex(USERS, "department", false);
+            }
+        }
+        assertContents(expected);
+        for (String department : departments) {
+            assertEquals(ids(expected, "department", department),
+                    ids(store.find(USERS, Criteria.where("department", department))));
+        }
+        reopen();
+        assertContents(expected);
+    }
+
+    // ---- helpers ------------------------------------------------------------------------------
+
+    private void reopen() {
+        store.close();
+        store = LogStructuredStore.open(dir);
+    }
+
+    private void assertContents(Map<String, Map<String, Object>> expected) {
+        List<Document> all = store.find(USERS, Criteria.all());
+        assertEquals(expected.keySet(), ids(all));
+        for (Document d : all) assertEquals(expected.get(d.getId()), d.getData(), d.getId());
+    }
+
+    // Offsets of every intact frame in a log file, by walking the frame lengths
+    private static int[] frameOffsets(Path log) throws IOException {
+        ByteBuffer file = ByteBuffer.wrap(Files.readAllBytes(log));
+        List<Integer> offsets = new ArrayList<>();
+        int position = LogSegment.HEADER;
+        while (position + LogSegment.FRAME_OVERHEAD <= file.capacity()) {
+            int length = file.getInt(position);
+            if (length == 0) break;
+            offsets.add(position);
+            position += LogSegment.FRAME_OVERHEAD + length;
+        }
+        return offsets.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static Map<String, Object> user(String department, long year) {
+        return doc("department", department, "year", year, "name", department + year);
+    }
+
+    private static Map<String, Object> doc(Object... pairs) {
+        Map<String, Object> data = new HashMap<>();
+        for (int i = 0; i < pairs.length; i += 2) {
+            Object value = pairs[i + 1];
+            data.put((String) pairs[i], value instanceof Integer ? Long.valueOf((Integer) value) : value);
+        }
+        return data;
+    }
+
+    private static Set<String> ids(List<Document> documents) {
+        return documents.stream().map(Document::getId).collect(Collectors.toSet());
+    }
+
+    private static Set<String> ids(Map<String, Map<String, Object>> documents, String field, Object value) {
+        return matching(documents, d -> value.equals(d.get(field)));
+    }
+
+    private static Set<String> matching(Map<String, Map<String, Object>> documents,
+                                        java.util.function.Predicate<Map<String, Object>> filter) {
+        return documents.entrySet().stream()
+                .filter(e -> filter.test(e.getValue()))
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,152 @@
+package com.mlvisio.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IntBitmapTest {
+
+    // Values span three containers, so key lookup and insertion are exercised too
+    private static final int RANGE = 3 << 16;
+
+    @Test
+    void addAndRemoveAcrossTheArrayLimit() {
+        IntBitmap bitmap = new IntBitmap();
+        BitSet expected = new BitSet();
+
+        // Fill one container to exactly 4096 values, then one past, then back under
+        for (int i = 0; i < 4096; i++) add(bitmap, expected, i * 3);
+        assertMatches(bitmap, expected);
+        add(bitmap, expected, 1);
+        assertMatches(bitmap, expected);
+        add(bitmap, expected, 1);
+        assertMatches(bitmap, expected);
+        remove(bitmap, expected, 1);
+        assertMatches(bitmap, expected);
+        remove(bitmap, expected, 0);
+        remove(bitmap, expected, 2);
+        assertMatches(bitmap, expected);
+
+        // Add and remove past the limit again, in both directions
+        for (int i = 0; i < 2000; i++) add(bitmap, expected, i * 3 + 1);
+        assertMatches(bitmap, expected);
+        for (int i = 0; i < 5000; i++) remove(bitmap, expected, i * 3);
+        assertMatches(bitmap, expected);
+
+        // Emptying a container drops it
+        for (int value : expected.stream().toArray()) remove(bitmap, expected, value);
+        assertMatches(bitmap, expected);
+        assertEquals(0, bitmap.cardinality());
+    }
+
+    @Test
+    void randomAddsAndRemovesMatchABitSet() {
+        Random random = new Random(7);
+        IntBitmap bitmap = new IntBitmap();
+        BitSet expected = new BitSet();
+        for (int step = 0; step < 60_000; step++) {
+            int value = random.nextInt(RANGE);
+            if (random.nextInt(3) == 0) remove(bitmap, expected, value);
+            else add(bitmap, expected, value);
+        }
+        assertMatches(bitmap, expected);
+        for (int i = 0; i < 1000; i++) {
+            int value = random.nextInt(RANGE);
+            assertEquals(expected.get(value), bitmap.contains(value), String.valueOf(value));
+        }
+    }
+
+    @Test
+    void setOperationsMatchABitSetForEveryContainerPairing() {
+        Random random = new Random(11);
+        // 300 values a container stays an array; 20000 turns into a bitset
+        int[] sizes = {0, 300, 4096, 4097, 20_000};
+        for (int left : sizes) {
+            for (int right : sizes) {
+                BitSet a = new BitSet();
+                BitSet b = new BitSet();
+                IntBitmap x = fill(random, left, a);
+                IntBitmap y = fill(random, right, b);
+                String pairing = left + " x " + right;
+
+                BitSet and = (BitSet) a.clone();
+                and.and(b);
+                assertMatches(x.and(y), and, pairing + " and");
+
+                BitSet or = (BitSet) a.clone();
+                or.or(b);
+                assertMatches(x.or(y), or, pairing + " or");
+
+                BitSet andNot = (BitSet) a.clone();
+                andNot.andNot(b);
+                assertMatches(x.andNot(y), andNot, pairing + " andNot");
+
+                // The operands are left alone
+                assertMatches(x, a, pairing + " left operand");
+                assertMatches(y, b, pairing + " right operand");
+            }
+        }
+    }
+
+    @Test
+    void resultsOfSetOperationsCanBeModified() {
+        Random random = new Random(3);
+        BitSet a = new BitSet();
+        BitSet b = new BitSet();
+        IntBitmap x = fill(random, 5000, a);
+        IntBitmap y = fill(random, 200, b);
+
+        IntBitmap union = x.or(y);
+        BitSet expected = (BitSet) a.clone();
+        expected.or(b);
+        for (int i = 0; i < 3000; i++) {
+            int value = random.nextInt(RANGE);
+            if (i % 2 == 0) add(union, expected, value);
+            else remove(union, expected, value);
+        }
+        assertMatches(union, expected);
+        assertMatches(x, a);
+    }
+
+    private static IntBitmap fill(Random random, int perContainer, BitSet into) {
+        IntBitmap bitmap = new IntBitmap();
+        for (int high = 0; high < 3; high++) {
+            // Leave the middle container out of some bitmaps, so keys only one side has are covered
+            if (high == 1 && random.nextBoolean()) continue;
+            BitSet container = new BitSet();
+            while (container.cardinality() < perContainer) container.set(random.nextInt(1 << 16));
+            for (int low = container.nextSetBit(0); low >= 0; low = container.nextSetBit(low + 1)) {
+                add(bitmap, into, (high << 16) | low);
+            }
+        }
+        return bitmap;
+    }
+
+    private static void add(IntBitmap bitmap, BitSet expected, int value) {
+        bitmap.add(value);
+        expected.set(value);
+    }
+
+    private static void remove(IntBitmap bitmap, BitSet expected, int value) {
+        bitmap.remove(value);
+        expected.clear(value);
+    }
+
+    private static void assertMatches(IntBitmap bitmap, BitSet expected) {
+        assertMatches(bitmap, expected, "");
+    }
+
+    private static void assertMatches(IntBitmap bitmap, BitSet expected, String message) {
+        List<Integer> values = new ArrayList<>();
+        bitmap.forEach(values::add);
+        List<Integer> expectedValues = new ArrayList<>();
+        expected.stream().forEach(expectedValues::add);
+        assertEquals(expectedValues, values, message);
+        assertEquals(expected.cardinality(), bitmap.cardinality(), message);
+    }
+}